@@ -1,7 +1,14 @@
 package it.polimi.deib.se2019.sanp4.adrenaline.client;
 
 import it.polimi.deib.se2019.sanp4.adrenaline.client.gui.SelectionHandler;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.AdrenalineProperties;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.HashedWheelTimer;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.events.Heartbeat;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.events.ResumeRequest;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.events.ResyncRequest;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.events.ViewEvent;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.exceptions.LoginException;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.MatchPreferences;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.network.RemoteView;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.observer.Observer;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.observer.RemoteObservable;
@@ -10,10 +17,14 @@ import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.ModelUpdate;
 import it.polimi.deib.se2019.sanp4.adrenaline.view.MessageType;
 import it.polimi.deib.se2019.sanp4.adrenaline.view.ViewScene;
 
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.NoSuchElementException;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -31,6 +42,10 @@ public class ClientView extends RemoteObservable<ViewEvent> implements RemoteVie
      * The username of the player owning the view
      */
     private String username;
+    /**
+     * The token of the session, given by the server at login
+     */
+    private String sessionToken;
     /**
      * The rendering engine used by the client
      */
@@ -67,8 +82,20 @@ public class ClientView extends RemoteObservable<ViewEvent> implements RemoteVie
 
     private final Object requestsLock = new Object();
 
+    /**
+     * The next heartbeat sent to the server, {@code null} before the login
+     */
+    private Future<?> nextHeartbeat;
+
+    /**
+     * The sequence number of the last received update of the model
+     */
+    private final AtomicLong lastSequence = new AtomicLong();
+
     public ClientView() {
         this.modelManager = new ModelManager();
+        // When some updates are missed, ask the server to send the whole model again
+        this.modelManager.setResyncCallback(() -> notifyObservers(new ResyncRequest(getUsername())));
         this.renderingManager = new RenderingManager(this);
         this.currentRequest = null;
         this.selectionHandler = null;
@@ -143,6 +170,22 @@ public class ClientView extends RemoteObservable<ViewEvent> implements RemoteVie
         return username;
     }
 
+    /**
+     * Logs in with given username through the server connection.
+     * If this client has already logged in with the same username, it presents the token of its session,
+     * so that it can take the place of its previous connection.
+     * The preferences on the match are read from the properties, see {@link MatchPreferences#fromProperties()}
+     *
+     * @param username The username of the player
+     * @throws IOException    if the server cannot be reached
+     * @throws LoginException if the login fails
+     */
+    public void login(String username) throws IOException, LoginException {
+        String token = username.equals(this.username) ? sessionToken : null;
+        sessionToken = serverConnection.login(username, token, MatchPreferences.fromProperties());
+        setUsername(username);
+    }
+
     /**
      * Sets the username of the player owning the view
      *
@@ -153,6 +196,32 @@ public class ClientView extends RemoteObservable<ViewEvent> implements RemoteVie
             throw new NullPointerException("Username cannot be null");
         }
         this.username = username;
+        startHeartbeats();
+        if (lastSequence.get() > 0) {
+            // We are logging in again: ask the server to send only the updates we missed
+            notifyObservers(new ResumeRequest(username, lastSequence.get()));
+        }
+    }
+
+    /**
+     * Starts sending heartbeats to the server at fixed intervals, if they have not been started yet.
+     * They let the server detect quickly if this client dies, see {@link Heartbeat}
+     */
+    private synchronized void startHeartbeats() {
+        if (nextHeartbeat == null) {
+            scheduleHeartbeat();
+        }
+    }
+
+    private synchronized void scheduleHeartbeat() {
+        long interval = Long.parseLong((String) AdrenalineProperties.getProperties()
+                .getOrDefault("adrenaline.heartbeat.interval", "1000"));
+        nextHeartbeat = HashedWheelTimer.getShared().newTimeout(this::sendHeartbeat, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private void sendHeartbeat() {
+        notifyObservers(new Heartbeat(username));
+        scheduleHeartbeat();
     }
 
     /**
@@ -276,6 +345,7 @@ public class ClientView extends RemoteObservable<ViewEvent> implements RemoteVie
 
     @Override
     public void update(ModelUpdate event) {
+        lastSequence.accumulateAndGet(event.getSequence(), Math::max);
         event.accept(modelManager);
         // We prevent the renderer to render updates when we are waiting to rejoin the match
         event.accept(renderingManager);
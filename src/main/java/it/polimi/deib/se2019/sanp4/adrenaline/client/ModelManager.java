@@ -6,10 +6,13 @@ import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.*;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.items.weapons.WeaponCard;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.match.Leaderboard;
 
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 /**
@@ -49,6 +52,18 @@ public class ModelManager implements ModelUpdateVisitor {
      */
     private Leaderboard leaderboard;
 
+    /**
+     * Called when some updates have been missed and the whole model is needed again
+     */
+    private Runnable resyncCallback;
+
+    /**
+     * Whether the whole model has already been requested, and it has not been received yet
+     */
+    private boolean resyncPending;
+
+    private static final Logger logger = Logger.getLogger(ModelManager.class.getName());
+
     ModelManager() {
         players = new HashMap<>();
         playerBoards = new HashMap<>();
@@ -157,6 +172,16 @@ public class ModelManager implements ModelUpdateVisitor {
         return leaderboard;
     }
 
+    /**
+     * Sets the callback to be called when a {@link DeltaUpdate} reveals that some updates have been missed.
+     * It is called only once until the next {@link InitialUpdate} is received
+     *
+     * @param resyncCallback the callback, which should ask the whole model to the server
+     */
+    public synchronized void setResyncCallback(Runnable resyncCallback) {
+        this.resyncCallback = resyncCallback;
+    }
+
     @Override
     public synchronized void handle(LobbyUpdate update) {
         // Do nothing, since this update is only used to render the list of connected players
@@ -212,6 +237,7 @@ public class ModelManager implements ModelUpdateVisitor {
         this.match = update.getMatch();
         this.players = update.getPlayers();
         this.playerBoards = update.getPlayerBoards();
+        this.resyncPending = false;
     }
 
     @Override
@@ -244,4 +270,58 @@ public class ModelManager implements ModelUpdateVisitor {
     public synchronized void handle(LeaderboardUpdate update) {
         this.leaderboard = update.getLeaderboard();
     }
+
+    @Override
+    public synchronized void handle(DeltaUpdate update) {
+        VersionedView view = findView(update);
+        if (view == null || update.getVersion() <= view.getVersion()) {
+            // Either we do not hold the entity yet, or we already have this version
+            return;
+        }
+        if (update.getBaseVersion() != view.getVersion()) {
+            // Some updates of this entity have been missed
+            requestResync();
+            return;
+        }
+        try {
+            update.applyTo(view);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not apply delta update", e);
+            requestResync();
+        }
+    }
+
+    /**
+     * Retrieves the local view of the entity changed by given update
+     *
+     * @param update The delta update
+     * @return The view of the entity, {@code null} if it is not present in the local model
+     */
+    private VersionedView findView(DeltaUpdate update) {
+        switch (update.getEntity()) {
+            case PLAYER:
+                return players.get(update.getPlayer());
+            case PLAYER_BOARD:
+                return playerBoards.get(update.getPlayer());
+            case SQUARE:
+                return board == null ? null : board.getSquare(update.getLocation());
+            case MATCH:
+                return match;
+            case PLAYER_TURN:
+                // The updates of a new turn are only applied after the turn has been received
+                return currentTurn != null && currentTurn.getPlayer().equals(update.getPlayer()) ? currentTurn : null;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Asks the whole model to the server, unless it has already been asked
+     */
+    private void requestResync() {
+        if (!resyncPending && resyncCallback != null) {
+            resyncPending = true;
+            resyncCallback.run();
+        }
+    }
 }
@@ -1,8 +1,10 @@
 package it.polimi.deib.se2019.sanp4.adrenaline.client;
 
 import it.polimi.deib.se2019.sanp4.adrenaline.common.AdrenalineProperties;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.HashedWheelTimer;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.events.ViewEvent;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.exceptions.LoginException;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.MatchPreferences;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.network.RemoteServer;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.network.RemoteView;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.observer.RemoteObservable;
@@ -15,8 +17,7 @@ import java.rmi.Naming;
 import java.rmi.NoSuchObjectException;
 import java.rmi.NotBoundException;
 import java.rmi.server.UnicastRemoteObject;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -33,7 +34,7 @@ public class RMIServerConnection extends RemoteObservable<ModelUpdate> implement
     private RemoteServer server;
     private ClientView view;
     private RemoteView viewStub;
-    private ScheduledExecutorService pingExecutor = Executors.newSingleThreadScheduledExecutor();
+    private Future<?> pingTimeout;
 
     private static final Logger logger = Logger.getLogger(RMIServerConnection.class.getName());
 
@@ -112,19 +113,22 @@ public class RMIServerConnection extends RemoteObservable<ModelUpdate> implement
         }
     }
 
-    private void startPing() {
-        /* Ping at fixed intervals */
-        pingExecutor.scheduleAtFixedRate(() -> {
-            try {
-                /* Try to ping the server */
-                server.ping();
-            } catch (IOException | NullPointerException e) {
-                /* If the server is unreachable, tell it to the view and stop pinging */
-                view.selectScene(ViewScene.DISCONNECTED);
-                pingExecutor.shutdown(); /* New tasks cannot be submitted */
-                close();
-            }
-        }, pingInterval, pingInterval, TimeUnit.SECONDS);
+    private synchronized void startPing() {
+        /* Ping at fixed intervals, using the shared timer */
+        if (pingTimeout != null) pingTimeout.cancel(false);
+        pingTimeout = HashedWheelTimer.getShared().newTimeout(this::ping, pingInterval, TimeUnit.SECONDS);
+    }
+
+    private void ping() {
+        try {
+            /* Try to ping the server */
+            server.ping();
+            startPing(); /* Schedule the next ping */
+        } catch (IOException | NullPointerException e) {
+            /* If the server is unreachable, tell it to the view and stop pinging */
+            view.selectScene(ViewScene.DISCONNECTED);
+            close();
+        }
     }
 
     /**
@@ -152,15 +156,19 @@ public class RMIServerConnection extends RemoteObservable<ModelUpdate> implement
     /**
      * Send a login request to the server
      * @param username The username of the user
+     * @param token The token of the session returned by the previous login, {@code null} if this is the first one
+     * @param preferences The kind of match the user would like to play, {@code null} if any match is fine
+     * @return The token of the session
      * @throws IOException if the server cannot be reached
      * @throws LoginException if the login fails
      */
     @Override
-    public void login(String username) throws IOException, LoginException {
+    public String login(String username, String token, MatchPreferences preferences)
+            throws IOException, LoginException {
         if (server == null) throw new IOException("Connection is not active");
 
         /* Attempt to log in with given username */
-        server.playerLogin(username, viewStub);
+        return server.playerLogin(username, token, preferences, viewStub);
     }
 
     /**
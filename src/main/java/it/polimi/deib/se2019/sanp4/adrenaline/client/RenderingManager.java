@@ -1,6 +1,8 @@
 package it.polimi.deib.se2019.sanp4.adrenaline.client;
 
+import it.polimi.deib.se2019.sanp4.adrenaline.common.modelviews.PlayerView;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.*;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.board.CoordPair;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.player.PlayerState;
 import it.polimi.deib.se2019.sanp4.adrenaline.view.ViewScene;
 
@@ -23,26 +25,36 @@ public class RenderingManager implements ModelUpdateVisitor {
     @Override
     public void handle(LobbyUpdate update) {
         if (clientView.getScene() == ViewScene.LOBBY) {
-            clientView.getRenderer().updateLobby(update.getWaitingPlayers(), update.isStarting());
+            clientView.getRenderer().updateLobby(update.getWaitingPlayers(), update.isStarting(),
+                    update.getQueuePosition());
         }
     }
 
     @Override
     public void handle(PlayerUpdate update) {
         if (clientView.getScene().isGameScene()) {
-            clientView.getRenderer().refreshPlayerBoard(update.getPlayer().getName());
-            // Also refresh the list of weapons (a player could have grabbed or discarded a weapon)
-            clientView.getRenderer().refreshOwnedWeapons();
-            // Then if the updated player is our user, we refresh the match info pane to update its score
-            if (update.getPlayer().getName().equals(clientView.getUsername())) {
-                clientView.getRenderer().refreshMatchInfo();
-                clientView.getRenderer().refreshAmmoInfo();
-                clientView.getRenderer().refreshOwnedPowerups();
-                if (update.getPlayer().getState().equals(PlayerState.SUSPENDED)) {
-                    clientView.getRenderer().showPreemptionScreen(
-                            "Suspended",
-                            "You have been suspended from the match, to rejoin open the client and log in with the same username");
-                }
+            refreshPlayer(update.getPlayer());
+        }
+    }
+
+    /**
+     * Refreshes the parts of the game screen which show the given player
+     *
+     * @param player The updated view of the player
+     */
+    private void refreshPlayer(PlayerView player) {
+        clientView.getRenderer().refreshPlayerBoard(player.getName());
+        // Also refresh the list of weapons (a player could have grabbed or discarded a weapon)
+        clientView.getRenderer().refreshOwnedWeapons();
+        // Then if the updated player is our user, we refresh the match info pane to update its score
+        if (player.getName().equals(clientView.getUsername())) {
+            clientView.getRenderer().refreshMatchInfo();
+            clientView.getRenderer().refreshAmmoInfo();
+            clientView.getRenderer().refreshOwnedPowerups();
+            if (player.getState().equals(PlayerState.SUSPENDED)) {
+                clientView.getRenderer().showPreemptionScreen(
+                        "Suspended",
+                        "You have been suspended from the match, to rejoin open the client and log in with the same username");
             }
         }
     }
@@ -55,12 +67,21 @@ public class RenderingManager implements ModelUpdateVisitor {
     @Override
     public void handle(SquareUpdate update) {
         if (clientView.getScene().isGameScene()) {
-            // First refresh the game board
-            clientView.getRenderer().refreshGameBoard(update.getSquare().getLocation());
-            // Then check whether the square is a spawn square and if yes refresh the spawn weapons
-            if (clientView.getModelManager().getBoard().getSpawnPoints().containsValue(update.getSquare().getLocation())) {
-                clientView.getRenderer().refreshSpawnWeapons();
-            }
+            refreshSquare(update.getSquare().getLocation());
+        }
+    }
+
+    /**
+     * Refreshes the parts of the game screen which show the square in given location
+     *
+     * @param location The location of the updated square
+     */
+    private void refreshSquare(CoordPair location) {
+        // First refresh the game board
+        clientView.getRenderer().refreshGameBoard(location);
+        // Then check whether the square is a spawn square and if yes refresh the spawn weapons
+        if (clientView.getModelManager().getBoard().getSpawnPoints().containsValue(location)) {
+            clientView.getRenderer().refreshSpawnWeapons();
         }
     }
 
@@ -132,4 +153,34 @@ public class RenderingManager implements ModelUpdateVisitor {
             clientView.getRenderer().updateLeaderBoard(update.getLeaderboard());
         }
     }
+
+    @Override
+    public void handle(DeltaUpdate update) {
+        if (!clientView.getScene().isGameScene()) {
+            return;
+        }
+        // The model manager has already applied the changes, so we refresh as for the whole entity
+        switch (update.getEntity()) {
+            case PLAYER:
+                PlayerView player = clientView.getModelManager().getPlayers().get(update.getPlayer());
+                if (player != null) {
+                    refreshPlayer(player);
+                }
+                break;
+            case PLAYER_BOARD:
+                clientView.getRenderer().refreshPlayerBoard(update.getPlayer());
+                break;
+            case SQUARE:
+                refreshSquare(update.getLocation());
+                break;
+            case MATCH:
+                clientView.getRenderer().refreshKillshotsTrack();
+                break;
+            case PLAYER_TURN:
+                clientView.getRenderer().refreshMatchInfo();
+                break;
+            default:
+                break;
+        }
+    }
 }
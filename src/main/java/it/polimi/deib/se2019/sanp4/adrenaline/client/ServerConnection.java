@@ -2,6 +2,7 @@ package it.polimi.deib.se2019.sanp4.adrenaline.client;
 
 import it.polimi.deib.se2019.sanp4.adrenaline.common.events.ViewEvent;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.exceptions.LoginException;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.MatchPreferences;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.observer.RemoteObserver;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.ModelUpdate;
 
@@ -47,10 +48,13 @@ public interface ServerConnection extends RemoteObserver<ViewEvent> {
     /**
      * Send a login request to the server
      * @param username The username of the user
+     * @param token The token of the session returned by the previous login, {@code null} if this is the first one
+     * @param preferences The kind of match the user would like to play, {@code null} if any match is fine
+     * @return The token of the session, to be presented when logging in again after losing the connection
      * @throws IOException if the server cannot be reached
      * @throws LoginException if the login fails
      */
-    void login(String username) throws IOException, LoginException;
+    String login(String username, String token, MatchPreferences preferences) throws IOException, LoginException;
 
     /**
      * Sends a logout request to the server
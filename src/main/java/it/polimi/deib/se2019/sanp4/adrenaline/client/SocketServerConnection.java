@@ -3,21 +3,22 @@ package it.polimi.deib.se2019.sanp4.adrenaline.client;
 import com.fasterxml.jackson.core.JsonGenerationException;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.AdrenalineProperties;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.events.ViewEvent;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.exceptions.LoginException;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.MatchPreferences;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket.*;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket.codec.WireCodec;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket.codec.WireCodecs;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.observer.Observable;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.observer.RemoteObservable;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.ModelUpdate;
-import it.polimi.deib.se2019.sanp4.adrenaline.common.JSONUtils;
 import it.polimi.deib.se2019.sanp4.adrenaline.view.ViewScene;
 
 import java.io.*;
 import java.net.Socket;
-import java.util.NoSuchElementException;
-import java.util.Scanner;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.logging.Level;
@@ -26,8 +27,8 @@ import java.util.logging.Logger;
 /**
  * Represents a connection to the server implemented by using TCP sockets.
  * <p>
- * The socket stream is used in a line-based fashion.
- * The data transmitted via the socket is serialized in JSON format (by Jackson).
+ * The connection starts with the line-based JSON protocol, then the codec negotiated
+ * at login (see {@link WireCodecs}) is used in both directions.
  * </p>
  * This connection executes in two threads:
  * <ul>
@@ -56,9 +57,24 @@ public class SocketServerConnection extends RemoteObservable<ModelUpdate>
     private OutputStream out;
 
     /**
-     * Scanner for reading from input stream
+     * Socket input stream
      */
-    private Scanner scanner;
+    private InputStream in;
+
+    /**
+     * Codec used to read incoming commands
+     */
+    private volatile WireCodec readCodec = WireCodecs.TEXT;
+
+    /**
+     * Codec used to send commands
+     */
+    private WireCodec writeCodec = WireCodecs.TEXT;
+
+    /**
+     * Lock held while writing on the socket, so the codec cannot change in the middle of a command
+     */
+    private final Object sendLock = new Object();
 
     /**
      * Executor for incoming commands
@@ -71,7 +87,6 @@ public class SocketServerConnection extends RemoteObservable<ModelUpdate>
     private Thread listener;
 
     /* Commodities */
-    private static final ObjectMapper objectMapper = JSONUtils.getNetworkObjectMapper();
     private static final Logger logger = Logger.getLogger(SocketServerConnection.class.getName());
 
     /**
@@ -151,9 +166,10 @@ public class SocketServerConnection extends RemoteObservable<ModelUpdate>
         socket.setKeepAlive(true);
         /* Bind the streams */
         out = new BufferedOutputStream(socket.getOutputStream());
-        InputStream in = new BufferedInputStream(socket.getInputStream());
-        /* Create scanner from the stream */
-        scanner = new Scanner(in);
+        in = new BufferedInputStream(socket.getInputStream());
+        /* Every new connection starts with the text codec */
+        readCodec = WireCodecs.TEXT;
+        writeCodec = WireCodecs.TEXT;
         logger.log(Level.INFO, () -> String.format("Successfully connected to %s:%d", hostname, port));
 
         /* Setup the listener for incoming commands */
@@ -204,12 +220,14 @@ public class SocketServerConnection extends RemoteObservable<ModelUpdate>
     public void sendCommand(SocketServerCommand command) throws IOException {
         if (!isClosed()) {
             try {
-                /* Serialize the command to a line */
-                String line = objectMapper.writeValueAsString(command) + "\n";
-                logger.log(Level.FINER, "Sending command: {0}", line);
-                /* Try to send the command */
-                out.write(line.getBytes());
-                out.flush();
+                synchronized (sendLock) {
+                    /* Serialize the command to a frame */
+                    byte[] frame = writeCodec.encode(command);
+                    logger.log(Level.FINER, "Sending command: {0}", command.getClass().getSimpleName());
+                    /* Try to send the command */
+                    out.write(frame);
+                    out.flush();
+                }
             } catch (JsonGenerationException | JsonMappingException e) {
                 /* This is just a problem with Jackson, not with the connection */
                 logger.log(Level.SEVERE, "Could not serialize command: ", e);
@@ -235,12 +253,13 @@ public class SocketServerConnection extends RemoteObservable<ModelUpdate>
     private SocketClientCommand receiveCommand() {
         if (!isClosed()) {
             try {
-                String s = scanner.nextLine();
-                logger.log(Level.FINER, () -> String.format("Received command: %s", s));
-                return objectMapper.readValue(s, SocketClientCommand.class);
+                WireCodec codec = readCodec;
+                SocketClientCommand command = codec.decode(codec.readFrame(in), SocketClientCommand.class);
+                logger.log(Level.FINER, "Received command: {0}", command.getClass().getSimpleName());
+                return command;
             } catch (JsonProcessingException e) {
                 logger.log(Level.WARNING, "Jackson could not deserialize command", e);
-            } catch (IOException | NoSuchElementException | IllegalStateException e) {
+            } catch (IOException e) {
                 /* This is a problem with the connection */
                 /* In either case, we interpret the connection as closed */
                 close(); /* Explicitly close the socket */
@@ -262,36 +281,50 @@ public class SocketServerConnection extends RemoteObservable<ModelUpdate>
     /* ======= SERVER METHODS ======== */
 
     /**
-     * Send a login request to the server
+     * Send a login request to the server.
+     * The request also offers the codecs supported by this client, the one chosen by the server
+     * is used as soon as the response is received
      *
      * @param username The username of the user
+     * @param token    The token of the session returned by the previous login, {@code null} if this is the first one
+     * @param preferences The kind of match the user would like to play, {@code null} if any match is fine
+     * @return The token of the session
      * @throws IOException    if the server cannot be reached
      * @throws LoginException if the login fails
      */
     @Override
-    public void login(String username) throws IOException, LoginException {
+    public String login(String username, String token, MatchPreferences preferences)
+            throws IOException, LoginException {
         if (username == null) throw new LoginException("Please specify an username");
 
-        /* Send the login command */
-        sendCommand(new LoginCommand(username));
-
-        /* Wait for the response */
         LoginResponse response = null;
-        do {
-            SocketClientCommand nextCommand = receiveCommand();
-            /* If null report connection closed */
-            if (nextCommand == null) {
-                throw new IOException("Connection closed");
-            }
+        /* Nothing else can be sent until the codec chosen by the server is known */
+        synchronized (sendLock) {
+            /* Send the login command */
+            sendCommand(new LoginCommand(username, token, preferences, WireCodecs.PROTOCOL_VERSION, getOfferedCodecs()));
 
-            if (nextCommand instanceof LoginResponse) {
-                /* If we get the response we can handle it */
-                response = (LoginResponse) nextCommand;
-            } else {
-                /* If we get other commands (e.g. ping), we can execute them asynchronously */
-                executeAsync(nextCommand);
-            }
-        } while (response == null);
+            /* Wait for the response */
+            do {
+                SocketClientCommand nextCommand = receiveCommand();
+                /* If null report connection closed */
+                if (nextCommand == null) {
+                    throw new IOException("Connection closed");
+                }
+
+                if (nextCommand instanceof LoginResponse) {
+                    /* If we get the response we can handle it */
+                    response = (LoginResponse) nextCommand;
+                } else {
+                    /* If we get other commands (e.g. ping), we can execute them asynchronously */
+                    executeAsync(nextCommand);
+                }
+            } while (response == null);
+
+            /* From now on, the server uses the negotiated codec */
+            WireCodec codec = WireCodecs.forName(response.getCodec());
+            readCodec = codec;
+            writeCodec = codec;
+        }
 
         /* Handle the response */
         if (!response.isSuccesful()) {
@@ -300,6 +333,24 @@ public class SocketServerConnection extends RemoteObservable<ModelUpdate>
             /* Start listening for server commands in a separate thread */
             listener.start();
         }
+        return response.getToken();
+    }
+
+    /**
+     * Returns the names of the codecs offered to the server, in order of preference:
+     * the one specified by the {@code adrenaline.socket.codec} property, then the text codec
+     *
+     * @return the names of the codecs offered to the server
+     */
+    private static List<String> getOfferedCodecs() {
+        String preferred = (String) AdrenalineProperties.getProperties()
+                .getOrDefault("adrenaline.socket.codec", "smile");
+        List<String> offered = new ArrayList<>();
+        offered.add(preferred);
+        if (!preferred.equals(WireCodecs.TEXT.getName())) {
+            offered.add(WireCodecs.TEXT.getName());
+        }
+        return offered;
     }
 
     /**
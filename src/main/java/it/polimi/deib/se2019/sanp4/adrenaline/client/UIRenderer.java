@@ -33,8 +33,10 @@ public interface UIRenderer extends ChoiceRequestVisitor {
      *
      * @param waitingPlayers The list of names of the connected players
      * @param matchStarting  {@code true} if the match is about to start with the connected players, {@code false} otherwise
+     * @param queuePosition  position of the match in the queue of the server (starting from 1),
+     *                       0 if the server is not queueing the match
      */
-    void updateLobby(Collection<String> waitingPlayers, boolean matchStarting);
+    void updateLobby(Collection<String> waitingPlayers, boolean matchStarting, int queuePosition);
 
     /**
      * Prepare the client for the game
@@ -29,6 +29,7 @@ public class CLIRenderer implements UIRenderer {
 
     private static final String LOBBY_MATCH_NOTSTARTING = "The match is about to start, wait for other players to join";
     private static final String LOBBY_MATCH_STARTING = "The match is starting soon with these players";
+    private static final String LOBBY_MATCH_QUEUED = "The server is full, your match is in position %d of the queue";
 
     private ClientView clientView;
 
@@ -98,8 +99,7 @@ public class CLIRenderer implements UIRenderer {
         boolean loggedIn = false;
         while (!loggedIn) {
             try {
-                clientView.getServerConnection().login(username);
-                clientView.setUsername(username);
+                clientView.login(username);
                 loggedIn = true;
             } catch (IOException e) {
                 CLIHelper.printError("An error occurred while logging in");
@@ -116,10 +116,14 @@ public class CLIRenderer implements UIRenderer {
      *
      * @param connectedPlayers The list of connected players
      */
-    private void printLobbyScreen(Collection<String> connectedPlayers, boolean matchStarting) {
+    private void printLobbyScreen(Collection<String> connectedPlayers, boolean matchStarting, int queuePosition) {
         CLIHelper.clearScreen();
         CLIHelper.printTitle("waiting room");
-        CLIHelper.println(matchStarting ? LOBBY_MATCH_STARTING : LOBBY_MATCH_NOTSTARTING);
+        if (queuePosition > 0) {
+            CLIHelper.println(LOBBY_MATCH_QUEUED, queuePosition);
+        } else {
+            CLIHelper.println(matchStarting ? LOBBY_MATCH_STARTING : LOBBY_MATCH_NOTSTARTING);
+        }
         CLIHelper.printlnColored("Connected players:", CLIHelper.ANSI_YELLOW);
         connectedPlayers.forEach(player -> CLIHelper.println("* %s", player));
         CLIHelper.startSpinner();
@@ -127,12 +131,12 @@ public class CLIRenderer implements UIRenderer {
 
     @Override
     public void showLobby() {
-        printLobbyScreen(Collections.emptyList(), false);
+        printLobbyScreen(Collections.emptyList(), false, 0);
     }
 
     @Override
-    public void updateLobby(Collection<String> connectedPlayers, boolean matchStarting) {
-        printLobbyScreen(connectedPlayers, matchStarting);
+    public void updateLobby(Collection<String> connectedPlayers, boolean matchStarting, int queuePosition) {
+        printLobbyScreen(connectedPlayers, matchStarting, queuePosition);
     }
 
     /**
@@ -169,12 +169,13 @@ public class GUIRenderer extends Application implements UIRenderer {
     }
 
     @Override
-    public void updateLobby(Collection<String> connectedPlayers, boolean matchStarting) {
+    public void updateLobby(Collection<String> connectedPlayers, boolean matchStarting, int queuePosition) {
         Platform.runLater(() -> {
             try {
                 LobbyController lobbyController = (LobbyController) currentController;
                 lobbyController.setConnectedPlayers(connectedPlayers);
                 lobbyController.setMatchStarting(matchStarting);
+                lobbyController.setQueuePosition(queuePosition);
             } catch (Exception e) {
                 // If the previous calls fail, it means the lobby is not yet initialized
                 logger.log(Level.WARNING, "Error when updating lobby, showing it again");
@@ -7,6 +7,7 @@ import javafx.beans.property.SimpleListProperty;
 import javafx.collections.FXCollections;
 import javafx.fxml.FXML;
 import javafx.scene.Scene;
+import javafx.scene.control.Label;
 import javafx.scene.control.ListView;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.VBox;
@@ -18,6 +19,7 @@ import java.util.Collection;
  * <ul>
  * <li>The players connected to the game</li>
  * <li>Whether the match is starting soon or not</li>
+ * <li>The position of the match in the queue of the server, if it is full</li>
  * </ul>
  *
  * @author Lorenzo Farinelli
@@ -34,6 +36,8 @@ public class LobbyController extends GUIController {
     private VBox connectedPlayersContainer;
     @FXML
     private VBox matchStartIndicator;
+    @FXML
+    private Label matchStartLabel;
 
     private ListProperty<String> connectedPlayers = new SimpleListProperty<>();
 
@@ -66,4 +70,18 @@ public class LobbyController extends GUIController {
     void setMatchStarting(boolean matchStarting) {
         this.matchStarting.set(matchStarting);
     }
+
+    /**
+     * Sets the position of the match in the queue of the server
+     *
+     * @param queuePosition The position, starting from 1, or 0 if the match is not queued
+     */
+    void setQueuePosition(int queuePosition) {
+        if (queuePosition > 0) {
+            matchStartLabel.setText(String.format("The server is full, your match is in position %d of the queue",
+                    queuePosition));
+        } else {
+            matchStartLabel.setText("The game is starting soon");
+        }
+    }
 }
\ No newline at end of file
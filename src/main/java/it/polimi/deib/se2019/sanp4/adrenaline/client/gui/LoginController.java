@@ -103,8 +103,7 @@ public class LoginController extends GUIController {
 
         // Try to log in with the provided username
         try {
-            clientView.getServerConnection().login(username.getValue());
-            clientView.setUsername(username.getValue());
+            clientView.login(username.getValue());
             loggedIn.set(true);
         } catch (IOException e) {
             new Alert(Alert.AlertType.ERROR, "A network error occurred").showAndWait();
@@ -31,11 +31,20 @@ public class AdrenalineProperties extends Properties {
      */
     private static final String[] ARGUMENTS = {
             "adrenaline.rmi.port", "adrenaline.socket.port",
+            "adrenaline.socket.mode", "adrenaline.socket.io.threads", "adrenaline.socket.command.threads",
+            "adrenaline.socket.codec",
+            "adrenaline.socket.queue.max", "adrenaline.socket.queue.overflow", "adrenaline.socket.queue.block",
             "adrenaline.server.hostname", "adrenaline.client.hostname",
             "adrenaline.rmi.ping.interval",
-            "adrenaline.timeout.turn", "adrenaline.timeout.lobby",
+            "adrenaline.heartbeat.interval", "adrenaline.heartbeat.phi", "adrenaline.heartbeat.pause",
+            "adrenaline.timeout.turn", "adrenaline.timeout.lobby", "adrenaline.timeout.ping",
             "adrenaline.timeout.config", "adrenaline.timeout.spawn", "adrenaline.timeout.revenge",
-            "adrenaline.players.min"
+            "adrenaline.timeout.update", "adrenaline.updates.backlog", "adrenaline.updates.batch",
+            "adrenaline.updates.replay",
+            "adrenaline.players.min", "adrenaline.matches.max", "adrenaline.matches.prewarm",
+            "adrenaline.lobbies.max",
+            "adrenaline.match.board", "adrenaline.match.skulls", "adrenaline.match.region",
+            "adrenaline.timer.tick", "adrenaline.timer.threads"
     };
     private static final long serialVersionUID = -2776486894760552339L;
 
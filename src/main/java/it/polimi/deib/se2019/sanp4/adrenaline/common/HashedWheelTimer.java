@@ -0,0 +1,318 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.common;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A timer which serves any number of timeouts with a single thread, using a hashed timing wheel.
+ * <p>
+ * The time is divided in ticks of fixed duration, and the wheel has a bucket for each tick of a round.
+ * A timeout is put in the bucket of the tick when it expires (plus the number of whole rounds to wait),
+ * so scheduling and cancelling a timeout take constant time, and at each tick the timer thread
+ * only looks at one bucket. The price is precision: a timeout expires on the first tick after its delay,
+ * which is fine for timeouts of seconds such as turns, respawns and pings.
+ * </p>
+ * <p>
+ * The timer thread never runs the tasks: expired tasks are handed to an executor, which is given
+ * with each timeout or is the shared pool of the timer. A {@link SerialExecutor} can be used to run the
+ * tasks of the same owner in order, without dedicating a thread to it.
+ * The timer of the whole application is returned by {@link #getShared()}: its tick is given by
+ * {@code adrenaline.timer.tick} (default 100 milliseconds) and its pool has
+ * {@code adrenaline.timer.threads} threads (default: number of available processors).
+ * </p>
+ *
+ * @author Alessandro Fulgini
+ */
+public class HashedWheelTimer {
+
+    private static final long DEFAULT_TICK_MILLIS = 100;
+
+    private static final int DEFAULT_WHEEL_SIZE = 512;
+
+    /** The timer shared by the whole application, created when it is needed for the first time */
+    private static HashedWheelTimer shared;
+
+    /** Duration of a tick, in nanoseconds */
+    private final long tickNanos;
+
+    /** The buckets, one for each tick of a round, only accessed by the timer thread */
+    private final List<Set<Timeout>> wheel;
+
+    /** Used to compute the index of a bucket, since the size of the wheel is a power of two */
+    private final int mask;
+
+    /** Executor of the tasks when no other executor is given */
+    private final Executor taskExecutor;
+
+    /** New timeouts, which are put in the wheel by the timer thread */
+    private final Queue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+
+    /** Cancelled timeouts, which are removed from the wheel by the timer thread */
+    private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+
+    /** The timer thread, started when the first timeout is scheduled */
+    private Thread worker;
+
+    /** Time when the timer thread started, all the deadlines are relative to this */
+    private volatile long startTime;
+
+    /** Signals that the start time has been set */
+    private final CountDownLatch started = new CountDownLatch(1);
+
+    /** Number of ticks since the start, only accessed by the timer thread */
+    private long tick;
+
+    private static final Logger logger = Logger.getLogger(HashedWheelTimer.class.getName());
+
+    /**
+     * A task scheduled on the timer.
+     * It can be used as a {@link Future} to wait for the task to be completed or to cancel it
+     */
+    public final class Timeout extends FutureTask<Void> {
+
+        /** When the timeout expires, relative to the start time of the timer */
+        private final long deadline;
+
+        /** The executor which runs the task */
+        private final Executor executor;
+
+        /** Rounds of the wheel to wait before expiring, only accessed by the timer thread */
+        private long remainingRounds;
+
+        /** The bucket which contains this timeout, only accessed by the timer thread */
+        private Set<Timeout> bucket;
+
+        private Timeout(Runnable task, long deadline, Executor executor) {
+            super(task, null);
+            this.deadline = deadline;
+            this.executor = executor;
+        }
+
+        /**
+         * Cancels the task, if it has not been run yet.
+         * The timeout is removed from the wheel at the next tick
+         *
+         * @param mayInterruptIfRunning if the thread running the task should be interrupted
+         * @return {@code false} if the task could not be cancelled, typically because it has already run
+         */
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) cancelledTimeouts.add(this);
+            return cancelled;
+        }
+
+        /* Called by the timer thread when the timeout expires */
+        private void expire() {
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                logger.log(Level.WARNING, "Cannot run expired task", e);
+            }
+        }
+    }
+
+    /**
+     * Creates a new timer.
+     * The timer thread is started when the first timeout is scheduled
+     *
+     * @param tickDuration the duration of a tick, greater than 0
+     * @param unit         the time unit of the tick duration, not null
+     * @param wheelSize    the number of buckets, it is rounded up to a power of two
+     * @param taskExecutor the executor of the tasks when no other executor is given, not null
+     * @throws IllegalArgumentException if the tick duration or the size of the wheel are not positive
+     */
+    @SuppressWarnings("unchecked")
+    public HashedWheelTimer(long tickDuration, TimeUnit unit, int wheelSize, Executor taskExecutor) {
+        if (tickDuration <= 0) throw new IllegalArgumentException("The tick duration must be greater than 0");
+        if (wheelSize <= 0) throw new IllegalArgumentException("The size of the wheel must be greater than 0");
+        if (taskExecutor == null) throw new NullPointerException("Executor cannot be null");
+
+        int size = 1;
+        while (size < wheelSize) size <<= 1;
+        wheel = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            wheel.add(new LinkedHashSet<>());
+        }
+        mask = size - 1;
+        tickNanos = unit.toNanos(tickDuration);
+        this.taskExecutor = taskExecutor;
+    }
+
+    /**
+     * Returns the timer shared by the whole application
+     *
+     * @return the shared timer
+     */
+    public static synchronized HashedWheelTimer getShared() {
+        if (shared == null) {
+            long tick = Long.parseLong((String) AdrenalineProperties.getProperties()
+                    .getOrDefault("adrenaline.timer.tick", Long.toString(DEFAULT_TICK_MILLIS)));
+            int threads = Integer.parseInt((String) AdrenalineProperties.getProperties()
+                    .getOrDefault("adrenaline.timer.threads",
+                            Integer.toString(Runtime.getRuntime().availableProcessors())));
+            AtomicInteger count = new AtomicInteger();
+            ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "adrenaline-timer-task-" + count.incrementAndGet());
+                /* These threads never keep the application alive on their own */
+                thread.setDaemon(true);
+                return thread;
+            });
+            shared = new HashedWheelTimer(tick, TimeUnit.MILLISECONDS, DEFAULT_WHEEL_SIZE, pool);
+        }
+        return shared;
+    }
+
+    /**
+     * Schedules a task which runs on the executor of the timer after given delay
+     *
+     * @param task  the task, not null
+     * @param delay the delay
+     * @param unit  the time unit of the delay, not null
+     * @return the timeout, which can be used to cancel the task or to wait for it
+     */
+    public Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+        return newTimeout(task, delay, unit, taskExecutor);
+    }
+
+    /**
+     * Schedules a task which runs on given executor after given delay
+     *
+     * @param task     the task, not null
+     * @param delay    the delay
+     * @param unit     the time unit of the delay, not null
+     * @param executor the executor which runs the task, not null
+     * @return the timeout, which can be used to cancel the task or to wait for it
+     */
+    public Timeout newTimeout(Runnable task, long delay, TimeUnit unit, Executor executor) {
+        if (task == null) throw new NullPointerException("Task cannot be null");
+        if (executor == null) throw new NullPointerException("Executor cannot be null");
+        start();
+
+        long deadline = System.nanoTime() + unit.toNanos(delay) - startTime;
+        Timeout timeout = new Timeout(task, deadline, executor);
+        pendingTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Returns the executor which runs the tasks when no other executor is given
+     *
+     * @return the executor of the tasks
+     */
+    public Executor getTaskExecutor() {
+        return taskExecutor;
+    }
+
+    /* Starts the timer thread, if it has not been started yet */
+    private void start() {
+        synchronized (this) {
+            if (worker == null) {
+                worker = new Thread(this::run, "adrenaline-timer");
+                worker.setDaemon(true);
+                worker.start();
+            }
+        }
+        /* Wait for the start time to be set */
+        boolean interrupted = false;
+        while (started.getCount() > 0) {
+            try {
+                started.await();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    /**
+     * Stops the timer thread.
+     * The timeouts which have not expired yet are never run
+     */
+    public synchronized void stop() {
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    /* ========== TIMER THREAD ========== */
+
+    /* Runs the ticks, until the timer is stopped */
+    private void run() {
+        startTime = System.nanoTime();
+        started.countDown();
+
+        while (!Thread.currentThread().isInterrupted()) {
+            long deadline = waitForNextTick();
+            if (deadline < 0) break;
+
+            removeCancelledTimeouts();
+            transferPendingTimeouts();
+            expireTimeouts(wheel.get((int) (tick & mask)), deadline);
+            tick++;
+        }
+        logger.log(Level.FINE, "End of timer thread");
+    }
+
+    /* Sleeps until the end of the current tick, returns its time (or -1 if the timer has been stopped) */
+    private long waitForNextTick() {
+        long deadline = tickNanos * (tick + 1);
+        while (true) {
+            long current = System.nanoTime() - startTime;
+            long sleepMillis = (deadline - current + 999999) / 1000000;
+            if (sleepMillis <= 0) return current;
+            try {
+                Thread.sleep(sleepMillis);
+            } catch (InterruptedException e) {
+                return -1;
+            }
+        }
+    }
+
+    /* Puts the new timeouts in their bucket */
+    private void transferPendingTimeouts() {
+        Timeout timeout;
+        while ((timeout = pendingTimeouts.poll()) != null) {
+            if (timeout.isCancelled()) continue;
+
+            long expiringTick = timeout.deadline / tickNanos;
+            timeout.remainingRounds = (expiringTick - tick) / wheel.size();
+            /* A timeout which is already expired goes in the current bucket */
+            long ticks = Math.max(expiringTick, tick);
+            timeout.bucket = wheel.get((int) (ticks & mask));
+            timeout.bucket.add(timeout);
+        }
+    }
+
+    /* Removes the cancelled timeouts from their bucket */
+    private void removeCancelledTimeouts() {
+        Timeout timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+                timeout.bucket = null;
+            }
+        }
+    }
+
+    /* Runs the expired timeouts of the bucket, the others wait for the next round */
+    private void expireTimeouts(Set<Timeout> bucket, long deadline) {
+        bucket.removeIf(timeout -> {
+            if (timeout.isCancelled()) return true;
+            if (timeout.remainingRounds <= 0 && timeout.deadline <= deadline) {
+                timeout.bucket = null;
+                timeout.expire();
+                return true;
+            }
+            if (timeout.remainingRounds > 0) timeout.remainingRounds--;
+            return false;
+        });
+    }
+}
@@ -0,0 +1,76 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.common;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+/**
+ * An executor which runs the submitted tasks one at a time, in submission order,
+ * by delegating them to another (possibly shared) executor.
+ * <p>
+ * This can be used to keep the ordering guarantees of a single-thread executor without
+ * dedicating a thread to it: many serial executors can share the same pool.
+ * </p>
+ *
+ * @author Alessandro Fulgini
+ */
+public class SerialExecutor implements Executor {
+
+    /** The executor which actually runs the tasks */
+    private final Executor executor;
+
+    /** Tasks waiting to be run */
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+    /** The task which is currently running, {@code null} if none */
+    private Runnable active;
+
+    /**
+     * Creates a new serial executor which runs its tasks on given executor
+     *
+     * @param executor the executor which actually runs the tasks, not null
+     */
+    public SerialExecutor(Executor executor) {
+        if (executor == null) throw new NullPointerException("Executor cannot be null");
+        this.executor = executor;
+    }
+
+    /**
+     * Submits given task, which will be run after all the previously submitted tasks have completed
+     *
+     * @param command the task to be run, not null
+     */
+    @Override
+    public synchronized void execute(Runnable command) {
+        if (command == null) throw new NullPointerException("Command cannot be null");
+        tasks.add(() -> {
+            try {
+                command.run();
+            } finally {
+                scheduleNext();
+            }
+        });
+        if (active == null) {
+            scheduleNext();
+        }
+    }
+
+    /**
+     * Returns the number of tasks which are waiting to be run
+     *
+     * @return the number of tasks which are waiting to be run
+     */
+    public synchronized int getPendingCount() {
+        return tasks.size();
+    }
+
+    /**
+     * Hands the next task (if any) to the underlying executor
+     */
+    private synchronized void scheduleNext() {
+        active = tasks.poll();
+        if (active != null) {
+            executor.execute(active);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.common.events;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * An event sent periodically by the client, to tell the server that it is still alive.
+ * The server uses the arrival times of the heartbeats to detect a client which failed silently,
+ * without waiting for a remote call to fail
+ *
+ * @author Alessandro Fulgini
+ */
+public class Heartbeat extends ViewEvent {
+
+    private static final long serialVersionUID = 2867301158244750413L;
+
+    /**
+     * Creates a new heartbeat
+     *
+     * @param sender the username of the player who is alive
+     */
+    @JsonCreator
+    public Heartbeat(@JsonProperty("sender") String sender) {
+        super(sender);
+    }
+
+    @Override
+    public void accept(ViewEventVisitor visitor) {
+        visitor.visit(this);
+    }
+}
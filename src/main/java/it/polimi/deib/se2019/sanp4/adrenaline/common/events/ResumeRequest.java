@@ -0,0 +1,44 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.common.events;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * An event sent by a client after logging in again, which tells the last update of the model it received
+ * (see {@code ModelUpdate.getSequence()}), so that the server can send only the updates it missed
+ * instead of the whole state of the model
+ *
+ * @author Alessandro Fulgini
+ */
+public class ResumeRequest extends ViewEvent {
+
+    private static final long serialVersionUID = 5306719248331785514L;
+
+    private final long lastSequence;
+
+    /**
+     * Creates a new resume request
+     *
+     * @param sender       the username of the player who reconnected
+     * @param lastSequence the sequence number of the last update received by the client
+     */
+    @JsonCreator
+    public ResumeRequest(@JsonProperty("sender") String sender, @JsonProperty("lastSequence") long lastSequence) {
+        super(sender);
+        this.lastSequence = lastSequence;
+    }
+
+    /**
+     * Returns the sequence number of the last update received by the client
+     *
+     * @return the sequence number of the last received update
+     */
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    @Override
+    public void accept(ViewEventVisitor visitor) {
+        visitor.visit(this);
+    }
+}
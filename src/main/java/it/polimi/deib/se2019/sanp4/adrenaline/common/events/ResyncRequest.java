@@ -0,0 +1,31 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.common.events;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * An event generated when the client detects that it missed some updates of the model
+ * (e.g. it received a {@code DeltaUpdate} which does not follow the version it holds),
+ * so it needs the whole state of the model again
+ *
+ * @author Alessandro Fulgini
+ */
+public class ResyncRequest extends ViewEvent {
+
+    private static final long serialVersionUID = -6172533093650416872L;
+
+    /**
+     * Creates a new resync request
+     *
+     * @param sender the username of the player who needs the state of the model
+     */
+    @JsonCreator
+    public ResyncRequest(@JsonProperty("sender") String sender) {
+        super(sender);
+    }
+
+    @Override
+    public void accept(ViewEventVisitor visitor) {
+        visitor.visit(this);
+    }
+}
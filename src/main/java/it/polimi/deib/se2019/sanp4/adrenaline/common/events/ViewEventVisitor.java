@@ -19,4 +19,25 @@ public interface ViewEventVisitor {
      * @param <T>            the type of the choice
      */
     <T extends Serializable> void visit(ChoiceResponse<T> choiceResponse);
+
+    /**
+     * Handles given request to send again the whole state of the model
+     *
+     * @param resyncRequest the resync request event
+     */
+    void visit(ResyncRequest resyncRequest);
+
+    /**
+     * Handles given heartbeat of the client
+     *
+     * @param heartbeat the heartbeat event
+     */
+    void visit(Heartbeat heartbeat);
+
+    /**
+     * Handles given request to send the updates missed by a reconnected client
+     *
+     * @param resumeRequest the resume request event
+     */
+    void visit(ResumeRequest resumeRequest);
 }
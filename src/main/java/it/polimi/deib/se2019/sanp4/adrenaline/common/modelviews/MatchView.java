@@ -11,7 +11,7 @@ import java.util.List;
  *
  * @author Tiziano Fucci, Lorenzo Farinelli
  */
-public class MatchView implements Serializable {
+public class MatchView implements Serializable, VersionedView {
 
     private static final long serialVersionUID = 4604955484168954165L;
     /**
@@ -27,6 +27,11 @@ public class MatchView implements Serializable {
      */
     private boolean frenzy;
 
+    /**
+     * The version of the match, incremented each time it changes
+     */
+    private long version;
+
     /**
      * Creates a new match view
      */
@@ -94,4 +99,24 @@ public class MatchView implements Serializable {
     public void setFrenzy(boolean frenzy) {
         this.frenzy = frenzy;
     }
+
+    /**
+     * Retrieves the version of the match this view has been generated from
+     *
+     * @return the version
+     */
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Sets the version of the match this view has been generated from
+     *
+     * @param version the version
+     */
+    @Override
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
@@ -9,7 +9,7 @@ import java.util.List;
  *
  * @author Tiziano Fucci, Lorenzo Farinelli
  */
-public class PlayerBoardView implements Serializable {
+public class PlayerBoardView implements Serializable, VersionedView {
     private static final long serialVersionUID = 4751123925171736434L;
     /**
      * Damages received by other players
@@ -28,6 +28,11 @@ public class PlayerBoardView implements Serializable {
      */
     private String state;
 
+    /**
+     * The version of the player board, incremented each time it changes
+     */
+    private long version;
+
     /**
      * Creates a new player board view
      */
@@ -135,4 +140,24 @@ public class PlayerBoardView implements Serializable {
     public void setState(String state) {
         this.state = state;
     }
+
+    /**
+     * Retrieves the version of the player board this view has been generated from
+     *
+     * @return the version
+     */
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Sets the version of the player board this view has been generated from
+     *
+     * @param version the version
+     */
+    @Override
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
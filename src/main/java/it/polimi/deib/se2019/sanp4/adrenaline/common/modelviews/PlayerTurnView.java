@@ -10,7 +10,7 @@ import java.io.Serializable;
  *
  * @author Tiziano Fucci, Lorenzo Farinelli
  */
-public class PlayerTurnView implements Serializable {
+public class PlayerTurnView implements Serializable, VersionedView {
 
     private static final long serialVersionUID = 807916643928825880L;
     /**
@@ -28,6 +28,11 @@ public class PlayerTurnView implements Serializable {
      */
     private PlayerTurnState state;
 
+    /**
+     * The version of the turn, incremented each time it changes
+     */
+    private long version;
+
     /**
      * Creates a new player turn view
      *
@@ -103,4 +108,24 @@ public class PlayerTurnView implements Serializable {
             this.state = state;
         }
     }
+
+    /**
+     * Retrieves the version of the turn this view has been generated from
+     *
+     * @return the version
+     */
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Sets the version of the turn this view has been generated from
+     *
+     * @param version the version
+     */
+    @Override
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
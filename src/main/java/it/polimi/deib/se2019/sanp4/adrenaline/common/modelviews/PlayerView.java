@@ -18,7 +18,7 @@ import java.util.Map;
  *
  * @author Tiziano Fucci, Lorenzo Farinelli
  */
-public class PlayerView implements Serializable {
+public class PlayerView implements Serializable, VersionedView {
 
     private static final long serialVersionUID = 4565784735927811143L;
     /**
@@ -50,6 +50,11 @@ public class PlayerView implements Serializable {
      */
     private PlayerState state;
 
+    /**
+     * The version of the player, incremented each time it changes
+     */
+    private long version;
+
     /**
      * Creates a new player view
      *
@@ -187,4 +192,24 @@ public class PlayerView implements Serializable {
     public void setState(PlayerState state) {
         this.state = state;
     }
+
+    /**
+     * Retrieves the version of the player this view has been generated from
+     *
+     * @return the version
+     */
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Sets the version of the player this view has been generated from
+     *
+     * @param version the version
+     */
+    @Override
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
@@ -23,7 +23,7 @@ import java.util.*;
         @JsonSubTypes.Type(value = SpawnSquareView.class, name = "SPAWN_SQUARE_VIEW"),
         @JsonSubTypes.Type(value = AmmoSquareView.class, name = "AMMO_SQUARE_VIEW"),
 })
-public abstract class SquareView implements Serializable {
+public abstract class SquareView implements Serializable, VersionedView {
 
     private static final long serialVersionUID = 1076256883407049643L;
 
@@ -45,6 +45,11 @@ public abstract class SquareView implements Serializable {
      */
     private Map<CardinalDirection, SquareConnectionType> adjacentMap;
 
+    /**
+     * The version of the square, incremented each time it changes
+     */
+    private long version;
+
     /**
      * Creates a new square view
      *
@@ -158,4 +163,24 @@ public abstract class SquareView implements Serializable {
             this.adjacentMap = adjacentMap;
         }
     }
+
+    /**
+     * Retrieves the version of the square this view has been generated from
+     *
+     * @return the version
+     */
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Sets the version of the square this view has been generated from
+     *
+     * @param version the version
+     */
+    @Override
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
@@ -0,0 +1,25 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.common.modelviews;
+
+/**
+ * A view of a model entity which is kept up to date on the client with {@code DeltaUpdate}s.
+ * The version is incremented by the server each time the entity changes, so the client can
+ * detect if it missed an update
+ *
+ * @author Alessandro Fulgini
+ */
+public interface VersionedView {
+
+    /**
+     * Retrieves the version of the entity this view has been generated from
+     *
+     * @return the version of the entity
+     */
+    long getVersion();
+
+    /**
+     * Sets the version of the entity this view has been generated from
+     *
+     * @param version the version of the entity
+     */
+    void setVersion(long version);
+}
@@ -0,0 +1,131 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.common.network;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.AdrenalineProperties;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * The kind of match a player would like to play, declared at login.
+ * <p>
+ * The server keeps a lobby for each combination of preferences, so the players who want the same
+ * board and number of skulls are matched together, and the match starts without asking anyone for
+ * its configuration. The region tag only partitions the players (e.g. to match players who are close
+ * to each other), it is not part of the configuration of the match.
+ * Each preference can be left out ({@code null}): the player then accepts any value.
+ * </p>
+ * <p>
+ * The client reads its preferences from {@code adrenaline.match.board}, {@code adrenaline.match.skulls}
+ * and {@code adrenaline.match.region} (see {@link #fromProperties()}).
+ * </p>
+ *
+ * @author Alessandro Fulgini
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MatchPreferences implements Serializable {
+
+    private static final long serialVersionUID = 4118573298830427619L;
+
+    /** Preferences of a player who accepts any match */
+    public static final MatchPreferences ANY = new MatchPreferences(null, null, null);
+
+    private final Integer boardId;
+
+    private final Integer skulls;
+
+    private final String region;
+
+    /**
+     * Creates new match preferences
+     *
+     * @param boardId id of the preferred board, {@code null} if any board is fine
+     * @param skulls  preferred number of skulls, {@code null} if any number is fine
+     * @param region  region tag of the player, {@code null} if any region is fine
+     */
+    @JsonCreator
+    public MatchPreferences(@JsonProperty("boardId") Integer boardId,
+                            @JsonProperty("skulls") Integer skulls,
+                            @JsonProperty("region") String region) {
+        this.boardId = boardId;
+        this.skulls = skulls;
+        this.region = region == null || region.isEmpty() ? null : region;
+    }
+
+    /**
+     * Creates the preferences given in the properties of the client
+     *
+     * @return the preferences of the client, {@link #ANY} if none has been given
+     */
+    public static MatchPreferences fromProperties() {
+        AdrenalineProperties properties = AdrenalineProperties.getProperties();
+        String boardId = (String) properties.get("adrenaline.match.board");
+        String skulls = (String) properties.get("adrenaline.match.skulls");
+        String region = (String) properties.get("adrenaline.match.region");
+        if (boardId == null && skulls == null && region == null) return ANY;
+        return new MatchPreferences(boardId == null ? null : Integer.valueOf(boardId),
+                skulls == null ? null : Integer.valueOf(skulls), region);
+    }
+
+    /**
+     * Returns the id of the preferred board
+     *
+     * @return the id of the board, {@code null} if any board is fine
+     */
+    public Integer getBoardId() {
+        return boardId;
+    }
+
+    /**
+     * Returns the preferred number of skulls
+     *
+     * @return the number of skulls, {@code null} if any number is fine
+     */
+    public Integer getSkulls() {
+        return skulls;
+    }
+
+    /**
+     * Returns the region tag of the player
+     *
+     * @return the region tag, {@code null} if any region is fine
+     */
+    public String getRegion() {
+        return region;
+    }
+
+    /**
+     * Tells whether a player with these preferences can play a match with the given ones, that is
+     * if each of these preferences is either left out or equal to the given one
+     *
+     * @param other the preferences of the match, not null
+     * @return {@code true} if the match satisfies these preferences
+     */
+    public boolean acceptsMatch(MatchPreferences other) {
+        return (boardId == null || boardId.equals(other.boardId)) &&
+                (skulls == null || skulls.equals(other.skulls)) &&
+                (region == null || region.equals(other.region));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        MatchPreferences that = (MatchPreferences) o;
+        return Objects.equals(boardId, that.boardId) &&
+                Objects.equals(skulls, that.skulls) &&
+                Objects.equals(region, that.region);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(boardId, skulls, region);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("board=%s, skulls=%s, region=%s", boardId, skulls, region);
+    }
+}
@@ -11,6 +11,7 @@ import it.polimi.deib.se2019.sanp4.adrenaline.view.ViewScene;
 import java.io.IOException;
 import java.io.Serializable;
 import java.rmi.Remote;
+import java.util.List;
 
 /**
  * Interface provided by the view of a remote host.
@@ -94,4 +95,17 @@ public interface RemoteView extends RemoteObserver<ModelUpdate>, Remote {
      * @throws IOException If there is no connectivity
      */
     void ping() throws IOException;
+
+    /**
+     * Receives more updates at once, in order.
+     * This is used to send all the waiting updates with a single remote call
+     *
+     * @param updates the updates, in the order they have to be handled, not null
+     * @throws IOException if the remote call fails
+     */
+    default void updateAll(List<ModelUpdate> updates) throws IOException {
+        for (ModelUpdate update : updates) {
+            update(update);
+        }
+    }
 }
@@ -1,28 +1,91 @@
 package it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.exceptions.LoginException;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.MatchPreferences;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.network.RemoteView;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket.codec.WireCodec;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket.codec.WireCodecs;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
- * Sent when a user with Socket connection wants to log in
+ * Sent when a user with Socket connection wants to log in.
+ * <p>
+ * The command also declares the protocol version of the client and the codecs it supports:
+ * the server uses them to negotiate the codec of the connection (see {@link WireCodecs}).
+ * A client which lost the connection also presents the token of its session, so that it can take
+ * the place of its previous connection, and a player who is not in a match declares the kind of match
+ * he would like to play (see {@link MatchPreferences})
+ * </p>
  * @author Alessandro Fulgini
  */
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class LoginCommand implements SocketServerCommand {
 
     private String username;
 
+    private String token;
+
+    private MatchPreferences preferences;
+
+    private int protocolVersion;
+
+    private List<String> codecs;
+
+    /**
+     * Creates a new login command with given username, which does not negotiate the codec
+     * @param username the name of the player who wants to log in
+     */
+    public LoginCommand(String username) {
+        this(username, 0, null);
+    }
+
+    /**
+     * Creates a new login command with given username, without a session token
+     * @param username the name of the player who wants to log in
+     * @param protocolVersion the version of the protocol spoken by the client
+     * @param codecs the names of the codecs supported by the client, in order of preference, may be null
+     */
+    public LoginCommand(String username, int protocolVersion, List<String> codecs) {
+        this(username, null, protocolVersion, codecs);
+    }
+
+    /**
+     * Creates a new login command with given username, without preferences on the match
+     * @param username the name of the player who wants to log in
+     * @param token the token of the session returned by the previous login, may be null
+     * @param protocolVersion the version of the protocol spoken by the client
+     * @param codecs the names of the codecs supported by the client, in order of preference, may be null
+     */
+    public LoginCommand(String username, String token, int protocolVersion, List<String> codecs) {
+        this(username, token, null, protocolVersion, codecs);
+    }
+
     /**
      * Creates a new login command with given username
      * @param username the name of the player who wants to log in
+     * @param token the token of the session returned by the previous login, may be null
+     * @param preferences the kind of match the player would like to play, may be null
+     * @param protocolVersion the version of the protocol spoken by the client
+     * @param codecs the names of the codecs supported by the client, in order of preference, may be null
      */
     @JsonCreator
-    public LoginCommand(@JsonProperty("username") String username) {
+    public LoginCommand(@JsonProperty("username") String username,
+                        @JsonProperty("token") String token,
+                        @JsonProperty("preferences") MatchPreferences preferences,
+                        @JsonProperty("protocolVersion") int protocolVersion,
+                        @JsonProperty("codecs") List<String> codecs) {
         if (username == null) throw new NullPointerException("Username cannot be null");
         this.username = username;
+        this.token = token;
+        this.preferences = preferences;
+        this.protocolVersion = protocolVersion;
+        this.codecs = codecs == null ? null : new ArrayList<>(codecs);
     }
 
     /**
@@ -34,7 +97,51 @@ public class LoginCommand implements SocketServerCommand {
     }
 
     /**
-     * Applies the command to given target, namely it is the {@code SocketRemoteView}
+     * Returns the token of the session returned by the previous login
+     * @return the token of the session, {@code null} if not presented
+     */
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * Returns the kind of match the player would like to play
+     * @return the preferences on the match, {@code null} if not declared
+     */
+    public MatchPreferences getPreferences() {
+        return preferences;
+    }
+
+    /**
+     * Returns the version of the protocol spoken by the client
+     * @return the version of the protocol, 0 if not declared
+     */
+    @JsonInclude(JsonInclude.Include.NON_DEFAULT)
+    public int getProtocolVersion() {
+        return protocolVersion;
+    }
+
+    /**
+     * Returns the names of the codecs supported by the client
+     * @return the names of the codecs supported by the client, {@code null} if not declared
+     */
+    public List<String> getCodecs() {
+        return codecs;
+    }
+
+    /**
+     * Returns the codec that will be used on the connection after this command has been applied
+     * @return the negotiated codec
+     */
+    public WireCodec negotiateCodec() {
+        return WireCodecs.negotiate(protocolVersion, codecs);
+    }
+
+    /**
+     * Applies the command to given target, namely it is the {@code SocketRemoteView}.
+     * The response is sent with the codec in use before this command, then the target
+     * switches to the negotiated codec: the two steps are atomic, so no other frame
+     * can be queued between them with the wrong codec
      *
      * @param target target of the command
      */
@@ -42,20 +149,20 @@ public class LoginCommand implements SocketServerCommand {
     public void applyOn(SocketServerCommandTarget target) {
         SocketServer server = target.getServer();
         RemoteView stub = target.getRemoteView();
-        boolean success;
+        String sessionToken;
 
         /* Execute the login on the server */
         try {
-            server.playerLogin(username, stub);
-            target.setUsername(username);
-            success = true; /* Logged in correctly */
+            sessionToken = server.playerLogin(username, token, preferences, stub);
+            target.setUsername(username); /* Logged in correctly */
         } catch (LoginException e) {
-            success = false; /* The name was already taken */
+            sessionToken = null; /* The name was already taken */
         }
 
-        /* Send the response to the client */
+        /* Send the response to the client, then switch to the negotiated codec */
+        WireCodec codec = negotiateCodec();
         try {
-            target.sendCommand(new LoginResponse(success));
+            target.sendLoginResponse(new LoginResponse(sessionToken != null, codec.getName(), sessionToken), codec);
         } catch (IOException e) {
             /* If sending the command fails, do nothing */
         }
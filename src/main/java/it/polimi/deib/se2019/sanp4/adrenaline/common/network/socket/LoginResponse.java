@@ -1,7 +1,9 @@
 package it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket.codec.JsonLineCodec;
 
 /**
  * Response to {@link LoginCommand}
@@ -11,13 +13,41 @@ public class LoginResponse implements SocketClientCommand {
 
     private boolean succesful;
 
+    /* Omitted when it is the text codec, so clients which do not negotiate can still read this */
+    private String codec;
+
+    private String token;
+
+    /**
+     * Creates a new login response, which keeps the text codec
+     * @param succesful indicates whether the login succeeded or failed
+     */
+    public LoginResponse(boolean succesful) {
+        this(succesful, null);
+    }
+
+    /**
+     * Creates a new login response, without a session token
+     * @param succesful indicates whether the login succeeded or failed
+     * @param codec name of the codec to be used from now on, {@code null} for the text codec
+     */
+    public LoginResponse(boolean succesful, String codec) {
+        this(succesful, codec, null);
+    }
+
     /**
      * Creates a new login response
      * @param succesful indicates whether the login succeeded or failed
+     * @param codec name of the codec to be used from now on, {@code null} for the text codec
+     * @param token the token of the session of the player, {@code null} if the login failed
      */
     @JsonCreator
-    public LoginResponse(@JsonProperty("successful") boolean succesful) {
+    public LoginResponse(@JsonProperty("successful") boolean succesful,
+                         @JsonProperty("codec") String codec,
+                         @JsonProperty("token") String token) {
         this.succesful = succesful;
+        this.codec = JsonLineCodec.NAME.equals(codec) ? null : codec;
+        this.token = token;
     }
 
     /**
@@ -28,6 +58,24 @@ public class LoginResponse implements SocketClientCommand {
         return succesful;
     }
 
+    /**
+     * Returns the name of the codec to be used from now on
+     * @return the name of the codec, {@code null} if it is the text codec
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public String getCodec() {
+        return codec;
+    }
+
+    /**
+     * Returns the token of the session of the player, to be presented when logging in again
+     * @return the token of the session, {@code null} if the login failed
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public String getToken() {
+        return token;
+    }
+
     /**
      * Applies the command to given target, namely it is a {@code SocketServerConnection}
      *
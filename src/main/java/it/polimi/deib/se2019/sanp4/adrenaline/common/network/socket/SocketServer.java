@@ -1,6 +1,7 @@
 package it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket;
 
 import it.polimi.deib.se2019.sanp4.adrenaline.common.exceptions.LoginException;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.MatchPreferences;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.network.RemoteView;
 
 /**
@@ -13,18 +14,29 @@ public interface SocketServer {
      * The client tries to log in with the required username and also passes a stub of his view.
      * The cases are:
      * <ol>
-     *     <li>The player is completely unknown to the server =&gt; he will be put in the waiting room</li>
+     *     <li>
+     *         The player is completely unknown to the server =&gt; he will be put in the waiting room
+     *         which best fits his preferences
+     *     </li>
      *     <li>The player belongs to an active/suspended match =&gt; he will join the match</li>
      *     <li>
+     *         The client presents the token of the session of the player, which is in a match =&gt; it
+     *         replaces the previous connection of the player, without checking it
+     *     </li>
+     *     <li>
      *         There is a logged in player with the same username =&gt; the request will be rejected with
      *         {@link LoginException}
      *     </li>
      * </ol>
      * @param username name of the player who wants to get logged in
+     * @param token token of the session returned by the previous login, {@code null} if this is the first one
+     * @param preferences the kind of match the player would like to play, {@code null} if any match is fine
      * @param view stub of the view exported on the RMI registry
+     * @return the token of the session, which can be presented to log in again after losing the connection
      * @throws LoginException if the username is associated to an already logged in player
      */
-    void playerLogin(String username, RemoteView view) throws LoginException;
+    String playerLogin(String username, String token, MatchPreferences preferences, RemoteView view)
+            throws LoginException;
 
     /**
      * Request to log out a user.
@@ -2,6 +2,7 @@ package it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket;
 
 import it.polimi.deib.se2019.sanp4.adrenaline.common.events.ViewEvent;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.network.RemoteView;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket.codec.WireCodec;
 
 import java.io.IOException;
 
@@ -51,4 +52,14 @@ public interface SocketServerCommandTarget {
      * @throws IOException if the command cannot be sent due to network problems
      */
     void sendCommand(SocketClientCommand command) throws IOException;
+
+    /**
+     * Sends the response to the login with the codec in use, then switches to given codec
+     * for the next commands, see {@link LoginCommand}.
+     * No other command can be queued between the response and the switch of the codec
+     * @param response the response to the login
+     * @param codec the negotiated codec, used for the next commands, not null
+     * @throws IOException if the response cannot be sent due to network problems
+     */
+    void sendLoginResponse(LoginResponse response, WireCodec codec) throws IOException;
 }
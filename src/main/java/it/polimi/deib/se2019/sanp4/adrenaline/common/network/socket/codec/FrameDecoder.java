@@ -0,0 +1,25 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket.codec;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Extracts the frames of a {@link WireCodec} from the bytes received on a non-blocking channel.
+ * The decoder keeps the bytes of incomplete frames between calls, so it belongs to a single connection.
+ *
+ * @author Alessandro Fulgini
+ */
+public interface FrameDecoder {
+
+    /**
+     * Consumes bytes from given buffer until a frame is complete.
+     * The bytes following the frame are not consumed, so this can be called again
+     * to extract the next frame from the same buffer
+     *
+     * @param buffer the buffer with the received bytes, ready to be read
+     * @return the payload of the completed frame, {@code null} if the buffer has been consumed
+     * but more bytes are needed
+     * @throws IOException if the frame is not valid
+     */
+    byte[] next(ByteBuffer buffer) throws IOException;
+}
@@ -0,0 +1,108 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.JSONUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * The original text protocol: each command is serialized in JSON (with fully qualified class names as type ids)
+ * and terminated by a newline.
+ * <p>
+ * This is the codec used before the negotiation and with clients which do not support other codecs.
+ * </p>
+ *
+ * @author Alessandro Fulgini
+ */
+public class JsonLineCodec implements WireCodec {
+
+    /** Name of this codec */
+    public static final String NAME = "json";
+
+    /** Maximum length of a line, longer lines are considered invalid */
+    static final int MAX_FRAME_LENGTH = 16 << 20;
+
+    private static final ObjectMapper objectMapper = JSONUtils.getNetworkObjectMapper();
+
+    /**
+     * Returns the name which identifies this codec during the negotiation
+     *
+     * @return the name of the codec
+     */
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * Serializes given command as a line of JSON
+     *
+     * @param command the command to be serialized, not null
+     * @return the bytes of the line, including the terminator
+     * @throws IOException if the command cannot be serialized
+     */
+    @Override
+    public byte[] encode(Object command) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(command);
+        byte[] frame = new byte[json.length + 1];
+        System.arraycopy(json, 0, frame, 0, json.length);
+        frame[json.length] = '\n';
+        return frame;
+    }
+
+    @Override
+    public <T> T decode(byte[] payload, Class<T> type) throws IOException {
+        return objectMapper.readValue(payload, type);
+    }
+
+    /**
+     * Reads the next line from given stream
+     *
+     * @param in the stream to read from, preferably buffered
+     * @return the line, without the terminator
+     * @throws EOFException if the stream ends before the line is complete
+     * @throws IOException  if there are problems while reading or the line is too long
+     */
+    @Override
+    public byte[] readFrame(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) throw new EOFException("Stream ended while reading a command");
+            line.write(b);
+            if (line.size() > MAX_FRAME_LENGTH) throw new IOException("Incoming command is too long");
+        }
+        return line.toByteArray();
+    }
+
+    @Override
+    public FrameDecoder newFrameDecoder() {
+        return new LineDecoder();
+    }
+
+    /**
+     * Accumulates bytes until a newline is found
+     */
+    private static class LineDecoder implements FrameDecoder {
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        @Override
+        public byte[] next(ByteBuffer buffer) throws IOException {
+            while (buffer.hasRemaining()) {
+                byte b = buffer.get();
+                if (b == '\n') {
+                    byte[] frame = line.toByteArray();
+                    line.reset();
+                    return frame;
+                }
+                line.write(b);
+                if (line.size() > MAX_FRAME_LENGTH) throw new IOException("Incoming command is too long");
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket.codec;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * A binary codec: each command is serialized with Jackson's Smile format (binary JSON)
+ * using the short type ids of {@link WireTypeIds}, and it is prefixed by its length
+ * as a 4-byte big-endian integer.
+ * <p>
+ * Compared to {@link JsonLineCodec} the frames are smaller and faster to parse, and the receiver
+ * knows the size of a frame in advance, without scanning for a terminator.
+ * </p>
+ *
+ * @author Alessandro Fulgini
+ */
+public class SmileFrameCodec implements WireCodec {
+
+    /** Name of this codec */
+    public static final String NAME = "smile";
+
+    /** Size of the length prefix, in bytes */
+    private static final int HEADER_LENGTH = Integer.BYTES;
+
+    /** Maximum length of the payload of a frame, longer frames are considered invalid */
+    static final int MAX_FRAME_LENGTH = 16 << 20;
+
+    private static final ObjectMapper objectMapper = WireTypeIds.register(new ObjectMapper(new SmileFactory())
+            .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false)
+            .configure(JsonParser.Feature.AUTO_CLOSE_SOURCE, false));
+
+    /**
+     * Returns the name which identifies this codec during the negotiation
+     *
+     * @return the name of the codec
+     */
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * Serializes given command in Smile format and prefixes it with its length
+     *
+     * @param command the command to be serialized, not null
+     * @return the bytes of the whole frame
+     * @throws IOException if the command cannot be serialized
+     */
+    @Override
+    public byte[] encode(Object command) throws IOException {
+        byte[] payload = objectMapper.writeValueAsBytes(command);
+        return ByteBuffer.allocate(HEADER_LENGTH + payload.length)
+                .putInt(payload.length)
+                .put(payload)
+                .array();
+    }
+
+    @Override
+    public <T> T decode(byte[] payload, Class<T> type) throws IOException {
+        return objectMapper.readValue(payload, type);
+    }
+
+    /**
+     * Reads the next length-prefixed frame from given stream
+     *
+     * @param in the stream to read from, preferably buffered
+     * @return the payload of the frame
+     * @throws EOFException if the stream ends before the frame is complete
+     * @throws IOException  if there are problems while reading or the declared length is not valid
+     */
+    @Override
+    public byte[] readFrame(InputStream in) throws IOException {
+        byte[] header = new byte[HEADER_LENGTH];
+        readFully(in, header);
+        byte[] payload = new byte[checkLength(ByteBuffer.wrap(header).getInt())];
+        readFully(in, payload);
+        return payload;
+    }
+
+    @Override
+    public FrameDecoder newFrameDecoder() {
+        return new LengthPrefixDecoder();
+    }
+
+    /**
+     * Checks that the declared length of a frame is acceptable
+     *
+     * @param length the declared length
+     * @return the same length
+     * @throws IOException if the length is negative or exceeds {@link #MAX_FRAME_LENGTH}
+     */
+    private static int checkLength(int length) throws IOException {
+        if (length < 0 || length > MAX_FRAME_LENGTH) {
+            throw new IOException(String.format("Invalid frame length: %d", length));
+        }
+        return length;
+    }
+
+    /**
+     * Fills given array with bytes from the stream
+     *
+     * @param in    the stream to read from
+     * @param bytes the array to be filled
+     * @throws IOException if the stream ends before the array is full
+     */
+    private static void readFully(InputStream in, byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            int read = in.read(bytes, offset, bytes.length - offset);
+            if (read < 0) throw new EOFException("Stream ended while reading a command");
+            offset += read;
+        }
+    }
+
+    /**
+     * Reads the length prefix, then accumulates the bytes of the payload
+     */
+    private static class LengthPrefixDecoder implements FrameDecoder {
+        private final ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        private ByteBuffer payload;
+
+        @Override
+        public byte[] next(ByteBuffer buffer) throws IOException {
+            if (payload == null) {
+                transfer(buffer, header);
+                if (header.hasRemaining()) return null;
+                header.flip();
+                payload = ByteBuffer.allocate(checkLength(header.getInt()));
+                header.clear();
+            }
+            transfer(buffer, payload);
+            if (payload.hasRemaining()) return null;
+
+            byte[] frame = payload.array();
+            payload = null;
+            return frame;
+        }
+
+        /* Copies as many bytes as possible from src to dst */
+        private static void transfer(ByteBuffer src, ByteBuffer dst) {
+            int count = Math.min(src.remaining(), dst.remaining());
+            ByteBuffer slice = src.slice();
+            slice.limit(count);
+            dst.put(slice);
+            src.position(src.position() + count);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket.codec;
+
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket.UpdateCommand;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.ModelUpdate;
+
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Encodes the {@link UpdateCommand}s sent to socket clients, so that a broadcast update is serialized only once.
+ * <p>
+ * The same {@link ModelUpdate} object is delivered to all the views of a match: the sender marks it with
+ * {@link #share(ModelUpdate)}, then the first socket view which sends it encodes it with its codec
+ * and the other views reuse the very same frame (one frame per codec).
+ * Updates which have not been marked, like the private ones (e.g. a drawn powerup), are encoded
+ * each time they are sent.
+ * </p>
+ * <p>
+ * The cache is a concurrent map with weak keys, so broadcasts of different matches do not contend
+ * on a single lock, and its entries are discarded together with the updates.
+ * The frames themselves are only weakly held too: they stay alive while they wait in the outbound
+ * queue of some view and they are dropped once every queue has written them, even if the update
+ * is still kept around (e.g. by an {@code UpdateReplayBuffer}). A view which sends the update later
+ * just encodes it again.
+ * The number of encode operations is counted for each type of update, so that it can be compared
+ * with the number of sent frames.
+ * </p>
+ *
+ * @author Alessandro Fulgini
+ */
+public class UpdateFrameCache {
+
+    /** Frames of the shared updates, updates are compared by identity */
+    private static final ConcurrentMap<UpdateKey, SharedFrames> shared = new ConcurrentHashMap<>();
+
+    /** Keys of the updates which have been garbage collected, to be removed from the cache */
+    private static final ReferenceQueue<ModelUpdate> collected = new ReferenceQueue<>();
+
+    /** Number of encode operations, by type of update */
+    private static final Map<String, LongAdder> encodeCounts = new ConcurrentHashMap<>();
+
+    /** Number of sent frames, by type of update */
+    private static final Map<String, LongAdder> sendCounts = new ConcurrentHashMap<>();
+
+    /* This class has only static methods and should not be instantiated */
+    private UpdateFrameCache() {
+    }
+
+    /**
+     * Marks given update as delivered to more views, so that its frames will be shared among them.
+     * This must be called before delivering the update
+     *
+     * @param update the update, not null
+     */
+    public static void share(ModelUpdate update) {
+        if (update == null) throw new NullPointerException("Update cannot be null");
+        expungeCollected();
+        shared.putIfAbsent(new UpdateKey(update, collected), new SharedFrames());
+    }
+
+    /**
+     * Checks if given update has been marked as shared
+     *
+     * @param update the update
+     * @return {@code true} if the frames of the update are shared
+     */
+    public static boolean isShared(ModelUpdate update) {
+        return update != null && shared.containsKey(new UpdateKey(update, null));
+    }
+
+    /**
+     * Returns the frame of the {@link UpdateCommand} carrying given update.
+     * If the update is shared and it has already been encoded with the same codec,
+     * the existing frame is returned, which must not be modified
+     *
+     * @param update the update to be sent, not null
+     * @param codec  the codec of the connection, not null
+     * @return the frame to be sent
+     * @throws IOException if the update cannot be serialized
+     */
+    public static byte[] encode(ModelUpdate update, WireCodec codec) throws IOException {
+        if (update == null) throw new NullPointerException("Update cannot be null");
+        count(sendCounts, update);
+        SharedFrames frames = shared.get(new UpdateKey(update, null));
+        if (frames == null) {
+            return encodeNow(update, codec); /* Private update */
+        }
+        return frames.get(update, codec);
+    }
+
+    /**
+     * Returns the number of times an update of given type has been encoded
+     *
+     * @param type the type of the update
+     * @return the number of encode operations
+     */
+    public static long getEncodeCount(Class<? extends ModelUpdate> type) {
+        LongAdder counter = encodeCounts.get(type.getSimpleName());
+        return counter == null ? 0 : counter.sum();
+    }
+
+    /**
+     * Returns the number of frames sent for updates of given type
+     *
+     * @param type the type of the update
+     * @return the number of sent frames
+     */
+    public static long getSendCount(Class<? extends ModelUpdate> type) {
+        LongAdder counter = sendCounts.get(type.getSimpleName());
+        return counter == null ? 0 : counter.sum();
+    }
+
+    /**
+     * Returns the number of encode operations for each type of update
+     *
+     * @return map with the simple names of the update classes as keys
+     */
+    public static Map<String, Long> getEncodeCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        encodeCounts.forEach((type, counter) -> counts.put(type, counter.sum()));
+        return counts;
+    }
+
+    /**
+     * Serializes the command carrying given update and counts the operation
+     *
+     * @param update the update
+     * @param codec  the codec
+     * @return the frame
+     * @throws IOException if the update cannot be serialized
+     */
+    private static byte[] encodeNow(ModelUpdate update, WireCodec codec) throws IOException {
+        count(encodeCounts, update);
+        return codec.encode(new UpdateCommand(update));
+    }
+
+    /* Removes from the cache the entries of the updates which have been garbage collected */
+    private static void expungeCollected() {
+        Reference<? extends ModelUpdate> key;
+        while ((key = collected.poll()) != null) {
+            shared.remove(key);
+        }
+    }
+
+    /* Increments the counter of the type of given update */
+    private static void count(Map<String, LongAdder> counters, ModelUpdate update) {
+        counters.computeIfAbsent(update.getClass().getSimpleName(), type -> new LongAdder()).increment();
+    }
+
+    /**
+     * Weak key of the cache, which compares the updates by identity.
+     * The keys used for lookups are not registered in the queue
+     */
+    private static class UpdateKey extends WeakReference<ModelUpdate> {
+        private final int hash;
+
+        UpdateKey(ModelUpdate update, ReferenceQueue<ModelUpdate> queue) {
+            super(update, queue);
+            this.hash = System.identityHashCode(update);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof UpdateKey)) return false;
+            ModelUpdate update = get();
+            return update != null && update == ((UpdateKey) obj).get();
+        }
+    }
+
+    /**
+     * The frames of a single shared update, by name of the codec.
+     * The frames are weakly held, so they are dropped once all the views have written them
+     */
+    private static class SharedFrames {
+        private final Map<String, WeakReference<byte[]>> frames = new HashMap<>();
+
+        /* Other views with the same codec wait for the first one to encode the update */
+        synchronized byte[] get(ModelUpdate update, WireCodec codec) throws IOException {
+            WeakReference<byte[]> ref = frames.get(codec.getName());
+            byte[] frame = ref == null ? null : ref.get();
+            if (frame == null) {
+                frame = encodeNow(update, codec);
+                frames.put(codec.getName(), new WeakReference<>(frame));
+            }
+            return frame;
+        }
+    }
+}
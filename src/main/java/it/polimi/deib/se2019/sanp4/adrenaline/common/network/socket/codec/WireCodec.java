@@ -0,0 +1,67 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Describes how the commands exchanged via socket are serialized and delimited on the stream.
+ * <p>
+ * Each command travels in a <i>frame</i>: the codec turns a command into the bytes of a whole frame,
+ * and it is able to extract the payload of a frame both from a blocking stream
+ * and, incrementally, from a non-blocking channel (see {@link FrameDecoder}).
+ * </p>
+ * <p>
+ * Codecs are stateless and thread-safe, so the same instance can be shared by many connections.
+ * The codec of a connection is negotiated at login time, see {@link WireCodecs}.
+ * </p>
+ *
+ * @author Alessandro Fulgini
+ */
+public interface WireCodec {
+
+    /**
+     * Returns the name which identifies this codec during the negotiation
+     *
+     * @return the name of the codec
+     */
+    String getName();
+
+    /**
+     * Serializes given command and wraps it in a frame, ready to be written on the stream
+     *
+     * @param command the command to be serialized, not null
+     * @return the bytes of the whole frame
+     * @throws IOException if the command cannot be serialized
+     */
+    byte[] encode(Object command) throws IOException;
+
+    /**
+     * Deserializes a command from the payload of a frame
+     *
+     * @param payload the payload of the frame
+     * @param type    the expected type of the command
+     * @param <T>     the expected type of the command
+     * @return the deserialized command
+     * @throws IOException if the payload does not contain a valid command
+     */
+    <T> T decode(byte[] payload, Class<T> type) throws IOException;
+
+    /**
+     * Reads the next frame from given stream and returns its payload.
+     * This call blocks until the frame has been completely received
+     *
+     * @param in the stream to read from, preferably buffered
+     * @return the payload of the frame
+     * @throws java.io.EOFException if the stream ends before the frame is complete
+     * @throws IOException          if there are problems while reading or the frame is not valid
+     */
+    byte[] readFrame(InputStream in) throws IOException;
+
+    /**
+     * Creates a decoder which extracts the frames incrementally, as the bytes are received.
+     * Each connection needs its own decoder
+     *
+     * @return a new frame decoder
+     */
+    FrameDecoder newFrameDecoder();
+}
@@ -0,0 +1,86 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket.codec;
+
+import java.util.*;
+
+/**
+ * Registry of the available {@link WireCodec}s, which also implements the negotiation of the codec.
+ * <p>
+ * Every connection starts with {@link #TEXT}. When logging in, the client declares the version of
+ * the protocol it speaks and the codecs it supports, in order of preference.
+ * The server picks the first of them it supports and communicates it in the login response:
+ * from then on, both parties use the chosen codec in both directions.
+ * Clients which do not declare anything keep using the text codec.
+ * </p>
+ *
+ * @author Alessandro Fulgini
+ */
+public class WireCodecs {
+
+    /**
+     * Version of the socket protocol which supports codec negotiation.
+     * Clients not declaring a version are considered to speak version 1 (text only)
+     */
+    public static final int PROTOCOL_VERSION = 2;
+
+    /** The text codec, used before the negotiation and as a fallback */
+    public static final WireCodec TEXT = new JsonLineCodec();
+
+    /** Available codecs, by name */
+    private static final Map<String, WireCodec> codecs = new LinkedHashMap<>();
+
+    static {
+        register(new SmileFrameCodec());
+        register(TEXT);
+    }
+
+    /* This class has only static methods and should not be instantiated */
+    private WireCodecs() {
+    }
+
+    /**
+     * Puts a codec in the registry
+     *
+     * @param codec the codec to be registered
+     */
+    private static void register(WireCodec codec) {
+        codecs.put(codec.getName(), codec);
+    }
+
+    /**
+     * Returns the codec with given name
+     *
+     * @param name the name of the codec
+     * @return the codec with given name, or {@link #TEXT} if there is no such codec
+     */
+    public static WireCodec forName(String name) {
+        if (name == null) return TEXT;
+        return codecs.getOrDefault(name, TEXT);
+    }
+
+    /**
+     * Returns the names of the available codecs, from the most to the least efficient
+     *
+     * @return the names of the available codecs
+     */
+    public static List<String> getNames() {
+        return new ArrayList<>(codecs.keySet());
+    }
+
+    /**
+     * Chooses the codec to be used with a client
+     *
+     * @param protocolVersion the version of the protocol declared by the client
+     * @param offered         the names of the codecs supported by the client, in order of preference,
+     *                        may be {@code null}
+     * @return the first offered codec which is available,
+     * or {@link #TEXT} if the client does not support negotiation or no codec matches
+     */
+    public static WireCodec negotiate(int protocolVersion, List<String> offered) {
+        if (protocolVersion < PROTOCOL_VERSION || offered == null) return TEXT;
+        for (String name : offered) {
+            WireCodec codec = codecs.get(name);
+            if (codec != null) return codec;
+        }
+        return TEXT;
+    }
+}
@@ -0,0 +1,104 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket.codec;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.jsontype.NamedType;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.events.ChoiceResponse;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.events.Heartbeat;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.events.ResumeRequest;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.events.ResyncRequest;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.events.ViewEvent;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket.*;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.requests.*;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.*;
+
+/**
+ * Registry of the short type ids used by the binary codecs.
+ * <p>
+ * The text protocol identifies the type of commands, updates, requests and events with
+ * their fully qualified class name, which often takes more bytes than the content itself.
+ * This registry overrides (with mix-ins) that behaviour on a given {@link ObjectMapper},
+ * so that each type is identified by a short registered name.
+ * The annotations on the classes are left untouched, so the text protocol does not change.
+ * </p>
+ * <p>
+ * Ids must never be reused for a different class: if a class is removed, its id must be retired.
+ * </p>
+ *
+ * @author Alessandro Fulgini
+ */
+public class WireTypeIds {
+
+    /** Name of the property which holds the type id */
+    private static final String TYPE_PROPERTY = "@t";
+
+    /** Registered (class, id) pairs */
+    private static final NamedType[] TYPES = {
+            /* Commands from the client to the server */
+            new NamedType(LoginCommand.class, "login"),
+            new NamedType(LogoutCommand.class, "logout"),
+            new NamedType(NotifyEventCommand.class, "event"),
+            new NamedType(PingCommand.class, "ping"),
+            /* Commands from the server to the client */
+            new NamedType(LoginResponse.class, "loginR"),
+            new NamedType(PerformRequestCommand.class, "request"),
+            new NamedType(SelectSceneCommand.class, "scene"),
+            new NamedType(ShowMessageCommand.class, "message"),
+            new NamedType(UpdateCommand.class, "update"),
+            /* Updates */
+            new NamedType(ActionCardUpdate.class, "uAC"),
+            new NamedType(DeltaUpdate.class, "uD"),
+            new NamedType(DrawnPowerupUpdate.class, "uDP"),
+            new NamedType(DrawnWeaponUpdate.class, "uDW"),
+            new NamedType(InitialUpdate.class, "uI"),
+            new NamedType(LeaderboardUpdate.class, "uL"),
+            new NamedType(LobbyUpdate.class, "uLo"),
+            new NamedType(MatchOperationalStateUpdate.class, "uMO"),
+            new NamedType(MatchUpdate.class, "uM"),
+            new NamedType(PlayerBoardUpdate.class, "uPB"),
+            new NamedType(PlayerTurnUpdate.class, "uPT"),
+            new NamedType(PlayerUpdate.class, "uP"),
+            new NamedType(SquareUpdate.class, "uS"),
+            new NamedType(WeaponCardUpdate.class, "uWC"),
+            /* Requests */
+            new NamedType(ActionRequest.class, "rA"),
+            new NamedType(BoardRequest.class, "rB"),
+            new NamedType(EffectRequest.class, "rE"),
+            new NamedType(PlayerOperationRequest.class, "rPO"),
+            new NamedType(PlayerRequest.class, "rP"),
+            new NamedType(PowerupCardRequest.class, "rPC"),
+            new NamedType(SkullCountRequest.class, "rSC"),
+            new NamedType(SquareRequest.class, "rS"),
+            new NamedType(WeaponCardRequest.class, "rWC"),
+            /* Events */
+            new NamedType(ChoiceResponse.class, "eC"),
+            new NamedType(ResyncRequest.class, "eR"),
+            new NamedType(Heartbeat.class, "eH"),
+            new NamedType(ResumeRequest.class, "eRs")
+    };
+
+    /* Mix-ins which replace the class-based type ids */
+    @JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = TYPE_PROPERTY)
+    private interface ShortTypeIdMixIn {
+    }
+
+    /* This class has only static methods and should not be instantiated */
+    private WireTypeIds() {
+    }
+
+    /**
+     * Configures given mapper to use the registered short type ids
+     *
+     * @param mapper the mapper to be configured, not null
+     * @return the same mapper, for chaining
+     */
+    public static ObjectMapper register(ObjectMapper mapper) {
+        mapper.addMixIn(SocketServerCommand.class, ShortTypeIdMixIn.class);
+        mapper.addMixIn(SocketClientCommand.class, ShortTypeIdMixIn.class);
+        mapper.addMixIn(ModelUpdate.class, ShortTypeIdMixIn.class);
+        mapper.addMixIn(ChoiceRequest.class, ShortTypeIdMixIn.class);
+        mapper.addMixIn(ViewEvent.class, ShortTypeIdMixIn.class);
+        mapper.registerSubtypes(TYPES);
+        return mapper;
+    }
+}
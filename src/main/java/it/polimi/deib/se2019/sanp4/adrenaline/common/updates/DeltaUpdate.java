@@ -0,0 +1,264 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.common.updates;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.JSONUtils;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.modelviews.VersionedView;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.board.CoordPair;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * An update containing only the fields of an entity of the model which changed since its previous version.
+ * <p>
+ * The changed fields are represented as a JSON object, with the same properties of the view of the entity
+ * (e.g. {@code {"score":3,"version":12}} for a {@code PlayerView}), which has to be merged into the view
+ * held by the client with {@link #applyTo(VersionedView)}.
+ * Like a JSON merge patch, nested objects only contain their changed fields and removed fields are {@code null},
+ * while arrays are replaced as a whole.
+ * The patch is kept as a tree, so each codec serializes it natively (there is no JSON text inside the frame),
+ * and it is written as JSON only when the update is serialized by Java (i.e. sent with RMI).
+ * The patch can only be applied on the view with its base version, which is the previous version
+ * ({@code getVersion() - 1}) unless consecutive updates have been merged with {@link #followedBy(DeltaUpdate)}:
+ * if the client has an older version, it missed some updates and has to ask for the whole state again.
+ * </p>
+ *
+ * @author Alessandro Fulgini
+ * @see VersionedView
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DeltaUpdate extends ModelUpdate {
+
+    private static final long serialVersionUID = 4913085447823318460L;
+
+    /**
+     * The types of entities which are updated with deltas
+     */
+    public enum Entity {
+        PLAYER,
+        PLAYER_BOARD,
+        SQUARE,
+        MATCH,
+        PLAYER_TURN
+    }
+
+    private final Entity entity;
+
+    private final String player;
+
+    private final CoordPair location;
+
+    private final long version;
+
+    private final long baseVersion;
+
+    /* JsonNode is not serializable, see writeObject and readObject */
+    private transient ObjectNode patch;
+
+    private static final ObjectMapper objectMapper = JSONUtils.getObjectMapper();
+
+    /**
+     * Creates a delta update that will be sent in broadcast
+     *
+     * @param entity   the type of the updated entity, not null
+     * @param player   the name of the player the entity belongs to, if the entity is a player,
+     *                 a player board or a turn
+     * @param location the location of the square, if the entity is a square
+     * @param version  the new version of the entity
+     * @param patch    the JSON object with the changed fields, not null
+     */
+    public DeltaUpdate(Entity entity, String player, CoordPair location, long version, ObjectNode patch) {
+        this(entity, player, location, version, version - 1, patch);
+    }
+
+    /**
+     * Creates a delta update that will be sent in broadcast, which is applied on given version of the entity
+     *
+     * @param entity      the type of the updated entity, not null
+     * @param player      the name of the player the entity belongs to, if the entity is a player,
+     *                    a player board or a turn
+     * @param location    the location of the square, if the entity is a square
+     * @param version     the new version of the entity
+     * @param baseVersion the version of the entity the patch is applied on,
+     *                    {@code null} for the previous version
+     * @param patch       the JSON object with the changed fields, not null
+     */
+    @JsonCreator
+    public DeltaUpdate(
+            @JsonProperty("entity") Entity entity,
+            @JsonProperty("player") String player,
+            @JsonProperty("location") CoordPair location,
+            @JsonProperty("version") long version,
+            @JsonProperty("baseVersion") Long baseVersion,
+            @JsonProperty("patch") ObjectNode patch) {
+        super();
+        if (entity == null) throw new NullPointerException("Entity cannot be null");
+        if (patch == null) throw new NullPointerException("Patch cannot be null");
+        this.entity = entity;
+        this.player = player;
+        this.location = location;
+        this.version = version;
+        this.baseVersion = baseVersion == null ? version - 1 : baseVersion;
+        this.patch = patch;
+    }
+
+    /**
+     * Retrieves the type of the updated entity
+     *
+     * @return the type of the entity
+     */
+    public Entity getEntity() {
+        return entity;
+    }
+
+    /**
+     * Retrieves the name of the player the entity belongs to
+     *
+     * @return the name of the player, {@code null} if the entity is the match or a square
+     */
+    public String getPlayer() {
+        return player;
+    }
+
+    /**
+     * Retrieves the location of the updated square
+     *
+     * @return the location of the square, {@code null} if the entity is not a square
+     */
+    public CoordPair getLocation() {
+        return location;
+    }
+
+    /**
+     * Retrieves the version of the entity after applying this update
+     *
+     * @return the new version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Retrieves the version of the entity this update has to be applied on
+     *
+     * @return the base version, usually {@code getVersion() - 1}
+     */
+    public long getBaseVersion() {
+        return baseVersion;
+    }
+
+    /**
+     * Retrieves the changed fields
+     *
+     * @return a JSON object with the changed fields of the view, which must not be modified
+     */
+    public ObjectNode getPatch() {
+        return patch;
+    }
+
+    /**
+     * Merges the changed fields into given view, which must have the previous version
+     *
+     * @param view the view of the entity held by the client
+     * @throws IOException if the patch does not match the view
+     */
+    public void applyTo(VersionedView view) throws IOException {
+        ObjectNode state = objectMapper.valueToTree(view);
+        merge(state, patch, false);
+        /* The state also contains the type id of polymorphic views, which is not a property */
+        objectMapper.readerForUpdating(view).without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .readValue(state);
+    }
+
+    /**
+     * Merges the patch into the target object, recursively for the nested objects.
+     * The fields of the view which have been removed are set to {@code null},
+     * while the removed entries of nested objects (e.g. of a map) are removed
+     *
+     * @param target the object to be modified
+     * @param patch  the changed fields
+     * @param nested whether the target is nested in the view
+     */
+    private static void merge(ObjectNode target, ObjectNode patch, boolean nested) {
+        Iterator<Map.Entry<String, JsonNode>> fields = patch.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            JsonNode old = target.get(field.getKey());
+            JsonNode value = field.getValue();
+            if (old != null && old.isObject() && value.isObject()) {
+                merge((ObjectNode) old, (ObjectNode) value, true);
+            } else if (nested && value.isNull()) {
+                target.remove(field.getKey());
+            } else {
+                target.set(field.getKey(), value);
+            }
+        }
+    }
+
+    /**
+     * Combines this update with the next update of the same entity, so that applying the result
+     * on the base version of this update has the same effect as applying both updates in order.
+     * The updates cannot be combined if they refer to different entities, if the next update is not
+     * based on the version produced by this one, or if the next update replaces a field removed or
+     * replaced by this one with a nested object, since a merge patch cannot tell it from a change
+     *
+     * @param next the update which follows this one, not null
+     * @return the combined update, {@code null} if the updates cannot be combined
+     */
+    public DeltaUpdate followedBy(DeltaUpdate next) {
+        if (entity != next.entity || !Objects.equals(player, next.player)
+                || !Objects.equals(location, next.location) || next.baseVersion != version) {
+            return null;
+        }
+        ObjectNode combined = patch.deepCopy();
+        if (!compose(combined, next.patch)) return null;
+        return new DeltaUpdate(entity, player, location, next.version, baseVersion, combined);
+    }
+
+    /**
+     * Merges the next patch into the first one, recursively for the nested objects
+     *
+     * @param first the patch to be modified
+     * @param next  the patch which follows it
+     * @return {@code false} if a nested object of the next patch replaces a value of the first one
+     */
+    private static boolean compose(ObjectNode first, ObjectNode next) {
+        Iterator<Map.Entry<String, JsonNode>> fields = next.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            JsonNode old = first.get(field.getKey());
+            JsonNode value = field.getValue();
+            if (old != null && value.isObject()) {
+                if (!old.isObject() || !compose((ObjectNode) old, (ObjectNode) value)) return false;
+            } else {
+                first.set(field.getKey(), value);
+            }
+        }
+        return true;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeObject(objectMapper.writeValueAsBytes(patch));
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        patch = (ObjectNode) objectMapper.readTree((byte[]) in.readObject());
+    }
+
+    @Override
+    public void accept(ModelUpdateVisitor visitor) {
+        visitor.handle(this);
+    }
+}
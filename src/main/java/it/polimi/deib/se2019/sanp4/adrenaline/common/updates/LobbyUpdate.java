@@ -8,7 +8,8 @@ import java.util.Collection;
 /**
  * This update is sent in broadcast by the Lobby to notify the players who are waiting
  * for a match to start.
- * It contains the names of the waiting players
+ * It contains the names of the waiting players and, if the server cannot run their match yet,
+ * the position of the match in the queue of the server
  *
  * @author Alessandro Fulgini
  */
@@ -20,6 +21,8 @@ public class LobbyUpdate extends ModelUpdate {
 
     private boolean starting;
 
+    private int queuePosition;
+
     /**
      * Creates the lobby update with the names of the players waiting for the match to start
      *
@@ -27,12 +30,27 @@ public class LobbyUpdate extends ModelUpdate {
      * @param starting       whether the match is starting or not
      * @throws NullPointerException if the collection is null
      */
+    public LobbyUpdate(Collection<String> waitingPlayers, boolean starting) {
+        this(waitingPlayers, starting, 0);
+    }
+
+    /**
+     * Creates the lobby update with the names of the players waiting for the match to start
+     *
+     * @param waitingPlayers a collection with the names of the waiting players, not null
+     * @param starting       whether the match is starting or not
+     * @param queuePosition  position of the match in the queue of the server (starting from 1),
+     *                       0 if it is not queued
+     * @throws NullPointerException if the collection is null
+     */
     @JsonCreator
     public LobbyUpdate(@JsonProperty("waitingPlayers") Collection<String> waitingPlayers,
-                       @JsonProperty("starting") boolean starting) {
+                       @JsonProperty("starting") boolean starting,
+                       @JsonProperty("queuePosition") int queuePosition) {
         if (waitingPlayers == null) throw new NullPointerException();
         this.waitingPlayers = waitingPlayers;
         this.starting = starting;
+        this.queuePosition = queuePosition;
     }
 
     public Collection<String> getWaitingPlayers() {
@@ -43,6 +61,15 @@ public class LobbyUpdate extends ModelUpdate {
         return starting;
     }
 
+    /**
+     * Returns the position of the match in the queue of the server
+     *
+     * @return the position, starting from 1, or 0 if the match is not queued
+     */
+    public int getQueuePosition() {
+        return queuePosition;
+    }
+
     /**
      * Makes the provided visitor handle the update
      *
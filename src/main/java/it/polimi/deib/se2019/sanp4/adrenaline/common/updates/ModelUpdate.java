@@ -8,6 +8,8 @@ import java.util.Set;
 /**
  * An abstract class representing an update coming from the model.
  * If recipients is null, the update is sent in broadcast.
+ * The updates of a match are numbered by the model in the order they are sent, so that a client
+ * which reconnects can tell the last update it received (see {@link #getSequence()}).
  *
  * @author Tiziano Fucci
  */
@@ -22,6 +24,8 @@ public abstract class ModelUpdate implements Serializable {
 
     private Set<String> recipients;
 
+    private long sequence;
+
     /**
      * Creates an update that will be sent in broadcast.
      */
@@ -46,6 +50,21 @@ public abstract class ModelUpdate implements Serializable {
         this.recipients = recipients;
     }
 
+    /**
+     * Returns the sequence number of this update.
+     * The numbers given by the model of a match start from 1 and grow with each sent update,
+     * so the updates received by a player have increasing (but not consecutive) numbers
+     *
+     * @return the sequence number, 0 if the update has not been numbered (e.g. a lobby update)
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
     /**
      * Makes the provided visitor handle the update
      *
@@ -19,4 +19,5 @@ public interface ModelUpdateVisitor {
     void handle(WeaponCardUpdate update);
     void handle(MatchOperationalStateUpdate update);
     void handle(LeaderboardUpdate update);
+    void handle(DeltaUpdate update);
 }
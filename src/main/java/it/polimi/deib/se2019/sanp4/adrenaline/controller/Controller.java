@@ -5,6 +5,9 @@ import it.polimi.deib.se2019.sanp4.adrenaline.common.network.RemoteView;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.observer.RemoteObserver;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.Model;
 
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+
 /**
  * Represents the Controller of the MVC pattern.
  * It is responsible for running a single instance of the game, in particular:
@@ -15,6 +18,8 @@ import it.polimi.deib.se2019.sanp4.adrenaline.model.Model;
  *     <li>Listen for incoming events from the views</li>
  *     <li>Shutting down the match</li>
  * </ul>
+ * The game can be run in the calling thread with {@link #run()}, or in steps with {@link #runAsync(Executor)}
+ * so that no thread is kept while waiting for the players between the steps.
  * @author Alessandro Fulgini
  */
 public interface Controller extends RemoteObserver<ViewEvent>, Runnable {
@@ -24,6 +29,16 @@ public interface Controller extends RemoteObserver<ViewEvent>, Runnable {
      */
     Model getModel();
 
+    /**
+     * Runs an instance of the game in steps, without waiting for the players between them.
+     * Each step is run with given executor when the player it waits for answers. The steps which execute
+     * actions and powerups still wait for the player inside their controllers, so the executor must be
+     * able to run steps which block (e.g. an elastic pool)
+     * @param executor the executor which runs the steps, not null
+     * @return a stage which is completed when the game is over
+     */
+    CompletionStage<Void> runAsync(Executor executor);
+
     /**
      * Disconnects the remote view of the player with given name.
      *
@@ -40,6 +55,15 @@ public interface Controller extends RemoteObserver<ViewEvent>, Runnable {
      */
     boolean reconnectRemoteView(String username, RemoteView remote);
 
+    /**
+     * Reconnects the player with given username, whose client has already been authenticated,
+     * without checking the connectivity of the previous remote view
+     * @param username username of the player
+     * @param remote remote view of the player
+     * @return {@code true} if the reconnection succeeded, {@code false} otherwise
+     */
+    boolean resumeRemoteView(String username, RemoteView remote);
+
     /**
      * Forces interruption of the running game
      */
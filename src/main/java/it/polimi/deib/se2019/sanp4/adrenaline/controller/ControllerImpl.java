@@ -1,6 +1,7 @@
 package it.polimi.deib.se2019.sanp4.adrenaline.controller;
 
 import it.polimi.deib.se2019.sanp4.adrenaline.common.events.ViewEvent;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.MatchPreferences;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.network.RemoteView;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.observer.RemoteObservable;
 import it.polimi.deib.se2019.sanp4.adrenaline.controller.match.MatchController;
@@ -10,14 +11,19 @@ import it.polimi.deib.se2019.sanp4.adrenaline.model.ModelImpl;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.match.Match;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.match.MatchConfiguration;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.match.MatchCreator;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.match.MatchSkeleton;
 import it.polimi.deib.se2019.sanp4.adrenaline.view.ViewScene;
 
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -38,8 +44,23 @@ public class ControllerImpl implements Controller {
      */
     private final Map<String, PersistentView> views;
 
+    /**
+     * The preferences shared by the players, which give part of the configuration of the match
+     */
+    private final MatchPreferences preferences;
+
+    /**
+     * The skeleton of the match prepared in advance, {@code null} if the whole match is created when it starts
+     */
+    private final CompletableFuture<MatchSkeleton> skeleton;
+
     private final ConcurrentMap<String, PersistentView> waitingToRejoin;
 
+    /**
+     * Usernames of the players who asked for the whole state of the model
+     */
+    private final Set<String> waitingForResync = ConcurrentHashMap.newKeySet();
+
     private static final Logger logger = Logger.getLogger(ControllerImpl.class.getName());
 
     /**
@@ -48,6 +69,35 @@ public class ControllerImpl implements Controller {
      * @param remotes a map with (username, remote view)
      */
     public ControllerImpl(Map<String, RemoteView> remotes) {
+        this(remotes, MatchPreferences.ANY);
+    }
+
+    /**
+     * Creates the controller for a new instance of the game, whose players share given preferences.
+     * The values of the configuration given by the preferences are not asked to the players
+     *
+     * @param remotes     a map with (username, remote view)
+     * @param preferences the preferences shared by the players, not null
+     */
+    public ControllerImpl(Map<String, RemoteView> remotes, MatchPreferences preferences) {
+        this(remotes, preferences, null);
+    }
+
+    /**
+     * Creates the controller for a new instance of the game, whose players share given preferences,
+     * which binds the players to a skeleton of the match prepared in advance.
+     * If the skeleton cannot be created, the whole match is created when it starts
+     *
+     * @param remotes     a map with (username, remote view)
+     * @param preferences the preferences shared by the players, not null
+     * @param skeleton    a future completed with the skeleton of the match, {@code null} if there is none
+     */
+    public ControllerImpl(Map<String, RemoteView> remotes, MatchPreferences preferences,
+                          CompletableFuture<MatchSkeleton> skeleton) {
+        if (preferences == null) throw new NullPointerException("Preferences cannot be null");
+        this.preferences = preferences;
+        this.skeleton = skeleton;
+
         /* Create the model instance */
         this.model = new ModelImpl();
 
@@ -67,35 +117,101 @@ public class ControllerImpl implements Controller {
         try {
             /* Ask a player to select the match configuration */
             PersistentView selectedPlayer = views.values().iterator().next();
-            MatchConfiguration config = new MatchBootstrapper().askForMatchConfiguration(selectedPlayer);
+            MatchConfiguration config = new MatchBootstrapper().askForMatchConfiguration(selectedPlayer, preferences);
+            playMatch(config);
+        } catch (InterruptedException e) {
+            shutdown(); /* Force the game to terminate */
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Runs an instance of the game in steps: neither the configuration of the match nor the turns keep
+     * any thread while waiting for the players to select what to do.
+     * All the steps are run with given executor, since they make calls to the remote views
+     *
+     * @param executor the executor which runs the steps, not null
+     * @return a stage which is completed when the game is over
+     */
+    @Override
+    public CompletionStage<Void> runAsync(Executor executor) {
+        /* The first request is sent from the executor, not from the caller */
+        return CompletableFuture.supplyAsync(() -> views.values().iterator().next(), executor)
+                .thenCompose(view -> new MatchBootstrapper().askForMatchConfigurationAsync(view, preferences, executor))
+                .thenApplyAsync(this::startMatch, executor) /* May wait for the skeleton of the match */
+                .thenCompose(matchController -> matchController.runMatchAsync(executor))
+                .handle((result, e) -> {
+                    if (e == null) {
+                        /* When the match is over, change the operational state again */
+                        model.setOperationalState(MatchOperationalState.FINISHED);
+                    } else if (e.getCause() instanceof InterruptedException) {
+                        shutdown(); /* Force the game to terminate */
+                    } else {
+                        throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+                    }
+                    return null;
+                });
+    }
+
+    /**
+     * Creates the match with given configuration and plays it until it is over
+     *
+     * @param config the configuration of the match
+     * @throws InterruptedException if the thread gets interrupted
+     */
+    private void playMatch(MatchConfiguration config) throws InterruptedException {
+        startMatch(config).runMatch();
 
-            /* Create the match with given configuration */
-            Set<String> usernames = views.keySet();
-            Match match = MatchCreator.createMatch(usernames, config);
-            model.setMatch(match);
+        /* When the match is over, change the operational state again */
+        model.setOperationalState(MatchOperationalState.FINISHED);
+    }
 
-            /* Create the controller factory */
-            ControllerFactory factory = new StandardControllerFactory(match, views);
+    /**
+     * Creates the match with given configuration and the controller which plays it
+     *
+     * @param config the configuration of the match
+     * @return the controller of the match, ready to run
+     */
+    private MatchController startMatch(MatchConfiguration config) {
+        /* Create the match with given configuration */
+        Set<String> usernames = views.keySet();
+        Match match = createMatch(usernames, config);
+        model.setMatch(match);
 
-            /* Send the initial update (with the whole state of the model) to all the views */
-            usernames.forEach(model::sendInitialUpdate);
+        /* Create the controller factory */
+        ControllerFactory factory = new StandardControllerFactory(match, views);
 
-            /* Set the operational state of the match */
-            model.setOperationalState(MatchOperationalState.ACTIVE);
+        /* Send the initial update (with the whole state of the model) to all the views */
+        usernames.forEach(model::sendInitialUpdate);
 
-            /* Create the match controller and run the match */
-            MatchController matchController = factory.createMatchController();
-            matchController.setAfterTurnCallback(this::rejoinReconnectedPlayers); /* Rejoin after turn */
-            matchController.runMatch();
+        /* Set the operational state of the match */
+        model.setOperationalState(MatchOperationalState.ACTIVE);
 
-            /* When the match is over, change the operational state again */
-            model.setOperationalState(MatchOperationalState.FINISHED);
+        /* Create the match controller */
+        MatchController matchController = factory.createMatchController();
+        matchController.setAfterTurnCallback(() -> { /* Rejoin and resync after turn */
+            rejoinReconnectedPlayers();
+            resyncPlayers();
+        });
+        return matchController;
+    }
 
-            /* Return to the caller (server) */
-        } catch (InterruptedException e) {
-            shutdown(); /* Force the game to terminate */
-            Thread.currentThread().interrupt();
+    /**
+     * Creates the match, binding the players to the skeleton prepared in advance if it is available
+     *
+     * @param usernames the usernames of the players
+     * @param config    the configuration of the match
+     * @return the created match
+     */
+    private Match createMatch(Set<String> usernames, MatchConfiguration config) {
+        if (skeleton != null) {
+            try {
+                return MatchCreator.createMatch(usernames, config, skeleton.join());
+            } catch (CompletionException e) {
+                logger.log(Level.WARNING, "The skeleton of the match is not available, creating it now", e);
+            }
         }
+        return MatchCreator.createMatch(usernames, config);
     }
 
     /**
@@ -136,6 +252,21 @@ public class ControllerImpl implements Controller {
         return view.reconnectRemoteView(remote);
     }
 
+    /**
+     * Reconnects the player with given username, whose client has already been authenticated,
+     * without checking the connectivity of the previous remote view
+     *
+     * @param username username of the player
+     * @param remote   remote view of the player
+     * @return {@code true} if the reconnection succeeded, {@code false} otherwise
+     */
+    @Override
+    public boolean resumeRemoteView(String username, RemoteView remote) {
+        PersistentView view = views.get(username);
+        if (view == null) return false;
+        return view.takeOverRemoteView(remote);
+    }
+
     /**
      * Forces interruption of the running game
      * <p>
@@ -188,11 +319,18 @@ public class ControllerImpl implements Controller {
             view.selectScene(ViewScene.WAITING_REJOIN);
             return null;
         });
+
+        view.setResyncCallback(() -> {
+            /* The model is not thread-safe, so the state is sent after the end of the current turn */
+            waitingForResync.add(username);
+            return null;
+        });
     }
 
     /**
      * Takes the views that have been reconnected, but are waiting to rejoin the match,
-     * unsuspends the relative players and sends them the initial update.
+     * unsuspends the relative players and sends them the initial update,
+     * unless the updates they missed have already been sent again.
      * <p>
      * This is given as a callback to the match controller after executing the turn
      */
@@ -202,10 +340,30 @@ public class ControllerImpl implements Controller {
         toRejoin.forEach(view -> {
             logger.log(Level.FINE, "Player \"{0}\" is rejoining the match", view.getUsername());
             model.unsuspendPlayer(view.getUsername());
-            model.sendInitialUpdate(view.getUsername());
+            if (!view.resumeUpdates()) {
+                model.sendInitialUpdate(view.getUsername());
+            }
 
             /* Remove it from the map */
             waitingToRejoin.remove(view.getUsername());
         });
     }
+
+    /**
+     * Sends the initial update to the players who asked for the whole state of the model.
+     * Players waiting to rejoin are skipped, since they will get it when they rejoin.
+     * <p>
+     * This is given as a callback to the match controller after executing the turn
+     */
+    private void resyncPlayers() {
+        Set<String> toResync = new HashSet<>(waitingForResync);
+        waitingForResync.removeAll(toResync);
+
+        toResync.stream()
+                .filter(username -> !waitingToRejoin.containsKey(username))
+                .forEach(username -> {
+                    logger.log(Level.FINE, "Sending the whole state to player \"{0}\"", username);
+                    model.sendInitialUpdate(username);
+                });
+    }
 }
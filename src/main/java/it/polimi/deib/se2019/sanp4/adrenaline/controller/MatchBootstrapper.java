@@ -1,6 +1,7 @@
 package it.polimi.deib.se2019.sanp4.adrenaline.controller;
 
 import it.polimi.deib.se2019.sanp4.adrenaline.common.AdrenalineProperties;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.MatchPreferences;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.requests.BoardRequest;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.requests.ChoiceRequest;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.requests.SkullCountRequest;
@@ -9,19 +10,24 @@ import it.polimi.deib.se2019.sanp4.adrenaline.model.match.MatchConfiguration;
 
 import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 /**
  * This is responsible for asking a player the initial configuration of the match.
- * If the request expires, a random configuration is chosen
+ * If the request expires, a random configuration is chosen.
+ * The values already given by the preferences of the players (see {@link MatchPreferences}) are not asked
  * @author Alessandro Fulgini
  */
 public class MatchBootstrapper {
 
-    private static final int NUMBER_OF_BOARDS = 4;
+    /** Number of available boards, their ids go from 0 */
+    public static final int NUMBER_OF_BOARDS = 4;
 
-    private static final int MAX_SKULLS = 8;
+    /** Maximum number of skulls on the killshot track */
+    public static final int MAX_SKULLS = 8;
 
     private int timeout;
 
@@ -43,25 +49,68 @@ public class MatchBootstrapper {
      * @throws InterruptedException if the thread gets interrupted
      */
     public MatchConfiguration askForMatchConfiguration(PersistentView view) throws InterruptedException {
-        int boardId;
-        try {
-            boardId = askForBoardId(view).get();
-            view.stopTimer();
-        } catch (CancellationException e) {
-            /* Select a default board */
-            boardId = 0;
-        }
+        return askForMatchConfiguration(view, MatchPreferences.ANY);
+    }
 
-        int skulls;
-        try {
-            skulls = askForSkullsCount(view).get();
-            view.stopTimer();
-        } catch (CancellationException e) {
-            /* Select a default value */
-            skulls = MAX_SKULLS;
-        }
+    /**
+     * Asks give player for the values of the match configuration which are not given by the preferences,
+     * with a timeout. If a request expires a random board and a default number of skulls is chosen
+     *
+     * @param view        view of the player
+     * @param preferences the preferences shared by all the players of the match, not null
+     * @return the match configuration, not null
+     * @throws InterruptedException if the thread gets interrupted
+     */
+    public MatchConfiguration askForMatchConfiguration(PersistentView view, MatchPreferences preferences)
+            throws InterruptedException {
+        return StepLoop.run(executor -> askForMatchConfigurationAsync(view, preferences, executor));
+    }
 
-        return new MatchConfiguration(boardId, skulls);
+    /**
+     * Asks give player for the match configuration with a timeout, without waiting for the answers.
+     * Each answer resumes the configuration with given executor.
+     * If a request expires the same default values of {@link #askForMatchConfiguration(PersistentView)} are chosen
+     *
+     * @param view     view of the player
+     * @param executor the executor which resumes the configuration when the player answers, not null
+     * @return a stage which is completed with the match configuration, not null
+     */
+    public CompletionStage<MatchConfiguration> askForMatchConfigurationAsync(PersistentView view, Executor executor) {
+        return askForMatchConfigurationAsync(view, MatchPreferences.ANY, executor);
+    }
+
+    /**
+     * Asks give player for the values of the match configuration which are not given by the preferences,
+     * with a timeout, without waiting for the answers.
+     * If both values are given, the player is not asked anything and the returned stage is already completed
+     *
+     * @param view        view of the player
+     * @param preferences the preferences shared by all the players of the match, not null
+     * @param executor    the executor which resumes the configuration when the player answers, not null
+     * @return a stage which is completed with the match configuration, not null
+     */
+    public CompletionStage<MatchConfiguration> askForMatchConfigurationAsync(PersistentView view,
+                                                                            MatchPreferences preferences,
+                                                                            Executor executor) {
+        CompletionStage<Integer> board = preferences.getBoardId() != null ?
+                CompletableFuture.completedFuture(preferences.getBoardId()) :
+                resumeWithDefault(view, askForBoardId(view), 0, executor);
+        return board.thenCompose(boardId -> {
+            CompletionStage<Integer> skulls = preferences.getSkulls() != null ?
+                    CompletableFuture.completedFuture(preferences.getSkulls()) :
+                    resumeWithDefault(view, askForSkullsCount(view), MAX_SKULLS, executor);
+            return skulls.thenApply(skullCount -> new MatchConfiguration(boardId, skullCount));
+        });
+    }
+
+    /* Resumes when the choice is completed, replacing a cancelled choice with the default value */
+    private CompletionStage<Integer> resumeWithDefault(PersistentView view, CompletableChoice<Integer> choice,
+                                                      int defaultValue, Executor executor) {
+        return choice.toCompletionStage(executor).handle((value, e) -> {
+            if (e != null) return defaultValue; /* The request has been cancelled */
+            view.stopTimer();
+            return value;
+        });
     }
 
     private CompletableChoice<Integer> askForBoardId(PersistentView view) {
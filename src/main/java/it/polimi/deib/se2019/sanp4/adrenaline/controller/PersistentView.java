@@ -1,5 +1,6 @@
 package it.polimi.deib.se2019.sanp4.adrenaline.controller;
 
+import it.polimi.deib.se2019.sanp4.adrenaline.common.events.ResumeRequest;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.events.ViewEvent;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.events.ViewEventVisitor;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.network.RemoteView;
@@ -25,7 +26,7 @@ import java.util.concurrent.TimeUnit;
  *     and receive a {@link CompletableChoice} in response to each request.
  *     When the user makes the choice, that {@link CompletableChoice} will be completed.
  *     When the timer is not running, all requests made with {@link #sendChoiceRequest(ChoiceRequest)}
- *     will return a pre-cancelled {@link CompletableChoice}
+ *     will return a pre-cancelled {@link CompletableChoice}.
  * </p>
  * </div>
  * <div>
@@ -76,7 +77,8 @@ public interface PersistentView extends RemoteView, ViewEventVisitor {
 
     /**
      * Starts a timer for this particular player.
-     * If a timer is running, this will stop it and start the new one
+     * If a timer is running, this will stop it and start the new one.
+     * The callback runs on a shared pool, so it must not block (e.g. it must not make remote calls)
      * @param callback the function that will be called when the timer expires
      * @param delay the duration of the timer
      * @param unit the time unit for delay
@@ -120,6 +122,16 @@ public interface PersistentView extends RemoteView, ViewEventVisitor {
      */
     boolean reconnectRemoteView(RemoteView view);
 
+    /**
+     * Substitutes the remote view of the player with the provided one, without contacting the current one.
+     * This is used when the client has already proved to be the owner of the player (e.g. with the token
+     * of its session), so the current remote view is stale: if it is still connected, it is treated
+     * as a network fault
+     * @param view the view of the player who wants to reconnect
+     * @return {@code true} if reconnection goes fine, {@code false} otherwise
+     */
+    boolean takeOverRemoteView(RemoteView view);
+
     /**
      * Sets the function to be called when a reconnection happens
      * @param callback the function to be called when a reconnection happens
@@ -132,6 +144,21 @@ public interface PersistentView extends RemoteView, ViewEventVisitor {
      */
     void setNetworkFaultCallback(Callable<?> callback);
 
+    /**
+     * Sets the function to be called when the client asks for the whole state of the model
+     * @param callback the function to be called when the client asks for the whole state of the model
+     */
+    void setResyncCallback(Callable<?> callback);
+
+    /**
+     * Called when the player rejoins the match after a reconnection, to tell whether the updates
+     * missed by the client have already been sent again (see {@link ResumeRequest}).
+     * After this, the updates are sent to the client as usual
+     * @return {@code true} if the missed updates have been sent again, {@code false} if the whole state
+     * of the model has to be sent
+     */
+    boolean resumeUpdates();
+
     /**
      * Returns if a network fault has been detected with the remote.
      * Note that this does not try to contact the remote to check connectivity,
@@ -1,6 +1,11 @@
 package it.polimi.deib.se2019.sanp4.adrenaline.controller;
 
+import it.polimi.deib.se2019.sanp4.adrenaline.common.HashedWheelTimer;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.SerialExecutor;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.events.ChoiceResponse;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.events.Heartbeat;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.events.ResumeRequest;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.events.ResyncRequest;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.events.ViewEvent;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.exceptions.DuplicateIdException;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.exceptions.UnknownIdException;
@@ -12,20 +17,34 @@ import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.ModelUpdate;
 import it.polimi.deib.se2019.sanp4.adrenaline.controller.requests.CompletableChoice;
 import it.polimi.deib.se2019.sanp4.adrenaline.controller.requests.InvalidChoiceException;
 import it.polimi.deib.se2019.sanp4.adrenaline.controller.requests.RequestManager;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.ModelTransaction;
 import it.polimi.deib.se2019.sanp4.adrenaline.view.MessageType;
 import it.polimi.deib.se2019.sanp4.adrenaline.view.ViewScene;
 
 import java.io.IOException;
 import java.io.Serializable;
 import java.rmi.server.UnicastRemoteObject;
+import java.util.List;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Implementation of {@link PersistentView} by decorating {@link RemoteView}
  * Uses a {@link RequestManager} to handle requests to the user
- * and a {@link ScheduledExecutorService} for the timer.
+ * and the shared {@link HashedWheelTimer} for the timer.
+ * The timer expirations run on the shared pool of the timer, since they do not block.
+ * The callbacks, which may make remote calls (e.g. selecting the scene of a reconnected player),
+ * run on a shared elastic pool, so a client which does not answer cannot starve the timer.
+ * Both run in order for each view, so a view does not own any thread.
+ * If the client sends {@link Heartbeat}s, a {@link PhiAccrualFailureDetector} checks that they keep arriving,
+ * and the remote view is disconnected as soon as the client is suspected to be dead.
+ * Asynchronous updates are sent by an {@link UpdateDispatcher}, which bounds the time and memory
+ * they can take if the client does not answer.
+ * The last sent updates are kept in an {@link UpdateReplayBuffer}: after a reconnection, the updates
+ * are held until the client tells the last one it received with a {@link ResumeRequest}, then only
+ * the missed ones are sent again.
  * By convention, if the remote view has connection faults, it gets set to null
  * @author Alessandro Fulgini
  */
@@ -57,11 +76,16 @@ public class PersistentViewImpl extends RemoteObservable<ViewEvent> implements P
 
     private final RequestManager requestManager = new RequestManager();
 
-    private final ScheduledExecutorService timerScheduler = Executors.newSingleThreadScheduledExecutor();
+    private final HashedWheelTimer wheelTimer = HashedWheelTimer.getShared();
 
-    private final ExecutorService callbackExecutor = Executors.newSingleThreadExecutor();
+    private final Executor timerExecutor = new SerialExecutor(wheelTimer.getTaskExecutor());
 
-    private final ExecutorService updateExecutor = Executors.newSingleThreadExecutor();
+    private final Executor callbackExecutor = new SerialExecutor(getSharedCallbackExecutor());
+
+    /** Runs the callbacks of all the views, created when it is needed for the first time */
+    private static ExecutorService sharedCallbackExecutor;
+
+    private final UpdateDispatcher updateDispatcher = new UpdateDispatcher(this::foundNetworkFault);
 
     private Future<?> timer;
 
@@ -71,8 +95,26 @@ public class PersistentViewImpl extends RemoteObservable<ViewEvent> implements P
 
     private Callable<?> networkFaultCallback;
 
+    private Callable<?> resyncCallback;
+
     private RemoteViewObserver eventSpy;
 
+    private final PhiAccrualFailureDetector failureDetector = PhiAccrualFailureDetector.fromProperties();
+
+    private Future<?> heartbeatCheck;
+
+    private final Object heartbeatLock = new Object();
+
+    private final UpdateReplayBuffer replayBuffer = new UpdateReplayBuffer();
+
+    /* Whether the updates are held because the client has reconnected and has not resumed yet */
+    private boolean awaitingResume;
+
+    /* Whether the missed updates have been sent again after the last reconnection */
+    private boolean resumed;
+
+    private final Object resumeLock = new Object();
+
     /* ========== CONSTRUCTOR ========== */
 
     /**
@@ -99,11 +141,25 @@ public class PersistentViewImpl extends RemoteObservable<ViewEvent> implements P
         }
     }
 
+    private static synchronized ExecutorService getSharedCallbackExecutor() {
+        if (sharedCallbackExecutor == null) {
+            AtomicInteger count = new AtomicInteger();
+            /* A thread which is stuck in a remote call is not reused, so the pool must be elastic */
+            sharedCallbackExecutor = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "adrenaline-callback-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return sharedCallbackExecutor;
+    }
+
     /* ========== TIMER ========== */
 
     /**
      * Starts a timer for this particular player.
-     * If a timer is running, this will stop it and start the new one
+     * If a timer is running, this will stop it and start the new one.
+     * The callback runs on the pool of the shared timer, so it must not block
      *
      * @param callback the function that will be called when the timer expires, not null
      * @param delay    the duration of the timer
@@ -118,14 +174,14 @@ public class PersistentViewImpl extends RemoteObservable<ViewEvent> implements P
             if (isTimerRunning()) {
                 stopTimer();
             }
-            timer = timerScheduler.schedule(() -> {
+            timer = wheelTimer.newTimeout(() -> {
                 cancelPendingRequests();
                 try {
                     callback.call();
                 } catch (Exception e) {
                     /* Ignore the exception */
                 }
-            }, delay, unit);
+            }, delay, unit, timerExecutor);
         }
     }
 
@@ -215,26 +271,70 @@ public class PersistentViewImpl extends RemoteObservable<ViewEvent> implements P
 
         /* If there were network problems, accept reconnection */
         if (remote == null) {
-            /* Add the listener */
-            try {
-                view.addObserver(eventSpy);
-            } catch (IOException e) {
-                return false; /* Does not respond => don't keep it */
-            }
-
-            /* Substitute the remote */
-            remote = view;
-            /* Call the reconnection callback asynchronously */
-            if (reconnectionCallback != null) {
-                callbackExecutor.submit(reconnectionCallback);
-            }
-            return true;
+            return attachRemote(view);
         } else {
             /* If the user is still connected, do not allow reconnection */
             return false;
         }
     }
 
+    /**
+     * Substitutes the remote view of the player with the provided one, without contacting the current one,
+     * which is stale because the client has already proved to be the owner of the player.
+     * If the current remote is still connected, this is treated as a network fault
+     *
+     * @param view the view of the player who wants to reconnect
+     * @return {@code true} if reconnection goes fine, {@code false} otherwise
+     */
+    @Override
+    public synchronized boolean takeOverRemoteView(RemoteView view) {
+        if (view == null) throw new NullPointerException("View cannot be null");
+        RemoteView stale = remote;
+        if (stale != null) {
+            remote = null;
+            /* Do not wait for the stale remote, it may never answer */
+            callbackExecutor.execute(() -> {
+                try {
+                    stale.removeObserver(eventSpy);
+                } catch (IOException ignore) {
+                    /* Ignore, it just doesn't respond anymore */
+                }
+            });
+            handleRemoteLost();
+        }
+        return attachRemote(view);
+    }
+
+    /**
+     * Uses the provided view as the remote view, after the current one has been invalidated
+     *
+     * @param view the view of the player who wants to reconnect
+     * @return {@code true} if the view answers, {@code false} otherwise
+     */
+    private boolean attachRemote(RemoteView view) {
+        /* Add the listener */
+        try {
+            view.addObserver(eventSpy);
+        } catch (IOException e) {
+            return false; /* Does not respond => don't keep it */
+        }
+
+        /* Substitute the remote */
+        synchronized (resumeLock) {
+            remote = view;
+            updateDispatcher.reset();
+            /* Hold the updates until the client tells which ones it missed */
+            awaitingResume = true;
+            resumed = false;
+        }
+        failureDetector.reset(); /* The new connection has its own heartbeats */
+        /* Call the reconnection callback asynchronously */
+        if (reconnectionCallback != null) {
+            runCallback(reconnectionCallback);
+        }
+        return true;
+    }
+
     /**
      * Sets the function to be called when a reconnection happens
      *
@@ -273,6 +373,25 @@ public class PersistentViewImpl extends RemoteObservable<ViewEvent> implements P
         return networkFaultCallback;
     }
 
+    /**
+     * Sets the function to be called when the client asks for the whole state of the model
+     *
+     * @param callback the function to be called when the client asks for the whole state of the model
+     */
+    @Override
+    public void setResyncCallback(Callable<?> callback) {
+        resyncCallback = callback;
+    }
+
+    /**
+     * Returns the callback called when the client asks for the whole state of the model
+     *
+     * @return The callback called when the client asks for the whole state of the model
+     */
+    Callable getResyncCallback() {
+        return resyncCallback;
+    }
+
     /**
      * Returns the remote view used by this PersistentView
      *
@@ -288,14 +407,38 @@ public class PersistentViewImpl extends RemoteObservable<ViewEvent> implements P
     private void foundNetworkFault() {
         /* No connectivity => we invalidate the current remote */
         invalidateRemote();
+        handleRemoteLost();
+    }
+
+    /**
+     * Stops the interaction with the player and calls the network fault callback,
+     * after the remote has been invalidated
+     */
+    private void handleRemoteLost() {
         cancelPendingRequests();
         stopTimer();
         if (networkFaultCallback != null) {
             /* Notify the subscriber in another thread */
-            callbackExecutor.submit(networkFaultCallback);
+            runCallback(networkFaultCallback);
         }
     }
 
+    /**
+     * Calls given callback asynchronously, after the callbacks previously called by this view.
+     * Exceptions thrown by the callback are ignored
+     *
+     * @param callback the callback to be called, not null
+     */
+    private void runCallback(Callable<?> callback) {
+        callbackExecutor.execute(() -> {
+            try {
+                callback.call();
+            } catch (Exception e) {
+                logger.log(Level.FINE, "Exception in callback", e);
+            }
+        });
+    }
+
     /**
      * Tries to remove the event observer from the current remote
      * and then sets it to null, even if it couldn't remove the observer
@@ -328,13 +471,16 @@ public class PersistentViewImpl extends RemoteObservable<ViewEvent> implements P
      * Sends a request to the player and returns an object that can be used to retrieve the response
      * to that request.
      * If the request is not accepted by the {@link RequestManager}, or if the user is disconnected
-     * this returns a pre-cancelled {@link CompletableChoice}
+     * this returns a pre-cancelled {@link CompletableChoice}.
+     * The updates of the current {@link ModelTransaction}, if any, are sent before the request
      *
      * @param request the request to be sent, not null
      * @return a completable choice which can be used to retrieve the user's choice
      */
     @Override
     public <T extends Serializable> CompletableChoice<T> sendChoiceRequest(ChoiceRequest<T> request) {
+        /* Let the player see the changes made so far before choosing */
+        ModelTransaction.flush();
         if (isTimerRunning()) {
             /* Try to send the request */
             try {
@@ -410,6 +556,7 @@ public class PersistentViewImpl extends RemoteObservable<ViewEvent> implements P
      */
     @Override
     public void showMessage(String text, MessageType type) {
+        ModelTransaction.flush(); /* The message may refer to the changes made so far */
         try {
             remote.showMessage(text, type);
         } catch (IOException e) {
@@ -452,14 +599,20 @@ public class PersistentViewImpl extends RemoteObservable<ViewEvent> implements P
 
     /**
      * Send an update from a {@link RemoteObservable} object.
-     * The update is sent asynchronously
+     * The update is sent asynchronously: if the client does not receive it in time,
+     * or too many updates are waiting, a network fault is detected
      *
      * @param update update to be sent
      */
     @Override
     public void update(ModelUpdate update) {
-        if (remote == null) return;
-        updateExecutor.submit(() -> updateSync(update));
+        synchronized (resumeLock) {
+            /* Kept even if the client is disconnected, so it can be sent again */
+            replayBuffer.record(update);
+            RemoteView current = remote;
+            if (current == null || awaitingResume) return;
+            updateDispatcher.dispatch(current, update);
+        }
     }
 
     /**
@@ -500,6 +653,111 @@ public class PersistentViewImpl extends RemoteObservable<ViewEvent> implements P
     }
 
 
+    /**
+     * Handles the request of the client to get the whole state of the model,
+     * by calling the resync callback asynchronously
+     *
+     * @param resyncRequest the resync request event
+     */
+    @Override
+    public void visit(ResyncRequest resyncRequest) {
+        logger.log(Level.FINE, "Player \"{0}\" asked for resync", username);
+        if (resyncCallback != null) {
+            runCallback(resyncCallback);
+        }
+    }
+
+    /**
+     * Handles the request of a reconnected client, by sending again the updates which follow the last one
+     * it received. If they are no longer available, nothing is sent and the whole state of the model
+     * is sent when the player rejoins the match (see {@link #resumeUpdates()})
+     *
+     * @param resumeRequest the resume request event
+     */
+    @Override
+    public void visit(ResumeRequest resumeRequest) {
+        synchronized (resumeLock) {
+            if (!awaitingResume) return; /* Too late, the player has already rejoined */
+            awaitingResume = false;
+
+            List<ModelUpdate> missed = replayBuffer.since(resumeRequest.getLastSequence());
+            if (missed == null) {
+                logger.log(Level.FINE, "Cannot replay the updates missed by player \"{0}\"", username);
+                return;
+            }
+            resumed = true;
+            logger.log(Level.FINE, () -> String.format("Replaying %d updates to player \"%s\"",
+                    missed.size(), username));
+            RemoteView current = remote;
+            if (current != null) {
+                missed.forEach(update -> updateDispatcher.dispatch(current, update));
+            }
+        }
+    }
+
+    /**
+     * Called when the player rejoins the match after a reconnection, to tell whether the updates
+     * missed by the client have already been sent again.
+     * After this, the updates are sent to the client as usual
+     *
+     * @return {@code true} if the missed updates have been sent again, {@code false} if the whole state
+     * of the model has to be sent
+     */
+    @Override
+    public boolean resumeUpdates() {
+        synchronized (resumeLock) {
+            boolean wasResumed = resumed;
+            awaitingResume = false;
+            resumed = false;
+            return wasResumed;
+        }
+    }
+
+    /**
+     * Handles a heartbeat of the client, by feeding the failure detector.
+     * The first heartbeat starts the periodic check of the failure detector
+     *
+     * @param heartbeat the heartbeat event
+     */
+    @Override
+    public void visit(Heartbeat heartbeat) {
+        failureDetector.heartbeat(System.currentTimeMillis());
+        scheduleHeartbeatCheck();
+    }
+
+    /**
+     * Schedules the next check of the failure detector, if it is not scheduled yet
+     */
+    private void scheduleHeartbeatCheck() {
+        synchronized (heartbeatLock) {
+            if (heartbeatCheck == null) {
+                heartbeatCheck = wheelTimer.newTimeout(this::checkHeartbeats,
+                        PhiAccrualFailureDetector.getHeartbeatInterval(), TimeUnit.MILLISECONDS, callbackExecutor);
+            }
+        }
+    }
+
+    /**
+     * Checks whether the client is still sending heartbeats, and disconnects the remote view if it is not.
+     * The check is repeated while the remote view is connected
+     */
+    private void checkHeartbeats() {
+        synchronized (heartbeatLock) {
+            heartbeatCheck = null;
+        }
+        if (remote == null) return; /* The check starts again with the heartbeats of the next connection */
+
+        long now = System.currentTimeMillis();
+        if (failureDetector.isAvailable(now)) {
+            scheduleHeartbeatCheck();
+        } else {
+            logger.log(Level.WARNING, () -> String.format("No heartbeats from player \"%s\" (phi = %.1f)",
+                    username, failureDetector.phi(now)));
+            failureDetector.reset();
+            disconnectRemoteView();
+        }
+    }
+
     /**
      * Sends a request to the remote without putting it in the request manager
      * Note: remote must not be null
@@ -0,0 +1,195 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.controller;
+
+import it.polimi.deib.se2019.sanp4.adrenaline.common.AdrenalineProperties;
+
+/**
+ * A failure detector which adapts to the network conditions of a client, based on the heartbeats it sends.
+ * <p>
+ * Instead of a fixed timeout, the detector keeps the distribution (mean and standard deviation) of the
+ * last intervals between heartbeats, and computes the suspicion level phi for the time elapsed since the last
+ * heartbeat: {@code phi = -log10(P)}, where {@code P} is the probability that the next heartbeat
+ * arrives even later. The client is considered dead when phi exceeds the threshold, so a client with a steady
+ * connection is detected quickly, while a client with a jittery connection is given more time.
+ * </p>
+ * <p>
+ * The detector is armed by the first heartbeat: before that, the client is always considered alive.
+ * The times are given by the caller, in milliseconds.
+ * The detectors of the players are configured with {@code adrenaline.heartbeat.interval} (default 1000 ms),
+ * {@code adrenaline.heartbeat.phi} (default 8) and {@code adrenaline.heartbeat.pause} (default 2000 ms).
+ * </p>
+ *
+ * @author Alessandro Fulgini
+ */
+public class PhiAccrualFailureDetector {
+
+    private static final long DEFAULT_HEARTBEAT_INTERVAL = 1000;
+
+    private static final double DEFAULT_THRESHOLD = 8;
+
+    private static final long DEFAULT_ACCEPTABLE_PAUSE = 2000;
+
+    private static final int SAMPLE_SIZE = 100;
+
+    private static final double MIN_STD_DEVIATION = 100;
+
+    /** Suspicion level above which the client is considered dead */
+    private final double threshold;
+
+    /** The last intervals between heartbeats, used as a ring buffer */
+    private final long[] intervals;
+
+    /** Lower bound of the standard deviation, so that a very regular client is not suspected too early */
+    private final double minStdDeviation;
+
+    /** Additional time given to the client, to tolerate pauses of the server or of the client */
+    private final long acceptablePause;
+
+    /** Expected interval between heartbeats, used before having real samples */
+    private final long firstHeartbeatEstimate;
+
+    /** Number of stored intervals */
+    private int count;
+
+    /** Index of the next interval to be stored */
+    private int next;
+
+    /** Sum of the stored intervals */
+    private long sum;
+
+    /** Sum of the squares of the stored intervals */
+    private double squaredSum;
+
+    /** Time of the last heartbeat, negative if no heartbeat has arrived */
+    private long lastHeartbeat = -1;
+
+    /**
+     * Creates a new failure detector
+     *
+     * @param threshold              suspicion level above which the client is considered dead, greater than 0
+     * @param maxSampleSize          number of intervals used to compute the distribution, greater than 0
+     * @param minStdDeviation        lower bound of the standard deviation, in milliseconds, greater than 0
+     * @param acceptablePause        additional time given to the client, in milliseconds
+     * @param firstHeartbeatEstimate expected interval between heartbeats, in milliseconds, greater than 0
+     * @throws IllegalArgumentException if any of the parameters is not valid
+     */
+    public PhiAccrualFailureDetector(double threshold, int maxSampleSize, double minStdDeviation,
+                                     long acceptablePause, long firstHeartbeatEstimate) {
+        if (threshold <= 0 || maxSampleSize <= 0 || minStdDeviation <= 0 ||
+                acceptablePause < 0 || firstHeartbeatEstimate <= 0) {
+            throw new IllegalArgumentException("Invalid parameters for the failure detector");
+        }
+        this.threshold = threshold;
+        this.intervals = new long[maxSampleSize];
+        this.minStdDeviation = minStdDeviation;
+        this.acceptablePause = acceptablePause;
+        this.firstHeartbeatEstimate = firstHeartbeatEstimate;
+    }
+
+    /**
+     * Creates a new failure detector with the settings given in the properties
+     *
+     * @return the new failure detector
+     */
+    public static PhiAccrualFailureDetector fromProperties() {
+        AdrenalineProperties properties = AdrenalineProperties.getProperties();
+        double threshold = Double.parseDouble((String) properties.getOrDefault("adrenaline.heartbeat.phi",
+                Double.toString(DEFAULT_THRESHOLD)));
+        long pause = Long.parseLong((String) properties.getOrDefault("adrenaline.heartbeat.pause",
+                Long.toString(DEFAULT_ACCEPTABLE_PAUSE)));
+        return new PhiAccrualFailureDetector(threshold, SAMPLE_SIZE, MIN_STD_DEVIATION, pause,
+                getHeartbeatInterval());
+    }
+
+    /**
+     * Returns the expected interval between two heartbeats of a client
+     *
+     * @return the interval between two heartbeats, in milliseconds
+     */
+    public static long getHeartbeatInterval() {
+        return Long.parseLong((String) AdrenalineProperties.getProperties()
+                .getOrDefault("adrenaline.heartbeat.interval", Long.toString(DEFAULT_HEARTBEAT_INTERVAL)));
+    }
+
+    /**
+     * Records the arrival of a heartbeat
+     *
+     * @param now the time of arrival, in milliseconds
+     */
+    public synchronized void heartbeat(long now) {
+        if (lastHeartbeat < 0) {
+            /* Bootstrap the distribution with the expected interval, with a standard deviation of a quarter */
+            long deviation = firstHeartbeatEstimate / 4;
+            addInterval(firstHeartbeatEstimate - deviation);
+            addInterval(firstHeartbeatEstimate + deviation);
+        } else {
+            addInterval(now - lastHeartbeat);
+        }
+        lastHeartbeat = now;
+    }
+
+    /* Stores an interval, replacing the oldest one if the buffer is full */
+    private void addInterval(long interval) {
+        if (count == intervals.length) {
+            long oldest = intervals[next];
+            sum -= oldest;
+            squaredSum -= (double) oldest * oldest;
+        } else {
+            count++;
+        }
+        intervals[next] = interval;
+        sum += interval;
+        squaredSum += (double) interval * interval;
+        next = (next + 1) % intervals.length;
+    }
+
+    /**
+     * Returns the suspicion level at given time
+     *
+     * @param now the current time, in milliseconds
+     * @return the suspicion level, 0 if no heartbeat has arrived yet
+     */
+    public synchronized double phi(long now) {
+        if (lastHeartbeat < 0) return 0;
+
+        double mean = (double) sum / count + acceptablePause;
+        double variance = squaredSum / count - ((double) sum / count) * ((double) sum / count);
+        double stdDeviation = Math.max(Math.sqrt(Math.max(variance, 0)), minStdDeviation);
+
+        /* Logistic approximation of the cumulative distribution function of the normal distribution */
+        double y = (now - lastHeartbeat - mean) / stdDeviation;
+        double e = Math.exp(-y * (1.5976 + 0.070566 * y * y));
+        double pLater = y > 0 ? e / (1 + e) : 1 - 1 / (1 + e);
+        /* Avoid infinity when the probability underflows */
+        return -Math.log10(Math.max(pLater, Double.MIN_VALUE));
+    }
+
+    /**
+     * Tells whether the client is considered alive at given time
+     *
+     * @param now the current time, in milliseconds
+     * @return {@code true} if the suspicion level does not exceed the threshold
+     */
+    public boolean isAvailable(long now) {
+        return phi(now) <= threshold;
+    }
+
+    /**
+     * Tells whether at least one heartbeat has arrived since the creation or the last reset
+     *
+     * @return {@code true} if the detector is monitoring the client
+     */
+    public synchronized boolean isMonitoring() {
+        return lastHeartbeat >= 0;
+    }
+
+    /**
+     * Forgets all the heartbeats, e.g. because the client connected again
+     */
+    public synchronized void reset() {
+        count = 0;
+        next = 0;
+        sum = 0;
+        squaredSum = 0;
+        lastHeartbeat = -1;
+    }
+}
@@ -9,20 +9,17 @@ import it.polimi.deib.se2019.sanp4.adrenaline.controller.powerups.*;
 import it.polimi.deib.se2019.sanp4.adrenaline.controller.weapons.AbstractWeapon;
 import it.polimi.deib.se2019.sanp4.adrenaline.controller.weapons.AlternativeModesWeapon;
 import it.polimi.deib.se2019.sanp4.adrenaline.controller.weapons.OptionalEffectsWeapon;
-import it.polimi.deib.se2019.sanp4.adrenaline.controller.weapons.ShootingDirectionEnum;
+import it.polimi.deib.se2019.sanp4.adrenaline.controller.weapons.WeaponBlueprint;
+import it.polimi.deib.se2019.sanp4.adrenaline.controller.weapons.WeaponBlueprint.EffectBlueprint;
+import it.polimi.deib.se2019.sanp4.adrenaline.controller.weapons.WeaponBlueprint.TargetBlueprint;
 import it.polimi.deib.se2019.sanp4.adrenaline.controller.weapons.effects.AbstractEffect;
 import it.polimi.deib.se2019.sanp4.adrenaline.controller.weapons.effects.MovementEffect;
 import it.polimi.deib.se2019.sanp4.adrenaline.controller.weapons.effects.TargetingEffect;
 import it.polimi.deib.se2019.sanp4.adrenaline.controller.weapons.targets.*;
-import it.polimi.deib.se2019.sanp4.adrenaline.model.board.VisibilityEnum;
-import it.polimi.deib.se2019.sanp4.adrenaline.model.items.ammo.AmmoCubeCost;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.items.powerup.PowerupEnum;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.items.weapons.WeaponCard;
-import it.polimi.deib.se2019.sanp4.adrenaline.model.items.weapons.WeaponCreator;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.match.Match;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.match.PlayerTurn;
-import it.polimi.deib.se2019.sanp4.adrenaline.common.JSONUtils;
-import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
@@ -203,6 +200,8 @@ public class StandardControllerFactory implements ControllerFactory {
      * <p>
      * The controller will be set up with all the effects and their targets,
      * so it's ready to use.
+     * The controllers are created from the {@link WeaponBlueprint} of the weapon,
+     * which is only compiled once and shared by all the matches.
      * </p>
      *
      * @param weaponCard The card of the weapon to be controlled, not null
@@ -213,9 +212,9 @@ public class StandardControllerFactory implements ControllerFactory {
     public AbstractWeapon createWeaponController(WeaponCard weaponCard) {
         AbstractWeapon weapon;
 
-        /* Get the JSON config and the type */
-        JSONObject config = WeaponCreator.getWeaponConfiguration(weaponCard.getId());
-        String type = config.getString("type");
+        /* Get the compiled configuration and the type */
+        WeaponBlueprint blueprint = WeaponBlueprint.of(weaponCard.getId());
+        String type = blueprint.getType();
 
         switch (type) {
             case "OPTIONAL_EFFECTS":
@@ -229,19 +228,14 @@ public class StandardControllerFactory implements ControllerFactory {
         }
 
         /* Shooting direction */
-        if (config.has("direction")) {
-            weapon.setShootingDirection(config.getEnum(ShootingDirectionEnum.class, "direction"));
+        if (blueprint.getShootingDirection() != null) {
+            weapon.setShootingDirection(blueprint.getShootingDirection());
         }
 
         /* Effects */
-        JSONArray array = config.getJSONArray("effects");
-        for (int i = 0; i < array.length(); i++) {
-            /* Create each effect */
-            JSONObject effectConfig = array.getJSONObject(i);
-            AbstractEffect effect = createEffectController(weapon, effectConfig);
-
-            /* Add it to the weapon */
-            weapon.addEffect(effect);
+        for (EffectBlueprint effectBlueprint : blueprint.getEffects()) {
+            /* Create each effect and add it to the weapon */
+            weapon.addEffect(createEffectController(weapon, effectBlueprint));
         }
 
         return weapon;
@@ -268,29 +262,40 @@ public class StandardControllerFactory implements ControllerFactory {
      */
     @Override
     public AbstractEffect createEffectController(AbstractWeapon weapon, JSONObject config) {
-        /* Read the mandatory fields */
-        String id = config.getString("id");
-        String type = config.getString("type");
+        return createEffectController(weapon, new EffectBlueprint(config));
+    }
+
+    /**
+     * Creates the controller for a specific weapon effect, from its compiled configuration
+     *
+     * @param weapon    The weapon this effect belongs to, not null
+     * @param blueprint The compiled configuration of the effect, not null
+     * @return The effect controller
+     * @throws JSONException if the type of the effect does not exist
+     */
+    private AbstractEffect createEffectController(AbstractWeapon weapon, EffectBlueprint blueprint) {
+        String id = blueprint.getId();
+        String type = blueprint.getType();
 
         /* Build the corresponding effect */
         switch (type) {
             case "MODE":
             case "BASIC":
                 TargetingEffect mandatoryEffect = new TargetingEffect(id, match, this);
-                setupTargetingEffect(weapon, mandatoryEffect, config); /* Add cost and targets */
+                setupTargetingEffect(weapon, mandatoryEffect, blueprint); /* Add cost and targets */
                 mandatoryEffect.setOptional(false); /* Always mandatory */
                 /* Does not depend on other effects */
                 return mandatoryEffect;
             case "OPTIONAL":
                 TargetingEffect optionalEffect = new TargetingEffect(id, match, this);
-                setupTargetingEffect(weapon, optionalEffect, config); /* Add cost and targets */
+                setupTargetingEffect(weapon, optionalEffect, blueprint); /* Add cost and targets */
                 optionalEffect.setOptional(true);
                 /* May depend on other effects */
-                setupDependsOnEffects(optionalEffect, config);
+                setupDependsOnEffects(optionalEffect, blueprint);
                 return optionalEffect;
             case "MOVEMENT":
                 MovementEffect movementEffect = new MovementEffect(id, match, this);
-                setupMovementEffect(movementEffect, config);
+                setupMovementEffect(movementEffect, blueprint);
                 return movementEffect;
             default:
                 throw new JSONException(String.format("Effect type %s does not exist", type));
@@ -298,83 +303,70 @@ public class StandardControllerFactory implements ControllerFactory {
     }
 
     /**
-     * Sets the proper fields for an abstract effect, reading them from config
+     * Sets the proper fields for an abstract effect, reading them from its blueprint
      *
-     * @param effect The effect to be configured, not null
-     * @param config The JSON configuration, not null
-     * @throws JSONException if the JSON does not conform to the specific
+     * @param effect    The effect to be configured, not null
+     * @param blueprint The compiled configuration, not null
      */
-    private void setupAbstractEffect(AbstractEffect effect, JSONObject config) {
+    private void setupAbstractEffect(AbstractEffect effect, EffectBlueprint blueprint) {
         /* Cost */
-        if (config.has("cost")) {
-            List<AmmoCubeCost> cost = JSONUtils.arrayToEnumList(AmmoCubeCost.class, config.getJSONArray("cost"));
-            effect.setCost(cost);
+        if (blueprint.getCost() != null) {
+            effect.setCost(blueprint.getCost());
         }
     }
 
     /**
-     * Sets the proper fields for a targeting effect, reading them from config
+     * Sets the proper fields for a targeting effect, reading them from its blueprint
      * <p>
      * Also includes the fields for its super-classes and adding the target controllers
      * </p>
      *
-     * @param weapon The weapon this effect belongs to, not null
-     * @param effect The effect to be configured, not null
-     * @param config The JSON configuration, not null
-     * @throws JSONException if the JSON does not conform to the specific
+     * @param weapon    The weapon this effect belongs to, not null
+     * @param effect    The effect to be configured, not null
+     * @param blueprint The compiled configuration, not null
      */
-    private void setupTargetingEffect(AbstractWeapon weapon, TargetingEffect effect, JSONObject config) {
+    private void setupTargetingEffect(AbstractWeapon weapon, TargetingEffect effect, EffectBlueprint blueprint) {
         /* Super-class */
-        setupAbstractEffect(effect, config);
+        setupAbstractEffect(effect, blueprint);
 
-        /* Read the array of targets */
-        JSONArray array = config.getJSONArray("targets");
-
-        for (int i = 0; i < array.length(); i++) {
-            /* Configure each target */
-            JSONObject targetConfig = array.getJSONObject(i);
-            AbstractTarget target = createTargetController(weapon, targetConfig);
-
-            /* Add it to the effect */
-            effect.appendTarget(target);
+        for (TargetBlueprint targetBlueprint : blueprint.getTargets()) {
+            /* Configure each target and add it to the effect */
+            effect.appendTarget(createTargetController(weapon, targetBlueprint));
         }
     }
 
     /**
-     * Sets the proper fields for a movement effect, reading them from config
+     * Sets the proper fields for a movement effect, reading them from its blueprint
      * <p>
      * Also includes the fields for its super-classes
      * </p>
      *
-     * @param effect The effect to be configured, not null
-     * @param config The JSON configuration, not null
-     * @throws JSONException if the JSON does not conform to the specific
+     * @param effect    The effect to be configured, not null
+     * @param blueprint The compiled configuration, not null
      */
-    private void setupMovementEffect(MovementEffect effect, JSONObject config) {
+    private void setupMovementEffect(MovementEffect effect, EffectBlueprint blueprint) {
         /* Super-class */
-        setupAbstractEffect(effect, config);
+        setupAbstractEffect(effect, blueprint);
 
         /* Always optional */
         effect.setOptional(true);
 
         /* Number of steps */
-        effect.setMaxMoves(config.optInt("playerMoves", 0));
+        effect.setMaxMoves(blueprint.getPlayerMoves());
 
         /* Depends on effects */
-        setupDependsOnEffects(effect, config);
+        setupDependsOnEffects(effect, blueprint);
     }
 
     /**
-     * Sets the {@code dependsOnEffects} field in an effect, reading it from config
+     * Sets the {@code dependsOnEffects} field in an effect, reading it from its blueprint
      *
-     * @param effect The effect to be configured, not null
-     * @param config The JSON configuration, not null
-     * @throws JSONException if the JSON does not conform to the specific
+     * @param effect    The effect to be configured, not null
+     * @param blueprint The compiled configuration, not null
      */
-    private void setupDependsOnEffects(AbstractEffect effect, JSONObject config) {
-        if (config.has("dependsOnEffects")) {
-            Set<String> set = JSONUtils.arrayToStringSet(config.getJSONArray("dependsOnEffects"));
-            effect.setDependsOnEffects(set);
+    private void setupDependsOnEffects(AbstractEffect effect, EffectBlueprint blueprint) {
+        if (blueprint.getDependsOnEffects() != null) {
+            effect.setDependsOnEffects(blueprint.getDependsOnEffects());
         }
     }
 
@@ -395,31 +387,42 @@ public class StandardControllerFactory implements ControllerFactory {
      */
     @Override
     public AbstractTarget createTargetController(AbstractWeapon weapon, JSONObject config) {
-        /* Read the mandatory fields */
-        String id = config.getString("id");
-        String targetMode = config.getString("targetMode");
+        return createTargetController(weapon, new TargetBlueprint(config));
+    }
+
+    /**
+     * Creates the controller for a specific weapon target, from its compiled configuration
+     *
+     * @param weapon    The weapon this target belongs to, not null
+     * @param blueprint The compiled configuration of the target, not null
+     * @return The target controller
+     * @throws JSONException if the target mode does not exist
+     */
+    private AbstractTarget createTargetController(AbstractWeapon weapon, TargetBlueprint blueprint) {
+        String id = blueprint.getId();
+        String targetMode = blueprint.getTargetMode();
 
         /* Build the corresponding target */
         switch (targetMode) {
             case "PLAYER":
                 PlayerTarget playerTarget = new PlayerTarget(id, weapon, match, this);
-                setupPlayerTarget(playerTarget, config);
+                setupPlayerTarget(playerTarget, blueprint);
                 return playerTarget;
             case "SQUARE":
                 SquareTarget squareTarget = new SquareTarget(id, weapon, match, this);
-                setupSingleSquareTarget(squareTarget, config);
+                setupSingleSquareTarget(squareTarget, blueprint);
                 return squareTarget;
             case "ROOM":
                 RoomTarget roomTarget = new RoomTarget(id, weapon, match, this);
-                setupAbstractTarget(roomTarget, config);
+                setupAbstractTarget(roomTarget, blueprint);
                 return roomTarget;
             case "RADIUS":
                 RadiusTarget radiusTarget = new RadiusTarget(id, weapon, match, this);
-                setupAbstractTarget(radiusTarget, config);
+                setupAbstractTarget(radiusTarget, blueprint);
                 return radiusTarget;
             case "VORTEX":
                 VortexTarget vortexTarget = new VortexTarget(id, weapon, match, this);
-                setupAbstractTarget(vortexTarget, config);
+                setupAbstractTarget(vortexTarget, blueprint);
                 return vortexTarget;
             default:
                 throw new JSONException(String.format("Target type %s does not exist", targetMode));
@@ -427,99 +430,89 @@ public class StandardControllerFactory implements ControllerFactory {
     }
 
     /**
-     * Sets the proper fields for an abstract target, reading them from config
+     * Sets the proper fields for an abstract target, reading them from its blueprint
      *
-     * @param target The target to be configured, not null
-     * @param config The JSON configuration, not null
-     * @throws JSONException if the JSON does not conform to the specific
+     * @param target    The target to be configured, not null
+     * @param blueprint The compiled configuration, not null
      */
-    private void setupAbstractTarget(AbstractTarget target, JSONObject config) {
-        Set<String> set;
-
+    private void setupAbstractTarget(AbstractTarget target, TargetBlueprint blueprint) {
         /* Optional */
-        target.setOptional(config.optBoolean("optional", false));
+        target.setOptional(blueprint.isOptional());
 
         /* Damage and marks */
-        target.setDamage(config.optInt("damage", 0));
-        target.setMarks(config.optInt("marks", 0));
+        target.setDamage(blueprint.getDamage());
+        target.setMarks(blueprint.getMarks());
 
         /* Visibility */
-        if (config.has("visibility")) {
-            target.setVisibility(config.getEnum(VisibilityEnum.class, "visibility"));
+        if (blueprint.getVisibility() != null) {
+            target.setVisibility(blueprint.getVisibility());
         }
 
         /* Minimum and maximum distance */
-        if (config.has("minDist")) {
-            target.setMinDist(config.optInt("minDist"));
+        if (blueprint.getMinDist() != null) {
+            target.setMinDist(blueprint.getMinDist());
         }
-        if (config.has("maxDist")) {
-            target.setMaxDist(config.optInt("maxDist"));
+        if (blueprint.getMaxDist() != null) {
+            target.setMaxDist(blueprint.getMaxDist());
         }
 
         /* Excluded players and squares */
-        if (config.has("excludePlayers")) {
-            set = JSONUtils.arrayToStringSet(config.getJSONArray("excludePlayers"));
-            target.setExcludePlayers(set);
+        if (blueprint.getExcludePlayers() != null) {
+            target.setExcludePlayers(blueprint.getExcludePlayers());
         }
-        if (config.has("excludeSquares")) {
-            set = JSONUtils.arrayToStringSet(config.getJSONArray("excludeSquares"));
-            target.setExcludeSquares(set);
+        if (blueprint.getExcludeSquares() != null) {
+            target.setExcludeSquares(blueprint.getExcludeSquares());
         }
     }
 
     /**
-     * Sets the proper fields for a single square target, reading them from config
+     * Sets the proper fields for a single square target, reading them from its blueprint
      * <p>
      * Also includes the fields for its super-classes
      * </p>
      *
-     * @param target The target to be configured, not null
-     * @param config The JSON configuration, not null
-     * @throws JSONException if the JSON does not conform to the specific
+     * @param target    The target to be configured, not null
+     * @param blueprint The compiled configuration, not null
      */
-    private void setupSingleSquareTarget(SingleSquareTarget target, JSONObject config) {
-        Set<String> set;
-
+    private void setupSingleSquareTarget(SingleSquareTarget target, TargetBlueprint blueprint) {
         /* Set up super-class */
-        setupAbstractTarget(target, config);
+        setupAbstractTarget(target, blueprint);
 
         /* Choose between targets */
-        if (config.has("chooseBetweenTargets")) {
-            set = JSONUtils.arrayToStringSet(config.getJSONArray("chooseBetweenTargets"));
-            target.setChooseBetweenTargets(set);
+        if (blueprint.getChooseBetweenTargets() != null) {
+            target.setChooseBetweenTargets(blueprint.getChooseBetweenTargets());
         }
 
         /* Visible from player */
-        if (config.has("visibleFromPlayer")) {
-            target.setVisibleFromPlayer(config.getString("visibleFromPlayer"));
+        if (blueprint.getVisibleFromPlayer() != null) {
+            target.setVisibleFromPlayer(blueprint.getVisibleFromPlayer());
         }
 
         /* Move shooter here */
-        target.setMoveShooterHere(config.optBoolean("moveShooterHere", false));
+        target.setMoveShooterHere(blueprint.isMoveShooterHere());
 
         /* Square reference */
-        if (config.has("squareRef")) {
-            target.setSquareRef(config.getString("squareRef"));
+        if (blueprint.getSquareRef() != null) {
+            target.setSquareRef(blueprint.getSquareRef());
         }
     }
 
     /**
-     * Sets the proper fields for a player target, reading them from config
+     * Sets the proper fields for a player target, reading them from its blueprint
      * <p>
      * Also includes the fields for its super-classes
      * </p>
      *
-     * @param target The target to be configured, not null
-     * @param config The JSON configuration, not null
-     * @throws JSONException if the JSON does not conform to the specific
+     * @param target    The target to be configured, not null
+     * @param blueprint The compiled configuration, not null
      */
-    private void setupPlayerTarget(PlayerTarget target, JSONObject config) {
+    private void setupPlayerTarget(PlayerTarget target, TargetBlueprint blueprint) {
         /* Set up super-class */
-        setupSingleSquareTarget(target, config);
+        setupSingleSquareTarget(target, blueprint);
 
         /* Move target before and after */
-        target.setMoveTargetBefore(config.optInt("moveTargetBefore", 0));
-        target.setMoveTargetAfter(config.optInt("moveTargetAfter", 0));
+        target.setMoveTargetBefore(blueprint.getMoveTargetBefore());
+        target.setMoveTargetAfter(blueprint.getMoveTargetAfter());
     }
 
     /* =================== GETTERS ===================== */
@@ -0,0 +1,74 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.controller;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Function;
+
+/**
+ * Runs a flow which is made of steps (e.g. a turn) entirely in the calling thread, waiting for it to be over.
+ * <p>
+ * The flow is given an executor which queues its steps: the calling thread runs them one at a time,
+ * as soon as they are queued, until the stage returned by the flow is completed.
+ * This way the blocking methods of the controllers are implemented by waiting on the same flow
+ * which is run in steps by the server.
+ * </p>
+ *
+ * @author Alessandro Fulgini
+ */
+public class StepLoop implements Executor {
+
+    /** The steps queued by the flow, waiting to be run by the calling thread */
+    private final BlockingQueue<Runnable> steps = new LinkedBlockingQueue<>();
+
+    /* Loops are only created by run() */
+    private StepLoop() {
+    }
+
+    /**
+     * Queues a step of the flow, which will be run by the thread waiting for the flow
+     *
+     * @param step the step to be run, not null
+     */
+    @Override
+    public void execute(Runnable step) {
+        steps.add(step);
+    }
+
+    /**
+     * Starts the given flow and runs all its steps in the calling thread, until the flow is over
+     *
+     * @param flow starts the flow with the given executor and returns a stage completed when it is over, not null
+     * @param <T>  the type of the result of the flow
+     * @return the result of the flow
+     * @throws CancellationException if the flow ends because of a cancelled request
+     * @throws InterruptedException  if the thread gets interrupted while running or waiting for the steps
+     */
+    public static <T> T run(Function<Executor, CompletionStage<T>> flow) throws InterruptedException {
+        StepLoop loop = new StepLoop();
+        CompletableFuture<T> result = flow.apply(loop).toCompletableFuture();
+        result.whenComplete((value, e) -> loop.execute(() -> { })); /* Wakes up the calling thread */
+
+        while (!result.isDone()) {
+            loop.steps.take().run();
+        }
+
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            /* Throw the exception of the step which ended the flow */
+            Throwable cause = e.getCause();
+            if (cause instanceof InterruptedException) {
+                Thread.interrupted(); /* The interruption is reported by the exception */
+                throw (InterruptedException) cause;
+            }
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw e;
+        }
+    }
+}
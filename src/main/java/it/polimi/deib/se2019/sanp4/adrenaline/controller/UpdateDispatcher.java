@@ -0,0 +1,250 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.controller;
+
+import it.polimi.deib.se2019.sanp4.adrenaline.common.AdrenalineProperties;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.HashedWheelTimer;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.RemoteView;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.ModelUpdate;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Sends the asynchronous updates of a {@link PersistentViewImpl} to its remote view.
+ * <p>
+ * Remote calls (especially RMI ones) have no timeout of their own, so a client which stopped answering
+ * could hold the caller forever while the updates pile up. The dispatcher prevents this:
+ * </p>
+ * <ul>
+ * <li>the updates wait in a bounded backlog (see {@code adrenaline.updates.backlog}, default 512)</li>
+ * <li>only one call at a time is made for each view, so the updates arrive in order, and all the updates
+ * which are waiting when a call starts are sent together with {@link RemoteView#updateAll(List)}
+ * (at most {@code adrenaline.updates.batch}, default 32)</li>
+ * <li>each call has a deadline (see {@code adrenaline.timeout.update}, default 10 seconds)</li>
+ * </ul>
+ * <p>
+ * If the backlog is full, the call fails or the deadline expires, the fault callback is called once
+ * and the dispatcher discards its updates: the player is going to be suspended and will receive the missed
+ * updates (or the whole state of the model) when reconnecting. The calls are made on a pool shared by all the views,
+ * and the deadlines are checked by the shared {@link HashedWheelTimer}.
+ * </p>
+ *
+ * @author Alessandro Fulgini
+ */
+class UpdateDispatcher {
+
+    private static final int DEFAULT_BACKLOG = 512;
+
+    private static final int DEFAULT_BATCH = 32;
+
+    private static final long DEFAULT_TIMEOUT = 10;
+
+    /** Shared pool for the remote calls, created when it is needed for the first time */
+    private static ExecutorService sharedCallExecutor;
+
+    /** The updates waiting to be sent, in order */
+    private final Deque<ModelUpdate> backlog = new ArrayDeque<>();
+
+    /** Maximum number of updates waiting to be sent */
+    private final int maxBacklog;
+
+    /** Maximum number of updates sent with a single call */
+    private final int maxBatch;
+
+    /** Deadline of each call, in milliseconds */
+    private final long timeoutMillis;
+
+    /** Executor which makes the remote calls */
+    private final Executor callExecutor;
+
+    /** Timer which checks the deadlines */
+    private final HashedWheelTimer deadlineTimer;
+
+    /** Called when a fault is detected */
+    private final Runnable faultCallback;
+
+    /** Identifies the call in progress, so a late deadline does not affect the following calls */
+    private long callId;
+
+    /** Whether a call is in progress */
+    private boolean sending;
+
+    /** The deadline of the call in progress */
+    private Future<?> deadline;
+
+    /** Whether a fault has been detected, after this the updates are discarded */
+    private boolean faulty;
+
+    private static final Logger logger = Logger.getLogger(UpdateDispatcher.class.getName());
+
+    /**
+     * Creates a dispatcher with the settings given in the properties, using the shared pools
+     *
+     * @param faultCallback called when a fault is detected, not null
+     */
+    UpdateDispatcher(Runnable faultCallback) {
+        this(getIntProperty("adrenaline.updates.backlog", DEFAULT_BACKLOG),
+                getIntProperty("adrenaline.updates.batch", DEFAULT_BATCH),
+                TimeUnit.SECONDS.toMillis(getIntProperty("adrenaline.timeout.update", (int) DEFAULT_TIMEOUT)),
+                getSharedCallExecutor(), HashedWheelTimer.getShared(), faultCallback);
+    }
+
+    /**
+     * Creates a dispatcher
+     *
+     * @param maxBacklog        maximum number of updates waiting to be sent, greater than 0
+     * @param maxBatch          maximum number of updates sent with a single call, greater than 0
+     * @param timeoutMillis     deadline of each call, in milliseconds
+     * @param callExecutor      executor which makes the remote calls, not null
+     * @param deadlineTimer     timer which checks the deadlines, not null
+     * @param faultCallback     called when a fault is detected, not null
+     * @throws IllegalArgumentException if the backlog or the batch are not positive
+     */
+    UpdateDispatcher(int maxBacklog, int maxBatch, long timeoutMillis, Executor callExecutor,
+                     HashedWheelTimer deadlineTimer, Runnable faultCallback) {
+        if (maxBacklog <= 0 || maxBatch <= 0) {
+            throw new IllegalArgumentException("Backlog and batch must be greater than 0");
+        }
+        this.maxBacklog = maxBacklog;
+        this.maxBatch = maxBatch;
+        this.timeoutMillis = timeoutMillis;
+        this.callExecutor = callExecutor;
+        this.deadlineTimer = deadlineTimer;
+        this.faultCallback = faultCallback;
+    }
+
+    private static int getIntProperty(String key, int defaultValue) {
+        return Integer.parseInt((String) AdrenalineProperties.getProperties()
+                .getOrDefault(key, Integer.toString(defaultValue)));
+    }
+
+    private static synchronized ExecutorService getSharedCallExecutor() {
+        if (sharedCallExecutor == null) {
+            AtomicInteger count = new AtomicInteger();
+            /* A thread which is stuck in a call is not reused, so the pool must be elastic */
+            sharedCallExecutor = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "adrenaline-update-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return sharedCallExecutor;
+    }
+
+    /**
+     * Enqueues an update to be sent to given remote view.
+     * If the backlog is full, the fault callback is called and the update is discarded
+     *
+     * @param remote the remote view which receives the update, not null
+     * @param update the update to be sent, not null
+     */
+    void dispatch(RemoteView remote, ModelUpdate update) {
+        synchronized (this) {
+            if (faulty) return;
+            if (backlog.size() < maxBacklog) {
+                backlog.addLast(update);
+                if (!sending) sendNext(remote);
+                return;
+            }
+        }
+        logger.log(Level.WARNING, "Too many updates waiting for the client ({0})", maxBacklog);
+        fail();
+    }
+
+    /* Starts a call with the waiting updates, must be called holding the lock */
+    private void sendNext(RemoteView remote) {
+        List<ModelUpdate> batch = new ArrayList<>();
+        while (batch.size() < maxBatch && !backlog.isEmpty()) {
+            batch.add(backlog.pollFirst());
+        }
+        if (batch.isEmpty()) {
+            sending = false;
+            return;
+        }
+        sending = true;
+        long id = ++callId;
+
+        deadline = deadlineTimer.newTimeout(() -> checkDeadline(id), timeoutMillis, TimeUnit.MILLISECONDS);
+        callExecutor.execute(() -> send(remote, batch, id));
+    }
+
+    /* Makes the remote call, then goes on with the next updates */
+    private void send(RemoteView remote, List<ModelUpdate> batch, long id) {
+        try {
+            if (batch.size() == 1) {
+                remote.update(batch.get(0));
+            } else {
+                remote.updateAll(batch);
+            }
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Could not send updates", e);
+            synchronized (this) {
+                if (callId != id) return; /* The remote view has been replaced meanwhile */
+            }
+            fail();
+            return;
+        }
+        synchronized (this) {
+            /* If the deadline expired meanwhile, the next updates have been discarded */
+            if (!faulty && callId == id) {
+                deadline.cancel(false);
+                sendNext(remote);
+            }
+        }
+    }
+
+    /* Called when the deadline of a call expires */
+    private void checkDeadline(long id) {
+        synchronized (this) {
+            if (!sending || callId != id) return; /* The call completed in time */
+        }
+        logger.log(Level.WARNING, "The client did not receive the updates in {0} ms", timeoutMillis);
+        fail();
+    }
+
+    /* Discards the updates and calls the fault callback, only once */
+    private void fail() {
+        synchronized (this) {
+            if (faulty) return;
+            faulty = true;
+            sending = false;
+            backlog.clear();
+        }
+        faultCallback.run();
+    }
+
+    /**
+     * Resets the dispatcher after a reconnection, so it can send updates to the new remote view.
+     * A call which is still in progress on the old remote view is ignored
+     */
+    synchronized void reset() {
+        faulty = false;
+        sending = false;
+        backlog.clear();
+        callId++;
+    }
+
+    /**
+     * Returns the number of updates waiting to be sent
+     *
+     * @return the number of updates in the backlog
+     */
+    synchronized int getBacklog() {
+        return backlog.size();
+    }
+
+    /**
+     * Tells whether a fault has been detected since the last reset
+     *
+     * @return {@code true} if a fault has been detected
+     */
+    synchronized boolean isFaulty() {
+        return faulty;
+    }
+}
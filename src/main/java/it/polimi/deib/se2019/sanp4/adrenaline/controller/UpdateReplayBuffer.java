@@ -0,0 +1,104 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.controller;
+
+import it.polimi.deib.se2019.sanp4.adrenaline.common.AdrenalineProperties;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.ModelUpdate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the last updates sent to a player, so that they can be sent again when the player reconnects.
+ * <p>
+ * The updates are kept in a ring buffer of fixed capacity (see {@code adrenaline.updates.replay}, default 256),
+ * ordered by their sequence number (see {@link ModelUpdate#getSequence()}).
+ * When the client tells the last update it received, the updates which follow it can be replayed,
+ * instead of sending the whole state of the model, as long as none of them has been evicted.
+ * Updates without a sequence number are not kept.
+ * </p>
+ *
+ * @author Alessandro Fulgini
+ */
+class UpdateReplayBuffer {
+
+    private static final int DEFAULT_CAPACITY = 256;
+
+    /** The updates, used as a ring buffer */
+    private final ModelUpdate[] updates;
+
+    /** Number of stored updates */
+    private int count;
+
+    /** Index of the oldest stored update */
+    private int first;
+
+    /** Sequence number of the last evicted update, 0 if none has been evicted */
+    private long evictedSequence;
+
+    /**
+     * Creates a buffer with the capacity given in the properties
+     */
+    UpdateReplayBuffer() {
+        this(Integer.parseInt((String) AdrenalineProperties.getProperties()
+                .getOrDefault("adrenaline.updates.replay", Integer.toString(DEFAULT_CAPACITY))));
+    }
+
+    /**
+     * Creates a buffer
+     *
+     * @param capacity the maximum number of stored updates, greater than 0
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    UpdateReplayBuffer(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("Capacity must be greater than 0");
+        updates = new ModelUpdate[capacity];
+    }
+
+    /**
+     * Stores an update which has been sent to the player, evicting the oldest one if the buffer is full.
+     * Updates without a sequence number are ignored
+     *
+     * @param update the sent update, not null
+     */
+    synchronized void record(ModelUpdate update) {
+        if (update.getSequence() <= 0) return;
+
+        if (count == updates.length) {
+            evictedSequence = updates[first].getSequence();
+            updates[first] = update;
+            first = (first + 1) % updates.length;
+        } else {
+            updates[(first + count) % updates.length] = update;
+            count++;
+        }
+    }
+
+    /**
+     * Returns the updates which follow the one with given sequence number, in order
+     *
+     * @param sequence sequence number of the last update received by the client
+     * @return the updates to be replayed (possibly none), or {@code null} if the client has never received
+     * an update or if some of the updates which follow it have been evicted
+     */
+    synchronized List<ModelUpdate> since(long sequence) {
+        if (sequence <= 0 || sequence < evictedSequence || count == 0) return null;
+        if (sequence > updates[(first + count - 1) % updates.length].getSequence()) {
+            return null; /* The client received updates which have never been sent to this player */
+        }
+
+        List<ModelUpdate> missed = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ModelUpdate update = updates[(first + i) % updates.length];
+            if (update.getSequence() > sequence) missed.add(update);
+        }
+        return missed;
+    }
+
+    /**
+     * Returns the number of stored updates
+     *
+     * @return the number of stored updates
+     */
+    synchronized int size() {
+        return count;
+    }
+}
@@ -6,6 +6,7 @@ import it.polimi.deib.se2019.sanp4.adrenaline.common.requests.WeaponCardRequest;
 import it.polimi.deib.se2019.sanp4.adrenaline.controller.ControllerFactory;
 import it.polimi.deib.se2019.sanp4.adrenaline.controller.PersistentView;
 import it.polimi.deib.se2019.sanp4.adrenaline.controller.powerups.PowerupController;
+import it.polimi.deib.se2019.sanp4.adrenaline.controller.requests.CompletableChoice;
 import it.polimi.deib.se2019.sanp4.adrenaline.controller.weapons.AbstractWeapon;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.items.powerup.PowerupCard;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.items.powerup.PowerupEnum;
@@ -15,6 +16,7 @@ import it.polimi.deib.se2019.sanp4.adrenaline.model.match.PlayerTurn;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.player.Player;
 import it.polimi.deib.se2019.sanp4.adrenaline.view.MessageType;
 
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -63,16 +65,59 @@ public class ShootActionController {
     }
 
     /**
-     * Offers a chance to use the {@link PowerupEnum#TAGBACK} powerup to a given player
+     * Offers a chance to use the {@link PowerupEnum#TAGBACK} powerup to all the damaged players at the same time.
+     * <p>
+     * The requests are sent to all the victims who can revenge before waiting for any answer, and their timers
+     * are started together, so the whole revenge phase lasts at most {@code adrenaline.timeout.revenge}
+     * regardless of the number of victims.
+     * The powerups are used only when every victim has answered (or his timer expired), in the order of the
+     * players in the match, so the result does not depend on the order of the answers.
+     * </p>
+     *
+     * @param victims The players who received the damage, not null
+     * @param shooter The player using the weapon
+     * @throws InterruptedException If the thread gets interrupted
+     */
+    private void handleRevenges(Set<Player> victims, Player shooter) throws InterruptedException {
+        /* Send all the requests first, in the order of the players in the match */
+        Map<Player, CompletableChoice<PowerupCard>> pending = new LinkedHashMap<>();
+        for (Player victim : match.getPlayers()) {
+            if (victims.contains(victim)) {
+                CompletableChoice<PowerupCard> choice = offerRevenge(victim, shooter);
+                if (choice != null) pending.put(victim, choice);
+            }
+        }
+
+        /* Then wait for all the answers: the timers are running together */
+        Map<Player, PowerupCard> selected = new LinkedHashMap<>();
+        for (Map.Entry<Player, CompletableChoice<PowerupCard>> entry : pending.entrySet()) {
+            Player victim = entry.getKey();
+            try {
+                PowerupCard powerup = entry.getValue().get();
+                views.get(victim.getName()).stopTimer();
+                if (powerup != null) selected.put(victim, powerup);
+            } catch (CancellationException e) {
+                /* We just go on with the next player: he didn't use the powerup */
+            }
+        }
+
+        /* Finally use the selected powerups, in order */
+        for (Map.Entry<Player, PowerupCard> entry : selected.entrySet()) {
+            revenge(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Asks a damaged player whether he wants to use a {@link PowerupEnum#TAGBACK} powerup, without waiting
+     * for the answer
      *
      * @param victim  The player who received the damage, not null
      * @param shooter The player using the weapon
-     * @throws CancellationException If a request to the user gets cancelled
-     * @throws InterruptedException  If the thread gets interrupted
+     * @return The choice of the player, or {@code null} if he can't revenge
      */
-    private void handleRevenge(Player victim, Player shooter) throws InterruptedException {
+    private CompletableChoice<PowerupCard> offerRevenge(Player victim, Player shooter) {
         /* Check if the damaged player can actually play */
-        if (!victim.getState().canPlay()) return;
+        if (!victim.getState().canPlay()) return null;
 
         /* Check if the damaged player has TAGBACK powerups to revenge */
         List<PowerupCard> powerups = victim.getPowerups().stream()
@@ -80,7 +125,7 @@ public class ShootActionController {
                 .collect(Collectors.toList());
 
         if (powerups.isEmpty()) {
-            return; /* Can't revenge */
+            return null; /* Can't revenge */
         }
 
         /* Ask the user to choose one or no powerup */
@@ -88,22 +133,24 @@ public class ShootActionController {
         damagedView.startTimer(() -> null, revengeTimeout, TimeUnit.SECONDS);
         PowerupCardRequest req =
                 new PowerupCardRequest(String.format(MESSAGE_OFFER_TAGBACK, shooter.getName()), powerups, true);
-        PowerupCard selected = damagedView.sendChoiceRequest(req).get();
-
-        if (selected == null) {
-            return; /* He chose not to use a powerup */
-        }
+        return damagedView.sendChoiceRequest(req);
+    }
 
+    /**
+     * Makes a damaged player use the selected {@link PowerupEnum#TAGBACK} powerup
+     *
+     * @param victim   The player who received the damage, not null
+     * @param selected The powerup selected by the player, not null
+     * @throws InterruptedException If the thread gets interrupted
+     */
+    private void revenge(Player victim, PowerupCard selected) throws InterruptedException {
         /* Create the controller for that powerup and use it */
         PowerupController powerupController = factory.createPowerupController(PowerupEnum.TAGBACK);
-        powerupController.use(damagedView); /* Execution goes fine by default */
+        powerupController.use(views.get(victim.getName())); /* Execution goes fine by default */
 
         /* Discard the powerup card */
         victim.removePowerup(selected);
         match.getPowerupStack().discard(selected);
-
-        /* Stop the timer */
-        damagedView.stopTimer();
     }
 
     /**
@@ -158,14 +205,7 @@ public class ShootActionController {
             selectedWeapon.unload();
         }
 
-        /* Damaged players get a chance to revenge with TAGBACK */
-        Set<Player> damagedPlayers = weaponController.getDamagedPlayers();
-        for (Player victim : damagedPlayers) {
-            try {
-                handleRevenge(victim, shooter);
-            } catch (CancellationException e) {
-                /* We just go on with the next player: he didn't use the powerup */
-            }
-        }
+        /* Damaged players get a chance to revenge with TAGBACK, all at the same time */
+        handleRevenges(weaponController.getDamagedPlayers(), shooter);
     }
 }
@@ -4,6 +4,7 @@ import it.polimi.deib.se2019.sanp4.adrenaline.common.AdrenalineProperties;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.LeaderboardUpdate;
 import it.polimi.deib.se2019.sanp4.adrenaline.controller.ControllerFactory;
 import it.polimi.deib.se2019.sanp4.adrenaline.controller.PersistentView;
+import it.polimi.deib.se2019.sanp4.adrenaline.controller.StepLoop;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.action.ActionCard;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.action.ActionCardCreator;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.action.ActionCardEnum;
@@ -17,6 +18,9 @@ import it.polimi.deib.se2019.sanp4.adrenaline.view.ViewScene;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -71,22 +75,48 @@ public class MatchController {
     }
 
     /**
-     * Runs the match
+     * Runs the match in the calling thread, which waits for the players between the steps
      *
      * @throws InterruptedException if the thread is interrupted while running the match
      */
     public void runMatch() throws InterruptedException {
+        StepLoop.run(this::runMatchAsync);
+    }
+
+    /**
+     * Runs the match without keeping a thread while waiting for the players.
+     * Each turn is run with {@link TurnController#runTurnAsync(Executor)} and the dead players are respawned
+     * when they answer, resuming with given executor
+     *
+     * @param executor the executor which runs the steps of the turns, not null
+     * @return a stage which is completed when the match is over
+     */
+    public CompletionStage<Void> runMatchAsync(Executor executor) {
         logger.log(Level.FINE, "Starting the match");
         selectNextTurn(); /* Trigger the selection of the first turn */
 
-        /* Main loop for each turn */
-        while (!finished) {
-            /* Refill the board with items */
-            match.refillBoard();
+        return runTurns(executor).thenRun(() -> {
+            /* The match is over */
+            logger.log(Level.FINE, "Ending the match");
+            endMatch();
+        });
+    }
 
-            /* Let the player play his turn */
-            runCurrentTurn();
+    /**
+     * Runs the current turn and the following ones, until the match is finished
+     *
+     * @param executor the executor which runs the steps of the turns
+     * @return a stage which is completed when the match is finished
+     */
+    private CompletionStage<Void> runTurns(Executor executor) {
+        if (finished) return CompletableFuture.completedFuture(null);
+
+        /* Refill the board with items */
+        match.refillBoard();
 
+        /* Let the player play his turn */
+        TurnController turnController = factory.createTurnController(match.getCurrentTurn());
+        return turnController.runTurnAsync(executor).thenCompose(v -> {
             /* Call the callback if provided */
             if (afterTurnCallback != null) {
                 afterTurnCallback.run();
@@ -98,29 +128,15 @@ public class MatchController {
             /* Scoring, resetting player boards, set frenzy mode etc. */
             endCurrentTurn();
 
-            if (!finished) {
-                respawnDeadPlayers(); /* Respawn dead players (if any) */
-                selectNextTurn(); // <- sets finished flag
-            }
-        }
+            if (finished) return CompletableFuture.completedFuture(null);
 
-        /* The match is over */
-        logger.log(Level.FINE, "Ending the match");
-        endMatch();
-    }
-
-    /**
-     * Given that match.currentTurn is set, gets the player and
-     * asks the {@link TurnController} to actually run the turn
-     *
-     * @throws InterruptedException If the thread gets interrupted
-     */
-    private void runCurrentTurn() throws InterruptedException {
-        /* Select the current turn */
-        PlayerTurn turn = match.getCurrentTurn();
-
-        TurnController turnController = factory.createTurnController(turn);
-        turnController.runTurn();
+            /* Respawn dead players (if any), then go on with the next turn */
+            return spawnController.respawnAllAsync(getDeadViews(), executor)
+                    .thenCompose(w -> {
+                        selectNextTurn(); // <- sets finished flag
+                        return runTurns(executor);
+                    });
+        });
     }
 
     /**
@@ -274,17 +290,25 @@ public class MatchController {
 
     /**
      * Procedure which respawns the players listed in {@code deadPlayers}.
-     * Each player is asked to choose where to respawn based on powerups.
+     * Each player is asked to choose where to respawn based on powerups, all of them at the same time.
      * If the player is unable to respond, the spawn is automatic.
      * Every player is guaranteed to be respawned (if the thread is not interrupted)
      *
      * @throws InterruptedException if the thread gets interrupted while waiting
      */
     void respawnDeadPlayers() throws InterruptedException {
-        for (Player p : deadPlayers) {
-            PersistentView view = views.get(p.getName());
-            spawnController.respawn(view);
-        }
+        spawnController.respawnAll(getDeadViews());
+    }
+
+    /**
+     * Returns the views of the players listed in {@code deadPlayers}
+     *
+     * @return the views of the dead players, in order
+     */
+    private List<PersistentView> getDeadViews() {
+        return deadPlayers.stream()
+                .map(p -> views.get(p.getName()))
+                .collect(Collectors.toList());
     }
 
     /**
@@ -5,6 +5,8 @@ import it.polimi.deib.se2019.sanp4.adrenaline.common.exceptions.FullCapacityExce
 import it.polimi.deib.se2019.sanp4.adrenaline.common.requests.PowerupCardRequest;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.DrawnPowerupUpdate;
 import it.polimi.deib.se2019.sanp4.adrenaline.controller.PersistentView;
+import it.polimi.deib.se2019.sanp4.adrenaline.controller.StepLoop;
+import it.polimi.deib.se2019.sanp4.adrenaline.controller.requests.CompletableChoice;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.board.Board;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.board.Square;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.items.powerup.PowerupCard;
@@ -13,8 +15,12 @@ import it.polimi.deib.se2019.sanp4.adrenaline.model.match.Match;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.player.Player;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -46,32 +52,42 @@ public class SpawnController {
      * @throws InterruptedException if the thread gets interrupted
      */
     public void initialSpawn(PersistentView view) throws InterruptedException {
+        StepLoop.run(executor -> initialSpawnAsync(view, executor));
+    }
+
+    /**
+     * Handles the initial spawn of the player like {@link #initialSpawn(PersistentView)},
+     * without waiting for the choice of the player
+     * @param view the view of the player who has to spawn
+     * @param executor the executor which resumes the spawn when the player answers
+     * @return a stage which is completed when the player has spawned, or completed exceptionally
+     * with a {@link CancellationException} if the request to the player gets cancelled
+     */
+    public CompletionStage<Void> initialSpawnAsync(PersistentView view, Executor executor) {
         Player player = match.getPlayerByName(view.getUsername());
         /* Draw two cards from the powerup stack */
         CardStack<PowerupCard> stack = match.getPowerupStack();
         List<PowerupCard> choices = Stream.generate(stack::draw).limit(2).collect(Collectors.toList());
 
         /* Send the request (the timer is already started) */
-        try {
-            /* Set up the request */
-            PowerupCardRequest req = new PowerupCardRequest(CHOOSE_SPAWN_MESSAGE, choices, false);
-
-            /* Send it to the player */
-            PowerupCard selectedCard = view.sendChoiceRequest(req).get();
-
-            /* Move the player to spawn location */
-            moveToPowerupColorAndDiscard(player, selectedCard, match);
-
-            /* Insert the other card in the player's hands */
-            choices.remove(selectedCard);
-            player.addPowerup(choices.get(0));
-        } catch (CancellationException e) {
-            /* Put the cards back in the stack */
-            choices.forEach(stack::discard);
-            throw e; /* Re-throw to end the turn */
-        } catch (FullCapacityException e) {
-            /* It can't happen */
-        }
+        PowerupCardRequest req = new PowerupCardRequest(CHOOSE_SPAWN_MESSAGE, choices, false);
+        return view.sendChoiceRequest(req).toCompletionStage(executor)
+                .whenComplete((selectedCard, e) -> {
+                    /* If the request has been cancelled, put the cards back in the stack */
+                    if (e != null) choices.forEach(stack::discard);
+                })
+                .thenAccept(selectedCard -> {
+                    /* Move the player to spawn location */
+                    moveToPowerupColorAndDiscard(player, selectedCard, match);
+
+                    /* Insert the other card in the player's hands */
+                    choices.remove(selectedCard);
+                    try {
+                        player.addPowerup(choices.get(0));
+                    } catch (FullCapacityException e) {
+                        /* It can't happen */
+                    }
+                });
     }
 
     /**
@@ -84,6 +100,72 @@ public class SpawnController {
      * @throws InterruptedException if the thread gets interrupted
      */
     public void respawn(PersistentView view) throws InterruptedException {
+        respawnAll(Collections.singletonList(view));
+    }
+
+    /**
+     * Handles the respawn of many dead players at the same time.
+     * <p>
+     * All the players draw their card and receive their request (with their own timer) before any answer
+     * is awaited, so the whole phase lasts at most {@code adrenaline.timeout.spawn}.
+     * Then the players are respawned in the given order, as if {@link #respawn(PersistentView)} was called
+     * for each of them, so the final state does not depend on the order of the answers.
+     * </p>
+     * @param views the views of the players who need to be respawned, in order
+     * @throws InterruptedException if the thread gets interrupted
+     */
+    public void respawnAll(List<PersistentView> views) throws InterruptedException {
+        StepLoop.run(executor -> respawnAllAsync(views, executor));
+    }
+
+    /**
+     * Handles the respawn of many dead players at the same time like {@link #respawnAll(List)},
+     * without waiting for the answers
+     * @param views the views of the players who need to be respawned, in order
+     * @param executor the executor which resumes the respawn when the players answer
+     * @return a stage which is completed when all the players have been respawned
+     */
+    public CompletionStage<Void> respawnAllAsync(List<PersistentView> views, Executor executor) {
+        /* Send all the requests first */
+        List<PendingRespawn> pending = new ArrayList<>(views.size());
+        for (PersistentView view : views) {
+            pending.add(startRespawn(view));
+        }
+
+        /* Then respawn, in order, as soon as each answer is available */
+        CompletionStage<Void> respawned = CompletableFuture.completedFuture(null);
+        for (PendingRespawn respawn : pending) {
+            respawned = respawned.thenCompose(v -> completeRespawn(respawn, executor));
+        }
+        return respawned;
+    }
+
+    /**
+     * A respawn whose request has been sent to the player
+     */
+    private static class PendingRespawn {
+        private final PersistentView view;
+        private final Player player;
+        private final PowerupCard drawnCard;
+        /* Null if the player has to be spawned automatically */
+        private final CompletableChoice<PowerupCard> choice;
+
+        private PendingRespawn(PersistentView view, Player player, PowerupCard drawnCard,
+                               CompletableChoice<PowerupCard> choice) {
+            this.view = view;
+            this.player = player;
+            this.drawnCard = drawnCard;
+            this.choice = choice;
+        }
+    }
+
+    /**
+     * Draws the card for the respawn of a player and asks him to choose the spawn point,
+     * without waiting for the answer
+     * @param view the view of the player who needs to be respawned
+     * @return the pending respawn
+     */
+    private PendingRespawn startRespawn(PersistentView view) {
         int timeout = Integer.parseInt((String) AdrenalineProperties.getProperties()
                 .getOrDefault("adrenaline.timeout.spawn", "30"));
         Player player = match.getPlayerByName(view.getUsername());
@@ -98,23 +180,46 @@ public class SpawnController {
         DrawnPowerupUpdate update = new DrawnPowerupUpdate(view.getUsername(), drawnCard);
         view.updateSync(update);
 
-        try {
-            /* If the player can't play, trigger the auto-spawn */
-            if (!player.getState().canPlay()) throw new CancellationException();
-            /* If not, go on with asking */
+        /* If the player can't play, trigger the auto-spawn */
+        if (!player.getState().canPlay()) return new PendingRespawn(view, player, drawnCard, null);
+        /* If not, go on with asking */
+
+        /* Also add his powerups to the possible choices */
+        List<PowerupCard> choices = new ArrayList<>();
+        choices.add(drawnCard);
+        choices.addAll(player.getPowerups());
 
-            /* Also add his powerups to the possible choices */
-            List<PowerupCard> choices = new ArrayList<>();
-            choices.add(drawnCard);
-            choices.addAll(player.getPowerups());
+        /* Prepare the request */
+        PowerupCardRequest req = new PowerupCardRequest(CHOOSE_SPAWN_MESSAGE, choices, false);
 
-            /* Prepare the request */
-            PowerupCardRequest req = new PowerupCardRequest(CHOOSE_SPAWN_MESSAGE, choices, false);
+        /* Send it */
+        view.startTimer(() -> null, timeout, TimeUnit.SECONDS);
+        return new PendingRespawn(view, player, drawnCard, view.sendChoiceRequest(req));
+    }
 
-            /* Send it */
-            view.startTimer(() -> null, timeout, TimeUnit.SECONDS);
-            PowerupCard selectedCard = view.sendChoiceRequest(req).get();
-            view.stopTimer();
+    /**
+     * Moves the player to the selected spawn point as soon as his choice is completed.
+     * If the request gets cancelled, the player is spawned on the location corresponding to the card he drew
+     * @param respawn the pending respawn
+     * @param executor the executor which resumes the respawn when the player answers
+     * @return a stage which is completed when the player has been respawned
+     */
+    private CompletionStage<Void> completeRespawn(PendingRespawn respawn, Executor executor) {
+        Player player = respawn.player;
+        PowerupCard drawnCard = respawn.drawnCard;
+        if (respawn.choice == null) {
+            /* Automatically spawn the player to the card he drew */
+            moveToPowerupColorAndDiscard(player, drawnCard, match);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return respawn.choice.toCompletionStage(executor).handle((selectedCard, e) -> {
+            if (e != null) {
+                /* Automatically spawn the player to the card he drew */
+                moveToPowerupColorAndDiscard(player, drawnCard, match);
+                return null;
+            }
+            respawn.view.stopTimer();
 
             /* Move the player to selected spawn point and discard the selected card */
             moveToPowerupColorAndDiscard(player, selectedCard, match);
@@ -122,14 +227,14 @@ public class SpawnController {
             if (player.getPowerups().contains(selectedCard)) {
                 // The player used a powerup from his hands: remove it and add the one he drew
                 player.removePowerup(selectedCard);
-                player.addPowerup(drawnCard);
+                try {
+                    player.addPowerup(drawnCard);
+                } catch (FullCapacityException ex) {
+                    /* This doesn't happen */
+                }
             }
-        } catch (CancellationException e) {
-            /* Automatically spawn the player to the card he drew */
-            moveToPowerupColorAndDiscard(player, drawnCard, match);
-        } catch (FullCapacityException e) {
-            /* This doesn't happen */
-        }
+            return null;
+        });
     }
 
     private static void moveToPowerupColorAndDiscard(Player player, PowerupCard powerupCard, Match match) {
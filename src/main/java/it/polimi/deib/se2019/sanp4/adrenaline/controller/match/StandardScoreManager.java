@@ -2,13 +2,13 @@ package it.polimi.deib.se2019.sanp4.adrenaline.controller.match;
 
 import it.polimi.deib.se2019.sanp4.adrenaline.model.match.Match;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.player.Player;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.player.PlayerSlots;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.player.ScoreRanking;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.player.ScoresIterator;
 
 import java.util.*;
 import java.util.stream.Collectors;
 
-import static java.util.Map.Entry.comparingByValue;
-
 /**
  * A specialized class describing an object that is responsible of assigning points to users
  * It represents the standard scoring mechanism of the game, as described in the game manual
@@ -54,18 +54,22 @@ public class StandardScoreManager implements ScoreManager {
      * @param match The object representing the match
      */
     private void manageKillshotsAndAssignExtraPoints(List<Player> players, Match match){
-        Map<Player, Integer> killshotsCount = new HashMap<>();
-        players.forEach(player -> {
-            // Update the count of killshots
-            killshotsCount.merge(player.getPlayerBoard().getKillshot(), 1, Integer::sum);
+        // Count of killshots, by slot of the killer
+        PlayerSlots killers = new PlayerSlots();
+        int[] killshotsCount = new int[killers.capacity()];
+        for (Player player : players) {
+            Player killer = player.getPlayerBoard().getKillshot();
             // Update the killshots track
-            match.addKillshot(player.getPlayerBoard().getKillshot());
-        });
-
-        // Give extra points to players that performed more than one killshot
-        killshotsCount.entrySet().stream()
-                .filter(entry -> entry.getValue() > 1) // We filter those who performed more than one killshot
-                .forEach(entry -> entry.getKey().addScorePoints(1)); // We give them one extra point
+            match.addKillshot(killer);
+            int slot = killers.slotOf(killer, true);
+            if (killshotsCount.length < killers.capacity()) {
+                killshotsCount = Arrays.copyOf(killshotsCount, killers.capacity());
+            }
+            // Give one extra point to players as soon as they perform their second killshot
+            if (++killshotsCount[slot] == 2) {
+                killer.addScorePoints(1);
+            }
+        }
     }
 
 
@@ -114,49 +118,33 @@ public class StandardScoreManager implements ScoreManager {
                 .collect(Collectors.toList());
         assignScores(playersWithDamage);
 
-        List<Player> killshotsTrack = match.getKillshotsTrack();
-
-        // Count how many tokens each player has on the killshot track
-        Map<Player, Integer> tokenCount = match.getPlayers().stream()
-                .filter(killshotsTrack::contains)
-                .collect(Collectors.toMap(
-                        p -> p, /* Key is the player itself */
-                        /* Value is the sum of tokens */
-                        p -> p.getPerformedKillshots() + p.getPerformedOverkills()));
-
-        // Resolve ties by giving points to the first player performing the kill,
-        // the others get removed from tokensCount
-        // Create a set with the distinct number ok tokens
-        Set<Integer> distinctTokensCount = tokenCount.values().stream()
-                .filter(Objects::nonNull)
-                .collect(Collectors.toSet());
-
-        distinctTokensCount.forEach(count -> {
-            List<Player> playersWithSameCount = tokenCount.entrySet()
-                    .stream()
-                    .filter(entry -> entry.getValue().equals(count))
-                    .map(Map.Entry::getKey)
-                    .collect(Collectors.toList());
-            if(playersWithSameCount.size() > 1){
-                /* Determine the player who got the earlier killshot */
-                Player firstKillshotShooter = match.getKillshotsTrack().stream()
-                        .filter(playersWithSameCount::contains)
-                        .findFirst().get();
-                /* Remove from killshots count all the players except the first */
-                playersWithSameCount.remove(firstKillshotShooter);
-                playersWithSameCount.forEach(tokenCount::remove);
+        // Count how many tokens each player has on the killshot track, by slot,
+        // and record the order of the first killshots, which resolves ties
+        PlayerSlots killers = new PlayerSlots();
+        int[] tokenCount = new int[killers.capacity()];
+        int[] order = new int[killers.capacity()];
+        int killerCount = 0;
+        for (Player killer : match.getKillshotsTrack()) {
+            if (killer == null || killers.slotOf(killer, false) >= 0) continue;
+            int slot = killers.slotOf(killer, true);
+            if (tokenCount.length < killers.capacity()) {
+                tokenCount = Arrays.copyOf(tokenCount, killers.capacity());
+                order = Arrays.copyOf(order, killers.capacity());
             }
-        });
+            tokenCount[slot] = killer.getPerformedKillshots() + killer.getPerformedOverkills();
+            order[killerCount++] = slot;
+        }
+
+        // Sort by decreasing tokens, the players who lost a tie get no points
+        int ranked = ScoreRanking.rank(order, killerCount, tokenCount);
 
         Map<Player, Integer> killshotTrackScores = new HashMap<>();
 
         // Compute extra points for performed kills
         ScoresIterator scoresIterator = new ScoresIterator(POINTS, 0);
-        tokenCount.entrySet()
-                .stream()
-                .sorted(Collections.reverseOrder(comparingByValue()))
-                .map(Map.Entry::getKey)
-                .forEachOrdered(player -> killshotTrackScores.put(player, scoresIterator.next()));
+        for (int i = 0; i < ranked; i++) {
+            killshotTrackScores.put(killers.get(order[i]), scoresIterator.next());
+        }
 
         // Add extra points to the players
         killshotTrackScores.forEach(Player::addScorePoints);
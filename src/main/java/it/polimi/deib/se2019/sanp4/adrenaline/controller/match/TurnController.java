@@ -7,7 +7,9 @@ import it.polimi.deib.se2019.sanp4.adrenaline.common.requests.PlayerOperationReq
 import it.polimi.deib.se2019.sanp4.adrenaline.common.requests.PowerupCardRequest;
 import it.polimi.deib.se2019.sanp4.adrenaline.controller.ControllerFactory;
 import it.polimi.deib.se2019.sanp4.adrenaline.controller.PersistentView;
+import it.polimi.deib.se2019.sanp4.adrenaline.controller.StepLoop;
 import it.polimi.deib.se2019.sanp4.adrenaline.controller.powerups.PowerupController;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.ModelTransaction;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.items.powerup.PowerupCard;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.items.powerup.PowerupEnum;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.match.PlayerOperationEnum;
@@ -25,6 +27,10 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -41,6 +47,8 @@ import static it.polimi.deib.se2019.sanp4.adrenaline.view.ViewScene.*;
  * <li>Action selection</li>
  * <li>Powerup selection and removal of the cards</li>
  * </ul>
+ * The turn is run in steps with {@link #runTurnAsync(Executor)}, so that no thread is kept while the player
+ * selects what to do, or in the calling thread with {@link #runTurn()}.
  * @author Alessandro Fulgini
  */
 public class TurnController {
@@ -111,47 +119,86 @@ public class TurnController {
     /**
      * Runs the turn until it ends because the user has performed all his actions
      * or because he has been suspended.
-     * or {@link PlayerTurnState#SELECTING}
+     * The steps of the turn are run in the calling thread, which waits for the player between them
      *
      * @throws InterruptedException If the thread gets interrupted
      */
     public void runTurn() throws InterruptedException {
+        StepLoop.run(this::runTurnAsync);
+    }
+
+    /**
+     * Runs the turn until it ends because the user has performed all his actions
+     * or because he has been suspended, without keeping a thread while waiting for the player.
+     * <p>
+     * Each step of the turn (the initial spawn and the selection of the operations, actions and powerups) is
+     * resumed with given executor when the player answers. The execution of an action or of a powerup
+     * still waits for the player inside its controllers, so the executor must be able to run steps which block.
+     * The transaction opened by a step is carried to the thread of the next step
+     * by a {@link ModelTransaction.Carrier}.
+     * </p>
+     *
+     * @param executor the executor which runs the steps of the turn, not null
+     * @return a stage which is completed when the turn is over, or completed exceptionally with
+     * a {@link CompletionException} caused by an {@link InterruptedException} if a thread gets interrupted
+     */
+    public CompletionStage<Void> runTurnAsync(Executor executor) {
         logger.log(Level.FINE, "Starting \"{0}\" turn", currentView.getUsername());
 
+        /* The steps of the turn carry the open transaction (if any) from one thread to the next */
+        Executor steps = new ModelTransaction.Carrier().on(executor);
+
         /* Start the timer of the turn */
         currentView.startTimer(() -> null, timeout, TimeUnit.SECONDS);
+        setViewScenes(); /* Set the proper scene for the current player and the others */
 
-        try {
-            setViewScenes(); /* Set the proper scene for the current player and the others */
-
-            if (turn.getTurnState() == INITIAL_SPAWN) {
-                /* Ask the player to spawn */
-                SpawnController spawnController = factory.createSpawnController();
-                spawnController.initialSpawn(currentView);
-                turn.setTurnState(SELECTING);
-            }
+        CompletionStage<Void> spawn = CompletableFuture.completedFuture(null);
+        if (turn.getTurnState() == INITIAL_SPAWN) {
+            /* Ask the player to spawn */
+            spawn = factory.createSpawnController().initialSpawnAsync(currentView, steps)
+                    .thenRun(() -> turn.setTurnState(SELECTING));
+        }
 
-            /* Ask the user to perform operations until the turn is over */
-            while (turn.getTurnState() != OVER) {
-                PlayerOperationEnum operation = askToSelectOperation(currentView);
-                performOperation(operation);
-            }
+        /* Ask the user to perform operations until the turn is over */
+        return spawn.thenCompose(v -> performOperations(steps))
+                .whenComplete((v, e) -> {
+                    try {
+                        endTurn(e);
+                    } finally {
+                        resetViewScenes(); /* Set all player scenes to idle */
+                    }
+                })
+                .exceptionally(e -> {
+                    /* A cancellation has already been handled by suspending the player */
+                    if (causeOf(e) instanceof CancellationException) return null;
+                    throw e instanceof CompletionException ? (CompletionException) e : new CompletionException(e);
+                });
+    }
 
+    /**
+     * Ends the turn after its last step
+     *
+     * @param e the exception which ended the turn, null if the turn ended without cancellations
+     */
+    private void endTurn(Throwable e) {
+        if (e == null) {
             /* Stop the timer: the turn ended without cancellations */
             currentView.stopTimer();
-
             logger.log(Level.FINE, "Turn \"{0}\" ended normally", currentView.getUsername());
-        } catch (CancellationException e) {
+        } else if (causeOf(e) instanceof CancellationException) {
             /* The player of this turn has to be suspended */
             match.suspendPlayer(currentView.getUsername());
             logger.log(Level.INFO, "Caught a cancellation during \"{0}\" turn, " +
-                            "suspending the player and ending turn", currentView.getUsername());
+                    "suspending the player and ending turn", currentView.getUsername());
             turn.setTurnState(OVER);
-        } finally {
-            resetViewScenes(); /* Set all player scenes to idle */
         }
     }
 
+    /* Unwraps the exception a stage has been completed with */
+    private static Throwable causeOf(Throwable e) {
+        return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+    }
+
     /**
      * Selects the scenes of the player views to begin the turn:
      * <ul>
@@ -175,17 +222,21 @@ public class TurnController {
     }
 
     /**
-     * Asks the player to select a {@link PlayerOperationEnum} which he wants to perform
+     * Asks the player to select a {@link PlayerOperationEnum} which he wants to perform and performs it,
+     * until the turn is over
      *
-     * @param view the view of the player
-     * @return the selected operation
-     * @throws CancellationException If the request to the view is cancelled
-     * @throws InterruptedException  If the thread gets interrupted
+     * @param steps the executor which resumes the turn when the player answers
+     * @return a stage which is completed when the turn is over, or completed exceptionally with
+     * a {@link CancellationException} if any request to the view is cancelled
      */
-    private PlayerOperationEnum askToSelectOperation(PersistentView view) throws InterruptedException {
+    private CompletionStage<Void> performOperations(Executor steps) {
+        if (turn.getTurnState() == OVER) return CompletableFuture.completedFuture(null);
+
         /* The player can choose any of the available operations */
         PlayerOperationRequest req = new PlayerOperationRequest(Arrays.asList(PlayerOperationEnum.values()));
-        return view.sendChoiceRequest(req).get();
+        return currentView.sendChoiceRequest(req).toCompletionStage(steps)
+                .thenCompose(operation -> performOperation(operation, steps))
+                .thenCompose(v -> performOperations(steps));
     }
 
     /**
@@ -194,23 +245,47 @@ public class TurnController {
      * is responsible to set the turn state
      *
      * @param operation The operation which needs to be performed
-     * @throws CancellationException If any request to the view is cancelled while performing the operation
-     * @throws InterruptedException  If the thread gets interrupted
+     * @param steps     the executor which resumes the turn when the player answers
+     * @return a stage which is completed when the operation has been performed, or completed exceptionally
+     * with a {@link CancellationException} if any request to the view is cancelled
      */
-    private void performOperation(PlayerOperationEnum operation) throws InterruptedException {
+    private CompletionStage<Void> performOperation(PlayerOperationEnum operation, Executor steps) {
         switch (operation) {
             case PERFORM_ACTION:
-                performActionHandler();
-                break;
+                return performActionHandler(steps);
             case USE_POWERUP:
-                usePowerupHandler();
-                break;
+                return usePowerupHandler(steps);
             case END_TURN:
                 endTurnHandler();
                 break;
             default:
                 logger.log(Level.SEVERE, "Unsupported operation: \"{0}\"", operation.name());
         }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Runs a part of a step which waits for the player inside other controllers,
+     * reporting an interruption as the exception of the step
+     *
+     * @param task the part of the step to be run
+     * @throws CompletionException caused by an {@link InterruptedException} if the thread gets interrupted
+     */
+    private static void runWaiting(WaitingTask task) {
+        try {
+            task.run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * A part of a step of the turn which waits for the player
+     */
+    @FunctionalInterface
+    private interface WaitingTask {
+        void run() throws InterruptedException;
     }
 
     /* ============== POWERUPS ================= */
@@ -224,10 +299,11 @@ public class TurnController {
      * <li>If the powerups has been used correctly, then the card is removed from the player's hands</li>
      * </ul>
      *
-     * @throws CancellationException If any request to the view is cancelled while performing the operation
-     * @throws InterruptedException  If the thread gets interrupted
+     * @param steps the executor which resumes the turn when the player answers
+     * @return a stage which is completed when the operation has been performed, or completed exceptionally
+     * with a {@link CancellationException} if any request to the view is cancelled
      */
-    private void usePowerupHandler() throws InterruptedException {
+    private CompletionStage<Void> usePowerupHandler(Executor steps) {
         Player player = turn.getTurnOwner();
         /* Determine the usable powerups */
         List<PowerupCard> powerups = player.getPowerups().stream()
@@ -238,12 +314,24 @@ public class TurnController {
         if (powerups.isEmpty()) {
             /* Notify the player and terminate */
             currentView.showMessage(MESSAGE_NO_POWERUPS, MessageType.WARNING);
-            return;
+            return CompletableFuture.completedFuture(null);
         }
 
         /* Ask the player to select a powerup */
         PowerupCardRequest req = new PowerupCardRequest(MESSAGE_SELECT_POWERUP, powerups, false);
-        PowerupCard selectedPowerup = currentView.sendChoiceRequest(req).get();
+        return currentView.sendChoiceRequest(req).toCompletionStage(steps)
+                .thenAccept(selectedPowerup -> runWaiting(() -> usePowerup(selectedPowerup)));
+    }
+
+    /**
+     * Lets the current player use the selected powerup, then removes the card from his hands if it has been used
+     *
+     * @param selectedPowerup the powerup selected by the player
+     * @throws CancellationException If any request to the view is cancelled while using the powerup
+     * @throws InterruptedException  If the thread gets interrupted
+     */
+    private void usePowerup(PowerupCard selectedPowerup) throws InterruptedException {
+        Player player = turn.getTurnOwner();
 
         /* Remove the powerup from the player's hands so he can't use it to pay costs */
         player.removePowerup(selectedPowerup);
@@ -286,38 +374,26 @@ public class TurnController {
      * <li>The action is executed by using its controller(s)</li>
      * </ol>
      *
-     * @throws CancellationException If any request to the view is cancelled while performing the operation
-     * @throws InterruptedException  If the thread gets interrupted
+     * @param steps the executor which resumes the turn when the player answers
+     * @return a stage which is completed when the operation has been performed, or completed exceptionally
+     * with a {@link CancellationException} if any request to the view is cancelled
      */
-    private void performActionHandler() throws InterruptedException {
+    private CompletionStage<Void> performActionHandler(Executor steps) {
         /* Determine possible actions */
         List<ActionEnum> actions = new ArrayList<>(turn.getAvailableActions());
 
         /* Send a request to choose the action to the player */
-        ActionEnum action = askToChooseAction(currentView, actions);
-
-        /* The user chose his action */
-        if (action != null) {
-            turn.setTurnState(BUSY);
-            runAction(action);
-        }
-
-        /* Update the state according to the previous state and the selected action */
-        updateTurnStateAfterAction(action);
-    }
-
-    /**
-     * Asks the given view to select one or zero actions from the given list
-     *
-     * @param view    The view of the player
-     * @param actions The list of actions to choose from
-     * @return The selected action or {@code null} if no action has been selected
-     * @throws CancellationException If the request to the user gets cancelled
-     * @throws InterruptedException  If the thread gets interrupted
-     */
-    private ActionEnum askToChooseAction(PersistentView view, List<ActionEnum> actions) throws InterruptedException {
         ActionRequest req = new ActionRequest(MESSAGE_SELECT_ACTION, actions, true);
-        return view.sendChoiceRequest(req).get();
+        return currentView.sendChoiceRequest(req).toCompletionStage(steps).thenAccept(action -> {
+            /* The user chose his action */
+            if (action != null) {
+                turn.setTurnState(BUSY);
+                runWaiting(() -> runAction(action));
+            }
+
+            /* Update the state according to the previous state and the selected action */
+            updateTurnStateAfterAction(action);
+        });
     }
 
     /**
@@ -372,64 +448,70 @@ public class TurnController {
      * @throws InterruptedException  If the thread gets interrupted
      */
     private void runAction(ActionEnum action) throws InterruptedException {
-        switch (action) {
-            case RUN:
-                factory.createMoveActionController()
-                        .execute(currentView, 3); /* Move max. 3 steps */
-                break;
-            case GRAB:
-                factory.createMoveActionController()
-                        .execute(currentView, 1); /* Move max. 1 step */
-                factory.createGrabActionController(currentView)
-                        .execute(); /* Grab */
-                break;
-            case SHOOT:
-                factory.createShootActionController()
-                        .execute(currentView); /* Shoot */
-                break;
-            case RELOAD:
-                factory.createReloadActionController()
-                        .execute(currentView); /* Reload any number of weapons */
-                break;
-            case ADRENALINE_GRAB:
-            case FRENZY2_GRAB:
-                factory.createMoveActionController()
-                        .execute(currentView, 2); /* Move max. 2 steps */
-                factory.createGrabActionController(currentView)
-                        .execute(); /* Grab */
-                break;
-            case ADRENALINE_SHOOT:
-                factory.createMoveActionController()
-                        .execute(currentView, 1); /* Move max. 1 step */
-                factory.createShootActionController()
-                        .execute(currentView); /* Shoot */
-                break;
-            case FRENZY2_SHOOT:
-                factory.createMoveActionController()
-                        .execute(currentView, 1); /* Move max. 1 step */
-                factory.createReloadActionController()
-                        .execute(currentView); /* Reload any number of weapons */
-                factory.createShootActionController()
-                        .execute(currentView); /* Shoot */
-                break;
-            case FRENZY2_RUN:
-                factory.createMoveActionController()
-                        .execute(currentView, 4); /* Move max. 4 steps */
-                break;
-            case FRENZY1_SHOOT:
-                factory.createMoveActionController()
-                        .execute(currentView, 2); /* Move max. 2 steps */
-                factory.createShootActionController()
-                        .execute(currentView); /* Shoot */
-                break;
-            case FRENZY1_GRAB:
-                factory.createMoveActionController()
-                        .execute(currentView, 3); /* Move max. 3 steps */
-                factory.createGrabActionController(currentView)
-                        .execute(); /* Grab */
-                break;
-            default:
-                logger.log(Level.SEVERE, "Unsupported action: \"{0}\"", action.name());
+        /* The changes of the model are notified together when the action is over */
+        ModelTransaction transaction = ModelTransaction.begin();
+        try {
+            switch (action) {
+                case RUN:
+                    factory.createMoveActionController()
+                            .execute(currentView, 3); /* Move max. 3 steps */
+                    break;
+                case GRAB:
+                    factory.createMoveActionController()
+                            .execute(currentView, 1); /* Move max. 1 step */
+                    factory.createGrabActionController(currentView)
+                            .execute(); /* Grab */
+                    break;
+                case SHOOT:
+                    factory.createShootActionController()
+                            .execute(currentView); /* Shoot */
+                    break;
+                case RELOAD:
+                    factory.createReloadActionController()
+                            .execute(currentView); /* Reload any number of weapons */
+                    break;
+                case ADRENALINE_GRAB:
+                case FRENZY2_GRAB:
+                    factory.createMoveActionController()
+                            .execute(currentView, 2); /* Move max. 2 steps */
+                    factory.createGrabActionController(currentView)
+                            .execute(); /* Grab */
+                    break;
+                case ADRENALINE_SHOOT:
+                    factory.createMoveActionController()
+                            .execute(currentView, 1); /* Move max. 1 step */
+                    factory.createShootActionController()
+                            .execute(currentView); /* Shoot */
+                    break;
+                case FRENZY2_SHOOT:
+                    factory.createMoveActionController()
+                            .execute(currentView, 1); /* Move max. 1 step */
+                    factory.createReloadActionController()
+                            .execute(currentView); /* Reload any number of weapons */
+                    factory.createShootActionController()
+                            .execute(currentView); /* Shoot */
+                    break;
+                case FRENZY2_RUN:
+                    factory.createMoveActionController()
+                            .execute(currentView, 4); /* Move max. 4 steps */
+                    break;
+                case FRENZY1_SHOOT:
+                    factory.createMoveActionController()
+                            .execute(currentView, 2); /* Move max. 2 steps */
+                    factory.createShootActionController()
+                            .execute(currentView); /* Shoot */
+                    break;
+                case FRENZY1_GRAB:
+                    factory.createMoveActionController()
+                            .execute(currentView, 3); /* Move max. 3 steps */
+                    factory.createGrabActionController(currentView)
+                            .execute(); /* Grab */
+                    break;
+                default:
+                    logger.log(Level.SEVERE, "Unsupported action: \"{0}\"", action.name());
+            }
+        } finally {
+            transaction.close();
         }
     }
 }
@@ -4,6 +4,9 @@ import it.polimi.deib.se2019.sanp4.adrenaline.common.requests.ChoiceRequest;
 
 import java.io.Serializable;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 
 /**
  * Represents the "promise" of a value in response to a {@link ChoiceRequest}
@@ -22,6 +25,11 @@ import java.util.concurrent.CancellationException;
  *     The {@code CompletableChoice} can also be cancelled, in which case the ones waiting on {@link #get()} will
  *     receive an exception.
  * </p>
+ * <p>
+ *     Instead of waiting, the choice can be turned into a {@link CompletionStage} with
+ *     {@link #toCompletionStage(Executor)}, so that the caller can return and the rest of its work
+ *     is resumed on an executor when the choice is completed.
+ * </p>
  * @param <T> the type of the choice
  * @author Alessandro Fulgini
  */
@@ -39,6 +47,9 @@ public class CompletableChoice<T extends Serializable> {
     /** The choice provided */
     private T choice;
 
+    /** Completed together with this choice, used to resume the stages waiting on it */
+    private final CompletableFuture<T> future = new CompletableFuture<>();
+
     /**
      * Creates a FutureChoice in a pending state, bound to given request.
      * @param request Request whose response will provide the choice
@@ -72,6 +83,7 @@ public class CompletableChoice<T extends Serializable> {
             this.choice = request.getType().cast(choice);
             completed = true;
             notifyAll(); /* Notify waiting threads that the choice has been provided */
+            future.complete(this.choice); /* Resume the stages waiting on the choice */
         } else {
             /* The choice is not valid */
             throw new InvalidChoiceException(choice);
@@ -97,6 +109,7 @@ public class CompletableChoice<T extends Serializable> {
         cancelled = true;
         completed = true;
         notifyAll();
+        future.cancel(false);
         return this;
     }
 
@@ -142,6 +155,27 @@ public class CompletableChoice<T extends Serializable> {
         return choice;
     }
 
+    /**
+     * Returns a stage which is completed with the choice, without waiting for it.
+     * The stage is always completed by a thread of given executor, so the actions which depend on it
+     * run there and not in the thread which completes the choice (e.g. the one that received the response).
+     * If the choice is cancelled, the stage completes exceptionally with a {@link CancellationException}
+     *
+     * @param executor the executor which resumes the stage, not null
+     * @return a stage completed with the choice
+     */
+    public CompletionStage<T> toCompletionStage(Executor executor) {
+        CompletableFuture<T> resumed = new CompletableFuture<>();
+        future.whenCompleteAsync((result, e) -> {
+            if (e == null) {
+                resumed.complete(result);
+            } else {
+                resumed.completeExceptionally(e);
+            }
+        }, executor);
+        return resumed;
+    }
+
     /**
      * Returns the request that originated the choice
      * @return request that originated the choice
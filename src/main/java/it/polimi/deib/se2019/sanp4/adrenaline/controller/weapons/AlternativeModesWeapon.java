@@ -4,6 +4,7 @@ import it.polimi.deib.se2019.sanp4.adrenaline.common.requests.EffectRequest;
 import it.polimi.deib.se2019.sanp4.adrenaline.controller.ControllerFactory;
 import it.polimi.deib.se2019.sanp4.adrenaline.controller.PersistentView;
 import it.polimi.deib.se2019.sanp4.adrenaline.controller.weapons.effects.AbstractEffect;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.ModelTransaction;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.items.weapons.EffectDescription;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.items.weapons.WeaponCard;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.match.Match;
@@ -65,23 +66,29 @@ public class AlternativeModesWeapon extends AbstractWeapon {
      */
     @Override
     public void use(PersistentView view) throws InterruptedException {
-        if (effects.isEmpty()) return; /* The weapon has no effects */
+        /* The changes of the model are notified together when the weapon has been used */
+        ModelTransaction transaction = ModelTransaction.begin();
+        try {
+            if (effects.isEmpty()) return; /* The weapon has no effects */
 
-        AbstractEffect selectedMode;
-        if (effects.size() == 1) {
-            /* There is only one mode => select it automatically */
-            selectedMode = effects.values().iterator().next();
-        } else {
-            /* Ask the user to select the effect he desires */
-            selectedMode = askToSelectMode(view);
-        }
+            AbstractEffect selectedMode;
+            if (effects.size() == 1) {
+                /* There is only one mode => select it automatically */
+                selectedMode = effects.values().iterator().next();
+            } else {
+                /* Ask the user to select the effect he desires */
+                selectedMode = askToSelectMode(view);
+            }
 
-        /* Use it */
-        boolean completed = selectedMode.use(view);
+            /* Use it */
+            boolean completed = selectedMode.use(view);
 
-        if (!completed) {
-            /* Notify the user */
-            view.showMessage(MESSAGE_MODE_NOT_COMPLETED, MessageType.WARNING);
+            if (!completed) {
+                /* Notify the user */
+                view.showMessage(MESSAGE_MODE_NOT_COMPLETED, MessageType.WARNING);
+            }
+        } finally {
+            transaction.close();
         }
     }
 }
@@ -4,6 +4,7 @@ import it.polimi.deib.se2019.sanp4.adrenaline.common.requests.EffectRequest;
 import it.polimi.deib.se2019.sanp4.adrenaline.controller.ControllerFactory;
 import it.polimi.deib.se2019.sanp4.adrenaline.controller.PersistentView;
 import it.polimi.deib.se2019.sanp4.adrenaline.controller.weapons.effects.AbstractEffect;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.ModelTransaction;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.items.weapons.EffectDescription;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.items.weapons.WeaponCard;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.match.Match;
@@ -159,37 +160,43 @@ public class OptionalEffectsWeapon extends AbstractWeapon {
      */
     @Override
     public void use(PersistentView view) throws InterruptedException {
-        Set<AbstractEffect> usableEffects;
-        AbstractEffect selectedEffect = null;
-
-        do {
-            /* Determine effects which can be used */
-            usableEffects = effects.values().stream()
-                    .filter(effect -> effect.canBeUsed(completedEffects))
-                    .collect(Collectors.toSet());
-
-            /* Ask user to select or auto-select if base */
-            if (!usableEffects.isEmpty()) {
-                selectedEffect = handleEffectSelection(view, usableEffects);
-            }
+        /* The changes of the model are notified together when the weapon has been used */
+        ModelTransaction transaction = ModelTransaction.begin();
+        try {
+            Set<AbstractEffect> usableEffects;
+            AbstractEffect selectedEffect = null;
+
+            do {
+                /* Determine effects which can be used */
+                usableEffects = effects.values().stream()
+                        .filter(effect -> effect.canBeUsed(completedEffects))
+                        .collect(Collectors.toSet());
+
+                /* Ask user to select or auto-select if base */
+                if (!usableEffects.isEmpty()) {
+                    selectedEffect = handleEffectSelection(view, usableEffects);
+                }
 
-            if (selectedEffect != null) {
-                /* Execute it */
-                boolean completed = selectedEffect.use(view);
-
-                /* Check whether to add it to the collection of successfully completed effects */
-                if (completed) {
-                    completedEffects.add(selectedEffect.getId());
-                } else if (selectedEffect.isOptional()) {
-                    /* If an optional effect did not complete successfully, just notify the player */
-                    view.showMessage(MESSAGE_OPTIONAL_NOT_COMPLETED, MessageType.WARNING);
-                } else {
-                    /* If the base effect did not complete successfully, the weapon terminates */
-                    view.showMessage(MESSAGE_BASE_NOT_COMPLETED, MessageType.WARNING);
-                    break;
+                if (selectedEffect != null) {
+                    /* Execute it */
+                    boolean completed = selectedEffect.use(view);
+
+                    /* Check whether to add it to the collection of successfully completed effects */
+                    if (completed) {
+                        completedEffects.add(selectedEffect.getId());
+                    } else if (selectedEffect.isOptional()) {
+                        /* If an optional effect did not complete successfully, just notify the player */
+                        view.showMessage(MESSAGE_OPTIONAL_NOT_COMPLETED, MessageType.WARNING);
+                    } else {
+                        /* If the base effect did not complete successfully, the weapon terminates */
+                        view.showMessage(MESSAGE_BASE_NOT_COMPLETED, MessageType.WARNING);
+                        break;
+                    }
                 }
-            }
 
-        } while (!usableEffects.isEmpty() && selectedEffect != null);
+            } while (!usableEffects.isEmpty() && selectedEffect != null);
+        } finally {
+            transaction.close();
+        }
     }
 }
@@ -0,0 +1,349 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.controller.weapons;
+
+import it.polimi.deib.se2019.sanp4.adrenaline.common.JSONUtils;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.exceptions.CardNotFoundException;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.board.VisibilityEnum;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.items.ammo.AmmoCubeCost;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.items.weapons.WeaponCreator;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The compiled configuration of a weapon: its type, its effects and their targets.
+ * <p>
+ * The JSON configuration of each weapon is compiled only once into an immutable blueprint,
+ * which is shared by all the matches. Each time a player shoots, the controllers of the weapon,
+ * of its effects and of its targets are created from the blueprint (see
+ * {@link it.polimi.deib.se2019.sanp4.adrenaline.controller.ControllerFactory#createWeaponController}),
+ * without reading or parsing any file; the weapon controller then holds the state of that single use
+ * (saved players and squares, damaged players).
+ * </p>
+ * <p>
+ * All the fields which are not specified in the configuration receive the same default values
+ * of the controllers.
+ * </p>
+ *
+ * @author Alessandro Fulgini
+ */
+public class WeaponBlueprint {
+
+    /** Compiled blueprints, by weapon id */
+    private static final Map<String, WeaponBlueprint> blueprints = new ConcurrentHashMap<>();
+
+    /** The configuration this blueprint has been compiled from */
+    private final JSONObject source;
+
+    /** The type of the weapon (e.g. {@code OPTIONAL_EFFECTS}) */
+    private final String type;
+
+    /** The shooting direction, {@code null} if not specified */
+    private final ShootingDirectionEnum shootingDirection;
+
+    /** The effects of the weapon, in order */
+    private final List<EffectBlueprint> effects;
+
+    /**
+     * Compiles the blueprint of a weapon from its configuration
+     *
+     * @param config the JSON configuration of the weapon, not null
+     * @throws JSONException if the configuration is not valid
+     */
+    public WeaponBlueprint(JSONObject config) {
+        source = config;
+        type = config.getString("type");
+        if (!type.equals("OPTIONAL_EFFECTS") && !type.equals("ALTERNATIVE_MODES")) {
+            throw new JSONException(String.format("Weapon type %s does not exist", type));
+        }
+        shootingDirection = config.has("direction") ?
+                config.getEnum(ShootingDirectionEnum.class, "direction") : null;
+
+        List<EffectBlueprint> list = new ArrayList<>();
+        JSONArray array = config.getJSONArray("effects");
+        for (int i = 0; i < array.length(); i++) {
+            list.add(new EffectBlueprint(array.getJSONObject(i)));
+        }
+        effects = Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Returns the blueprint of the weapon with given id, compiling it if it has not been compiled yet.
+     * If the weapon has been loaded again in {@link WeaponCreator}, the blueprint is compiled again
+     *
+     * @param weaponId the id of the weapon, not null
+     * @return the blueprint of the weapon
+     * @throws CardNotFoundException if the weapon has not been loaded by {@link WeaponCreator}
+     * @throws JSONException         if the configuration of the weapon is not valid
+     */
+    public static WeaponBlueprint of(String weaponId) {
+        JSONObject config = WeaponCreator.getWeaponConfiguration(weaponId);
+        WeaponBlueprint blueprint = blueprints.get(weaponId);
+        if (blueprint == null || blueprint.source != config) {
+            blueprint = new WeaponBlueprint(config);
+            blueprints.put(weaponId, blueprint);
+        }
+        return blueprint;
+    }
+
+    /**
+     * Compiles the blueprints of all the weapons loaded by {@link WeaponCreator},
+     * so that no configuration has to be compiled while playing
+     *
+     * @throws JSONException if the configuration of a weapon is not valid
+     */
+    public static void compileLoadedWeapons() {
+        WeaponCreator.getLoadedWeaponIds().forEach(WeaponBlueprint::of);
+    }
+
+    /**
+     * Forgets all the compiled blueprints
+     */
+    public static void reset() {
+        blueprints.clear();
+    }
+
+    /**
+     * Returns the type of the weapon
+     *
+     * @return the type of the weapon
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * Returns the shooting direction of the weapon
+     *
+     * @return the shooting direction, {@code null} if it has not been specified
+     */
+    public ShootingDirectionEnum getShootingDirection() {
+        return shootingDirection;
+    }
+
+    /**
+     * Returns the effects of the weapon
+     *
+     * @return an unmodifiable list with the effects, in order
+     */
+    public List<EffectBlueprint> getEffects() {
+        return effects;
+    }
+
+    /**
+     * The compiled configuration of an effect of a weapon
+     */
+    public static class EffectBlueprint {
+        private final String id;
+        private final String type;
+        private final List<AmmoCubeCost> cost;
+        private final Set<String> dependsOnEffects;
+        private final int playerMoves;
+        private final List<TargetBlueprint> targets;
+
+        /**
+         * Compiles the blueprint of an effect from its configuration
+         *
+         * @param config the JSON configuration of the effect, not null
+         * @throws JSONException if the configuration is not valid
+         */
+        public EffectBlueprint(JSONObject config) {
+            id = config.getString("id");
+            type = config.getString("type");
+
+            cost = config.has("cost") ?
+                    Collections.unmodifiableList(
+                            JSONUtils.arrayToEnumList(AmmoCubeCost.class, config.getJSONArray("cost"))) :
+                    null;
+            dependsOnEffects = config.has("dependsOnEffects") ?
+                    Collections.unmodifiableSet(
+                            JSONUtils.arrayToStringSet(config.getJSONArray("dependsOnEffects"))) :
+                    null;
+            playerMoves = config.optInt("playerMoves", 0);
+
+            List<TargetBlueprint> list = new ArrayList<>();
+            switch (type) {
+                case "MODE":
+                case "BASIC":
+                case "OPTIONAL":
+                    JSONArray array = config.getJSONArray("targets");
+                    for (int i = 0; i < array.length(); i++) {
+                        list.add(new TargetBlueprint(array.getJSONObject(i)));
+                    }
+                    break;
+                case "MOVEMENT":
+                    break;
+                default:
+                    throw new JSONException(String.format("Effect type %s does not exist", type));
+            }
+            targets = Collections.unmodifiableList(list);
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        /**
+         * Returns the additional cost of the effect
+         *
+         * @return an unmodifiable list with the cost, {@code null} if not specified
+         */
+        public List<AmmoCubeCost> getCost() {
+            return cost;
+        }
+
+        /**
+         * Returns the effects this effect depends on
+         *
+         * @return an unmodifiable set with the ids of the effects, {@code null} if not specified
+         */
+        public Set<String> getDependsOnEffects() {
+            return dependsOnEffects;
+        }
+
+        public int getPlayerMoves() {
+            return playerMoves;
+        }
+
+        /**
+         * Returns the targets of the effect
+         *
+         * @return an unmodifiable list with the targets, in order
+         */
+        public List<TargetBlueprint> getTargets() {
+            return targets;
+        }
+    }
+
+    /**
+     * The compiled configuration of a target of an effect
+     */
+    public static class TargetBlueprint {
+        private final String id;
+        private final String targetMode;
+        private final boolean optional;
+        private final int damage;
+        private final int marks;
+        private final VisibilityEnum visibility;
+        private final Integer minDist;
+        private final Integer maxDist;
+        private final Set<String> excludePlayers;
+        private final Set<String> excludeSquares;
+        private final Set<String> chooseBetweenTargets;
+        private final String visibleFromPlayer;
+        private final boolean moveShooterHere;
+        private final String squareRef;
+        private final int moveTargetBefore;
+        private final int moveTargetAfter;
+
+        /**
+         * Compiles the blueprint of a target from its configuration
+         *
+         * @param config the JSON configuration of the target, not null
+         * @throws JSONException if the configuration is not valid
+         */
+        public TargetBlueprint(JSONObject config) {
+            id = config.getString("id");
+            targetMode = config.getString("targetMode");
+            if (!Arrays.asList("PLAYER", "SQUARE", "ROOM", "RADIUS", "VORTEX").contains(targetMode)) {
+                throw new JSONException(String.format("Target type %s does not exist", targetMode));
+            }
+
+            optional = config.optBoolean("optional", false);
+            damage = config.optInt("damage", 0);
+            marks = config.optInt("marks", 0);
+            visibility = config.has("visibility") ? config.getEnum(VisibilityEnum.class, "visibility") : null;
+            minDist = config.has("minDist") ? config.optInt("minDist") : null;
+            maxDist = config.has("maxDist") ? config.optInt("maxDist") : null;
+            excludePlayers = readStringSet(config, "excludePlayers");
+            excludeSquares = readStringSet(config, "excludeSquares");
+            chooseBetweenTargets = readStringSet(config, "chooseBetweenTargets");
+            visibleFromPlayer = config.has("visibleFromPlayer") ? config.getString("visibleFromPlayer") : null;
+            moveShooterHere = config.optBoolean("moveShooterHere", false);
+            squareRef = config.has("squareRef") ? config.getString("squareRef") : null;
+            moveTargetBefore = config.optInt("moveTargetBefore", 0);
+            moveTargetAfter = config.optInt("moveTargetAfter", 0);
+        }
+
+        /* Reads an optional array of strings, returns null if it is not specified */
+        private static Set<String> readStringSet(JSONObject config, String key) {
+            if (!config.has(key)) return null;
+            return Collections.unmodifiableSet(JSONUtils.arrayToStringSet(config.getJSONArray(key)));
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getTargetMode() {
+            return targetMode;
+        }
+
+        public boolean isOptional() {
+            return optional;
+        }
+
+        public int getDamage() {
+            return damage;
+        }
+
+        public int getMarks() {
+            return marks;
+        }
+
+        /**
+         * Returns the visibility of the target
+         *
+         * @return the visibility, {@code null} if not specified
+         */
+        public VisibilityEnum getVisibility() {
+            return visibility;
+        }
+
+        public Integer getMinDist() {
+            return minDist;
+        }
+
+        public Integer getMaxDist() {
+            return maxDist;
+        }
+
+        public Set<String> getExcludePlayers() {
+            return excludePlayers;
+        }
+
+        public Set<String> getExcludeSquares() {
+            return excludeSquares;
+        }
+
+        public Set<String> getChooseBetweenTargets() {
+            return chooseBetweenTargets;
+        }
+
+        public String getVisibleFromPlayer() {
+            return visibleFromPlayer;
+        }
+
+        public boolean isMoveShooterHere() {
+            return moveShooterHere;
+        }
+
+        public String getSquareRef() {
+            return squareRef;
+        }
+
+        public int getMoveTargetBefore() {
+            return moveTargetBefore;
+        }
+
+        public int getMoveTargetAfter() {
+            return moveTargetAfter;
+        }
+    }
+}
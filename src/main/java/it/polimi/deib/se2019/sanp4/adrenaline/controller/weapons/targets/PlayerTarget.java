@@ -131,7 +131,7 @@ public class PlayerTarget extends SingleSquareTarget {
         }
 
         /* Determine the squares where the player can shoot */
-        Set<Square> selectableSquares = determineSelectableSquares(shooter.getCurrentSquare());
+        SquareSet selectableSquares = determineSelectableSquares(shooter.getCurrentSquare());
 
         /* Compute an initial set of targetable players */
         Stream<Player> targetStream;
@@ -159,9 +159,10 @@ public class PlayerTarget extends SingleSquareTarget {
         }
 
         /* Apply more filters */
+        Set<Player> untargetablePlayers = determineUntargetablePlayers(shooter);
         targetStream = targetStream
                 /* Remove explicitly excluded and shooter */
-                .filter(p -> !determineUntargetablePlayers(shooter).contains(p))
+                .filter(p -> !untargetablePlayers.contains(p))
                 /* Only keep the ones he is obliged to select from */
                 .filter(chooseBetweenFilter);
 
@@ -170,12 +171,9 @@ public class PlayerTarget extends SingleSquareTarget {
             /* Selectable players must be movable to a selectable square in max. given number of steps */
             /* The direction and visibility don't count */
             targetStream = targetStream
-                    .filter(p -> {
-                        Set<Square> fromTarget = board
-                                .querySquares(p.getCurrentSquare(), ANY, null, null, moveTargetBefore);
-                        fromTarget.retainAll(selectableSquares); /* Intersect */
-                        return !fromTarget.isEmpty();
-                    });
+                    .filter(p -> board
+                            .querySquares(p.getCurrentSquare(), ANY, null, null, moveTargetBefore)
+                            .intersects(selectableSquares));
         }
 
         /* Collect the remaining targets */
@@ -261,11 +259,11 @@ public class PlayerTarget extends SingleSquareTarget {
         Player shooter = match.getPlayerByName(view.getUsername());
 
         /* Determine the squares where the target can be moved */
-        Set<Square> fromTarget = board.querySquares(target.getCurrentSquare(),
+        SquareSet fromTarget = board.querySquares(target.getCurrentSquare(),
                 ANY, weapon.getSelectedDirection(), null, moveTargetBefore);
 
         /* Determine the squares where he can be shot */
-        Set<Square> fromShooter = determineSelectableSquares(shooter.getCurrentSquare());
+        SquareSet fromShooter = determineSelectableSquares(shooter.getCurrentSquare());
 
         /* Intersect them */
         fromShooter.retainAll(fromTarget);
@@ -278,7 +276,7 @@ public class PlayerTarget extends SingleSquareTarget {
             /* The target can be moved to more than one square, let the user select it */
             SquareRequest req = new SquareRequest(
                     String.format(MESSAGE_SELECT_MOVE_BEFORE_DESTINATION, target.getName()),
-                    fromShooter.stream().map(Square::getLocation).collect(Collectors.toList()),
+                    fromShooter.toCoordPairs(),
                     false
             );
             CoordPair selected = view.sendChoiceRequest(req).get();
@@ -301,7 +299,7 @@ public class PlayerTarget extends SingleSquareTarget {
      */
     private void handleMoveTargetAfter(PersistentView view, Player target) throws InterruptedException {
         /* Determine where the target can be moved */
-        Set<Square> fromTarget = board.querySquares(target.getCurrentSquare(),
+        SquareSet fromTarget = board.querySquares(target.getCurrentSquare(),
                 ANY, weapon.getSelectedDirection(), null, moveTargetAfter);
 
         /* If there is only one, it's certainly the square the target is currently in */
@@ -309,7 +307,7 @@ public class PlayerTarget extends SingleSquareTarget {
             /* Ask the user to select */
             SquareRequest req = new SquareRequest(
                     String.format(MESSAGE_SELECT_MOVE_AFTER_DESTINATION, target.getName()),
-                    fromTarget.stream().map(Square::getLocation).collect(Collectors.toList()),
+                    fromTarget.toCoordPairs(),
                     false
             );
             CoordPair selected = view.sendChoiceRequest(req).get();
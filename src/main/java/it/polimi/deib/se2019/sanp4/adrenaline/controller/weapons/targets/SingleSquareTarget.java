@@ -7,10 +7,10 @@ import it.polimi.deib.se2019.sanp4.adrenaline.controller.weapons.effects.Targeti
 import it.polimi.deib.se2019.sanp4.adrenaline.model.board.Board;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.board.CardinalDirection;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.board.Square;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.board.SquareSet;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.match.Match;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.player.Player;
 
-import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.CancellationException;
 
@@ -162,11 +162,11 @@ public abstract class SingleSquareTarget extends AbstractTarget {
      * @param start The square from which to calculate distances, not null
      * @return The selectable squares according to given criteria
      */
-    protected Set<Square> determineSelectableSquares(Square start) {
+    protected SquareSet determineSelectableSquares(Square start) {
         /* Get a hook to the board */
         Board board = match.getBoard();
 
-        Set<Square> query = new HashSet<>();
+        SquareSet query = SquareSet.noneOf(board);
 
         /* Handle the direction */
         CardinalDirection direction = weapon.getSelectedDirection();
@@ -191,12 +191,12 @@ public abstract class SingleSquareTarget extends AbstractTarget {
             Player him = weapon.getSavedPlayer(visibleFromPlayer);
 
             /* Determine the squares he can see */
-            Set<Square> visibleFromHim;
+            SquareSet visibleFromHim;
             if (him != null) {
                 /* Determine the squares he can see */
                 visibleFromHim = board.getVisibleSquares(him.getCurrentSquare());
             } else {
-                visibleFromHim = new HashSet<>();
+                visibleFromHim = SquareSet.noneOf(board);
             }
 
             /* Intersect them with the ones we already have */
@@ -8,6 +8,7 @@ import it.polimi.deib.se2019.sanp4.adrenaline.controller.weapons.AbstractWeapon;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.board.Board;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.board.CoordPair;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.board.Square;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.board.SquareSet;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.match.Match;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.player.Player;
 
@@ -68,11 +69,19 @@ public class VortexTarget extends AbstractTarget {
      * @param shooter The player using the weapon, not null
      * @return A set of squares which can be selected as the vortex
      */
-    private Set<Square> determineSelectableVortex(Player shooter) {
+    private SquareSet determineSelectableVortex(Player shooter) {
+        /* Determine the squares with at least one targetable player */
+        Set<Player> untargetablePlayers = determineUntargetablePlayers(shooter);
+        SquareSet withTargets = SquareSet.noneOf(board);
+        match.getPlayers().stream()
+                .filter(player -> player.getCurrentSquare() != null && !untargetablePlayers.contains(player))
+                .forEach(player -> withTargets.add(player.getCurrentSquare()));
+
         /* Determine candidates to be the vortex */
-        return board.querySquares(shooter.getCurrentSquare(), visibility, null, 1, maxDist).stream()
-                .filter(candidate -> !determineSelectablePlayers(candidate, shooter).isEmpty())
-                .collect(Collectors.toSet());
+        SquareSet candidates = board.querySquares(shooter.getCurrentSquare(), visibility, null, 1, maxDist);
+        candidates.removeIf(candidate ->
+                !board.querySquares(candidate, ANY, null, null, maxDist).intersects(withTargets));
+        return candidates;
     }
 
     /**
@@ -138,9 +147,9 @@ public class VortexTarget extends AbstractTarget {
      * @throws CancellationException if the request to the user gets cancelled
      * @throws InterruptedException  if the thread gets interrupted
      */
-    private Square askToSelectVortex(PersistentView view, Set<Square> choices) throws InterruptedException {
+    private Square askToSelectVortex(PersistentView view, SquareSet choices) throws InterruptedException {
         /* Map to locations */
-        List<CoordPair> coordPairs = choices.stream().map(Square::getLocation).collect(Collectors.toList());
+        List<CoordPair> coordPairs = choices.toCoordPairs();
         /* Send request */
         SquareRequest req = new SquareRequest(MESSAGE_SELECT_VORTEX, coordPairs, false);
         CoordPair selected = view.sendChoiceRequest(req).get();
@@ -193,7 +202,7 @@ public class VortexTarget extends AbstractTarget {
 
         if (vortex == null) {
             /* The user should select the vortex */
-            Set<Square> choices = determineSelectableVortex(shooter);
+            SquareSet choices = determineSelectableVortex(shooter);
 
             if (choices.isEmpty()) return false; /* Can't select a vortex */
 
@@ -0,0 +1,130 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.model;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.JSONUtils;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.modelviews.VersionedView;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.DeltaUpdate;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.board.CoordPair;
+
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Keeps the version of an entity of the model and generates the {@link DeltaUpdate}s for it.
+ * <p>
+ * Each entity owns an encoder: every time the entity changes, its view is passed to
+ * {@link #encode(VersionedView)}, which increments the version and compares the view with the one
+ * of the previous version, so that only the changed fields are sent.
+ * Nested objects (e.g. the ammo of a player) are compared field by field, so only their changed entries
+ * are sent, while arrays are sent as a whole.
+ * The views sent in other ways (e.g. in the initial update) are just labelled with the current version
+ * by {@link #label(VersionedView)}, which does not change the state of the encoder: this relies on every
+ * change of the entity being encoded, either directly or when the {@link ModelTransaction} is committed.
+ * </p>
+ *
+ * @author Alessandro Fulgini
+ */
+public class DeltaEncoder {
+
+    /** The type of the entity */
+    private final DeltaUpdate.Entity entity;
+
+    /** The player the entity belongs to, if any */
+    private final String player;
+
+    /** The location of the entity, if it is a square */
+    private final CoordPair location;
+
+    /** Current version of the entity */
+    private long version = 0;
+
+    /** The state of the entity at the current version, {@code null} if it has never been encoded */
+    private ObjectNode lastState;
+
+    private static final ObjectMapper objectMapper = JSONUtils.getObjectMapper();
+
+    /**
+     * Creates an encoder for an entity of the model, starting from version 0
+     *
+     * @param entity   the type of the entity, not null
+     * @param player   the player the entity belongs to, if it is a player, a player board or a turn
+     * @param location the location of the entity, if it is a square
+     */
+    public DeltaEncoder(DeltaUpdate.Entity entity, String player, CoordPair location) {
+        if (entity == null) throw new NullPointerException("Entity cannot be null");
+        this.entity = entity;
+        this.player = player;
+        this.location = location;
+    }
+
+    /**
+     * Returns the current version of the entity
+     *
+     * @return the current version of the entity
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Labels given view with the current version, without changing it
+     *
+     * @param view the view of the entity, as it will be sent to the clients
+     * @param <V>  the type of the view
+     * @return the same view
+     */
+    public synchronized <V extends VersionedView> V label(V view) {
+        view.setVersion(version);
+        return view;
+    }
+
+    /**
+     * Increments the version of the entity and creates the update with the fields of given view which
+     * changed since the previous version.
+     * The first update of the entity contains all the fields
+     *
+     * @param view the updated view of the entity, not null
+     * @return the update to be sent to the clients
+     */
+    public synchronized DeltaUpdate encode(VersionedView view) {
+        version++;
+        view.setVersion(version);
+        ObjectNode state = objectMapper.valueToTree(view);
+        ObjectNode patch = lastState == null ? state.deepCopy() : diff(lastState, state);
+        lastState = state;
+        return new DeltaUpdate(entity, player, location, version, patch);
+    }
+
+    /**
+     * Creates the patch which turns the previous object into the current one.
+     * Nested objects which exist in both are compared recursively, the removed fields are set to {@code null}
+     *
+     * @param previous the previous object
+     * @param current  the current object
+     * @return an object with the changed fields, empty if nothing changed
+     */
+    private static ObjectNode diff(ObjectNode previous, ObjectNode current) {
+        ObjectNode patch = objectMapper.createObjectNode();
+        Iterator<Map.Entry<String, JsonNode>> fields = current.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            JsonNode old = previous.get(field.getKey());
+            JsonNode value = field.getValue();
+            if (old != null && old.isObject() && value.isObject()) {
+                ObjectNode nested = diff((ObjectNode) old, (ObjectNode) value);
+                if (nested.size() > 0) patch.set(field.getKey(), nested);
+            } else if (!value.equals(old)) {
+                patch.set(field.getKey(), value);
+            }
+        }
+        Iterator<String> names = previous.fieldNames();
+        while (names.hasNext()) {
+            String name = names.next();
+            if (!current.has(name)) patch.set(name, NullNode.getInstance());
+        }
+        return patch;
+    }
+}
@@ -1,5 +1,6 @@
 package it.polimi.deib.se2019.sanp4.adrenaline.model;
 
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket.codec.UpdateFrameCache;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.observer.Observable;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.observer.Observer;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.observer.RemoteRoutingObservable;
@@ -8,10 +9,14 @@ import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.MatchOperationalSta
 import it.polimi.deib.se2019.sanp4.adrenaline.model.match.Match;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.ModelUpdate;
 
+import java.util.Collection;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Concrete implementation of {@link Model}.
+ * Each update sent to the observers is given the next sequence number of the match
+ * (see {@link ModelUpdate#getSequence()}).
  *
  * @author Alessandro Fulgini
  */
@@ -27,6 +32,11 @@ public class ModelImpl extends RemoteRoutingObservable<ModelUpdate> implements M
      */
     private MatchOperationalState operationalState;
 
+    /**
+     * The sequence number of the last sent update
+     */
+    private final AtomicLong lastSequence = new AtomicLong();
+
     /**
      * Creates an empty model.
      * The initial operational state is {@link MatchOperationalState#WAITING_PLAYERS}
@@ -137,4 +147,41 @@ public class ModelImpl extends RemoteRoutingObservable<ModelUpdate> implements M
             notifyObservers(update.getRecipients(), update);
         }
     }
+
+    /**
+     * Sends the update to all the observers.
+     * The update is the same for all of them, so it is marked to be serialized only once
+     *
+     * @param update update to be sent
+     */
+    @Override
+    public void notifyObservers(ModelUpdate update) {
+        update.setSequence(lastSequence.incrementAndGet());
+        UpdateFrameCache.share(update);
+        super.notifyObservers(update);
+    }
+
+    /**
+     * Sends the update to the given observers
+     *
+     * @param recipients usernames of the observers
+     * @param update     update to be sent
+     */
+    @Override
+    public void notifyObservers(Collection<String> recipients, ModelUpdate update) {
+        update.setSequence(lastSequence.incrementAndGet());
+        super.notifyObservers(recipients, update);
+    }
+
+    /**
+     * Sends the update to the observer with given username
+     *
+     * @param username username of the observer
+     * @param update   update to be sent
+     */
+    @Override
+    public void notifyObservers(String username, ModelUpdate update) {
+        update.setSequence(lastSequence.incrementAndGet());
+        super.notifyObservers(username, update);
+    }
 }
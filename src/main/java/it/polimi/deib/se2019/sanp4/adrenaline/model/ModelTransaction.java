@@ -0,0 +1,176 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.model;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * A group of changes to the model whose notifications are sent together.
+ * <p>
+ * Without a transaction, each change of an entity (a player, a player board, a square, the match or the turn)
+ * is immediately notified to the observers. While a transaction is open on the current thread, entities only
+ * mark themselves as changed: when the transaction is committed, each changed entity sends a single
+ * update with its final state. For example, a shot which gives damage and marks to a player results
+ * in a single update of its player board.
+ * </p>
+ * <p>
+ * Transactions are bound to the thread which opens them, which is the one running the turn, and can be nested:
+ * the updates are only sent when the outermost transaction is closed. Transactions are meant to be closed
+ * in a finally block:
+ * <pre>{@code
+ * ModelTransaction transaction = ModelTransaction.begin();
+ * try {
+ *     board.addDamage(shooter, 2);
+ *     board.addMark(shooter, 1);
+ * } finally {
+ *     transaction.close();
+ * }
+ * }</pre>
+ * Before asking something to a player, the pending updates should be sent with {@link #flush()},
+ * so that the player can see the current state of the match.
+ * </p>
+ * <p>
+ * A turn which does not wait for the players runs as a chain of steps on different threads. Its steps
+ * must be run with the executors given by a {@link Carrier}, which moves the open transaction from the thread
+ * of a step to the thread of the next one, so that the pool threads never keep a transaction of another turn.
+ * </p>
+ *
+ * @author Alessandro Fulgini
+ */
+public class ModelTransaction implements AutoCloseable {
+
+    /** The transaction open on each thread, if any */
+    private static final ThreadLocal<ModelTransaction> current = new ThreadLocal<>();
+
+    /** Notifications of the changed entities, by encoder of the entity, in order of first change */
+    private final Map<DeltaEncoder, Runnable> pending = new LinkedHashMap<>();
+
+    /** Number of nested transactions which have not been closed yet */
+    private int depth = 0;
+
+    /* Transactions are only created by begin() */
+    private ModelTransaction() {
+    }
+
+    /**
+     * Opens a transaction on the current thread, or joins the one which is already open
+     *
+     * @return the transaction, which must be closed
+     */
+    public static ModelTransaction begin() {
+        ModelTransaction transaction = current.get();
+        if (transaction == null) {
+            transaction = new ModelTransaction();
+            current.set(transaction);
+        }
+        transaction.depth++;
+        return transaction;
+    }
+
+    /**
+     * Tells whether a transaction is open on the current thread
+     *
+     * @return {@code true} if a transaction is open on the current thread
+     */
+    public static boolean isOpen() {
+        return current.get() != null;
+    }
+
+    /**
+     * Notifies a change of an entity of the model.
+     * If a transaction is open on the current thread, the notification is deferred until it is committed
+     * and merged with the other changes of the same entity, otherwise it is sent immediately
+     *
+     * @param entity       the encoder of the entity which changed, not null
+     * @param notification sends the update of the entity, with its state at the time it is run
+     */
+    public static void notifyChange(DeltaEncoder entity, Runnable notification) {
+        ModelTransaction transaction = current.get();
+        if (transaction == null) {
+            notification.run();
+        } else {
+            transaction.pending.putIfAbsent(entity, notification);
+        }
+    }
+
+    /**
+     * Sends the pending updates of the transaction open on the current thread, without closing it.
+     * If no transaction is open, nothing happens
+     */
+    public static void flush() {
+        ModelTransaction transaction = current.get();
+        if (transaction != null) {
+            transaction.sendPending();
+        }
+    }
+
+    /**
+     * Closes this transaction: if it is the outermost one, the pending updates are sent
+     */
+    @Override
+    public void close() {
+        depth--;
+        if (depth == 0) {
+            current.remove();
+            sendPending();
+        }
+    }
+
+    /**
+     * Carries the transaction of a chain of steps, which run one after the other but on different threads.
+     * <p>
+     * Each step runs with the transaction left open by the previous step (if any) bound to its thread,
+     * and when the step is over the transaction is detached from the thread again.
+     * The steps of the chain must not run concurrently.
+     * </p>
+     */
+    public static class Carrier {
+
+        /** The transaction left open by the last step, if any */
+        private volatile ModelTransaction carried;
+
+        /**
+         * Returns an executor which runs the steps of the chain with given executor,
+         * carrying the transaction from one step to the next
+         *
+         * @param executor the executor which actually runs the steps, not null
+         * @return the executor to be used for the steps of the chain
+         */
+        public Executor on(Executor executor) {
+            return task -> executor.execute(() -> run(task));
+        }
+
+        /* Binds the carried transaction to the thread for the duration of the step */
+        private void run(Runnable task) {
+            ModelTransaction previous = current.get();
+            if (carried != null) {
+                current.set(carried);
+            } else {
+                current.remove();
+            }
+
+            try {
+                task.run();
+            } finally {
+                carried = current.get(); /* Null if the step closed the transaction */
+                if (previous != null) {
+                    current.set(previous);
+                } else {
+                    current.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Sends the updates of the changed entities, in order of first change
+     */
+    private void sendPending() {
+        /* Sending the updates could change other entities, so take a copy first */
+        List<Runnable> notifications = new ArrayList<>(pending.values());
+        pending.clear();
+        notifications.forEach(Runnable::run);
+    }
+}
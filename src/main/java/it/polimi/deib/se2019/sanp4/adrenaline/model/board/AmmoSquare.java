@@ -1,7 +1,6 @@
 package it.polimi.deib.se2019.sanp4.adrenaline.model.board;
 
 import it.polimi.deib.se2019.sanp4.adrenaline.common.modelviews.AmmoSquareView;
-import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.SquareUpdate;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.items.ammo.AmmoCard;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.match.CardStack;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.match.Match;
@@ -51,7 +50,7 @@ public class AmmoSquare extends Square {
         if (this.ammoCard != null) {
             AmmoCard picked = this.ammoCard;
             this.ammoCard = null;
-            this.notifyObservers(new SquareUpdate(this.generateView()));
+            this.notifyChange();
             return picked;
         } else {
             throw new IllegalStateException("Currently no ammo on this square");
@@ -79,7 +78,7 @@ public class AmmoSquare extends Square {
             throw new NullPointerException("Ammo cannot be null");
         }
         this.ammoCard = ammo;
-        this.notifyObservers(new SquareUpdate(this.generateView()));
+        this.notifyChange();
     }
 
     /**
@@ -122,12 +121,12 @@ public class AmmoSquare extends Square {
     }
 
     /**
-     * Generates the {@link AmmoSquareView} of the ammo square.
+     * Creates the {@link AmmoSquareView} of the ammo square.
      *
      * @return the ammo square view.
      */
     @Override
-    public AmmoSquareView generateView() {
+    protected AmmoSquareView createView() {
         /* Assign a random color if room is null in test cases */
         RoomColor color = getRoom() == null ? RoomColor.BLUE : getRoom().getColor();
         AmmoSquareView view = new AmmoSquareView(this.getLocation(), color);
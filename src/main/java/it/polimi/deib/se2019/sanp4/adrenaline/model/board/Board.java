@@ -11,7 +11,6 @@ import it.polimi.deib.se2019.sanp4.adrenaline.model.player.Player;
 import java.util.*;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import static it.polimi.deib.se2019.sanp4.adrenaline.model.board.CardinalDirection.*;
 
@@ -51,6 +50,11 @@ public class Board extends Observable<ModelUpdate> implements Observer<ModelUpda
      */
     private Map<AmmoCube, SpawnSquare> spawnPoints;
 
+    /**
+     * Distances and visibility between the squares, computed on the first query
+     */
+    private BoardTopology topology;
+
     /**
      * Default constructor only to be used by Jackson
      */
@@ -106,6 +110,48 @@ public class Board extends Observable<ModelUpdate> implements Observer<ModelUpda
         /* Eventually we put it into the board matrix */
         squares[x][y] = square;
         squares[x][y].addObserver(this);
+
+        /* The topology has changed, it will be computed again */
+        topology = null;
+    }
+
+    /**
+     * Returns the topology of the board, computing it if needed.
+     * It is computed on the first query, when the board has been completely created
+     *
+     * @return the topology of the board
+     */
+    synchronized BoardTopology getTopology() {
+        if (topology == null) {
+            topology = new BoardTopology(this);
+        }
+        return topology;
+    }
+
+    /**
+     * Sets the topology of the board, which must have been computed for the same configuration.
+     * This is used to share the topology between boards created from the same {@link BoardTemplate}
+     *
+     * @param topology the topology of the board, not null
+     */
+    synchronized void setTopology(BoardTopology topology) {
+        this.topology = topology;
+    }
+
+    /**
+     * Returns the index of given square in the topology of the board
+     *
+     * @param topology the topology of the board
+     * @param square   the square, not null
+     * @return the index of the square
+     * @throws IllegalArgumentException if the square is not part of this board
+     */
+    private int indexOf(BoardTopology topology, Square square) {
+        int index = topology.indexOf(square.getLocation());
+        if (index < 0 || getSquare(square.getLocation()) != square) {
+            throw new IllegalArgumentException("The square is not part of this board");
+        }
+        return index;
     }
 
     /**
@@ -127,25 +173,18 @@ public class Board extends Observable<ModelUpdate> implements Observer<ModelUpda
      * Retrieve all the squares that are visible from the provided squares, according to the game rules
      *
      * @param start The object representing the square
-     * @return The set of objects representing the visible squares
+     * @return A new modifiable set with the visible squares
      */
-    public Set<Square> getVisibleSquares(Square start) {
-        // Here we have to determine which squares are visible from the provided square
-        // First we add all the squares that are in its same room
-        Set<Square> visibleSquares = new HashSet<>(start.getRoom().getSquares());
-        // Then we get all the squares it is connected by a door and retrieve the visible rooms
-        start.getAdjacentSquares().values()
-                .stream()
-                // Keep only the squares connected by a door
-                .filter(squareConnection -> squareConnection.getConnectionType() == SquareConnectionType.DOOR)
-                // Get their coordinates
-                .map(SquareConnection::getSquare)
-                // Retrieve the square objects
-                .map(this::getSquare)
-                // Retrieve their rooms
-                .map(Square::getRoom)
-                // Retrieve all the squares belonging to the room and add them to the set
-                .forEach(room -> visibleSquares.addAll(room.getSquares()));
+    public SquareSet getVisibleSquares(Square start) {
+        /* Visibility (same room or rooms connected by a door) has been computed with the topology */
+        BoardTopology table = getTopology();
+        int from = indexOf(table, start);
+        SquareSet visibleSquares = SquareSet.noneOf(this);
+        for (int to = 0; to < table.size(); to++) {
+            if (table.isVisible(from, to)) {
+                visibleSquares.addIndex(to);
+            }
+        }
         return visibleSquares;
     }
 
@@ -214,61 +253,46 @@ public class Board extends Observable<ModelUpdate> implements Observer<ModelUpda
 
     /**
      * Given a starting square, this method navigates the board and returns the set of visited squares
-     * matching the specified filters
+     * matching the specified filters.
+     * The distances are looked up in the topology of the board, so the board is not actually visited
      *
      * @param start      the square from which start, not null
      * @param visibility determines on which condition you can move from a square to its adjacent
      * @param direction  the visit will proceed only in this direction, optional
      * @param minDist    the minimum amount of moves from the starting square, optional
      * @param maxDist    the maximum amount of moves from the starting square, optional
-     * @return the set of visited squares matching the specified filters
+     * @return a new modifiable set with the visited squares matching the specified filters
      * @throws IllegalArgumentException if distances are negative or minDist &gt; maxDist
      * @throws NullPointerException     if start or visibility are null
      */
-    public Set<Square> querySquares(Square start, VisibilityEnum visibility, CardinalDirection direction,
+    public SquareSet querySquares(Square start, VisibilityEnum visibility, CardinalDirection direction,
                                     Integer minDist, Integer maxDist) {
         if (start == null || visibility == null) {
             throw new NullPointerException("Start and visibility must be non-null");
         }
-        /* Distance parameters are checked by the visiting function */
 
         /* Retrieve the squares visible according to the visibility modifier */
-        Stream<Square> queried = visibility.squareGenerator.apply(start, this);
+        SquareSet queried = visibility.squareGenerator.apply(start, this);
 
         /* Apply distance and direction modifiers if needed */
         if (direction != null || minDist != null || maxDist != null) {
-            /* Generate direction filter */
-            Predicate<Map.Entry<CardinalDirection, SquareConnection>> directionFilter;
-            if (direction != null) {
-                directionFilter = entry -> entry.getKey() == direction; /* Travel only in that direction */
-            } else {
-                directionFilter = entry -> true; /* All directions are ok */
+            BoardTopology table = getTopology();
+            int from = indexOf(table, start);
+            int min = minDist == null ? 0 : minDist;
+            int max = maxDist == null ? BoardTopology.UNREACHABLE - 1 : maxDist;
+
+            /* Keep the reachable squares whose distance is within the bounds */
+            SquareSet inRange = SquareSet.noneOf(this);
+            for (int to = 0; to < table.size(); to++) {
+                int distance = table.getDistance(visibility, direction, from, to);
+                if (distance != BoardTopology.UNREACHABLE && distance >= min && distance <= max) {
+                    inRange.addIndex(to);
+                }
             }
-
-            /* Visit within minimum distance (their distance is < min. dist.-1) */
-            /* Note that passing a negative parameter will cause toRemove to be empty */
-            int limit = minDist == null ? -1 : minDist - 1;
-            Set<Square> toRemove = visitNeighbors(start,
-                    new HashSet<>(),
-                    directionFilter,
-                    visibility.connectionFilter,
-                    limit);
-
-            /* Then visit within max distance */
-            Set<Square> toKeep = visitNeighbors(start,
-                    new HashSet<>(),
-                    directionFilter,
-                    visibility.connectionFilter,
-                    maxDist);
-
-            /* Remove the squares within min distance */
-            toKeep.removeAll(toRemove);
-
-            /* Intersect with the squares queried for visibility */
-            queried = queried.filter(toKeep::contains);
+            queried.retainAll(inRange);
         }
 
-        return queried.collect(Collectors.toSet());
+        return queried;
     }
 
     /**
@@ -308,6 +332,15 @@ public class Board extends Observable<ModelUpdate> implements Observer<ModelUpda
         return Arrays.stream(squares).flatMap(Arrays::stream).filter(Objects::nonNull).collect(Collectors.toList());
     }
 
+    /**
+     * Returns the matrix of the squares composing the board, addressed as [x][y]
+     *
+     * @return the matrix of the squares, with {@code null} where there is no square
+     */
+    Square[][] getSquareMatrix() {
+        return squares;
+    }
+
     /**
      * Returns the rooms composing the board
      *
@@ -1,18 +1,16 @@
 package it.polimi.deib.se2019.sanp4.adrenaline.model.board;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.exceptions.BoardNotFoundException;
-import it.polimi.deib.se2019.sanp4.adrenaline.model.items.ammo.AmmoCube;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.JSONUtils;
 import org.everit.json.schema.ValidationException;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.MissingResourceException;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Shared class responsible for building game boards from file.
@@ -27,8 +25,15 @@ public class BoardCreator {
      */
     private static final Map<Integer, String> boardFiles = new HashMap<>();
 
-    /* Commodity */
-    private static ObjectMapper objectMapper = JSONUtils.getObjectMapper();
+    /**
+     * The format is {@code &lt;board id, description&gt;}
+     */
+    private static final Map<Integer, String> descriptions = new HashMap<>();
+
+    /**
+     * Templates of the boards which have been created at least once, shared by all the matches
+     */
+    private static final Map<Integer, BoardTemplate> templates = new ConcurrentHashMap<>();
 
     /* This class is static and should not be instantiated */
     private BoardCreator() {
@@ -78,6 +83,8 @@ public class BoardCreator {
 
         /* Save the board */
         boardFiles.put(id, filePath);
+        descriptions.put(id, board.optString("description", ""));
+        templates.remove(id);
     }
 
     /**
@@ -87,16 +94,13 @@ public class BoardCreator {
      * @return The description of the board
      */
     public static String getBoardDescription(int boardId) {
-        String filePath = boardFiles.get(boardId);
-        if (filePath == null) {
-            return "";
-        }
-        JSONObject board = JSONUtils.loadJSONResource(filePath);
-        return board.getString("description");
+        return descriptions.getOrDefault(boardId, "");
     }
 
     /**
      * Creates a new board with given id, which must have been previously loaded.
+     * The board file is only parsed the first time a board with that id is created,
+     * the following boards are created from the same {@link BoardTemplate}
      *
      * @param id id of the board to be created
      * @return the new board
@@ -110,45 +114,12 @@ public class BoardCreator {
         if (filePath == null) {
             throw new BoardNotFoundException(String.format("Board with id \"%d\" has not been loaded", id));
         }
-        JSONObject boardDesc = JSONUtils.loadJSONResource(filePath);
-
-        /* Build the empty board */
-        Board board = new Board(
-                id, boardDesc.getInt("xSize"),
-                boardDesc.getInt("ySize")
-        );
-
-        /* Deserialize the list of squares and add them to the board */
-        Square[] squares = deserializeSquares(boardDesc.getJSONArray("squares"));
-        for (Square square : squares) {
-            try {
-                board.addSquare(square);
-            } catch (IndexOutOfBoundsException e) {
-                /* The square is out of the board size */
-                throw new JSONException(e);
-            }
-        }
 
-        /* Now fill in the rooms with squares */
-        JSONArray rooms = boardDesc.getJSONArray("rooms");
-        for (int i = 0; i < rooms.length(); i++) {
-            fillRoom(board, rooms.getJSONObject(i));
-        }
-
-        /* Check that each square belongs to a room */
-        for (Square square : squares) {
-            if (square.getRoom() == null) {
-                throw new JSONException(String.format("Square %s belongs to no room", square.getLocation()));
-            }
-        }
+        /* Parse the template only once, invalid descriptions are not saved and fail each time */
+        BoardTemplate template = templates.computeIfAbsent(id,
+                key -> new BoardTemplate(JSONUtils.loadJSONResource(filePath)));
 
-        /* Set the spawn points */
-        JSONObject spawnPoints = boardDesc.getJSONObject("spawnPoints");
-        for (AmmoCube color : AmmoCube.values()) {
-            setSpawnPoint(board, color, spawnPoints);
-        }
-
-        return board;
+        return template.instantiate();
     }
 
     /**
@@ -166,65 +137,7 @@ public class BoardCreator {
      */
     public static void reset() {
         boardFiles.clear();
-    }
-
-    /* Helper method */
-    private static Square[] deserializeSquares(JSONArray squares) {
-        /* Use Jackson to do the job */
-        try {
-            return objectMapper.readValue(squares.toString(), Square[].class);
-        } catch (IOException e) {
-            throw new JSONException(e);
-        }
-    }
-
-    /* Helper method */
-    private static void fillRoom(Board board, JSONObject roomDesc) {
-        try {
-            /* Get the room color */
-            RoomColor color = RoomColor.valueOf(roomDesc.getString("color"));
-            /* Get the square coordinates */
-            CoordPair[] coordPairs = objectMapper.readValue(
-                    roomDesc.getJSONArray("squares").toString(),
-                    CoordPair[].class
-            );
-
-            /* Get the actual room and insert the squares based on provided coordinates */
-            /* NOTE: In case a non-existent square is said to be inside a room, it is simply not added */
-            Room room = board.getRooms().get(color);
-            for (CoordPair coordPair : coordPairs) {
-                Square square = board.getSquare(coordPair);
-                if (square != null) {
-                    room.addSquare(square);
-                }
-            }
-        } catch (IllegalArgumentException | IOException e) {
-            throw new JSONException(e);
-        }
-    }
-
-    /* Helper method */
-    private static void setSpawnPoint(Board board, AmmoCube color, JSONObject spawnPoints) {
-        try {
-            /* Get the coordpair */
-            CoordPair location = objectMapper.readValue(
-                    spawnPoints.getJSONObject((color.name())).toString(),
-                    CoordPair.class
-            );
-
-            /* Then get the associated square and test it is a spawn square */
-            Square square = board.getSquare(location);
-            if (square == null) {
-                throw new JSONException(String.format("The square %s does not exist", location));
-            }
-            if (!(square instanceof SpawnSquare)) {
-                throw new JSONException(String.format("The square %s is not a spawn square", location));
-            }
-
-            /* Set it as a spawn point */
-            board.setSpawnPoint(color, (SpawnSquare) square);
-        } catch (IOException e) {
-            throw new JSONException(e);
-        }
+        descriptions.clear();
+        templates.clear();
     }
 }
@@ -0,0 +1,219 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.model.board;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.JSONUtils;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.items.ammo.AmmoCube;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * The immutable description of a board configuration, parsed once from its JSON file.
+ * <p>
+ * All the matches played on the same board share its template: it holds the layout of the squares,
+ * their connections, the rooms, the spawn points and the {@link BoardTopology}.
+ * A new {@link Board} for a match is created with {@link #instantiate()}: the new board only has its own
+ * squares (which hold the players, the ammo cards and the weapons), while connections and topology are shared.
+ * </p>
+ *
+ * @author Alessandro Fulgini
+ */
+class BoardTemplate {
+
+    /** Unique identifier of the board configuration */
+    private final int id;
+
+    /** Horizontal size of the board */
+    private final int xSize;
+
+    /** Vertical size of the board */
+    private final int ySize;
+
+    /** The squares of the board */
+    private final List<SquareTemplate> squares;
+
+    /** Locations of the spawn points, by color */
+    private final Map<AmmoCube, CoordPair> spawnPoints;
+
+    /** Distances and visibility between the squares */
+    private final BoardTopology topology;
+
+    /* Commodity */
+    private static ObjectMapper objectMapper = JSONUtils.getObjectMapper();
+
+    /**
+     * The description of a single square of the board
+     */
+    private static class SquareTemplate {
+        private final CoordPair location;
+        private final boolean spawn;
+        private final RoomColor room;
+        private final Map<CardinalDirection, SquareConnection> connections;
+
+        private SquareTemplate(Square square) {
+            this.location = square.getLocation();
+            this.spawn = square instanceof SpawnSquare;
+            this.room = square.getRoom().getColor();
+            /* Connections and locations are immutable, so they can be shared */
+            this.connections = Collections.unmodifiableMap(new EnumMap<>(square.getAdjacentSquares()));
+        }
+    }
+
+    /**
+     * Parses the template from the description of the board.
+     * The description must have already been validated against the schema
+     *
+     * @param boardDesc the JSON description of the board, not null
+     * @throws JSONException if the description is not consistent (e.g. squares out of the board, squares
+     *                       which do not belong to any room, invalid spawn points)
+     */
+    BoardTemplate(JSONObject boardDesc) {
+        this.id = boardDesc.getInt("id");
+        this.xSize = boardDesc.getInt("xSize");
+        this.ySize = boardDesc.getInt("ySize");
+
+        /* Build a board as a prototype, which also checks the description */
+        Board prototype = parse(boardDesc);
+
+        List<SquareTemplate> squareTemplates = new ArrayList<>();
+        for (Square square : prototype.getSquares()) {
+            squareTemplates.add(new SquareTemplate(square));
+        }
+        this.squares = Collections.unmodifiableList(squareTemplates);
+
+        Map<AmmoCube, CoordPair> spawnLocations = new EnumMap<>(AmmoCube.class);
+        prototype.getSpawnPoints().forEach((color, square) -> spawnLocations.put(color, square.getLocation()));
+        this.spawnPoints = Collections.unmodifiableMap(spawnLocations);
+
+        /* The topology does not refer to the squares of the prototype, only to their locations */
+        this.topology = prototype.getTopology();
+    }
+
+    /**
+     * Creates a new board from this template, with new empty squares
+     *
+     * @return the new board
+     */
+    Board instantiate() {
+        Board board = new Board(id, xSize, ySize);
+
+        for (SquareTemplate template : squares) {
+            Square square = template.spawn ? new SpawnSquare(template.location) : new AmmoSquare(template.location);
+            square.getAdjacentSquares().putAll(template.connections);
+            board.addSquare(square);
+            board.getRooms().get(template.room).addSquare(square);
+        }
+
+        spawnPoints.forEach((color, location) -> board.setSpawnPoint(color, (SpawnSquare) board.getSquare(location)));
+
+        /* All the squares have been added, so the shared topology is valid for the new board */
+        board.setTopology(topology);
+        return board;
+    }
+
+    /* ===== PARSING ===== */
+
+    /* Builds a board from its description, checking that it is consistent */
+    private static Board parse(JSONObject boardDesc) {
+        /* Build the empty board */
+        Board board = new Board(
+                boardDesc.getInt("id"), boardDesc.getInt("xSize"),
+                boardDesc.getInt("ySize")
+        );
+
+        /* Deserialize the list of squares and add them to the board */
+        Square[] squares = deserializeSquares(boardDesc.getJSONArray("squares"));
+        for (Square square : squares) {
+            try {
+                board.addSquare(square);
+            } catch (IndexOutOfBoundsException e) {
+                /* The square is out of the board size */
+                throw new JSONException(e);
+            }
+        }
+
+        /* Now fill in the rooms with squares */
+        JSONArray rooms = boardDesc.getJSONArray("rooms");
+        for (int i = 0; i < rooms.length(); i++) {
+            fillRoom(board, rooms.getJSONObject(i));
+        }
+
+        /* Check that each square belongs to a room */
+        for (Square square : squares) {
+            if (square.getRoom() == null) {
+                throw new JSONException(String.format("Square %s belongs to no room", square.getLocation()));
+            }
+        }
+
+        /* Set the spawn points */
+        JSONObject spawnPoints = boardDesc.getJSONObject("spawnPoints");
+        for (AmmoCube color : AmmoCube.values()) {
+            setSpawnPoint(board, color, spawnPoints);
+        }
+
+        return board;
+    }
+
+    /* Helper method */
+    private static Square[] deserializeSquares(JSONArray squares) {
+        /* Use Jackson to do the job */
+        try {
+            return objectMapper.readValue(squares.toString(), Square[].class);
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+    }
+
+    /* Helper method */
+    private static void fillRoom(Board board, JSONObject roomDesc) {
+        try {
+            /* Get the room color */
+            RoomColor color = RoomColor.valueOf(roomDesc.getString("color"));
+            /* Get the square coordinates */
+            CoordPair[] coordPairs = objectMapper.readValue(
+                    roomDesc.getJSONArray("squares").toString(),
+                    CoordPair[].class
+            );
+
+            /* Get the actual room and insert the squares based on provided coordinates */
+            /* NOTE: In case a non-existent square is said to be inside a room, it is simply not added */
+            Room room = board.getRooms().get(color);
+            for (CoordPair coordPair : coordPairs) {
+                Square square = board.getSquare(coordPair);
+                if (square != null) {
+                    room.addSquare(square);
+                }
+            }
+        } catch (IllegalArgumentException | IOException e) {
+            throw new JSONException(e);
+        }
+    }
+
+    /* Helper method */
+    private static void setSpawnPoint(Board board, AmmoCube color, JSONObject spawnPoints) {
+        try {
+            /* Get the coordpair */
+            CoordPair location = objectMapper.readValue(
+                    spawnPoints.getJSONObject((color.name())).toString(),
+                    CoordPair.class
+            );
+
+            /* Then get the associated square and test it is a spawn square */
+            Square square = board.getSquare(location);
+            if (square == null) {
+                throw new JSONException(String.format("The square %s does not exist", location));
+            }
+            if (!(square instanceof SpawnSquare)) {
+                throw new JSONException(String.format("The square %s is not a spawn square", location));
+            }
+
+            /* Set it as a spawn point */
+            board.setSpawnPoint(color, (SpawnSquare) square);
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.model.board;
+
+import java.util.*;
+
+/**
+ * The compiled topology of a {@link Board}: distances and visibility between each pair of squares.
+ * <p>
+ * The connections between squares and their rooms never change once the board has been created,
+ * so all the navigation queries can be answered with a lookup in tables computed once, instead of
+ * visiting the board each time.
+ * Squares are identified by a dense index, assigned by scanning the board by columns.
+ * </p>
+ * <p>
+ * For each {@link VisibilityEnum} (which determines the connections that can be crossed) there is a table
+ * with the minimum number of steps between each pair of squares, moving in any direction, and one table
+ * for each {@link CardinalDirection}, where the movement is constrained to that direction.
+ * </p>
+ *
+ * @author Alessandro Fulgini
+ */
+class BoardTopology {
+
+    /** Distance between squares which cannot be reached from each other */
+    static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    /** Index of the table without direction constraints, after the ones of the cardinal directions */
+    private static final int ANY_DIRECTION = CardinalDirection.values().length;
+
+    /** Locations of the squares, by index */
+    private final CoordPair[] locations;
+
+    /** Indexes of the squares, by coordinates; -1 where there is no square */
+    private final int[][] indexes;
+
+    /** Distances, addressed as [visibility][direction][from][to] */
+    private final int[][][][] distances;
+
+    /** Visibility of the squares, addressed as [from][to] */
+    private final boolean[][] visible;
+
+    /**
+     * Compiles the topology of given board.
+     * The board must contain all its squares, with their connections and rooms
+     *
+     * @param board the board, not null
+     */
+    BoardTopology(Board board) {
+        Square[][] grid = board.getSquareMatrix();
+        indexes = new int[grid.length][grid.length == 0 ? 0 : grid[0].length];
+        List<Square> squares = new ArrayList<>();
+        for (int x = 0; x < indexes.length; x++) {
+            for (int y = 0; y < indexes[x].length; y++) {
+                if (grid[x][y] != null) {
+                    indexes[x][y] = squares.size();
+                    squares.add(grid[x][y]);
+                } else {
+                    indexes[x][y] = -1;
+                }
+            }
+        }
+        locations = squares.stream().map(Square::getLocation).toArray(CoordPair[]::new);
+
+        /* Compute the distances with a breadth-first visit from each square */
+        distances = new int[VisibilityEnum.values().length][ANY_DIRECTION + 1][][];
+        for (VisibilityEnum visibility : VisibilityEnum.values()) {
+            for (CardinalDirection direction : CardinalDirection.values()) {
+                distances[visibility.ordinal()][direction.ordinal()] = computeDistances(squares, visibility, direction);
+            }
+            distances[visibility.ordinal()][ANY_DIRECTION] = computeDistances(squares, visibility, null);
+        }
+
+        visible = computeVisibility(squares);
+    }
+
+    /**
+     * Computes the distances between each pair of squares
+     *
+     * @param squares    the squares, by index
+     * @param visibility determines which connections can be crossed
+     * @param direction  the only direction of movement, {@code null} for any direction
+     * @return the table of distances, addressed as [from][to]
+     */
+    private int[][] computeDistances(List<Square> squares, VisibilityEnum visibility, CardinalDirection direction) {
+        int size = squares.size();
+        int[][] table = new int[size][size];
+        int[] queue = new int[size];
+
+        for (int from = 0; from < size; from++) {
+            int[] row = table[from];
+            Arrays.fill(row, UNREACHABLE);
+            row[from] = 0;
+            queue[0] = from;
+            int head = 0;
+            int tail = 1;
+            while (head < tail) {
+                int current = queue[head++];
+                for (Map.Entry<CardinalDirection, SquareConnection> entry :
+                        squares.get(current).getAdjacentSquares().entrySet()) {
+                    int next = indexOf(entry.getValue().getSquare());
+                    if ((direction == null || entry.getKey() == direction)
+                            && visibility.connectionFilter.test(entry.getValue())
+                            && next >= 0 && row[next] == UNREACHABLE) {
+                        row[next] = row[current] + 1;
+                        queue[tail++] = next;
+                    }
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Computes which squares are visible from each square, according to the game rules:
+     * the squares in the same room and in the rooms connected by a door to the square
+     *
+     * @param squares the squares, by index
+     * @return the visibility table, addressed as [from][to]
+     */
+    private boolean[][] computeVisibility(List<Square> squares) {
+        int size = squares.size();
+        boolean[][] table = new boolean[size][size];
+        for (int from = 0; from < size; from++) {
+            Square start = squares.get(from);
+            Set<Room> visibleRooms = new HashSet<>();
+            visibleRooms.add(start.getRoom());
+            for (SquareConnection connection : start.getAdjacentSquares().values()) {
+                int next = indexOf(connection.getSquare());
+                if (connection.getConnectionType() == SquareConnectionType.DOOR && next >= 0) {
+                    visibleRooms.add(squares.get(next).getRoom());
+                }
+            }
+            visibleRooms.remove(null);
+            for (int to = 0; to < size; to++) {
+                table[from][to] = visibleRooms.contains(squares.get(to).getRoom());
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Returns the number of squares in the board
+     *
+     * @return the number of squares
+     */
+    int size() {
+        return locations.length;
+    }
+
+    /**
+     * Returns the index of the square in given location
+     *
+     * @param location the location of the square
+     * @return the index of the square, -1 if there is no square in that location
+     */
+    int indexOf(CoordPair location) {
+        if (location == null) return -1;
+        int x = location.getX();
+        int y = location.getY();
+        if (x < 0 || x >= indexes.length || y < 0 || y >= indexes[x].length) return -1;
+        return indexes[x][y];
+    }
+
+    /**
+     * Returns the location of the square with given index
+     *
+     * @param index the index of the square
+     * @return the location of the square
+     */
+    CoordPair getLocation(int index) {
+        return locations[index];
+    }
+
+    /**
+     * Returns the minimum number of steps to go from a square to another
+     *
+     * @param visibility determines which connections can be crossed, not null
+     * @param direction  the only direction of movement, {@code null} for any direction
+     * @param from       the index of the starting square
+     * @param to         the index of the destination square
+     * @return the distance, {@link #UNREACHABLE} if the destination cannot be reached
+     */
+    int getDistance(VisibilityEnum visibility, CardinalDirection direction, int from, int to) {
+        int table = direction == null ? ANY_DIRECTION : direction.ordinal();
+        return distances[visibility.ordinal()][table][from][to];
+    }
+
+    /**
+     * Tells whether a square is visible from another
+     *
+     * @param from the index of the starting square
+     * @param to   the index of the other square
+     * @return {@code true} if the square {@code to} is visible from the square {@code from}
+     */
+    boolean isVisible(int from, int to) {
+        return visible[from][to];
+    }
+}
@@ -3,7 +3,6 @@ package it.polimi.deib.se2019.sanp4.adrenaline.model.board;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.exceptions.CardNotFoundException;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.exceptions.FullCapacityException;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.modelviews.SpawnSquareView;
-import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.SquareUpdate;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.items.weapons.WeaponCard;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.match.CardStack;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.match.Match;
@@ -77,7 +76,7 @@ public class SpawnSquare extends Square {
         }
         /* If it exists, remove it and return it */
         weaponCards.remove(card.get());
-        this.notifyObservers(new SquareUpdate(this.generateView()));
+        this.notifyChange();
         return card.get();
     }
 
@@ -100,7 +99,7 @@ public class SpawnSquare extends Square {
             throw new FullCapacityException(MAX_WEAPON_CARDS);
         }
         this.weaponCards.add(weapon);
-        this.notifyObservers(new SquareUpdate(this.generateView()));
+        this.notifyChange();
     }
 
     /**
@@ -134,7 +133,7 @@ public class SpawnSquare extends Square {
             /* No more weapons to draw, totally fine */
         }
 
-        this.notifyObservers(new SquareUpdate(this.generateView()));
+        this.notifyChange();
     }
 
     /**
@@ -148,12 +147,12 @@ public class SpawnSquare extends Square {
     }
 
     /**
-     * Generates the {@link SpawnSquareView} of the spawn square.
+     * Creates the {@link SpawnSquareView} of the spawn square.
      *
      * @return the spawn square view.
      */
     @Override
-    public SpawnSquareView generateView() {
+    protected SpawnSquareView createView() {
         /* Assign a random color if room is null in test cases */
         RoomColor color = getRoom() == null ? RoomColor.BLUE : getRoom().getColor();
         SpawnSquareView view = new SpawnSquareView(this.getLocation(), color);
@@ -5,8 +5,10 @@ import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.exceptions.PlayerNotFoundException;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.modelviews.SquareView;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.observer.Observable;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.DeltaUpdate;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.ModelUpdate;
-import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.SquareUpdate;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.DeltaEncoder;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.ModelTransaction;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.match.Match;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.player.Player;
 
@@ -46,6 +48,12 @@ public abstract class Square extends Observable<ModelUpdate> {
      */
     private Room room;
 
+    /**
+     * Keeps the version of the square and generates its delta updates, created lazily
+     * because the location of squares loaded by Jackson is only known after construction
+     */
+    private DeltaEncoder deltas;
+
     /**
      * Default constructor, only to be used by Jackson
      */
@@ -79,7 +87,7 @@ public abstract class Square extends Observable<ModelUpdate> {
             throw new NullPointerException("Player cannot be null");
         }
         this.players.add(player);
-        this.notifyObservers(new SquareUpdate(this.generateView()));
+        this.notifyChange();
     }
 
     /**
@@ -96,7 +104,7 @@ public abstract class Square extends Observable<ModelUpdate> {
             throw new PlayerNotFoundException("The player is not inside the square");
         }
         this.players.remove(player);
-        this.notifyObservers(new SquareUpdate(this.generateView()));
+        this.notifyChange();
     }
 
     /**
@@ -115,11 +123,41 @@ public abstract class Square extends Observable<ModelUpdate> {
     public abstract boolean isFull();
 
     /**
-     * Generates the {@link SquareView} of the square.
+     * Generates the {@link SquareView} of the square, labelled with its current version.
+     *
+     * @return the square view.
+     */
+    public SquareView generateView() {
+        return getDeltas().label(createView());
+    }
+
+    /**
+     * Creates the {@link SquareView} of the square, with the content of the specific type of square.
      *
      * @return the square view.
      */
-    public abstract SquareView generateView();
+    protected abstract SquareView createView();
+
+    /**
+     * Notifies the observers with the fields of the square which have changed.
+     * If a {@link ModelTransaction} is open, the update is sent when it is committed
+     */
+    protected void notifyChange() {
+        DeltaEncoder encoder = getDeltas();
+        ModelTransaction.notifyChange(encoder, () -> this.notifyObservers(encoder.encode(createView())));
+    }
+
+    /**
+     * Returns the encoder of the delta updates of this square, creating it if needed
+     *
+     * @return the delta encoder of the square
+     */
+    private synchronized DeltaEncoder getDeltas() {
+        if (deltas == null) {
+            deltas = new DeltaEncoder(DeltaUpdate.Entity.SQUARE, null, location);
+        }
+        return deltas;
+    }
 
     /* ===== GETTERS AND SETTERS ===== */
 
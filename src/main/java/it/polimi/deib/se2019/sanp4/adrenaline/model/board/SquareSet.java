@@ -0,0 +1,380 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.model.board;
+
+import java.util.*;
+
+/**
+ * A set of squares of a board, represented as a bit mask.
+ * <p>
+ * Each square of the board has a dense index (see {@link BoardTopology}), so a set of squares can be stored
+ * as a {@code long} where the bit in position {@code i} tells whether the square with index {@code i} is in the set.
+ * Set algebra between sets of the same board only takes a bitwise operation, and no object is allocated
+ * for the elements. Like {@link EnumSet}, this class can be used as any other {@link Set} of squares,
+ * but it only accepts squares of its board and boards can have at most {@link #MAX_SQUARES} squares.
+ * </p>
+ * <p>
+ * A set can be modifiable or immutable: the operations which return a new set
+ * ({@link #union(SquareSet)}, {@link #intersection(SquareSet)}, {@link #difference(SquareSet)})
+ * always return modifiable sets, while {@link #toImmutable()} returns an immutable copy.
+ * </p>
+ *
+ * @author Alessandro Fulgini
+ */
+public class SquareSet extends AbstractSet<Square> {
+
+    /** Maximum number of squares of a board which can be represented */
+    public static final int MAX_SQUARES = Long.SIZE;
+
+    /** The board the squares belong to */
+    private final Board board;
+
+    /** The topology of the board, which assigns the indexes */
+    private final BoardTopology topology;
+
+    /** The squares in the set, by index */
+    private long mask;
+
+    /** Whether the set can be modified */
+    private final boolean modifiable;
+
+    /**
+     * Creates a set of squares of given board
+     *
+     * @param board      the board, not null
+     * @param topology   the topology of the board, not null
+     * @param mask       the squares in the set, by index
+     * @param modifiable whether the set can be modified
+     * @throws IllegalStateException if the board has too many squares to be represented
+     */
+    SquareSet(Board board, BoardTopology topology, long mask, boolean modifiable) {
+        if (topology.size() > MAX_SQUARES) {
+            throw new IllegalStateException(
+                    String.format("Boards with more than %d squares are not supported", MAX_SQUARES));
+        }
+        this.board = board;
+        this.topology = topology;
+        this.mask = mask;
+        this.modifiable = modifiable;
+    }
+
+    /**
+     * Creates an empty modifiable set of squares of given board
+     *
+     * @param board the board, not null
+     * @return an empty set
+     */
+    public static SquareSet noneOf(Board board) {
+        return new SquareSet(board, board.getTopology(), 0L, true);
+    }
+
+    /**
+     * Creates a modifiable set with all the squares of given board
+     *
+     * @param board the board, not null
+     * @return a set with all the squares of the board
+     */
+    public static SquareSet allOf(Board board) {
+        BoardTopology topology = board.getTopology();
+        long all = topology.size() == Long.SIZE ? -1L : (1L << topology.size()) - 1;
+        return new SquareSet(board, topology, all, true);
+    }
+
+    /**
+     * Creates a modifiable set with given squares
+     *
+     * @param board   the board, not null
+     * @param squares the squares to be put in the set, which must belong to the board, not null
+     * @return a set with given squares
+     * @throws IllegalArgumentException if a square does not belong to the board
+     */
+    public static SquareSet copyOf(Board board, Collection<? extends Square> squares) {
+        SquareSet set = noneOf(board);
+        set.addAll(squares);
+        return set;
+    }
+
+    /* ===== INDEXES ===== */
+
+    /**
+     * Returns the index of given object in the topology, if it is a square of the board
+     *
+     * @param o the object
+     * @return the index of the square, -1 if it is not a square of the board
+     */
+    private int indexOf(Object o) {
+        if (!(o instanceof Square)) return -1;
+        Square square = (Square) o;
+        int index = topology.indexOf(square.getLocation());
+        return index >= 0 && board.getSquare(square.getLocation()) == square ? index : -1;
+    }
+
+    /**
+     * Adds the square with given index to the set
+     *
+     * @param index the index of the square
+     */
+    void addIndex(int index) {
+        checkModifiable();
+        mask |= 1L << index;
+    }
+
+    /**
+     * Tells whether the square with given index is in the set
+     *
+     * @param index the index of the square
+     * @return {@code true} if the square is in the set
+     */
+    boolean containsIndex(int index) {
+        return (mask & (1L << index)) != 0;
+    }
+
+    /**
+     * Returns the bit mask of the squares in the set
+     *
+     * @return the bit mask of the squares in the set
+     */
+    long getMask() {
+        return mask;
+    }
+
+    private void checkModifiable() {
+        if (!modifiable) throw new UnsupportedOperationException("This set of squares cannot be modified");
+    }
+
+    /**
+     * Returns the mask of given collection, if it is a set of squares of the same board
+     *
+     * @param c the collection
+     * @return the mask of the collection, or {@code null} if it is not a set of squares of the same board
+     */
+    private Long sameBoardMask(Collection<?> c) {
+        if (c instanceof SquareSet && ((SquareSet) c).topology == topology) {
+            return ((SquareSet) c).mask;
+        }
+        return null;
+    }
+
+    /* ===== SET ALGEBRA ===== */
+
+    /**
+     * Returns a new set with the squares which are in this set or in the other one
+     *
+     * @param other a set of squares of the same board, not null
+     * @return the union of the sets
+     * @throws IllegalArgumentException if the sets belong to different boards
+     */
+    public SquareSet union(SquareSet other) {
+        return new SquareSet(board, topology, mask | checkSameBoard(other).mask, true);
+    }
+
+    /**
+     * Returns a new set with the squares which are both in this set and in the other one
+     *
+     * @param other a set of squares of the same board, not null
+     * @return the intersection of the sets
+     * @throws IllegalArgumentException if the sets belong to different boards
+     */
+    public SquareSet intersection(SquareSet other) {
+        return new SquareSet(board, topology, mask & checkSameBoard(other).mask, true);
+    }
+
+    /**
+     * Returns a new set with the squares which are in this set but not in the other one
+     *
+     * @param other a set of squares of the same board, not null
+     * @return the difference of the sets
+     * @throws IllegalArgumentException if the sets belong to different boards
+     */
+    public SquareSet difference(SquareSet other) {
+        return new SquareSet(board, topology, mask & ~checkSameBoard(other).mask, true);
+    }
+
+    /**
+     * Tells whether this set and the other one have at least one square in common
+     *
+     * @param other a set of squares of the same board, not null
+     * @return {@code true} if the sets intersect
+     * @throws IllegalArgumentException if the sets belong to different boards
+     */
+    public boolean intersects(SquareSet other) {
+        return (mask & checkSameBoard(other).mask) != 0;
+    }
+
+    private SquareSet checkSameBoard(SquareSet other) {
+        if (other.topology != topology) {
+            throw new IllegalArgumentException("The sets of squares belong to different boards");
+        }
+        return other;
+    }
+
+    /**
+     * Returns an immutable copy of this set
+     *
+     * @return an immutable set with the same squares, which could be this set if it is already immutable
+     */
+    public SquareSet toImmutable() {
+        return modifiable ? new SquareSet(board, topology, mask, false) : this;
+    }
+
+    /**
+     * Returns the locations of the squares in the set, in order of index
+     *
+     * @return a new list with the locations of the squares
+     */
+    public List<CoordPair> toCoordPairs() {
+        List<CoordPair> locations = new ArrayList<>(size());
+        for (long bits = mask; bits != 0; bits &= bits - 1) {
+            locations.add(topology.getLocation(Long.numberOfTrailingZeros(bits)));
+        }
+        return locations;
+    }
+
+    /* ===== SET ===== */
+
+    @Override
+    public int size() {
+        return Long.bitCount(mask);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return mask == 0;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        int index = indexOf(o);
+        return index >= 0 && containsIndex(index);
+    }
+
+    /**
+     * Adds a square to the set
+     *
+     * @param square the square, which must belong to the board of this set
+     * @return {@code true} if the set did not already contain the square
+     * @throws IllegalArgumentException if the square does not belong to the board of this set
+     */
+    @Override
+    public boolean add(Square square) {
+        checkModifiable();
+        int index = indexOf(square);
+        if (index < 0) throw new IllegalArgumentException("The square is not part of the board of this set");
+        long old = mask;
+        mask |= 1L << index;
+        return mask != old;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        checkModifiable();
+        int index = indexOf(o);
+        if (index < 0) return false;
+        long old = mask;
+        mask &= ~(1L << index);
+        return mask != old;
+    }
+
+    @Override
+    public boolean containsAll(Collection<?> c) {
+        Long other = sameBoardMask(c);
+        if (other == null) return super.containsAll(c);
+        return (other & ~mask) == 0;
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends Square> c) {
+        checkModifiable();
+        Long other = sameBoardMask(c);
+        if (other == null) return super.addAll(c);
+        long old = mask;
+        mask |= other;
+        return mask != old;
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c) {
+        checkModifiable();
+        Long other = sameBoardMask(c);
+        long old = mask;
+        if (other != null) {
+            mask &= other;
+        } else {
+            for (long bits = old; bits != 0; bits &= bits - 1) {
+                int index = Long.numberOfTrailingZeros(bits);
+                if (!c.contains(board.getSquare(topology.getLocation(index)))) {
+                    mask &= ~(1L << index);
+                }
+            }
+        }
+        return mask != old;
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        checkModifiable();
+        Long other = sameBoardMask(c);
+        long old = mask;
+        if (other != null) {
+            mask &= ~other;
+        } else {
+            c.forEach(this::remove);
+        }
+        return mask != old;
+    }
+
+    @Override
+    public void clear() {
+        checkModifiable();
+        mask = 0;
+    }
+
+    /**
+     * Returns an iterator over the squares of the set, in order of index.
+     * The iterator supports removal, if the set is modifiable
+     *
+     * @return an iterator over the squares
+     */
+    @Override
+    public Iterator<Square> iterator() {
+        return new Iterator<Square>() {
+            /* Squares which have not been returned yet */
+            private long remaining = mask;
+
+            /* Index of the last returned square */
+            private int last = -1;
+
+            @Override
+            public boolean hasNext() {
+                return remaining != 0;
+            }
+
+            @Override
+            public Square next() {
+                if (remaining == 0) throw new NoSuchElementException();
+                last = Long.numberOfTrailingZeros(remaining);
+                remaining &= remaining - 1;
+                return board.getSquare(topology.getLocation(last));
+            }
+
+            @Override
+            public void remove() {
+                if (last < 0) throw new IllegalStateException();
+                checkModifiable();
+                mask &= ~(1L << last);
+                last = -1;
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof SquareSet && ((SquareSet) o).topology == topology) {
+            return ((SquareSet) o).mask == mask;
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+}
@@ -2,7 +2,6 @@ package it.polimi.deib.se2019.sanp4.adrenaline.model.board;
 
 import java.util.function.BiFunction;
 import java.util.function.Predicate;
-import java.util.stream.Stream;
 
 /**
  * Specifies a visibility modifier of the squares visible from a given square.
@@ -15,7 +14,7 @@ public enum VisibilityEnum {
      */
     ANY("Any",
             /* Filter */
-            (start, board) -> board.getSquares().stream(),
+            (start, board) -> SquareSet.allOf(board),
             /* Connection */
             sc -> sc.getConnectionType() != SquareConnectionType.WALL),
 
@@ -24,7 +23,7 @@ public enum VisibilityEnum {
      */
     VISIBLE("Visible",
             /* Filter */
-            (start, board) -> board.getVisibleSquares(start).stream(),
+            (start, board) -> board.getVisibleSquares(start),
             /* Connection */
             sc -> sc.getConnectionType() != SquareConnectionType.WALL),
 
@@ -33,9 +32,7 @@ public enum VisibilityEnum {
      */
     NOT_VISIBLE("Not visible",
             /* Filter out non visible */
-            (start, board) ->
-                    board.getSquares().stream()
-                            .filter(square -> !board.getVisibleSquares(start).contains(square)),
+            (start, board) -> SquareSet.allOf(board).difference(board.getVisibleSquares(start)),
             /* Connection */
             sc -> sc.getConnectionType() != SquareConnectionType.WALL),
 
@@ -44,13 +41,13 @@ public enum VisibilityEnum {
      */
     IGNORE_WALLS("Ignore walls",
             /* Filter */
-            (start, board) -> board.getSquares().stream(),
+            (start, board) -> SquareSet.allOf(board),
             /* Connection */
             sc -> true
     );
 
     private final String message;
-    public final BiFunction<Square, Board, Stream<Square>> squareGenerator;
+    public final BiFunction<Square, Board, SquareSet> squareGenerator;
     public final Predicate<SquareConnection> connectionFilter;
 
     /**
@@ -58,12 +55,12 @@ public enum VisibilityEnum {
      *
      * @param message          a human-readable string
      * @param squareGenerator  a function which, given the board and the starting square
-     *                         returns a stream with the squares visible according to that modifier
+     *                         returns a new set with the squares visible according to that modifier
      * @param connectionFilter a predicate which, given a {@link SquareConnection} returns the
      *                         navigable squares according to the visibility modifier
      */
     VisibilityEnum(String message,
-                   BiFunction<Square, Board, Stream<Square>> squareGenerator,
+                   BiFunction<Square, Board, SquareSet> squareGenerator,
                    Predicate<SquareConnection> connectionFilter) {
         this.message = message;
         this.squareGenerator = squareGenerator;
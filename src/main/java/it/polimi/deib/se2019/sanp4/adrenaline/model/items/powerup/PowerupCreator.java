@@ -27,6 +27,12 @@ public class PowerupCreator {
      */
     private static Map<PowerupEnum, Map<AmmoCube, Integer>> powerupMap;
 
+    /**
+     * All the powerup cards in the deck, built when the pack is loaded.
+     * The cards are immutable, so the same instances are shared by the decks of all the matches
+     */
+    private static List<PowerupCard> powerupCards = Collections.emptyList();
+
     private static ObjectMapper mapper = JSONUtils.getObjectMapper();
 
     /**
@@ -59,30 +65,28 @@ public class PowerupCreator {
         } catch (IOException e) {
             throw new JSONException(e);
         }
+
+        /* Build the cards once and for all */
+        List<PowerupCard> cards = new ArrayList<>();
+        powerupMap.forEach((type, colors) -> colors.forEach((color, count) -> {
+            for (int i = 0; i < count; i++) {
+                /* Add the specified amount of powerups of given type and color */
+                cards.add(new PowerupCard(type, color));
+            }
+        }));
+        powerupCards = Collections.unmodifiableList(cards);
     }
 
     /**
      * Returns a collection with all the powerup cards in the deck.
      * The objects in the list are all distinct and immutable, i.e. the're suitable to be inserted in
-     * the powerup stack.
+     * the powerup stack. Since they are immutable, the same objects are returned at each call, only the
+     * collection is new.
      *
      * @return a collection with all the powerups in the deck
      */
     public static Collection<PowerupCard> createPowerupDeck() {
-        /* Build the empty list */
-        Collection<PowerupCard> deck = new LinkedList<>();
-
-        if (powerupMap != null) {
-            /* Loop on each powerup type and color */
-            powerupMap.forEach((type, colors) -> colors.forEach((color, count) -> {
-                for (int i = 0; i < count; i++) {
-                    /* Add the specified amount of powerups of given type and color */
-                    deck.add(new PowerupCard(type, color));
-                }
-            }));
-        }
-
-        return deck;
+        return new ArrayList<>(powerupCards);
     }
 
     /**
@@ -91,5 +95,6 @@ public class PowerupCreator {
      */
     static void reset() {
         if (powerupMap != null) powerupMap = null;
+        powerupCards = Collections.emptyList();
     }
 }
@@ -92,6 +92,21 @@ public class WeaponCard extends Observable<ModelUpdate> implements Serializable
         this.state = new PickupState();
     }
 
+    /**
+     * Creates a new weapon card with the same definition of given one, in its default state.
+     * The id, name, cost and effects are never modified, so they are shared with the prototype
+     * instead of being copied
+     *
+     * @param prototype the card to be copied, not null
+     */
+    WeaponCard(WeaponCard prototype) {
+        this.id = prototype.id;
+        this.name = prototype.name;
+        this.cost = prototype.cost;
+        this.effects = prototype.effects;
+        this.state = new PickupState();
+    }
+
     /**
      * Reloads the weapon by calling the reload method in {@link WeaponCardState}
      * and notifies all the observers
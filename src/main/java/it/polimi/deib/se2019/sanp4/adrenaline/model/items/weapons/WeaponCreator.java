@@ -26,6 +26,17 @@ public class WeaponCreator {
      */
     private static final Map<String, String> weaponConfigMap = new HashMap<>();
 
+    /**
+     * The key is the weapon id, the value is its configuration, as read and validated when the weapon was loaded
+     */
+    private static final Map<String, JSONObject> weaponConfigs = new HashMap<>();
+
+    /**
+     * The key is the weapon id, the value is the card read when the weapon was loaded.
+     * The cards given to the matches are copies of these, so the files are read only once
+     */
+    private static final Map<String, WeaponCard> weaponPrototypes = new HashMap<>();
+
     /**
      * Object mapper used to deserialize weapon cards
      */
@@ -75,9 +86,19 @@ public class WeaponCreator {
         /* Validate it against schema */
         JSONUtils.validateWeapon(weapon);
 
-        /* If we got here it is valid, so save the values in the map */
+        /* If we got here it is valid, so read the card once and for all */
+        WeaponCard prototype;
+        try (InputStream input = JSONUtils.class.getResourceAsStream(filePath)) {
+            prototype = objectMapper.readValue(input, WeaponCard.class);
+        } catch (IOException e) {
+            throw new JSONException(e);
+        }
+
+        /* Then save the values in the maps */
         String weaponId = weapon.getString("id");
         weaponConfigMap.put(weaponId, filePath);
+        weaponConfigs.put(weaponId, weapon);
+        weaponPrototypes.put(weaponId, prototype);
     }
 
     /**
@@ -98,16 +119,17 @@ public class WeaponCreator {
      * @return an object representing the WeaponCard, in its default state
      * @throws CardNotFoundException if the required weapon has not been loaded
      * @throws IOException           if anything goes wrong while parsing the JSON
+     *                               (the card is read when the weapon is loaded, so it should never happen)
      */
     public static WeaponCard createWeaponCard(String weaponId) throws IOException {
         if (!isWeaponAvailable(weaponId)) throw new CardNotFoundException("Card \"%s\" has not been loaded");
 
-        InputStream input = JSONUtils.class.getResourceAsStream(weaponConfigMap.get(weaponId));
-        return objectMapper.readValue(input, WeaponCard.class);
+        return new WeaponCard(weaponPrototypes.get(weaponId));
     }
 
     /**
      * Returns the configuration of a weapon as a JSON tree.
+     * The configuration is the one read when the weapon was loaded, so it must not be modified
      *
      * @param weaponId identifier of the weapon, not null
      * @return a JSON tree with the configuration of the weapon, as read from file
@@ -116,7 +138,16 @@ public class WeaponCreator {
     public static JSONObject getWeaponConfiguration(String weaponId) {
         if (!isWeaponAvailable(weaponId)) throw new CardNotFoundException("Card \"%s\" has not been loaded");
 
-        return JSONUtils.loadJSONResource(weaponConfigMap.get(weaponId));
+        return weaponConfigs.get(weaponId);
+    }
+
+    /**
+     * Returns the ids of the weapons loaded until now
+     *
+     * @return an unmodifiable set with the ids of the loaded weapons
+     */
+    public static Set<String> getLoadedWeaponIds() {
+        return Collections.unmodifiableSet(weaponConfigMap.keySet());
     }
 
     /**
@@ -124,19 +155,15 @@ public class WeaponCreator {
      * suitable for initialising a card stack.
      *
      * @return the collection of loaded weapon cards
-     * @throws IOException if a card that was previously loaded cannot be read from file
-     *                     (should never happen in normal scenarios)
+     * @throws IOException if a card that was previously loaded cannot be read
+     *                     (the cards are read when the weapons are loaded, so it should never happen)
      */
     public static Collection<WeaponCard> createWeaponCardDeck() throws IOException {
-        Collection<WeaponCard> cards = new LinkedList<>();
-        InputStream input;
-        WeaponCard card;
-
-        /* Iterate on the weapon config files */
-        for (String path : weaponConfigMap.values()) {
-            input = JSONUtils.class.getResourceAsStream(path);
-            card = objectMapper.readValue(input, WeaponCard.class);
-            cards.add(card);
+        Collection<WeaponCard> cards = new ArrayList<>(weaponPrototypes.size());
+
+        /* Only the state of the cards changes during a match, the rest is shared with the prototypes */
+        for (WeaponCard prototype : weaponPrototypes.values()) {
+            cards.add(new WeaponCard(prototype));
         }
 
         return cards;
@@ -147,5 +174,7 @@ public class WeaponCreator {
      */
     public static void reset() {
         weaponConfigMap.clear();
+        weaponConfigs.clear();
+        weaponPrototypes.clear();
     }
 }
@@ -5,6 +5,12 @@ import java.util.*;
 /**
  * A generic class implementing the CardStack interface.
  * It automatically performs shuffling of discarded cards when there are no available cards.
+ * <p>
+ * The cards are kept in two arrays, which swap their role at each shuffle, so drawing, discarding
+ * and shuffling never copy the cards nor allocate new nodes.
+ * The shuffle uses the source of randomness given on creation, so a stack created with a seeded
+ * {@link Random} always deals the cards in the same order.
+ * </p>
  *
  * @param <T> The type of cards contained in the stack
  * @author Lorenzo Farinelli
@@ -12,22 +18,42 @@ import java.util.*;
 public class AutoShufflingStack<T> implements CardStack<T> {
 
     /**
-     * The stack of discarded cards
+     * The stack of discarded cards, only the first {@link #discardedCount} cards are valid
      */
-    private List<T> discarded;
+    private Object[] discarded;
+
+    private int discardedCount;
 
     /**
-     * The stack of cards available to be drawn
+     * The stack of cards available to be drawn, the top is the last valid card
      */
-    private Deque<T> available;
+    private Object[] available;
+
+    private int availableCount;
+
+    /**
+     * Source of randomness of the shuffles
+     */
+    private final Random random;
 
     /**
      * Shuffles the stack of discarded cards and put them in the available stack
      */
     private void shuffle() {
-        Collections.shuffle(discarded); // Shuffle the discarded cards
-        available = new LinkedList<>(discarded);
-        discarded = new LinkedList<>();
+        /* Fisher-Yates shuffle, in place */
+        for (int i = discardedCount - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            Object card = discarded[i];
+            discarded[i] = discarded[j];
+            discarded[j] = card;
+        }
+
+        /* The discarded cards become the available ones, the available array (which is empty) is reused */
+        Object[] empty = available;
+        available = discarded;
+        availableCount = discardedCount;
+        discarded = empty;
+        discardedCount = 0;
     }
 
     /**
@@ -36,15 +62,29 @@ public class AutoShufflingStack<T> implements CardStack<T> {
      * @param cards The collection of objects representing the cards, not null
      */
     AutoShufflingStack(Collection<T> cards) {
+        this(cards, new Random());
+    }
+
+    /**
+     * Creates a new auto shuffling stack with the provided cards, which are shuffled with given source of randomness
+     *
+     * @param cards  The collection of objects representing the cards, not null
+     * @param random The source of randomness of the shuffles, not null
+     */
+    AutoShufflingStack(Collection<T> cards, Random random) {
         if (cards == null) {
             throw new NullPointerException("Cards collection cannot be null");
         }
+        if (random == null) {
+            throw new NullPointerException("Random cannot be null");
+        }
         if (cards.isEmpty()) {
             throw new IllegalArgumentException("Cards collection cannot be empty");
         }
-        this.available = new LinkedList<>();
-        this.discarded = new LinkedList<>();
-        this.discarded.addAll(cards);
+        this.random = random;
+        this.discarded = cards.toArray();
+        this.discardedCount = discarded.length;
+        this.available = new Object[discarded.length];
     }
 
     /**
@@ -57,7 +97,11 @@ public class AutoShufflingStack<T> implements CardStack<T> {
         if (card == null) {
             throw new NullPointerException("Card cannot be null");
         }
-        discarded.add(card);
+        if (discardedCount == discarded.length) {
+            /* More cards than the initial ones, make room for them */
+            discarded = Arrays.copyOf(discarded, discarded.length * 2);
+        }
+        discarded[discardedCount++] = card;
     }
 
     /**
@@ -68,8 +112,12 @@ public class AutoShufflingStack<T> implements CardStack<T> {
      * @throws NoSuchElementException if the stack is empty
      */
     @Override
+    @SuppressWarnings("unchecked")
     public T draw() {
-        if (available.isEmpty()) shuffle();
-        return available.pop();
+        if (availableCount == 0) shuffle();
+        if (availableCount == 0) throw new NoSuchElementException("There are no cards in the stack");
+        T card = (T) available[--availableCount];
+        available[availableCount] = null; /* Do not keep a reference to the drawn card */
+        return card;
     }
 }
@@ -4,6 +4,8 @@ import it.polimi.deib.se2019.sanp4.adrenaline.common.modelviews.*;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.observer.Observable;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.observer.Observer;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.*;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.DeltaEncoder;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.ModelTransaction;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.board.Board;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.board.Square;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.items.ammo.AmmoCard;
@@ -70,6 +72,11 @@ public class Match extends Observable<ModelUpdate> implements Observer<ModelUpda
      */
     private List<Player> players;
 
+    /**
+     * Players participating in the match, by name
+     */
+    private Map<String, Player> playersByName = Collections.emptyMap();
+
     /**
      * The killshots track
      */
@@ -80,6 +87,11 @@ public class Match extends Observable<ModelUpdate> implements Observer<ModelUpda
      */
     private boolean frenzy;
 
+    /**
+     * Keeps the version of the match and generates its delta updates
+     */
+    private final DeltaEncoder deltas = new DeltaEncoder(DeltaUpdate.Entity.MATCH, null, null);
+
     /**
      * Creates a new match for the provided players.
      * It initializes the card stacks using the provided ones.
@@ -97,11 +109,28 @@ public class Match extends Observable<ModelUpdate> implements Observer<ModelUpda
     }
 
     /**
-     * Generates the {@link MatchView} of the match
+     * Generates the {@link MatchView} of the match, labelled with its current version
      *
      * @return the match view
      */
     public MatchView generateView() {
+        return deltas.label(createView());
+    }
+
+    /**
+     * Notifies the observers with the fields of the match which have changed.
+     * If a {@link ModelTransaction} is open, the update is sent when it is committed
+     */
+    private void notifyChange() {
+        ModelTransaction.notifyChange(deltas, () -> notifyObservers(deltas.encode(createView())));
+    }
+
+    /**
+     * Creates the {@link MatchView} of the match
+     *
+     * @return the match view
+     */
+    private MatchView createView() {
         MatchView view = new MatchView();
         view.setKillshotsTrack(getKillshotsTrack().stream().map(Player::getName).collect(Collectors.toList()));
         view.setTotalSkulls(skulls);
@@ -239,7 +268,7 @@ public class Match extends Observable<ModelUpdate> implements Observer<ModelUpda
      */
     public void goFrenzy() {
         frenzy = true;
-        this.notifyObservers(new MatchUpdate(this.generateView()));
+        notifyChange();
     }
 
     /**
@@ -255,7 +284,7 @@ public class Match extends Observable<ModelUpdate> implements Observer<ModelUpda
         if (killshotsTrack.size() < skulls) {
             killshotsTrack.add(player);
         }
-        this.notifyObservers(new MatchUpdate(this.generateView()));
+        notifyChange();
     }
 
     /**
@@ -290,8 +319,7 @@ public class Match extends Observable<ModelUpdate> implements Observer<ModelUpda
         if (playerName == null) {
             return null;
         }
-        Optional<Player> player = players.stream().filter(p -> p.getName().equals(playerName)).findFirst();
-        return player.orElse(null);
+        return playersByName.get(playerName);
     }
 
     /**
@@ -407,6 +435,9 @@ public class Match extends Observable<ModelUpdate> implements Observer<ModelUpda
         }
         this.players = players;
         this.players.forEach(player -> player.addObserver(this));
+        Map<String, Player> byName = new HashMap<>();
+        players.forEach(player -> byName.put(player.getName(), player));
+        playersByName = byName;
     }
 
     void setKillshotsTrack(List<Player> killshotsTrack) {
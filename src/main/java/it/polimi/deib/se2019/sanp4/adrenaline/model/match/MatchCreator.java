@@ -17,6 +17,7 @@ import it.polimi.deib.se2019.sanp4.adrenaline.model.player.PlayerColor;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 
 /**
@@ -74,6 +75,29 @@ public class MatchCreator {
      *                                  cannot be loaded from file anymore
      */
     public static Match createMatch(Set<String> usernames, MatchConfiguration configuration) {
+        return createMatch(usernames, configuration, null);
+    }
+
+    /**
+     * Creates a new match in its initial state, according to provided configuration, reusing the card stacks
+     * (and the board, if it has the same id) of a skeleton created in advance with {@link #createSkeleton(Integer)}.
+     * The rest is the same as {@link #createMatch(Set, MatchConfiguration)}
+     *
+     * @param usernames     set with the names of the players who will play in the match
+     * @param configuration configuration of the match, usually obtained by first player,
+     *                      which is supposed to be valid
+     * @param skeleton      the skeleton of the match, {@code null} to create everything now
+     * @return the created match
+     * @throws NullPointerException     if null usernames or configuration are provided
+     * @throws IllegalArgumentException if there are too many players (more than the colors),
+     *                                  if the provided skulls are negative
+     *                                  if the board id provided is invalid
+     * @throws IllegalStateException    if the skeleton has already been used for another match
+     * @throws UncheckedIOException     if a weapon card that was correctly loaded on startup
+     *                                  cannot be loaded from file anymore
+     */
+    public static Match createMatch(Set<String> usernames, MatchConfiguration configuration,
+                                    MatchSkeleton skeleton) {
         /* Check parameters */
         if (usernames == null || configuration == null) {
             throw new NullPointerException("Found null parameters");
@@ -82,31 +106,71 @@ public class MatchCreator {
             throw new IllegalArgumentException(String.format("Too many players (%d)", usernames.size()));
         }
 
-        /* Create the game board */
-        Board board = createBoard(configuration.getBoardId());
+        /* Create the game board and load the card stacks, if they have not been prepared */
+        if (skeleton == null) {
+            skeleton = createSkeleton(configuration.getBoardId());
+        }
+        skeleton.bind();
+        Board board = Integer.valueOf(configuration.getBoardId()).equals(skeleton.getBoardId()) ?
+                skeleton.getBoard() : createBoard(configuration.getBoardId());
 
         /* Create the list of players from usernames */
         List<Player> players = createPlayers(usernames);
 
-        /* Now load the card stacks */
-        CardStack<AmmoCard> ammoCardCardStack =
-                new AutoShufflingStack<>(AmmoCardCreator.getAmmoCardDeck());
-        CardStack<WeaponCard> weaponCardCardStack =
-                new AutoShufflingStack<>(createWeaponCardsDeck());
-        CardStack<PowerupCard> powerUpCardCardStack =
-                new AutoShufflingStack<>(PowerupCreator.createPowerupDeck());
-
         /* Finally create the match */
         Match match = new Match(configuration.getSkulls());
         match.setPlayers(players);
         match.setBoard(board);
-        match.setAmmoStack(ammoCardCardStack);
-        match.setPowerupStack(powerUpCardCardStack);
-        match.setWeaponStack(weaponCardCardStack);
+        match.setAmmoStack(skeleton.getAmmoStack());
+        match.setPowerupStack(skeleton.getPowerupStack());
+        match.setWeaponStack(skeleton.getWeaponStack());
 
         return match;
     }
 
+    /**
+     * Creates the part of a match which does not depend on its players, so that it can be done in advance.
+     * The same creators of {@link #createMatch(Set, MatchConfiguration)} are used
+     *
+     * @param boardId id of the board, {@code null} if it is not known yet
+     * @return the skeleton of a match
+     * @throws IllegalArgumentException if the board id provided is invalid
+     * @throws UncheckedIOException     if a weapon card that was correctly loaded on startup
+     *                                  cannot be loaded from file anymore
+     */
+    public static MatchSkeleton createSkeleton(Integer boardId) {
+        return createSkeleton(boardId, ThreadLocalRandom.current().nextLong());
+    }
+
+    /**
+     * Creates the part of a match which does not depend on its players, whose card stacks are shuffled
+     * with given seed: two skeletons with the same seed deal the cards in the same order
+     *
+     * @param boardId id of the board, {@code null} if it is not known yet
+     * @param seed    the seed of the shuffles of the card stacks
+     * @return the skeleton of a match
+     * @throws IllegalArgumentException if the board id provided is invalid
+     * @throws UncheckedIOException     if a weapon card that was correctly loaded on startup
+     *                                  cannot be loaded from file anymore
+     */
+    public static MatchSkeleton createSkeleton(Integer boardId, long seed) {
+        /* Create the game board */
+        Board board = boardId == null ? null : createBoard(boardId);
+
+        /* The stacks of the match share the same source of randomness */
+        Random random = new Random(seed);
+
+        /* Now load the card stacks */
+        CardStack<AmmoCard> ammoCardCardStack =
+                new AutoShufflingStack<>(AmmoCardCreator.getAmmoCardDeck(), random);
+        CardStack<WeaponCard> weaponCardCardStack =
+                new AutoShufflingStack<>(createWeaponCardsDeck(), random);
+        CardStack<PowerupCard> powerUpCardCardStack =
+                new AutoShufflingStack<>(PowerupCreator.createPowerupDeck(), random);
+
+        return new MatchSkeleton(boardId, board, seed, ammoCardCardStack, weaponCardCardStack, powerUpCardCardStack);
+    }
+
     /* ===== PRIVATE METHODS ===== */
 
     /**
@@ -0,0 +1,97 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.model.match;
+
+import it.polimi.deib.se2019.sanp4.adrenaline.model.board.Board;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.items.ammo.AmmoCard;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.items.powerup.PowerupCard;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.items.weapons.WeaponCard;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * The part of a match which does not depend on its players: the card stacks and, if its id is already known,
+ * the board.
+ * <p>
+ * Creating the card stacks and the board is the slowest part of the creation of a match, so skeletons can be created in advance, while the players are still
+ * waiting in the lobby, and bound to the players when the match starts
+ * (see {@link MatchCreator#createSkeleton(Integer)} and
+ * {@link MatchCreator#createMatch(java.util.Set, MatchConfiguration, MatchSkeleton)}).
+ * A skeleton can be bound to a single match.
+ * </p>
+ *
+ * @author Alessandro Fulgini
+ */
+public class MatchSkeleton {
+
+    /** Id of the board, {@code null} if the board has not been created */
+    private final Integer boardId;
+
+    private final Board board;
+
+    /** Seed of the shuffles of the card stacks */
+    private final long seed;
+
+    private final CardStack<AmmoCard> ammoStack;
+
+    private final CardStack<WeaponCard> weaponStack;
+
+    private final CardStack<PowerupCard> powerupStack;
+
+    /** Whether the skeleton has been bound to a match */
+    private final AtomicBoolean bound = new AtomicBoolean();
+
+    MatchSkeleton(Integer boardId, Board board, long seed, CardStack<AmmoCard> ammoStack,
+                  CardStack<WeaponCard> weaponStack, CardStack<PowerupCard> powerupStack) {
+        this.boardId = boardId;
+        this.board = board;
+        this.seed = seed;
+        this.ammoStack = ammoStack;
+        this.weaponStack = weaponStack;
+        this.powerupStack = powerupStack;
+    }
+
+    /**
+     * Returns the id of the board of this skeleton
+     *
+     * @return the id of the board, {@code null} if the board has not been created
+     */
+    public Integer getBoardId() {
+        return boardId;
+    }
+
+    /**
+     * Returns the seed of the shuffles of the card stacks of this skeleton, which can be used to recreate
+     * a match with the same cards (see {@link MatchCreator#createSkeleton(Integer, long)})
+     *
+     * @return the seed of the card stacks
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Marks this skeleton as bound to a match
+     *
+     * @throws IllegalStateException if the skeleton has already been bound
+     */
+    void bind() {
+        if (!bound.compareAndSet(false, true)) {
+            throw new IllegalStateException("The skeleton has already been used for another match");
+        }
+    }
+
+    Board getBoard() {
+        return board;
+    }
+
+    CardStack<AmmoCard> getAmmoStack() {
+        return ammoStack;
+    }
+
+    CardStack<WeaponCard> getWeaponStack() {
+        return weaponStack;
+    }
+
+    CardStack<PowerupCard> getPowerupStack() {
+        return powerupStack;
+    }
+}
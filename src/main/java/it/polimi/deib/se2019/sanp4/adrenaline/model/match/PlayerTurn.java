@@ -1,7 +1,9 @@
 package it.polimi.deib.se2019.sanp4.adrenaline.model.match;
 
 import it.polimi.deib.se2019.sanp4.adrenaline.common.modelviews.PlayerTurnView;
-import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.PlayerTurnUpdate;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.DeltaUpdate;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.DeltaEncoder;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.ModelTransaction;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.action.ActionCard;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.action.ActionEnum;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.player.Player;
@@ -44,6 +46,11 @@ public class PlayerTurn extends Observable {
      */
     private Set<Player> damagedPlayers;
 
+    /**
+     * Keeps the version of the turn and generates its delta updates
+     */
+    private final DeltaEncoder deltas;
+
     /**
      * Creates a new turn for the specified player.
      *
@@ -64,6 +71,7 @@ public class PlayerTurn extends Observable {
         } else {
             state = PlayerTurnState.SELECTING;
         }
+        deltas = new DeltaEncoder(DeltaUpdate.Entity.PLAYER_TURN, player.getName(), null);
     }
 
     /**
@@ -124,7 +132,7 @@ public class PlayerTurn extends Observable {
         }
         if (this.state != state) {
             this.state = state;
-            this.notifyObservers(new PlayerTurnUpdate(this.generateView()));
+            notifyChange();
         }
     }
 
@@ -177,11 +185,28 @@ public class PlayerTurn extends Observable {
     }
 
     /**
-     * Generates the {@link PlayerTurnView} of the player turn
+     * Generates the {@link PlayerTurnView} of the player turn, labelled with its current version
      *
      * @return the player turn view
      */
     public PlayerTurnView generateView() {
+        return deltas.label(createView());
+    }
+
+    /**
+     * Notifies the observers with the fields of the turn which have changed.
+     * If a {@link ModelTransaction} is open, the update is sent when it is committed
+     */
+    private void notifyChange() {
+        ModelTransaction.notifyChange(deltas, () -> notifyObservers(deltas.encode(createView())));
+    }
+
+    /**
+     * Creates the {@link PlayerTurnView} of the player turn
+     *
+     * @return the player turn view
+     */
+    private PlayerTurnView createView() {
         PlayerTurnView view = new PlayerTurnView(this.getTurnOwner().getName());
         view.setRemainingActions(this.getRemainingActions());
         view.setState(this.getTurnState());
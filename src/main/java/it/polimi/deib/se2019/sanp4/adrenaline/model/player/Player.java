@@ -8,7 +8,9 @@ import it.polimi.deib.se2019.sanp4.adrenaline.common.observer.Observable;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.observer.Observer;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.ActionCardUpdate;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.ModelUpdate;
-import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.PlayerUpdate;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.DeltaUpdate;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.DeltaEncoder;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.ModelTransaction;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.action.ActionCard;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.action.ActionCardCreator;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.action.ActionCardEnum;
@@ -104,9 +106,14 @@ public class Player extends Observable<ModelUpdate> implements Observer<ModelUpd
     private List<PowerupCard> powerups;
 
     /**
-     * Ammo cubes for each color
+     * The colors of the ammo cubes, cached since {@link AmmoCube#values()} creates a new array at each call
      */
-    private Map<AmmoCube, Integer> ammo;
+    private static final AmmoCube[] AMMO_CUBES = AmmoCube.values();
+
+    /**
+     * Ammo cubes for each color, indexed by the ordinal of the color
+     */
+    private final int[] ammo = new int[AMMO_CUBES.length];
 
     /**
      * Color of the game character chosen by this player
@@ -123,6 +130,11 @@ public class Player extends Observable<ModelUpdate> implements Observer<ModelUpd
      */
     private PlayerState state;
 
+    /**
+     * Versions of the player and differences between them, sent to the clients
+     */
+    private final DeltaEncoder deltas;
+
     /**
      * Constructs a player who is ready to play: sets counters to zero and sets initial ammo cubes.
      *
@@ -141,6 +153,7 @@ public class Player extends Observable<ModelUpdate> implements Observer<ModelUpd
         this.name = name;
         this.actionCard = actionCard;
         this.color = color;
+        this.deltas = new DeltaEncoder(DeltaUpdate.Entity.PLAYER, name, null);
 
         /* Initialise counters */
         score = performedKillshots = performedOverkills = 0;
@@ -155,10 +168,7 @@ public class Player extends Observable<ModelUpdate> implements Observer<ModelUpd
         powerups = new ArrayList<>();
 
         /* Ammo */
-        ammo = new EnumMap<>(AmmoCube.class);
-        for (int i = 0; i < AmmoCube.values().length; i++) {
-            ammo.put(AmmoCube.values()[i], INITIAL_AMMO);
-        }
+        Arrays.fill(ammo, INITIAL_AMMO);
 
         /* Set default state */
         state = PlayerState.ONLINE;
@@ -195,21 +205,21 @@ public class Player extends Observable<ModelUpdate> implements Observer<ModelUpd
             /* Here we search for a cube in the player wallet
             We first filter out colors with no cubes,
             then we retrieve a cube from the remaining ones*/
-            Optional<Map.Entry<AmmoCube, Integer>> availableAmmo = this.ammo.entrySet()
-                    .stream()
-                    .filter(entry -> {
-                        Integer userAmmo = entry.getValue();
-                        Integer pendingAmmo = convertedAmmo.getOrDefault(entry.getKey(), 0);
-                        // Here we check that the player has enough ammo to pay for the pending ammo and for the generic cube
-                        return userAmmo != null && userAmmo - pendingAmmo > 0;
-                    })
-                    .findAny();
+            AmmoCube availableAmmo = null;
+            for (AmmoCube cube : AMMO_CUBES) {
+                int pendingAmmo = convertedAmmo.getOrDefault(cube, 0);
+                // Here we check that the player has enough ammo to pay for the pending ammo and for the generic cube
+                if (ammo[cube.ordinal()] - pendingAmmo > 0) {
+                    availableAmmo = cube;
+                    break;
+                }
+            }
             // We check whether that cube is really present, if not we throw an exception
-            if (!availableAmmo.isPresent()) {
+            if (availableAmmo == null) {
                 throw new NotEnoughAmmoException();
             }
             // The user can pay the cost, so we increase the corresponding counter
-            convertedAmmo.merge(availableAmmo.get().getKey(), 1, Integer::sum);
+            convertedAmmo.merge(availableAmmo, 1, Integer::sum);
             genericCount--;
         }
         // Here we successfully converted the cubes and the player is able to pay the cost
@@ -236,7 +246,7 @@ public class Player extends Observable<ModelUpdate> implements Observer<ModelUpd
             throw new IllegalArgumentException("Score cannot be incremented by negative amount");
         }
         score += points;
-        notifyObservers(new PlayerUpdate(this.generateView()));
+        notifyChange();
     }
 
     /**
@@ -368,7 +378,7 @@ public class Player extends Observable<ModelUpdate> implements Observer<ModelUpd
         }
         weapons.add(weapon);
         weapon.addObserver(this);
-        notifyObservers(new PlayerUpdate(this.generateView()));
+        notifyChange();
     }
 
     /**
@@ -388,7 +398,7 @@ public class Player extends Observable<ModelUpdate> implements Observer<ModelUpd
             throw new CardNotFoundException(String.format("The weapon \"%s\" does not belong to the user", weaponId));
         }
         weapons.remove(weaponCard.get());
-        notifyObservers(new PlayerUpdate(this.generateView()));
+        notifyChange();
         weaponCard.get().removeObserver(this);
         weaponCard.get().getState().reset(weaponCard.get()); // Resets the weapon card
         return weaponCard.get();
@@ -411,7 +421,7 @@ public class Player extends Observable<ModelUpdate> implements Observer<ModelUpd
         }
 
         weapons.remove(weapon);
-        notifyObservers(new PlayerUpdate(this.generateView()));
+        notifyChange();
         weapon.removeObserver(this);
         weapon.getState().reset(weapon);
         return weapon;
@@ -442,7 +452,7 @@ public class Player extends Observable<ModelUpdate> implements Observer<ModelUpd
             throw new FullCapacityException(MAX_POWERUPS);
         }
         powerups.add(powerup);
-        notifyObservers(new PlayerUpdate(this.generateView()));
+        notifyChange();
     }
 
     /**
@@ -460,7 +470,7 @@ public class Player extends Observable<ModelUpdate> implements Observer<ModelUpd
             throw new IllegalStateException("User does not have the powerup card");
         }
         powerups.remove(powerup);
-        notifyObservers(new PlayerUpdate(this.generateView()));
+        notifyChange();
         return powerup;
     }
 
@@ -478,12 +488,11 @@ public class Player extends Observable<ModelUpdate> implements Observer<ModelUpd
             throw new IllegalArgumentException("Cubes amounts cannot be negative");
         }
         ammo.forEach((key, value) -> {
-            Integer playerAmmo = this.ammo.get(key);
-            playerAmmo = playerAmmo == null ? 0 : playerAmmo;
+            int playerAmmo = this.ammo[key.ordinal()];
             playerAmmo = playerAmmo + value > MAX_AMMO_CUBES ? MAX_AMMO_CUBES : playerAmmo + value; // Check whether the final amount exceeds maximum capacity
-            this.ammo.put(key, playerAmmo);
+            this.ammo[key.ordinal()] = playerAmmo;
         });
-        notifyObservers(new PlayerUpdate(this.generateView()));
+        notifyChange();
     }
 
     /**
@@ -492,11 +501,10 @@ public class Player extends Observable<ModelUpdate> implements Observer<ModelUpd
      * @param ammoCube The ammo cube to be added, not null
      */
     public void addAmmo(AmmoCube ammoCube) {
-        int currentCount = ammo.getOrDefault(ammoCube, 0);
-        if (currentCount < MAX_AMMO_CUBES) {
-            ammo.put(ammoCube, currentCount + 1);
+        if (ammo[ammoCube.ordinal()] < MAX_AMMO_CUBES) {
+            ammo[ammoCube.ordinal()]++;
         }
-        notifyObservers(new PlayerUpdate(this.generateView()));
+        notifyChange();
     }
 
     /**
@@ -516,14 +524,13 @@ public class Player extends Observable<ModelUpdate> implements Observer<ModelUpd
         for (Map.Entry<AmmoCube, Integer> entry : ammo.entrySet()) {
             AmmoCube key = entry.getKey();
             Integer value = entry.getValue();
-            Integer playerAmmo = this.ammo.get(key);
-            playerAmmo = playerAmmo == null ? 0 : playerAmmo;
+            int playerAmmo = this.ammo[key.ordinal()];
             if (playerAmmo - value < 0) {
                 throw new NotEnoughAmmoException();
             }
-            this.ammo.put(key, playerAmmo - value);
+            this.ammo[key.ordinal()] = playerAmmo - value;
         }
-        notifyObservers(new PlayerUpdate(this.generateView()));
+        notifyChange();
     }
 
     /**
@@ -546,7 +553,11 @@ public class Player extends Observable<ModelUpdate> implements Observer<ModelUpd
      * @return A map containing the count of each ammo cube
      */
     public Map<AmmoCube, Integer> getAmmo() {
-        return new EnumMap<>(ammo);
+        Map<AmmoCube, Integer> cubes = new EnumMap<>(AmmoCube.class);
+        for (AmmoCube cube : AMMO_CUBES) {
+            cubes.put(cube, ammo[cube.ordinal()]);
+        }
+        return cubes;
     }
 
     /**
@@ -590,7 +601,7 @@ public class Player extends Observable<ModelUpdate> implements Observer<ModelUpd
         }
         if (this.state != state) {
             this.state = state;
-            this.notifyObservers(new PlayerUpdate(generateView()));
+            notifyChange();
         }
 
     }
@@ -604,19 +615,47 @@ public class Player extends Observable<ModelUpdate> implements Observer<ModelUpd
         return color;
     }
 
+    /**
+     * Returns the slot of the player in the match, i.e. a small index which can be used to keep per-player
+     * values in arrays. The players of a match have different colors, so the slot is the ordinal of the color
+     * and ranges from 0 to the number of colors (excluded)
+     *
+     * @return the slot of the player
+     */
+    public int getSlot() {
+        return color.ordinal();
+    }
+
     @Override
     public void notifyObservers(ModelUpdate update) {
         super.notifyObservers(update);
     }
 
     /**
-     * Generates the {@link PlayerView} of the player
+     * Generates the {@link PlayerView} of the player, labelled with its current version
      *
      * @return the player view
      */
     public PlayerView generateView() {
+        return deltas.label(createView());
+    }
+
+    /**
+     * Notifies the observers with the fields of the player which have changed.
+     * If a {@link ModelTransaction} is open, the update is sent when it is committed
+     */
+    private void notifyChange() {
+        ModelTransaction.notifyChange(deltas, () -> notifyObservers(deltas.encode(createView())));
+    }
+
+    /**
+     * Creates the {@link PlayerView} of the player, without labelling it with a version
+     *
+     * @return the player view
+     */
+    private PlayerView createView() {
         PlayerView view = new PlayerView(name, color);
-        view.setAmmo(ammo);
+        view.setAmmo(getAmmo());
         view.setWeapons(weapons);
         view.setPowerups(powerups);
         view.setState(state);
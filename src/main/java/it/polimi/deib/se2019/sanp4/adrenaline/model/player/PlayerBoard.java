@@ -4,13 +4,12 @@ import com.fasterxml.jackson.annotation.JsonBackReference;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.modelviews.PlayerBoardView;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.observer.Observable;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.DeltaUpdate;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.ModelUpdate;
-import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.PlayerBoardUpdate;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.DeltaEncoder;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.ModelTransaction;
 
 import java.util.*;
-import java.util.stream.Collectors;
-
-import static java.util.Map.Entry.comparingByValue;
 
 /**
  * Holds damage, marks and deaths of a certain player.
@@ -45,14 +44,25 @@ public class PlayerBoard extends Observable<ModelUpdate> {
     private static final String NULL_PLAYER_ERROR = "Player cannot be null";
 
     /**
-     * Damages received by other players
+     * Damages received by other players, in chronological order, as slots in {@link #shooters}.
+     * Only the first {@link #damageCount} are valid
+     */
+    private final byte[] damages = new byte[MAX_DAMAGES];
+
+    /**
+     * Number of damage tokens on the board
      */
-    private List<Player> damages;
+    private int damageCount;
 
     /**
-     * Number of marks received by each player
+     * Number of marks received by each player, by slot in {@link #shooters}
      */
-    private Map<Player, Integer> marks;
+    private byte[] marks;
+
+    /**
+     * The players who damaged or marked this board, each one at its slot (see {@link PlayerSlots})
+     */
+    private final PlayerSlots shooters = new PlayerSlots();
 
     /**
      * Number of times the player died, either by killshot or overkill
@@ -70,6 +80,12 @@ public class PlayerBoard extends Observable<ModelUpdate> {
      */
     private PlayerBoardState state;
 
+    /**
+     * Versions of the player board and differences between them, sent to the clients
+     */
+    @JsonIgnore
+    private final DeltaEncoder deltas;
+
     /**
      * Constructs a player board with no damages, marks or deaths and in regular state,
      * suitable for the start of the match.
@@ -80,11 +96,11 @@ public class PlayerBoard extends Observable<ModelUpdate> {
         if (player == null) {
             throw new NullPointerException(NULL_PLAYER_ERROR);
         }
-        damages = new ArrayList<>();
-        marks = new HashMap<>();
+        marks = new byte[shooters.capacity()];
         deaths = 0;
         this.player = player;
         state = new RegularPlayerBoardState();
+        deltas = new DeltaEncoder(DeltaUpdate.Entity.PLAYER_BOARD, player.getName(), null);
     }
 
     /**
@@ -101,7 +117,7 @@ public class PlayerBoard extends Observable<ModelUpdate> {
      */
     public void addDeath() {
         deaths += 1;
-        this.notifyObservers(new PlayerBoardUpdate(this.generateView(), player.getName()));
+        notifyChange();
     }
 
     /**
@@ -119,7 +135,11 @@ public class PlayerBoard extends Observable<ModelUpdate> {
      * @return a list of players representing the suffered damages, in chronological order
      */
     public List<Player> getDamages() {
-        return new ArrayList<>(damages);
+        List<Player> list = new ArrayList<>(damageCount);
+        for (int i = 0; i < damageCount; i++) {
+            list.add(shooters.get(damages[i]));
+        }
+        return list;
     }
 
     /**
@@ -128,7 +148,7 @@ public class PlayerBoard extends Observable<ModelUpdate> {
      * @return number of damage tokens on this board
      */
     public int getDamageCount() {
-        return damages.size();
+        return damageCount;
     }
 
     /**
@@ -148,16 +168,17 @@ public class PlayerBoard extends Observable<ModelUpdate> {
         if (count < 0) {
             throw new IllegalArgumentException("Number of damage tokens cannot be negative");
         }
+        int slot = slotOf(shooter, true);
         /* Turn marks to damage */
-        count += getMarksByPlayer(shooter);
+        count += marks[slot];
         /* Remove those marks */
-        marks.remove(shooter);
+        marks[slot] = 0;
 
-        while (damages.size() < MAX_DAMAGES && count > 0) {
-            damages.add(shooter);
+        while (damageCount < MAX_DAMAGES && count > 0) {
+            damages[damageCount++] = (byte) slot;
             count--;
         }
-        notifyObservers(new PlayerBoardUpdate(generateView(), player.getName()));
+        notifyChange();
     }
 
     /**
@@ -176,11 +197,12 @@ public class PlayerBoard extends Observable<ModelUpdate> {
         if (count < 0) {
             throw new IllegalArgumentException("Number of marks cannot be negative");
         }
-        int playerMarks = getMarksByPlayer(shooter) + count;
+        int slot = slotOf(shooter, true);
+        int playerMarks = marks[slot] + count;
         // If I reached the maximum amount of marks, cap the value to it
         playerMarks = playerMarks > MAX_MARKS_PER_PLAYER ? MAX_MARKS_PER_PLAYER : playerMarks;
-        marks.put(shooter, playerMarks);
-        this.notifyObservers(new PlayerBoardUpdate(this.generateView(), player.getName()));
+        marks[slot] = (byte) playerMarks;
+        notifyChange();
     }
 
     /**
@@ -194,8 +216,23 @@ public class PlayerBoard extends Observable<ModelUpdate> {
         if (player == null) {
             throw new NullPointerException(NULL_PLAYER_ERROR);
         }
-        Integer markCount = marks.get(player);
-        return markCount == null ? 0 : markCount;
+        int slot = slotOf(player, false);
+        return slot < 0 ? 0 : marks[slot];
+    }
+
+    /**
+     * Finds the slot of given player in {@link #shooters}, making room for its marks if the slots grow
+     *
+     * @param shooter  the player to be found, not null
+     * @param register whether the player should be added if not present yet
+     * @return the slot of the player, -1 if the player is not present and has not been added
+     */
+    private int slotOf(Player shooter, boolean register) {
+        int slot = shooters.slotOf(shooter, register);
+        if (marks.length < shooters.capacity()) {
+            marks = Arrays.copyOf(marks, shooters.capacity());
+        }
+        return slot;
     }
 
     /**
@@ -204,10 +241,10 @@ public class PlayerBoard extends Observable<ModelUpdate> {
      * @return player who performed the killshot, null otherwise
      */
     public Player getKillshot() {
-        if (damages.size() < KILLSHOT_DAMAGE) {
+        if (damageCount < KILLSHOT_DAMAGE) {
             return null;
         }
-        return damages.get(KILLSHOT_DAMAGE - 1);
+        return shooters.get(damages[KILLSHOT_DAMAGE - 1]);
     }
 
     /**
@@ -217,10 +254,10 @@ public class PlayerBoard extends Observable<ModelUpdate> {
      * @return player who performed the overkill, null otherwise
      */
     public Player getOverkill() {
-        if (damages.size() < OVERKILL_DAMAGE) {
+        if (damageCount < OVERKILL_DAMAGE) {
             return null;
         }
-        return damages.get(OVERKILL_DAMAGE - 1);
+        return shooters.get(damages[OVERKILL_DAMAGE - 1]);
     }
 
     /**
@@ -233,55 +270,44 @@ public class PlayerBoard extends Observable<ModelUpdate> {
      */
     @JsonIgnore /* Tell Jackson that this is not a property */
     public Map<Player, Integer> getPlayerScores() {
-        // We create a map holding the count of performed damages
-        Map<Player, Integer> damageCounts = new HashMap<>();
         // We create a map holding the score of each player
         Map<Player, Integer> playerScores = new HashMap<>();
 
-        if (damages.isEmpty()) {
+        if (damageCount == 0) {
             return playerScores;
         }
 
-        // For each shooter, increase its damage count by 1
-        damages.forEach(shooter -> damageCounts.merge(shooter, 1, Integer::sum));
-
-        Set<Player> playersToKeep = new HashSet<>();
-
-        /* ===== DRAWS MANAGEMENT ===== */
-        // We have to determine whether there are draws and resolve them
-        damageCounts.values().forEach(count -> {
-            List<Player> playersWithSameDamageCount = damageCounts.entrySet()
-                    .stream()
-                    // Get all the players with the same count of damages
-                    .filter(entry -> entry.getValue().equals(count))
-                    // We keep only the player object of each entry
-                    .map(Map.Entry::getKey)
-                    .collect(Collectors.toList());
-
-            // We determine which one shoot first (it always exists)
-            // If there are no draws, we just get the only shooter
-            Optional<Player> firstShooter = damages.stream().filter(playersWithSameDamageCount::contains).findFirst();
-
-            // We add the first shooter to the list of players to keep
-            firstShooter.ifPresent(playersToKeep::add);
-        });
+        Iterator<Integer> scores = state.getDamageScores(this);
+        Iterator<Integer> extraPoints = state.getExtraPoints();
 
-        // Then we keep only the selected players
-        damageCounts.entrySet().removeIf(damageEntry -> !(playersToKeep.contains(damageEntry.getKey())));
+        // Count of performed damages, points and order of first blood, by slot
+        int[] damageCounts = new int[shooters.capacity()];
+        int[] points = new int[shooters.capacity()];
+        int[] order = new int[shooters.capacity()];
+        int shooterCount = 0;
+
+        /* Single pass on the damages: count them, record who shot first and assign extra points based on position */
+        for (int i = 0; i < damageCount; i++) {
+            int slot = damages[i];
+            if (damageCounts[slot]++ == 0) {
+                order[shooterCount++] = slot;
+            }
+            points[slot] += extraPoints.next();
+        }
 
         /* ===== SCORES ASSIGNMENT ===== */
-        // We get the iterator to assign scores
-        Iterator<Integer> scores = state.getDamageScores(this);
-        // We sort damages by value in decreasing order
-        // Then for each entry we retrieve the points and put in the output map
-        damageCounts.entrySet()
-                .stream()
-                .sorted(Collections.reverseOrder(comparingByValue()))
-                .forEachOrdered(playerDamageEntry -> playerScores.put(playerDamageEntry.getKey(), scores.next()));
-
-        /* Assign extra points based on position */
-        Iterator<Integer> extraPoints = state.getExtraPoints();
-        damages.forEach(shooter -> playerScores.merge(shooter, extraPoints.next(), Integer::sum));
+        // Shooters by decreasing damage, without the ones who lost a draw
+        int ranked = ScoreRanking.rank(order, shooterCount, damageCounts);
+        for (int i = 0; i < ranked; i++) {
+            points[order[i]] += scores.next();
+        }
+
+        // Every shooter is in the map, even the ones who got no points
+        for (int slot = 0; slot < shooters.capacity(); slot++) {
+            if (damageCounts[slot] > 0) {
+                playerScores.put(shooters.get(slot), points[slot]);
+            }
+        }
 
         return playerScores;
     }
@@ -294,14 +320,14 @@ public class PlayerBoard extends Observable<ModelUpdate> {
      */
     public void updateDeathsAndReset() throws PlayerException {
 
-        if (damages.size() < KILLSHOT_DAMAGE) {
+        if (damageCount < KILLSHOT_DAMAGE) {
             throw new PlayerException("The player is not dead");
         }
 
         addDeath();
-        damages = new ArrayList<>();
-        marks = new HashMap<>();
-        this.notifyObservers(new PlayerBoardUpdate(this.generateView(), player.getName()));
+        damageCount = 0;
+        Arrays.fill(marks, (byte) 0);
+        notifyChange();
     }
 
     /**
@@ -311,11 +337,11 @@ public class PlayerBoard extends Observable<ModelUpdate> {
      * @throws PlayerException if there are damages on the board
      */
     public void turnFrenzy() throws PlayerException {
-        if (!damages.isEmpty()) {
+        if (damageCount > 0) {
             throw new PlayerException("The player is damaged");
         }
         state = new FrenzyPlayerBoardState(); // Change player board
-        this.notifyObservers(new PlayerBoardUpdate(this.generateView(), player.getName()));
+        notifyChange();
     }
 
     /**
@@ -324,7 +350,7 @@ public class PlayerBoard extends Observable<ModelUpdate> {
      * @return {@code true} if the player is dead, {@code false} otherwise
      */
     public boolean isDead() {
-        return damages.size() >= KILLSHOT_DAMAGE;
+        return damageCount >= KILLSHOT_DAMAGE;
     }
 
     /**
@@ -337,17 +363,40 @@ public class PlayerBoard extends Observable<ModelUpdate> {
     }
 
     /**
-     * Generates the {@link PlayerBoardView} of the player board
+     * Generates the {@link PlayerBoardView} of the player board, labelled with its current version
      *
      * @return the player board view
      */
     public PlayerBoardView generateView() {
+        return deltas.label(createView());
+    }
+
+    /**
+     * Notifies the observers with the fields of the player board which have changed.
+     * If a {@link ModelTransaction} is open, the update is sent when it is committed
+     */
+    private void notifyChange() {
+        ModelTransaction.notifyChange(deltas, () -> notifyObservers(deltas.encode(createView())));
+    }
+
+    /**
+     * Creates the {@link PlayerBoardView} of the player board, without labelling it with a version
+     *
+     * @return the player board view
+     */
+    private PlayerBoardView createView() {
         PlayerBoardView view = new PlayerBoardView();
-        view.setDamages(this.getDamages().stream()
-                .map(Player::getName)
-                .collect(Collectors.toList()));
+        List<String> damageNames = new ArrayList<>(damageCount);
+        for (int i = 0; i < damageCount; i++) {
+            damageNames.add(shooters.get(damages[i]).getName());
+        }
+        view.setDamages(damageNames);
         view.setDeaths(deaths);
-        view.setMarks(marks.values().stream().reduce(Integer::sum).orElse(0));
+        int markCount = 0;
+        for (byte playerMarks : marks) {
+            markCount += playerMarks;
+        }
+        view.setMarks(markCount);
         view.setState(state.toString());
         return view;
     }
@@ -0,0 +1,67 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.model.player;
+
+import java.util.Arrays;
+
+/**
+ * Assigns to each player of a group a slot, i.e. an index which can be used to keep per-player values in arrays.
+ * <p>
+ * Each player is put at its {@link Player#getSlot() slot}, so that finding a player takes a single access.
+ * Players with the same slot (which can only be created outside of a match) take the next free one,
+ * and when all the following slots are taken the table grows: the arrays indexed by these slots must be
+ * at least {@link #capacity()} long.
+ * Both the player boards and the scoring of the killshot track resolve slots this way, so they never
+ * merge two different players.
+ * </p>
+ *
+ * @author Alessandro Fulgini
+ */
+public class PlayerSlots {
+
+    /** The players, each one at its slot */
+    private Player[] players = new Player[PlayerColor.values().length];
+
+    /**
+     * Finds the slot of given player, starting from the slot of the player
+     *
+     * @param player   the player to be found, not null
+     * @param register whether the player should be added if not present yet
+     * @return the slot of the player, -1 if the player is not present and has not been added
+     */
+    public int slotOf(Player player, boolean register) {
+        /* Players are never removed, so the first free slot means that the player is not present */
+        for (int slot = player.getSlot(); slot < players.length; slot++) {
+            if (players[slot] == player) return slot;
+            if (players[slot] == null) {
+                if (!register) return -1;
+                players[slot] = player;
+                return slot;
+            }
+        }
+        if (!register) return -1;
+
+        /* All the following slots are taken, make room for the player */
+        int slot = players.length;
+        players = Arrays.copyOf(players, slot * 2);
+        players[slot] = player;
+        return slot;
+    }
+
+    /**
+     * Returns the player at given slot
+     *
+     * @param slot the slot, less than {@link #capacity()}
+     * @return the player, {@code null} if the slot is free
+     */
+    public Player get(int slot) {
+        return players[slot];
+    }
+
+    /**
+     * Returns the number of slots, which is greater than all the slots of the players
+     *
+     * @return the number of slots
+     */
+    public int capacity() {
+        return players.length;
+    }
+}
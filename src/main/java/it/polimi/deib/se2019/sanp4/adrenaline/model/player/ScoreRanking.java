@@ -0,0 +1,50 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.model.player;
+
+/**
+ * Ranks players for scoring, both on the player boards and on the killshot track.
+ * <p>
+ * Players are identified by their {@link Player#getSlot() slot} and the number of tokens (damages or kills)
+ * of each one is held in an array indexed by slot, so ranking needs neither maps nor sorting of entries.
+ * The rules are the same for all the scorings: the player with most tokens comes first and ties are won by
+ * the player who got the first token earlier, while the other players of the tie get no points.
+ * </p>
+ *
+ * @author Alessandro Fulgini
+ */
+public class ScoreRanking {
+
+    private ScoreRanking() {
+    }
+
+    /**
+     * Sorts the given slots by decreasing number of tokens, then drops the slots which lost a tie.
+     * The slots must be in the order in which they got their first token, since it is the one used to break
+     * the ties. The sorting happens in place, the ranked slots are the first ones of the array
+     *
+     * @param slots  the slots of the players, in order of first token, not null
+     * @param length the number of valid slots in the array
+     * @param counts the number of tokens of each player, indexed by slot, not null
+     * @return the number of ranked slots, i.e. the ones which will get points
+     */
+    public static int rank(int[] slots, int length, int[] counts) {
+        /* Insertion sort, which is stable: the slots are a handful and often already sorted */
+        for (int i = 1; i < length; i++) {
+            int slot = slots[i];
+            int j = i - 1;
+            while (j >= 0 && counts[slots[j]] < counts[slot]) {
+                slots[j + 1] = slots[j];
+                j--;
+            }
+            slots[j + 1] = slot;
+        }
+
+        /* Ties are adjacent now, only the first slot of each one is kept */
+        int ranked = 0;
+        for (int i = 0; i < length; i++) {
+            if (ranked == 0 || counts[slots[i]] != counts[slots[ranked - 1]]) {
+                slots[ranked++] = slots[i];
+            }
+        }
+        return ranked;
+    }
+}
@@ -0,0 +1,158 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.server;
+
+import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.*;
+
+/**
+ * Tells which updates are snapshots that can be conflated in an {@link OutboundQueue}.
+ * <p>
+ * An update is a snapshot if it contains the whole state of an entity of the model, so a newer
+ * snapshot of the same entity supersedes it. Two snapshots have the same key if and only if they
+ * refer to the same entity. Updates which carry events (e.g. a drawn card) or which depend on
+ * the previous state (e.g. {@link DeltaUpdate}) are never conflated with snapshots.
+ * However, a delta update has the key of its entity (see {@link #ofDelta(ModelUpdate)}), because it has to be
+ * dropped together with the snapshot it is based on, and it can be merged with the other delta updates
+ * of the same entity.
+ * </p>
+ *
+ * @author Alessandro Fulgini
+ */
+class ConflationKey implements ModelUpdateVisitor {
+
+    /** The key of the visited update */
+    private String key;
+
+    /** The key of the entity changed by the visited delta update */
+    private String deltaKey;
+
+    /** The visited update, if it is a delta update */
+    private DeltaUpdate delta;
+
+    private ConflationKey() {
+    }
+
+    /**
+     * Returns the key which identifies the snapshot contained in given update
+     *
+     * @param update the update, not null
+     * @return the key of the snapshot, {@code null} if the update cannot be conflated
+     */
+    static String of(ModelUpdate update) {
+        ConflationKey visitor = new ConflationKey();
+        update.accept(visitor);
+        return visitor.key;
+    }
+
+    /**
+     * Returns the key of the snapshots of the entity changed by given delta update
+     *
+     * @param update the update, not null
+     * @return the key of the snapshots of the entity, {@code null} if the update is not a delta update
+     */
+    static String ofDelta(ModelUpdate update) {
+        ConflationKey visitor = new ConflationKey();
+        update.accept(visitor);
+        return visitor.deltaKey;
+    }
+
+    /**
+     * Returns given update if it is a delta update, which can be merged with the next ones of the same entity
+     *
+     * @param update the update, not null
+     * @return the delta update, {@code null} if the update is not a delta update
+     */
+    static DeltaUpdate asDelta(ModelUpdate update) {
+        ConflationKey visitor = new ConflationKey();
+        update.accept(visitor);
+        return visitor.delta;
+    }
+
+    @Override
+    public void handle(LobbyUpdate update) {
+        key = "lobby";
+    }
+
+    @Override
+    public void handle(PlayerUpdate update) {
+        key = "player:" + update.getPlayer().getName();
+    }
+
+    @Override
+    public void handle(ActionCardUpdate update) {
+        key = "actionCard:" + update.getPlayer();
+    }
+
+    @Override
+    public void handle(SquareUpdate update) {
+        key = "square:" + update.getSquare().getLocation();
+    }
+
+    @Override
+    public void handle(MatchUpdate update) {
+        key = "match";
+    }
+
+    @Override
+    public void handle(PlayerBoardUpdate update) {
+        key = "playerBoard:" + update.getPlayer();
+    }
+
+    @Override
+    public void handle(DrawnPowerupUpdate update) {
+        key = null;
+    }
+
+    @Override
+    public void handle(DrawnWeaponUpdate update) {
+        key = null;
+    }
+
+    @Override
+    public void handle(InitialUpdate update) {
+        key = null;
+    }
+
+    @Override
+    public void handle(PlayerTurnUpdate update) {
+        key = "playerTurn";
+    }
+
+    @Override
+    public void handle(WeaponCardUpdate update) {
+        key = null;
+    }
+
+    @Override
+    public void handle(MatchOperationalStateUpdate update) {
+        key = "operationalState";
+    }
+
+    @Override
+    public void handle(LeaderboardUpdate update) {
+        key = "leaderboard";
+    }
+
+    @Override
+    public void handle(DeltaUpdate update) {
+        key = null;
+        delta = update;
+        switch (update.getEntity()) {
+            case PLAYER:
+                deltaKey = "player:" + update.getPlayer();
+                break;
+            case PLAYER_BOARD:
+                deltaKey = "playerBoard:" + update.getPlayer();
+                break;
+            case SQUARE:
+                deltaKey = "square:" + update.getLocation();
+                break;
+            case MATCH:
+                deltaKey = "match";
+                break;
+            case PLAYER_TURN:
+                deltaKey = "playerTurn";
+                break;
+            default:
+                deltaKey = null;
+        }
+    }
+}
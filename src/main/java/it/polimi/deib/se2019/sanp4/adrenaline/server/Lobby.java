@@ -1,7 +1,11 @@
 package it.polimi.deib.se2019.sanp4.adrenaline.server;
 
 import it.polimi.deib.se2019.sanp4.adrenaline.common.AdrenalineProperties;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.HashedWheelTimer;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.SerialExecutor;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.MatchPreferences;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.network.RemoteView;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket.codec.UpdateFrameCache;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.LobbyUpdate;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.player.PlayerColor;
 import it.polimi.deib.se2019.sanp4.adrenaline.view.ViewScene;
@@ -10,8 +14,12 @@ import java.io.IOException;
 import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -30,12 +38,34 @@ import java.util.logging.Logger;
  * If the number of waiting players coincides with the maximum amount of players in a match (number of player colors),
  * then the match starts immediately and the timer is stopped.
  * </p>
+ * <p>
+ * If the server has reached the maximum number of running matches, the new match is queued
+ * by the {@link MatchScheduler} and the Lobby tells its players their position in the queue
+ * (see {@link #notifyQueuedMatches(List)}).
+ * </p>
+ * <p>
+ * The Lobby never waits for its players: the remote calls (pings, scenes and updates) are made concurrently
+ * on a shared pool, in order for each player, and the pings have a short deadline
+ * (see {@code adrenaline.timeout.ping}, default 1000 ms).
+ * Only the players who miss the deadline are disconnected, so a slow client cannot hold the logins of the others.
+ * </p>
+ * <p>
+ * Each lobby gathers players with compatible preferences (see {@link Matchmaker}): its matches are
+ * started with those preferences, so the players are not asked for the configuration they already chose.
+ * A lobby created for some preferences is closed as soon as it has no players left (e.g. because they started
+ * their match): it stops running and refuses new players, which are sent to another lobby.
+ * </p>
  * @author Alessandro Fulgini
  */
 public class Lobby implements Runnable {
 
     private static final Logger logger = Logger.getLogger(Lobby.class.getName());
 
+    private static final long DEFAULT_PING_TIMEOUT = 1000;
+
+    /** Pool shared by all the lobbies to make the remote calls */
+    private static ExecutorService sharedCallExecutor;
+
     private boolean stayActive = true;
 
     /**
@@ -53,6 +83,11 @@ public class Lobby implements Runnable {
      */
     private int waitingTime;
 
+    /**
+     * Maximum time a player can take to answer a ping, in milliseconds (default 1000 ms)
+     */
+    private long pingTimeout;
+
     /**
      * This will contain the players coming from the server
      */
@@ -64,9 +99,39 @@ public class Lobby implements Runnable {
     private ConcurrentMap<String, RemoteView> waitingPlayers = new ConcurrentHashMap<>();
 
     /**
-     * Executor service tu run the timer
+     * The preferences shared by the players of this lobby
+     */
+    private final MatchPreferences preferences;
+
+    /**
+     * The executor which makes the remote calls
      */
-    private ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final Executor callExecutor;
+
+    /**
+     * Serial executors of the waiting players, so that the calls to each player are made in order
+     */
+    private final Map<RemoteView, Executor> playerExecutors = new ConcurrentHashMap<>();
+
+    /**
+     * Completes when the last check of the waiting players is over, {@code null} if none has been made
+     */
+    private CompletableFuture<Void> sweep;
+
+    /**
+     * Timer shared with the matches, it runs the countdown of the lobby
+     */
+    private HashedWheelTimer wheelTimer = HashedWheelTimer.getShared();
+
+    /**
+     * Called when this lobby has no players left and it is closed, {@code null} if the lobby never closes
+     */
+    private final Consumer<Lobby> closeListener;
+
+    /**
+     * Whether this lobby has been closed, it does not accept new players
+     */
+    private boolean closed;
 
     /**
      * The return value of the timer
@@ -77,12 +142,77 @@ public class Lobby implements Runnable {
      * Creates an empty lobby and reads the configured timeout
      */
     public Lobby() {
+        this(MatchPreferences.ANY);
+    }
+
+    /**
+     * Creates an empty lobby for the players with given preferences
+     *
+     * @param preferences the preferences shared by the players of this lobby, not null
+     */
+    public Lobby(MatchPreferences preferences) {
+        this(preferences, getSharedCallExecutor());
+    }
+
+    /**
+     * Creates an empty lobby which makes the remote calls on given executor
+     *
+     * @param callExecutor the executor which makes the remote calls, not null
+     */
+    Lobby(Executor callExecutor) {
+        this(MatchPreferences.ANY, callExecutor);
+    }
+
+    /**
+     * Creates an empty lobby for the players with given preferences, which makes the remote calls
+     * on given executor
+     *
+     * @param preferences  the preferences shared by the players of this lobby, not null
+     * @param callExecutor the executor which makes the remote calls, not null
+     */
+    Lobby(MatchPreferences preferences, Executor callExecutor) {
+        this(preferences, callExecutor, null);
+    }
+
+    /**
+     * Creates an empty lobby for the players with given preferences, which makes the remote calls
+     * on given executor and is closed as soon as it has no players left
+     *
+     * @param preferences   the preferences shared by the players of this lobby, not null
+     * @param callExecutor  the executor which makes the remote calls, not null
+     * @param closeListener called with this lobby when it is closed, {@code null} if the lobby never closes
+     */
+    Lobby(MatchPreferences preferences, Executor callExecutor, Consumer<Lobby> closeListener) {
+        if (preferences == null) throw new NullPointerException("Preferences cannot be null");
+        if (callExecutor == null) throw new NullPointerException("Executor cannot be null");
+        this.preferences = preferences;
+        this.callExecutor = callExecutor;
+        this.closeListener = closeListener;
         /* Assign default values, will be overwritten later */
         minPlayers = 3;
         waitingTime = 30;
+        pingTimeout = DEFAULT_PING_TIMEOUT;
         maxPlayers = PlayerColor.values().length;
     }
 
+    /**
+     * Returns the pool shared by all the lobbies to make the remote calls
+     *
+     * @return the shared pool
+     */
+    static synchronized ExecutorService getSharedCallExecutor() {
+        if (sharedCallExecutor == null) {
+            AtomicInteger count = new AtomicInteger();
+            /* A thread which is stuck in a call is not reused, so the pool must be elastic */
+            sharedCallExecutor = Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "adrenaline-lobby-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return sharedCallExecutor;
+    }
+
     /**
      * Inserts an incoming player that has just logged in in the incoming queue.
      * This method assumes that the server has checked that no player
@@ -90,9 +220,29 @@ public class Lobby implements Runnable {
      *
      * @param username username
      * @param view     player
+     * @return {@code false} if the lobby has been closed and the player has not been inserted
      */
-    public void insertPlayer(String username, RemoteView view) {
+    public synchronized boolean insertPlayer(String username, RemoteView view) {
+        if (closed) return false;
         incomingPlayers.add(new AbstractMap.SimpleEntry<>(username, view));
+        notifyAll(); /* Wakes up the lobby thread */
+        return true;
+    }
+
+    /**
+     * Waits for a player in the incoming queue and receives it, see {@link #receiveIncomingPlayer(Map.Entry)}.
+     * The lock is held from the queue to the waiting list, so the lobby never looks empty meanwhile
+     *
+     * @return {@code false} if the lobby has been closed while waiting
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    private synchronized boolean receiveNextPlayer() throws InterruptedException {
+        while (!closed && incomingPlayers.isEmpty()) {
+            wait();
+        }
+        if (closed) return false;
+        receiveIncomingPlayer(incomingPlayers.poll());
+        return true;
     }
 
     /**
@@ -100,8 +250,8 @@ public class Lobby implements Runnable {
      * When it gets the incoming player:
      * <ol>
      * <li>Inserts it in the waiting list</li>
-     * <li>If there are {@link #maxPlayers} in the waiting list, creates a new match and empties the waiting list</li>
-     * <li>If there are at least {@link #minPlayers} starts a timer which will start the match later</li>
+     * <li>Pings the waiting players, without waiting for the answers</li>
+     * <li>When the players have answered or missed the deadline, see {@link #checkWaitingList()}</li>
      * </ol>
      *
      * @param incomingPlayer (username, view) pair of a player view received from the server
@@ -117,14 +267,27 @@ public class Lobby implements Runnable {
         /* Show the lobby scene to the player */
         selectLobbyScene(view);
 
-        /* Disconnect inactive players */
-        disconnectInactive();
+        /* Disconnect inactive players, then decide with the ones who are left */
+        disconnectInactive().thenRun(this::checkWaitingList);
+    }
 
+    /**
+     * Checks the number of waiting players:
+     * <ol>
+     * <li>If there are {@link #maxPlayers} in the waiting list, creates a new match with them</li>
+     * <li>If there are at least {@link #minPlayers} starts a timer which will start the match later</li>
+     * </ol>
+     */
+    private synchronized void checkWaitingList() {
         /* First check if we can start straight away */
-        if (waitingPlayers.size() == maxPlayers) {
+        if (waitingPlayers.size() >= maxPlayers) {
             stopTimer(); /* Stop any running timer */
-            notifyWaitingList(true);
-            triggerMatchStart();
+            /* More players may have arrived while the others were pinged, they wait for the next match */
+            while (waitingPlayers.size() >= maxPlayers) {
+                notifyWaitingList(true);
+                triggerMatchStart();
+            }
+            if (!waitingPlayers.isEmpty()) notifyWaitingList(false);
         } else if (waitingPlayers.size() >= minPlayers && !isTimerRunning()) {
             /* If the minimum number of players has been reached and the timer is not started, start it */
             notifyWaitingList(true);
@@ -132,13 +295,19 @@ public class Lobby implements Runnable {
         } else {
             notifyWaitingList(false);
         }
+        closeIfEmpty();
     }
 
     synchronized void timerCallback() {
         logger.log(Level.INFO, "Lobby timer callback");
-        /* Disconnect all inactive players */
-        disconnectInactive();
-        /* Check if we still have enough players */
+        /*
+         * Disconnect all inactive players, then check if we still have enough players.
+         * The timer keeps running until the check is over, so that no other timer is started meanwhile
+         */
+        timer = disconnectInactive().thenRun(this::startIfEnough);
+    }
+
+    private synchronized void startIfEnough() {
         if (waitingPlayers.size() >= minPlayers) {
             notifyWaitingList(true);
             triggerMatchStart();
@@ -146,32 +315,82 @@ public class Lobby implements Runnable {
             notifyWaitingList(false);
         }
         /* If we do not have minimum number of players, a new timer will be scheduled when we do */
-        timer = null; /* Reset the timer */
+        closeIfEmpty();
+    }
+
+    /**
+     * Closes this lobby if it is not the default one and it has no players left, i.e. all of them
+     * left or started their match: the lobby thread stops and the listener is told to forget the lobby
+     */
+    private synchronized void closeIfEmpty() {
+        if (closeListener == null || closed || !waitingPlayers.isEmpty() || !incomingPlayers.isEmpty()) return;
+        logger.log(Level.INFO, "Closing the empty lobby for {0}", preferences);
+        closed = true;
+        stopTimer();
+        playerExecutors.clear();
+        notifyAll(); /* Wakes up the lobby thread, which stops */
+        closeListener.accept(this);
     }
 
     private synchronized void triggerMatchStart() {
-        /* Remove the players from the waiting map and pass them to the server */
-        Map<String, RemoteView> players = new HashMap<>(waitingPlayers);
-        waitingPlayers.clear();
-        ServerImpl.getInstance().startNewMatch(players);
+        /* Remove at most the maximum number of players from the waiting map and pass them to the server */
+        Map<String, RemoteView> players = new HashMap<>();
+        Iterator<Map.Entry<String, RemoteView>> iterator = waitingPlayers.entrySet().iterator();
+        while (iterator.hasNext() && players.size() < maxPlayers) {
+            Map.Entry<String, RemoteView> player = iterator.next();
+            players.put(player.getKey(), player.getValue());
+            playerExecutors.remove(player.getValue());
+            iterator.remove();
+        }
+        ServerImpl.getInstance().startNewMatch(players, preferences);
     }
 
     /* ========== DISCONNECTION ============ */
 
     /**
-     * Checks if there are inactive players in {@code waitingPlayers} and disconnects
-     * them, also notifying the other players
+     * Pings all the players in {@code waitingPlayers} concurrently and disconnects the ones
+     * whose ping fails or misses the deadline. This method does not wait for the answers.
+     * If a check is already in progress, no other ping is sent: the players who arrived
+     * in the meantime have just logged in
+     *
+     * @return a future which completes when all the pinged players have answered or have been disconnected
      */
-    synchronized void disconnectInactive() {
+    synchronized CompletableFuture<Void> disconnectInactive() {
+        if (sweep != null && !sweep.isDone()) return sweep;
+
+        List<CompletableFuture<Void>> pings = new ArrayList<>();
         for (Map.Entry<String, RemoteView> player : waitingPlayers.entrySet()) {
+            String username = player.getKey();
+            RemoteView view = player.getValue();
+            pings.add(ping(view).thenAccept(alive -> {
+                /* Disconnect the player if the ping fails */
+                if (!alive) disconnectPlayer(username, view);
+            }));
+        }
+        sweep = CompletableFuture.allOf(pings.toArray(new CompletableFuture<?>[0]));
+        return sweep;
+    }
+
+    /**
+     * Sends a ping command to given player, to check connectivity
+     *
+     * @param view the view of the player
+     * @return a future which completes with {@code true} if the player answers before the deadline
+     */
+    private CompletableFuture<Boolean> ping(RemoteView view) {
+        CompletableFuture<Boolean> alive = new CompletableFuture<>();
+        Future<?> deadline = wheelTimer.newTimeout(() -> alive.complete(false), pingTimeout, TimeUnit.MILLISECONDS);
+        getPlayerExecutor(view).execute(() -> {
             try {
-                /* Send a ping command to check connectivity */
-                player.getValue().ping();
+                view.ping();
+                alive.complete(true);
             } catch (IOException e) {
-                /* Disconnect the player if the ping fails */
-                disconnectPlayer(player.getKey());
+                alive.complete(false);
+            } finally {
+                deadline.cancel(false);
             }
-        }
+        });
+        return alive;
     }
 
     /**
@@ -182,10 +401,18 @@ public class Lobby implements Runnable {
     void disconnectPlayer(String username) {
         logger.log(Level.INFO, "Player \"{0}\" does not respond, deleting...", username);
         /* Remove it from local */
-        waitingPlayers.remove(username);
+        RemoteView view = waitingPlayers.remove(username);
+        if (view != null) playerExecutors.remove(view);
         ServerImpl.getInstance().unreserveUsername(username);
     }
 
+    /* Disconnects the player only if it is still waiting with the pinged view */
+    private synchronized void disconnectPlayer(String username, RemoteView view) {
+        if (waitingPlayers.get(username) == view) {
+            disconnectPlayer(username);
+        }
+    }
+
     /* ========= COMMUNICATE WITH PLAYERS ========== */
 
     /**
@@ -194,11 +421,13 @@ public class Lobby implements Runnable {
      * @param view the view of the player
      */
     void selectLobbyScene(RemoteView view) {
-        try {
-            view.selectScene(ViewScene.LOBBY);
-        } catch (IOException ignore) {
-            /* Do nothing */
-        }
+        getPlayerExecutor(view).execute(() -> {
+            try {
+                view.selectScene(ViewScene.LOBBY);
+            } catch (IOException ignore) {
+                /* Do nothing */
+            }
+        });
     }
 
     /**
@@ -207,15 +436,48 @@ public class Lobby implements Runnable {
      * @param starting whether the match is going to start shortly or not
      */
     void notifyWaitingList(boolean starting) {
+        /* The update is the same for everyone, so it is serialized only once */
+        LobbyUpdate update = new LobbyUpdate(new ArrayList<>(waitingPlayers.keySet()), starting);
+        UpdateFrameCache.share(update);
         for (RemoteView view : waitingPlayers.values()) {
-            try {
-                view.update(new LobbyUpdate(new ArrayList<>(waitingPlayers.keySet()), starting));
-            } catch (IOException ignore) {
-                /* Ignore the exception */
+            getPlayerExecutor(view).execute(() -> {
+                try {
+                    view.update(update);
+                } catch (IOException ignore) {
+                    /* Ignore the exception */
+                }
+            });
+        }
+    }
+
+    /**
+     * Tells the players of the matches queued by the {@link MatchScheduler} their position in the queue.
+     * Each player receives the list of the players of its match
+     *
+     * @param queuedMatches the players of the queued matches, in order of position
+     */
+    void notifyQueuedMatches(List<Map<String, RemoteView>> queuedMatches) {
+        for (int i = 0; i < queuedMatches.size(); i++) {
+            Map<String, RemoteView> players = queuedMatches.get(i);
+            LobbyUpdate update = new LobbyUpdate(new ArrayList<>(players.keySet()), true, i + 1);
+            UpdateFrameCache.share(update);
+            for (RemoteView view : players.values()) {
+                callExecutor.execute(() -> {
+                    try {
+                        view.update(update);
+                    } catch (IOException ignore) {
+                        /* The player will be handled by the controller when the match starts */
+                    }
+                });
             }
         }
     }
 
+    /* Returns the executor which makes the calls to given player, in order */
+    private Executor getPlayerExecutor(RemoteView view) {
+        return playerExecutors.computeIfAbsent(view, key -> new SerialExecutor(callExecutor));
+    }
+
     /* ========== TIMER ========== */
 
     synchronized boolean isTimerRunning() {
@@ -227,7 +489,9 @@ public class Lobby implements Runnable {
     }
 
     private synchronized void startTimer() {
-        timer = executor.schedule(this::timerCallback, waitingTime, TimeUnit.SECONDS);
+        timer = wheelTimer.newTimeout(this::timerCallback, waitingTime, TimeUnit.SECONDS);
+        /* Prepare the match while the countdown runs */
+        ServerImpl.getInstance().getSkeletonPool().prepare(preferences.getBoardId());
     }
 
     private synchronized void stopTimer() {
@@ -257,10 +521,28 @@ public class Lobby implements Runnable {
         return waitingPlayers;
     }
 
+    /**
+     * Returns the number of players in this lobby, both waiting and not yet received
+     *
+     * @return the number of players in this lobby
+     */
+    int getPlayerCount() {
+        return waitingPlayers.size() + incomingPlayers.size();
+    }
+
+    /**
+     * Tells whether this lobby has been closed because it had no players left
+     *
+     * @return {@code true} if the lobby does not accept new players
+     */
+    synchronized boolean isClosed() {
+        return closed;
+    }
+
     /* ========= RUNNING ========== */
 
     /**
-     * Starts listening for incoming players, until interrupted
+     * Starts listening for incoming players, until interrupted or closed
      */
     @Override
     public void run() {
@@ -269,6 +551,8 @@ public class Lobby implements Runnable {
                 .getOrDefault("adrenaline.players.min", "3"));
         waitingTime = Integer.parseInt((String) AdrenalineProperties.getProperties()
                 .getOrDefault("adrenaline.timeout.lobby", "30"));
+        pingTimeout = Long.parseLong((String) AdrenalineProperties.getProperties()
+                .getOrDefault("adrenaline.timeout.ping", Long.toString(DEFAULT_PING_TIMEOUT)));
 
         logger.log(Level.FINE, "Running lobby, min players to start match: {0}", minPlayers);
 
@@ -276,8 +560,7 @@ public class Lobby implements Runnable {
         while (stayActive) {
             try {
                 /* This call blocks waiting for a player */
-                Map.Entry<String, RemoteView> incomingPlayer = incomingPlayers.take();
-                receiveIncomingPlayer(incomingPlayer);
+                stayActive = receiveNextPlayer();
             } catch (InterruptedException e) {
                 shutdown();
                 Thread.currentThread().interrupt();
@@ -298,10 +581,20 @@ public class Lobby implements Runnable {
         /* Empty the waiting list and notify players */
         notifyWaitingList(false);
         waitingPlayers.clear();
+        playerExecutors.clear();
     }
 
     /* ======= GETTERS ========= */
 
+    /**
+     * Returns the preferences shared by the players of this lobby
+     *
+     * @return the preferences of this lobby
+     */
+    public MatchPreferences getPreferences() {
+        return preferences;
+    }
+
     /**
      * Returns the minimum number of players required to start a match
      *
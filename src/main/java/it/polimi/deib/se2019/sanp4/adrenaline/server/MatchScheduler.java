@@ -0,0 +1,256 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.server;
+
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.RemoteView;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs the matches of the server, with admission control.
+ * <p>
+ * At most {@link #getCapacity()} matches can run at the same time: a match which is submitted when the
+ * capacity is exhausted is put in a FIFO queue and is started as soon as one of the running matches is over.
+ * The match itself (e.g. its controller) is created only when it is admitted, so queued players are not
+ * put in a frozen match.
+ * </p>
+ * <p>
+ * Each time the queue changes, the queue listener (usually the {@link Lobby}) receives the players of the
+ * queued matches, in order, so it can tell them their position.
+ * Threads are created only for the running matches and are released when they are idle.
+ * A match submitted with {@link #submitAsync(Map, Function)} keeps its slot until its stage is completed,
+ * but it uses a thread only for the steps it runs with the given executor.
+ * </p>
+ *
+ * @author Alessandro Fulgini
+ */
+public class MatchScheduler {
+
+    private static final Logger logger = Logger.getLogger(MatchScheduler.class.getName());
+
+    /** Maximum number of matches running at the same time */
+    private int capacity;
+
+    /** Number of matches which are currently running */
+    private int runningMatches;
+
+    /** Matches waiting for a free slot, in order of submission */
+    private final Deque<PendingMatch> queue = new ArrayDeque<>();
+
+    /** Executor used to run the admitted matches */
+    private final Executor executor;
+
+    /** Receives the players of the queued matches each time the queue changes */
+    private Consumer<List<Map<String, RemoteView>>> queueListener;
+
+    /**
+     * A match which has been submitted to the scheduler
+     */
+    private static class PendingMatch {
+        private final Map<String, RemoteView> players;
+        private final Function<Executor, CompletionStage<?>> match;
+
+        private PendingMatch(Map<String, RemoteView> players, Function<Executor, CompletionStage<?>> match) {
+            this.players = players;
+            this.match = match;
+        }
+    }
+
+    /**
+     * Creates a scheduler which runs the matches in an elastic thread pool
+     *
+     * @param capacity maximum number of matches running at the same time, greater than 0
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    public MatchScheduler(int capacity) {
+        this(capacity, createElasticPool());
+    }
+
+    /**
+     * Creates a scheduler which runs the matches with given executor
+     *
+     * @param capacity maximum number of matches running at the same time, greater than 0
+     * @param executor the executor used to run the admitted matches, not null
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    MatchScheduler(int capacity, Executor executor) {
+        checkCapacity(capacity);
+        this.capacity = capacity;
+        this.executor = executor;
+    }
+
+    /* Threads are created on demand and retired when idle, the capacity is enforced by the scheduler */
+    private static ExecutorService createElasticPool() {
+        return Executors.newCachedThreadPool(runnable -> new Thread(runnable, "adrenaline-match"));
+    }
+
+    private static void checkCapacity(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("The capacity must be greater than 0");
+    }
+
+    /**
+     * Submits a new match.
+     * If there is a free slot the match starts immediately, otherwise it is queued
+     *
+     * @param players the players of the match, not null
+     * @param match   the match to be run, not null
+     * @return 0 if the match has been started, otherwise its position in the queue (starting from 1)
+     */
+    public int submit(Map<String, RemoteView> players, Runnable match) {
+        return submitAsync(players, executor -> CompletableFuture.runAsync(match, executor));
+    }
+
+    /**
+     * Submits a new match which runs in steps.
+     * If there is a free slot the match starts immediately, otherwise it is queued.
+     * The slot is freed when the stage returned by the match is completed
+     *
+     * @param players the players of the match, not null
+     * @param match   starts the match, given the executor for the steps which need a thread, and returns
+     *                a stage completed when the match is over, not null
+     * @return 0 if the match has been started, otherwise its position in the queue (starting from 1)
+     */
+    public int submitAsync(Map<String, RemoteView> players, Function<Executor, CompletionStage<?>> match) {
+        PendingMatch pending = new PendingMatch(players, match);
+        int position;
+        synchronized (this) {
+            if (runningMatches < capacity && queue.isEmpty()) {
+                runningMatches++;
+                position = 0;
+            } else {
+                queue.addLast(pending);
+                position = queue.size();
+            }
+        }
+
+        if (position == 0) {
+            start(pending);
+        } else {
+            logger.log(Level.INFO, "No free slot for a new match, queued in position {0}", position);
+            notifyQueueListener();
+        }
+        return position;
+    }
+
+    /**
+     * Sets the maximum number of matches running at the same time.
+     * If the capacity increases, the queued matches which fit in the new slots are started
+     *
+     * @param capacity the new capacity, greater than 0
+     * @throws IllegalArgumentException if the capacity is not positive
+     */
+    public void setCapacity(int capacity) {
+        checkCapacity(capacity);
+        synchronized (this) {
+            this.capacity = capacity;
+        }
+        startQueued();
+    }
+
+    /**
+     * Sets the listener which is notified each time the queue changes
+     *
+     * @param queueListener receives the players of the queued matches, in order of position, can be null
+     */
+    public synchronized void setQueueListener(Consumer<List<Map<String, RemoteView>>> queueListener) {
+        this.queueListener = queueListener;
+    }
+
+    /* Starts the admitted match, and frees its slot when it is over */
+    private void start(PendingMatch pending) {
+        CompletionStage<?> stage;
+        try {
+            stage = pending.match.apply(executor);
+        } catch (RuntimeException e) {
+            logger.log(Level.SEVERE, "Cannot start match", e);
+            matchFinished();
+            return;
+        }
+        stage.whenComplete((result, e) -> {
+            if (e != null) logger.log(Level.SEVERE, "Match terminated with an exception", e);
+            matchFinished();
+        });
+    }
+
+    private void matchFinished() {
+        synchronized (this) {
+            runningMatches--;
+        }
+        startQueued();
+    }
+
+    /* Starts the queued matches while there are free slots */
+    private void startQueued() {
+        List<PendingMatch> admitted = new ArrayList<>();
+        synchronized (this) {
+            while (runningMatches < capacity && !queue.isEmpty()) {
+                runningMatches++;
+                admitted.add(queue.pollFirst());
+            }
+        }
+
+        if (!admitted.isEmpty()) {
+            logger.log(Level.INFO, "Starting {0} queued matches", admitted.size());
+            admitted.forEach(this::start);
+            notifyQueueListener();
+        }
+    }
+
+    /* The listener is called outside the lock, since it communicates with the players */
+    private void notifyQueueListener() {
+        Consumer<List<Map<String, RemoteView>>> listener;
+        List<Map<String, RemoteView>> queued = new ArrayList<>();
+        synchronized (this) {
+            listener = queueListener;
+            queue.forEach(pending -> queued.add(pending.players));
+        }
+        if (listener != null) {
+            listener.accept(queued);
+        }
+    }
+
+    /* ========== GETTERS ============= */
+
+    /**
+     * Returns the maximum number of matches running at the same time
+     *
+     * @return the maximum number of matches running at the same time
+     */
+    public synchronized int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the number of matches which are currently running
+     *
+     * @return the number of matches which are currently running
+     */
+    public synchronized int getRunningMatches() {
+        return runningMatches;
+    }
+
+    /**
+     * Returns the number of matches waiting for a free slot
+     *
+     * @return the number of matches in the queue
+     */
+    public synchronized int getQueueDepth() {
+        return queue.size();
+    }
+
+    /**
+     * Tells whether a match submitted now would start immediately
+     *
+     * @return {@code true} if there is a free slot and no match is waiting
+     */
+    public synchronized boolean hasFreeSlot() {
+        return runningMatches < capacity && queue.isEmpty();
+    }
+}
@@ -0,0 +1,146 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.server;
+
+import it.polimi.deib.se2019.sanp4.adrenaline.model.match.MatchCreator;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.match.MatchSkeleton;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Creates the {@link MatchSkeleton skeletons} of the matches in the background, before they start.
+ * <p>
+ * When the countdown of a lobby starts, the lobby asks the pool to prepare a skeleton with the board
+ * its players prefer, so when the match starts the card stacks have already been loaded and the initial
+ * state can be sent to the players right away.
+ * At most {@code adrenaline.matches.prewarm} skeletons (default 2) are kept ready, the others are created
+ * when the match starts, in parallel with the configuration of the match.
+ * </p>
+ *
+ * @author Alessandro Fulgini
+ */
+public class MatchSkeletonPool {
+
+    private static final Logger logger = Logger.getLogger(MatchSkeletonPool.class.getName());
+
+    /** Key of the skeletons without a board, since the map does not accept null keys */
+    private static final int ANY_BOARD = -1;
+
+    /** The skeletons which are ready or being created, by board id */
+    private final ConcurrentMap<Integer, Queue<CompletableFuture<MatchSkeleton>>> skeletons =
+            new ConcurrentHashMap<>();
+
+    /** Number of skeletons in the pool */
+    private final AtomicInteger size = new AtomicInteger();
+
+    /** The executor which creates the skeletons */
+    private final Executor executor;
+
+    /** Maximum number of skeletons in the pool */
+    private volatile int capacity;
+
+    /**
+     * Creates a pool which creates the skeletons on a background thread
+     *
+     * @param capacity the maximum number of skeletons kept ready
+     */
+    public MatchSkeletonPool(int capacity) {
+        this(capacity, Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "adrenaline-prewarm");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    /**
+     * Creates a pool which creates the skeletons on given executor
+     *
+     * @param capacity the maximum number of skeletons kept ready
+     * @param executor the executor which creates the skeletons, not null
+     */
+    MatchSkeletonPool(int capacity, Executor executor) {
+        if (executor == null) throw new NullPointerException("Executor cannot be null");
+        this.capacity = capacity;
+        this.executor = executor;
+    }
+
+    /**
+     * Starts creating a skeleton with given board, unless the pool is full
+     *
+     * @param boardId id of the board, {@code null} if it is not known yet
+     * @return {@code true} if the skeleton is being created, {@code false} if the pool is full
+     */
+    public boolean prepare(Integer boardId) {
+        if (size.incrementAndGet() > capacity) {
+            size.decrementAndGet();
+            return false;
+        }
+        skeletons.computeIfAbsent(key(boardId), k -> new ConcurrentLinkedQueue<>()).add(create(boardId));
+        return true;
+    }
+
+    /**
+     * Takes a skeleton for a match with given board.
+     * A skeleton with the same board is preferred, then any other skeleton (whose board will be replaced).
+     * If the pool is empty, the creation of a new skeleton starts now
+     *
+     * @param boardId id of the board, {@code null} if it is not known yet
+     * @return a future which is completed with the skeleton, or exceptionally if it could not be created
+     */
+    public CompletableFuture<MatchSkeleton> take(Integer boardId) {
+        CompletableFuture<MatchSkeleton> skeleton = poll(key(boardId));
+        if (skeleton == null) {
+            for (Integer other : skeletons.keySet()) {
+                skeleton = poll(other);
+                if (skeleton != null) break;
+            }
+        }
+        return skeleton != null ? skeleton : create(boardId);
+    }
+
+    private CompletableFuture<MatchSkeleton> poll(Integer key) {
+        Queue<CompletableFuture<MatchSkeleton>> queue = skeletons.get(key);
+        CompletableFuture<MatchSkeleton> skeleton = queue == null ? null : queue.poll();
+        if (skeleton != null) size.decrementAndGet();
+        return skeleton;
+    }
+
+    private CompletableFuture<MatchSkeleton> create(Integer boardId) {
+        CompletableFuture<MatchSkeleton> skeleton =
+                CompletableFuture.supplyAsync(() -> MatchCreator.createSkeleton(boardId), executor);
+        skeleton.exceptionally(e -> {
+            logger.log(Level.WARNING, "Could not prepare the skeleton of a match", e);
+            return null;
+        });
+        return skeleton;
+    }
+
+    private static Integer key(Integer boardId) {
+        return boardId == null ? ANY_BOARD : boardId;
+    }
+
+    /**
+     * Sets the maximum number of skeletons kept ready
+     *
+     * @param capacity the maximum number of skeletons, 0 to create them only when the matches start
+     */
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns the number of skeletons which are ready or being created
+     *
+     * @return the number of skeletons in the pool
+     */
+    public int getSize() {
+        return size.get();
+    }
+}
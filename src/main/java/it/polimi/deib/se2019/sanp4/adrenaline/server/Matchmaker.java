@@ -0,0 +1,204 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.server;
+
+import it.polimi.deib.se2019.sanp4.adrenaline.common.AdrenalineProperties;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.MatchPreferences;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.RemoteView;
+import it.polimi.deib.se2019.sanp4.adrenaline.controller.MatchBootstrapper;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs several {@link Lobby lobbies} in parallel, one for each kind of match the players asked for.
+ * <p>
+ * Each lobby is identified by the {@link MatchPreferences} shared by its players and runs on its own thread.
+ * An incoming player is sent to the lobby which best fits his preferences:
+ * </p>
+ * <ol>
+ * <li>among the lobbies whose matches satisfy all the preferences of the player, the one with the most players,
+ * so that its match starts as soon as possible (the lobby with exactly the same preferences wins the ties)</li>
+ * <li>if there is none, a new lobby with the preferences of the player</li>
+ * <li>if the maximum number of lobbies has been reached (see {@code adrenaline.lobbies.max}, default 8),
+ * the lobby without preferences</li>
+ * </ol>
+ * <p>
+ * So a player who accepts any match fills the lobby which is closest to starting, instead of waiting
+ * in a separate one. Preferences which are not valid (e.g. a board which does not exist) are ignored.
+ * The lobbies other than the default one are removed as soon as they have no players left,
+ * so they do not take the place of new preferences and their threads stop.
+ * </p>
+ *
+ * @author Alessandro Fulgini
+ */
+public class Matchmaker {
+
+    private static final Logger logger = Logger.getLogger(Matchmaker.class.getName());
+
+    private static final int DEFAULT_MAX_LOBBIES = 8;
+
+    /** The lobbies, by the preferences of their players */
+    private final ConcurrentMap<MatchPreferences, Lobby> lobbies = new ConcurrentHashMap<>();
+
+    /** The lobby for the players without preferences, it is always present */
+    private final Lobby defaultLobby;
+
+    /** Runs the lobbies, each one on its own thread */
+    private final ExecutorService lobbyExecutor = Executors.newCachedThreadPool();
+
+    /** The executor which makes the remote calls of the lobbies */
+    private final Executor callExecutor;
+
+    /** Maximum number of lobbies, including the default one */
+    private int maxLobbies;
+
+    /** Whether the lobbies have been started */
+    private boolean running;
+
+    /**
+     * Creates a matchmaker with the default lobby only
+     */
+    public Matchmaker() {
+        this(DEFAULT_MAX_LOBBIES);
+    }
+
+    /**
+     * Creates a matchmaker with the default lobby only, which runs at most given number of lobbies
+     *
+     * @param maxLobbies the maximum number of lobbies, including the default one
+     */
+    Matchmaker(int maxLobbies) {
+        this(maxLobbies, Lobby.getSharedCallExecutor());
+    }
+
+    /**
+     * Creates a matchmaker with the default lobby only, which runs at most given number of lobbies
+     * and makes their remote calls on given executor
+     *
+     * @param maxLobbies   the maximum number of lobbies, including the default one
+     * @param callExecutor the executor which makes the remote calls of the lobbies, not null
+     */
+    Matchmaker(int maxLobbies, Executor callExecutor) {
+        this.maxLobbies = maxLobbies;
+        this.callExecutor = callExecutor;
+        defaultLobby = new Lobby(MatchPreferences.ANY, callExecutor);
+        lobbies.put(MatchPreferences.ANY, defaultLobby);
+    }
+
+    /**
+     * Starts running the lobbies, the ones which are created later start immediately
+     */
+    public synchronized void start() {
+        maxLobbies = Integer.parseInt((String) AdrenalineProperties.getProperties()
+                .getOrDefault("adrenaline.lobbies.max", Integer.toString(DEFAULT_MAX_LOBBIES)));
+        running = true;
+        lobbies.values().forEach(lobbyExecutor::submit);
+    }
+
+    /**
+     * Sends an incoming player to the lobby which best fits his preferences
+     *
+     * @param username    username of the player
+     * @param view        view of the player
+     * @param preferences preferences of the player, {@code null} if any match is fine
+     */
+    public void insertPlayer(String username, RemoteView view, MatchPreferences preferences) {
+        Lobby lobby = route(preferences);
+        while (!lobby.insertPlayer(username, view)) {
+            /* The lobby has been closed meanwhile, because its last players left or started their match */
+            lobby = route(preferences);
+        }
+    }
+
+    /**
+     * Selects the lobby which best fits given preferences, creating it if needed
+     *
+     * @param preferences preferences of the player, {@code null} if any match is fine
+     * @return the selected lobby
+     */
+    Lobby route(MatchPreferences preferences) {
+        MatchPreferences key = sanitize(preferences);
+
+        Lobby best = findBestLobby(key);
+        if (best != null) return best;
+
+        synchronized (this) {
+            /* Another player may have created it meanwhile */
+            best = lobbies.get(key);
+            if (best != null) return best;
+            if (lobbies.size() >= maxLobbies) return defaultLobby;
+
+            logger.log(Level.INFO, "Creating a new lobby for {0}", key);
+            Lobby lobby = new Lobby(key, callExecutor, this::removeLobby);
+            lobbies.put(key, lobby);
+            if (running) lobbyExecutor.submit(lobby);
+            return lobby;
+        }
+    }
+
+    /* Forgets given lobby, which has been closed because it had no players left */
+    private void removeLobby(Lobby lobby) {
+        lobbies.remove(lobby.getPreferences(), lobby);
+    }
+
+    /* Returns the compatible lobby with most players, null if none */
+    private Lobby findBestLobby(MatchPreferences key) {
+        Lobby best = null;
+        int bestCount = -1;
+        for (Map.Entry<MatchPreferences, Lobby> entry : lobbies.entrySet()) {
+            if (!key.acceptsMatch(entry.getKey())) continue;
+            int count = entry.getValue().getPlayerCount();
+            if (count > bestCount || (count == bestCount && key.equals(entry.getKey()))) {
+                best = entry.getValue();
+                bestCount = count;
+            }
+        }
+        return best;
+    }
+
+    /* Drops the preferences which do not correspond to a valid configuration */
+    private static MatchPreferences sanitize(MatchPreferences preferences) {
+        if (preferences == null) return MatchPreferences.ANY;
+        Integer boardId = preferences.getBoardId();
+        if (boardId != null && (boardId < 0 || boardId >= MatchBootstrapper.NUMBER_OF_BOARDS)) boardId = null;
+        Integer skulls = preferences.getSkulls();
+        if (skulls != null && (skulls < 1 || skulls > MatchBootstrapper.MAX_SKULLS)) skulls = null;
+        return new MatchPreferences(boardId, skulls, preferences.getRegion());
+    }
+
+    /**
+     * Tells the players of the matches queued by the {@link MatchScheduler} their position in the queue,
+     * see {@link Lobby#notifyQueuedMatches(List)}
+     *
+     * @param queuedMatches the players of the queued matches, in order of position
+     */
+    public void notifyQueuedMatches(List<Map<String, RemoteView>> queuedMatches) {
+        defaultLobby.notifyQueuedMatches(queuedMatches);
+    }
+
+    /**
+     * Returns the lobby for the players without preferences
+     *
+     * @return the default lobby
+     */
+    public Lobby getDefaultLobby() {
+        return defaultLobby;
+    }
+
+    /**
+     * Returns all the lobbies, including the default one
+     *
+     * @return an unmodifiable view of the lobbies
+     */
+    public Collection<Lobby> getLobbies() {
+        return Collections.unmodifiableCollection(lobbies.values());
+    }
+}
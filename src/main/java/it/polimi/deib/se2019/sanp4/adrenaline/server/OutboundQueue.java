@@ -0,0 +1,474 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.server;
+
+import it.polimi.deib.se2019.sanp4.adrenaline.common.AdrenalineProperties;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket.UpdateCommand;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket.codec.WireCodec;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.DeltaUpdate;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.ModelUpdate;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A bounded queue of the frames which are waiting to be written on the connection of a socket client.
+ * <p>
+ * The match controllers only enqueue frames, while the I/O layer drains the queue (the writer thread of
+ * {@link SocketRemoteView}, the reactor of {@link SelectorRemoteView}), so a client which does not read
+ * never blocks the thread which is updating the model.
+ * When the queue reaches its high watermark, the {@link OverflowPolicy} decides what to do with the new frame:
+ * </p>
+ * <ul>
+ * <li>{@code CONFLATE}: a queued snapshot which is superseded by a newer snapshot of the same entity
+ * (see {@link ConflationKey}) is dropped to make room, together with the delta updates of the entity
+ * which are queued between the two snapshots, since they are based on the dropped one; if there is no such
+ * snapshot, a queued delta update is merged into the next delta update of the same entity
+ * (see {@link DeltaUpdate#followedBy(DeltaUpdate)}), so a backlog of deltas shrinks as well</li>
+ * <li>{@code BLOCK}: the caller waits for the queue to be drained, for a limited time</li>
+ * <li>{@code DISCONNECT}: the client is considered too slow</li>
+ * </ul>
+ * <p>
+ * If the policy cannot make room, the queue is closed and an {@link IOException} is thrown, so the
+ * view closes the connection and the player is suspended like for any other network fault.
+ * The settings are given by {@code adrenaline.socket.queue.max} (default 256 frames),
+ * {@code adrenaline.socket.queue.overflow} (default {@code conflate}) and
+ * {@code adrenaline.socket.queue.block} (default 2000 milliseconds).
+ * </p>
+ * <p>
+ * Each frame is numbered when it is enqueued and the I/O layer reports when the polled frames have been
+ * written, so a caller can wait for a frame to leave the queue (see {@link #awaitWritten(long)}),
+ * e.g. to check that the connection of a client is alive. The wait is bounded by
+ * {@code adrenaline.timeout.ping} (default 1000 milliseconds).
+ * </p>
+ *
+ * @author Alessandro Fulgini
+ */
+class OutboundQueue {
+
+    /**
+     * What to do when a frame is enqueued and the queue is full
+     */
+    enum OverflowPolicy {
+        CONFLATE,
+        DISCONNECT,
+        BLOCK
+    }
+
+    /**
+     * A frame waiting to be written
+     */
+    private static class Frame {
+        private byte[] bytes;
+
+        /** Position of the frame among all the enqueued frames, starting from 1 */
+        private long sequence;
+
+        /** Identifies the snapshot in this frame, {@code null} if the frame cannot be conflated */
+        private final String key;
+
+        /** Key of the snapshots this delta is applied on, {@code null} if the frame is not a delta */
+        private final String deltaKey;
+
+        /** The delta update in this frame, {@code null} if it cannot be merged with other deltas */
+        private DeltaUpdate delta;
+
+        /** The codec the frame has been encoded with, used to encode the merged deltas */
+        private final WireCodec codec;
+
+        private Frame(byte[] bytes, String key, String deltaKey, DeltaUpdate delta, WireCodec codec) {
+            this.bytes = bytes;
+            this.key = key;
+            this.deltaKey = deltaKey;
+            this.delta = delta;
+            this.codec = codec;
+        }
+
+        /* Replaces the delta in this frame with given older delta followed by this one, if they can be merged */
+        private boolean mergeAfter(Frame older) {
+            if (delta == null || older.delta == null) return false;
+            DeltaUpdate merged = older.delta.followedBy(delta);
+            if (merged == null) return false;
+            try {
+                bytes = codec.encode(new UpdateCommand(merged));
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Could not encode merged delta update", e);
+                return false;
+            }
+            delta = merged;
+            return true;
+        }
+    }
+
+    private static final int DEFAULT_HIGH_WATERMARK = 256;
+
+    private static final long DEFAULT_BLOCK_MILLIS = 2000;
+
+    private static final long DEFAULT_AWAIT_MILLIS = 1000;
+
+    /** The frames waiting to be written, in order */
+    private final Deque<Frame> frames = new ArrayDeque<>();
+
+    /** Maximum number of queued frames */
+    private final int highWatermark;
+
+    /** What to do when the queue is full */
+    private final OverflowPolicy policy;
+
+    /** Maximum time a caller is blocked when the policy is {@code BLOCK} */
+    private final long blockMillis;
+
+    /** Maximum time a caller waits for a frame to be written */
+    private final long awaitMillis;
+
+    /** Sequence number of the last enqueued frame */
+    private long lastSequence;
+
+    /** Sequence number of the last frame taken by the I/O layer */
+    private long polledSequence;
+
+    /** Sequence number of the last frame which has been written */
+    private long writtenSequence;
+
+    /** Sequence number of the last frame a caller is waiting for */
+    private long awaitedSequence;
+
+    /** Maximum number of frames which have been queued at the same time */
+    private int peakDepth;
+
+    /** Whether the queue has been closed, no more frames are accepted */
+    private boolean closed;
+
+    private static final Logger logger = Logger.getLogger(OutboundQueue.class.getName());
+
+    /**
+     * Creates a new queue
+     *
+     * @param highWatermark maximum number of queued frames, greater than 0
+     * @param policy        what to do when the queue is full, not null
+     * @param blockMillis   maximum time a caller is blocked when the policy is {@code BLOCK}
+     * @throws IllegalArgumentException if the high watermark is not positive
+     */
+    OutboundQueue(int highWatermark, OverflowPolicy policy, long blockMillis) {
+        this(highWatermark, policy, blockMillis, DEFAULT_AWAIT_MILLIS);
+    }
+
+    /**
+     * Creates a new queue
+     *
+     * @param highWatermark maximum number of queued frames, greater than 0
+     * @param policy        what to do when the queue is full, not null
+     * @param blockMillis   maximum time a caller is blocked when the policy is {@code BLOCK}
+     * @param awaitMillis   maximum time a caller waits for a frame to be written
+     * @throws IllegalArgumentException if the high watermark is not positive
+     */
+    OutboundQueue(int highWatermark, OverflowPolicy policy, long blockMillis, long awaitMillis) {
+        if (highWatermark <= 0) throw new IllegalArgumentException("The high watermark must be greater than 0");
+        if (policy == null) throw new NullPointerException("Policy cannot be null");
+        this.highWatermark = highWatermark;
+        this.policy = policy;
+        this.blockMillis = blockMillis;
+        this.awaitMillis = awaitMillis;
+    }
+
+    /**
+     * Creates a new queue with the settings given in the properties
+     *
+     * @return the new queue
+     */
+    static OutboundQueue fromProperties() {
+        AdrenalineProperties properties = AdrenalineProperties.getProperties();
+        int highWatermark = Integer.parseInt((String) properties.getOrDefault("adrenaline.socket.queue.max",
+                Integer.toString(DEFAULT_HIGH_WATERMARK)));
+        OverflowPolicy policy = OverflowPolicy.valueOf(((String) properties
+                .getOrDefault("adrenaline.socket.queue.overflow", "conflate")).toUpperCase());
+        long blockMillis = Long.parseLong((String) properties.getOrDefault("adrenaline.socket.queue.block",
+                Long.toString(DEFAULT_BLOCK_MILLIS)));
+        long awaitMillis = Long.parseLong((String) properties.getOrDefault("adrenaline.timeout.ping",
+                Long.toString(DEFAULT_AWAIT_MILLIS)));
+        return new OutboundQueue(highWatermark, policy, blockMillis, awaitMillis);
+    }
+
+    /**
+     * Enqueues a frame which cannot be conflated
+     *
+     * @param frame the encoded frame, not null
+     * @return the sequence number of the frame
+     * @throws IOException if the queue is closed or the frame does not fit in the queue
+     */
+    long offer(byte[] frame) throws IOException {
+        return offer(frame, null);
+    }
+
+    /**
+     * Enqueues a frame, applying the overflow policy if the queue is full
+     *
+     * @param frame the encoded frame, not null
+     * @param key   identifies the snapshot contained in the frame, {@code null} if it cannot be conflated
+     * @return the sequence number of the frame
+     * @throws IOException if the queue is closed or the frame does not fit in the queue,
+     *                     in the latter case the queue is also closed
+     */
+    long offer(byte[] frame, String key) throws IOException {
+        return offer(frame, key, null);
+    }
+
+    /**
+     * Enqueues a frame, applying the overflow policy if the queue is full.
+     * A delta frame is never conflated with snapshots, but it is dropped together with the snapshot
+     * it is based on.
+     * Since the delta update is not given, the frame is not merged with the other deltas of the entity
+     *
+     * @param frame    the encoded frame, not null
+     * @param key      identifies the snapshot contained in the frame, {@code null} if it cannot be conflated
+     * @param deltaKey the key of the snapshots the delta in the frame is applied on,
+     *                 {@code null} if the frame does not contain a delta
+     * @return the sequence number of the frame
+     * @throws IOException if the queue is closed or the frame does not fit in the queue,
+     *                     in the latter case the queue is also closed
+     */
+    long offer(byte[] frame, String key, String deltaKey) throws IOException {
+        return offer(new Frame(frame, key, deltaKey, null, null));
+    }
+
+    /**
+     * Enqueues the frame of an update, applying the overflow policy if the queue is full.
+     * Snapshots are conflated with the newer snapshots of the same entity (see {@link ConflationKey}),
+     * while delta updates may be merged with the next delta updates of the same entity
+     *
+     * @param frame  the encoded frame, not null
+     * @param update the update in the frame, {@code null} if the frame carries a command, which cannot be conflated
+     * @param codec  the codec the frame has been encoded with, used to encode merged delta updates, not null
+     * @return the sequence number of the frame
+     * @throws IOException if the queue is closed or the frame does not fit in the queue,
+     *                     in the latter case the queue is also closed
+     */
+    long offer(byte[] frame, ModelUpdate update, WireCodec codec) throws IOException {
+        if (update == null) return offer(frame);
+        return offer(new Frame(frame, ConflationKey.of(update), ConflationKey.ofDelta(update),
+                ConflationKey.asDelta(update), codec));
+    }
+
+    /* Enqueues given frame and numbers it */
+    private synchronized long offer(Frame frame) throws IOException {
+        if (closed) throw new IOException("Connection is closed");
+        if (frames.size() >= highWatermark && !makeRoom(frame)) {
+            logger.log(Level.WARNING, "Outbound queue full ({0} frames), the client is too slow", frames.size());
+            close();
+            throw new IOException("The client is too slow");
+        }
+        lastSequence++;
+        frame.sequence = lastSequence;
+        frames.addLast(frame);
+        peakDepth = Math.max(peakDepth, frames.size());
+        notifyAll();
+        return lastSequence;
+    }
+
+    /* Applies the overflow policy, returns true if there is room for given frame */
+    private boolean makeRoom(Frame offered) throws IOException {
+        switch (policy) {
+            case CONFLATE:
+                return conflate(offered.key) || mergeDeltas(offered);
+            case BLOCK:
+                return awaitRoom();
+            default:
+                return false;
+        }
+    }
+
+    /*
+     * Drops the newest queued snapshot which is superseded by a later one (or by the new frame),
+     * along with the deltas based on it
+     */
+    private boolean conflate(String key) {
+        Set<String> newerKeys = new HashSet<>();
+        if (key != null) newerKeys.add(key);
+
+        Iterator<Frame> iterator = frames.descendingIterator();
+        while (iterator.hasNext()) {
+            Frame frame = iterator.next();
+            if (frame.key == null) continue;
+            if (!newerKeys.add(frame.key)) {
+                /* A newer snapshot of the same entity is going to be sent anyway */
+                dropSnapshot(frame);
+                logger.log(Level.FINE, "Conflated snapshot {0}", frame.key);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Merges the newest queued delta which is followed by another delta of the same entity (possibly the offered
+     * frame) into the latter, so the client receives the changes of both at once
+     */
+    private boolean mergeDeltas(Frame offered) {
+        /* The oldest delta of each entity seen so far, which follows the current frame */
+        Map<String, Frame> newerDeltas = new HashMap<>();
+        if (offered.deltaKey != null) newerDeltas.put(offered.deltaKey, offered);
+
+        Iterator<Frame> iterator = frames.descendingIterator();
+        while (iterator.hasNext()) {
+            Frame frame = iterator.next();
+            if (frame.key != null) {
+                /* The newer deltas are based on this snapshot */
+                newerDeltas.remove(frame.key);
+            } else if (frame.deltaKey != null) {
+                Frame newer = newerDeltas.put(frame.deltaKey, frame);
+                if (newer != null && newer.mergeAfter(frame)) {
+                    iterator.remove();
+                    logger.log(Level.FINE, "Merged delta update of {0}", frame.deltaKey);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Removes given snapshot and the deltas of the same entity which follow it, up to the next snapshot:
+     * otherwise the client would receive deltas for a version it does not have
+     */
+    private void dropSnapshot(Frame snapshot) {
+        Iterator<Frame> iterator = frames.iterator();
+        while (iterator.next() != snapshot) {
+            /* Skip the frames before the snapshot */
+        }
+        iterator.remove();
+        while (iterator.hasNext()) {
+            Frame frame = iterator.next();
+            if (snapshot.key.equals(frame.key)) return;
+            if (snapshot.key.equals(frame.deltaKey)) iterator.remove();
+        }
+    }
+
+    /* Waits for the queue to be drained, returns true if there is room before the timeout */
+    private boolean awaitRoom() throws IOException {
+        long deadline = System.currentTimeMillis() + blockMillis;
+        long remaining = blockMillis;
+        try {
+            while (!closed && frames.size() >= highWatermark && remaining > 0) {
+                wait(remaining);
+                remaining = deadline - System.currentTimeMillis();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the client", e);
+        }
+        if (closed) throw new IOException("Connection is closed");
+        return frames.size() < highWatermark;
+    }
+
+    /**
+     * Removes the first frame of the queue, without waiting
+     *
+     * @return the first frame, {@code null} if the queue is empty or closed
+     */
+    synchronized byte[] poll() {
+        Frame frame = frames.pollFirst();
+        if (frame == null) return null;
+        polledSequence = frame.sequence;
+        notifyAll(); /* Wakes up the blocked callers */
+        return frame.bytes;
+    }
+
+    /**
+     * Reports that all the frames taken from the queue so far have been written on the connection
+     */
+    synchronized void written() {
+        writtenSequence = polledSequence;
+        notifyAll();
+    }
+
+    /**
+     * Tells whether the frames taken from the queue should be flushed now: either the queue is empty,
+     * or a caller is waiting for one of them to be written
+     *
+     * @return {@code true} if the frames which have been taken should be flushed
+     */
+    synchronized boolean isFlushNeeded() {
+        return frames.isEmpty() || (awaitedSequence > writtenSequence && polledSequence >= awaitedSequence);
+    }
+
+    /**
+     * Waits for the frame with given sequence number to be written on the connection,
+     * for at most {@code adrenaline.timeout.ping} milliseconds
+     *
+     * @param sequence the sequence number of the frame, as returned when it was enqueued
+     * @throws IOException if the queue is closed before the frame is written (e.g. because writing failed),
+     *                     or the frame is not written in time
+     */
+    synchronized void awaitWritten(long sequence) throws IOException {
+        awaitedSequence = Math.max(awaitedSequence, sequence);
+        long deadline = System.currentTimeMillis() + awaitMillis;
+        long remaining = awaitMillis;
+        try {
+            while (!closed && writtenSequence < sequence && remaining > 0) {
+                wait(remaining);
+                remaining = deadline - System.currentTimeMillis();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for the client", e);
+        }
+        if (writtenSequence >= sequence) return;
+        if (closed) throw new IOException("Connection is closed");
+        throw new IOException("The frame has not been written in time");
+    }
+
+    /**
+     * Removes the first frame of the queue, waiting for one if the queue is empty
+     *
+     * @return the first frame, {@code null} if the queue has been closed
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    synchronized byte[] take() throws InterruptedException {
+        while (!closed && frames.isEmpty()) {
+            wait();
+        }
+        return poll();
+    }
+
+    /**
+     * Closes the queue: the queued frames are discarded and no more frames are accepted
+     */
+    synchronized void close() {
+        closed = true;
+        frames.clear();
+        notifyAll();
+    }
+
+    /**
+     * Tells whether there are no frames waiting to be written
+     *
+     * @return {@code true} if the queue is empty
+     */
+    synchronized boolean isEmpty() {
+        return frames.isEmpty();
+    }
+
+    /**
+     * Returns the number of frames waiting to be written
+     *
+     * @return the number of queued frames
+     */
+    synchronized int getDepth() {
+        return frames.size();
+    }
+
+    /**
+     * Returns the maximum number of frames which have been waiting at the same time
+     *
+     * @return the peak depth of the queue
+     */
+    synchronized int getPeakDepth() {
+        return peakDepth;
+    }
+}
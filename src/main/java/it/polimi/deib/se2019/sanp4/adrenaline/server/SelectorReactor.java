@@ -0,0 +1,161 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.server;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An I/O thread of the {@link SelectorSocketServer}.
+ * <p>
+ * Each reactor owns a {@link Selector} and serves many {@link SelectorRemoteView}s:
+ * it reads incoming bytes from their channels and writes their outgoing commands
+ * whenever the channel is ready, so no thread is ever blocked on a single client.
+ * </p>
+ * <p>
+ * All the operations on the selection keys are performed by the reactor thread:
+ * other threads can only ask to register a view or to enable writing on it,
+ * then the selector is woken up to process the request.
+ * </p>
+ *
+ * @author Alessandro Fulgini
+ */
+class SelectorReactor implements Runnable {
+
+    /** The selector used to multiplex the channels */
+    private final Selector selector;
+
+    /** Views waiting to be registered on the selector */
+    private final Queue<SelectorRemoteView> pendingRegistrations = new ConcurrentLinkedQueue<>();
+
+    /** Views which have enqueued data to be written */
+    private final Queue<SelectorRemoteView> pendingWrites = new ConcurrentLinkedQueue<>();
+
+    private static final Logger logger = Logger.getLogger(SelectorReactor.class.getName());
+
+    /**
+     * Creates a new reactor with its own selector
+     *
+     * @throws IOException if the selector cannot be opened
+     */
+    SelectorReactor() throws IOException {
+        selector = Selector.open();
+    }
+
+    /**
+     * Asks the reactor to start serving given view
+     *
+     * @param view the view to be served, not null
+     */
+    void register(SelectorRemoteView view) {
+        pendingRegistrations.add(view);
+        selector.wakeup();
+    }
+
+    /**
+     * Notifies the reactor that given view has data to be written
+     *
+     * @param view the view which has data to be written, not null
+     */
+    void requestWrite(SelectorRemoteView view) {
+        pendingWrites.add(view);
+        selector.wakeup();
+    }
+
+    /**
+     * Runs the selection loop, until the thread is interrupted
+     */
+    @Override
+    public void run() {
+        while (!Thread.currentThread().isInterrupted() && selector.isOpen()) {
+            try {
+                selector.select();
+                processRegistrations();
+                processWriteRequests();
+                processSelectedKeys();
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Selector failure", e);
+                break;
+            }
+        }
+        close();
+        logger.log(Level.FINER, "End of reactor thread");
+    }
+
+    /**
+     * Registers the views which have been handed to this reactor
+     */
+    private void processRegistrations() {
+        SelectorRemoteView view;
+        while ((view = pendingRegistrations.poll()) != null) {
+            try {
+                SelectionKey key = view.getChannel().register(selector, SelectionKey.OP_READ, view);
+                view.setSelectionKey(key);
+                if (view.hasPendingOutput()) {
+                    key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                }
+            } catch (ClosedChannelException e) {
+                view.closeConnection();
+            }
+        }
+    }
+
+    /**
+     * Enables the interest for writing on the views which have enqueued data
+     */
+    private void processWriteRequests() {
+        SelectorRemoteView view;
+        while ((view = pendingWrites.poll()) != null) {
+            SelectionKey key = view.getSelectionKey();
+            if (key != null && key.isValid()) {
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+            }
+            /* If the view has not been registered yet, it will be written after the registration */
+        }
+    }
+
+    /**
+     * Reads and writes on the channels which are ready
+     */
+    private void processSelectedKeys() {
+        Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+        while (iterator.hasNext()) {
+            SelectionKey key = iterator.next();
+            iterator.remove();
+            SelectorRemoteView view = (SelectorRemoteView) key.attachment();
+            try {
+                if (key.isValid() && key.isReadable()) {
+                    view.handleRead();
+                }
+                if (key.isValid() && key.isWritable() && view.handleWrite()) {
+                    /* Everything has been written, stop waiting for the channel to be writable */
+                    key.interestOps(SelectionKey.OP_READ);
+                }
+            } catch (IOException | CancelledKeyException e) {
+                /* This is a problem with the connection */
+                view.closeConnection();
+            }
+        }
+    }
+
+    /**
+     * Closes the selector and all the connections it was serving
+     */
+    void close() {
+        if (!selector.isOpen()) return;
+        try {
+            for (SelectionKey key : selector.keys()) {
+                ((SelectorRemoteView) key.attachment()).closeConnection();
+            }
+            selector.close();
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Could not close selector", e);
+        }
+    }
+}
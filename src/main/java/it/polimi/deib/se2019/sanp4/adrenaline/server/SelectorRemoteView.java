@@ -0,0 +1,438 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.server;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.events.ViewEvent;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.RemoteView;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket.*;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket.codec.FrameDecoder;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket.codec.UpdateFrameCache;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket.codec.WireCodec;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket.codec.WireCodecs;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.observer.RemoteObservable;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.requests.ChoiceRequest;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.ModelUpdate;
+import it.polimi.deib.se2019.sanp4.adrenaline.view.MessageType;
+import it.polimi.deib.se2019.sanp4.adrenaline.view.ViewScene;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A remote view connected via a non-blocking socket channel, served by a {@link SelectorReactor}.
+ * <p>
+ * It speaks the same protocol of {@link SocketRemoteView}, but it does not own any thread:
+ * the reactor reads and writes on the channel, while the received commands are applied
+ * on an executor shared by all the views (commands of the same view are still applied in order).
+ * </p>
+ * <p>
+ * Sending a command does not wait for the client: the serialized command is put in a bounded
+ * {@link OutboundQueue} and written by the reactor as soon as the channel is writable.
+ * If the connection is found to be closed or the client is too slow,
+ * an {@link IOException} is thrown to the caller, like in {@link SocketRemoteView}.
+ * </p>
+ *
+ * @author Alessandro Fulgini
+ */
+public class SelectorRemoteView extends RemoteObservable<ViewEvent>
+        implements RemoteView, SocketServerCommandTarget {
+
+    /** Size of the buffer used to read from the channel */
+    private static final int READ_BUFFER_SIZE = 8192;
+
+    /** The channel to communicate with the client */
+    private final SocketChannel channel;
+
+    /** The server who accepted the connection */
+    private final SocketServer server;
+
+    /** The reactor which serves this view */
+    private final SelectorReactor reactor;
+
+    /** Executor for incoming commands, runs them in order */
+    private final Executor commandExecutor;
+
+    /** Buffer for reading from the channel */
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+    /** Extracts the incoming frames, only accessed by the reactor */
+    private FrameDecoder frameDecoder = WireCodecs.TEXT.newFrameDecoder();
+
+    /** Codec used to decode incoming frames, only accessed by the reactor */
+    private WireCodec readCodec = WireCodecs.TEXT;
+
+    /**
+     * Codec used to send commands.
+     * It is read and the frame is enqueued while holding {@link #writeLock}, so that the frames are
+     * always queued in the same order in which their codec was chosen
+     */
+    private WireCodec writeCodec = WireCodecs.TEXT;
+
+    /** Held while encoding a frame and enqueuing it, and while switching the codec */
+    private final Object writeLock = new Object();
+
+    /** Serialized commands waiting to be written on the channel */
+    private final OutboundQueue outbound = OutboundQueue.fromProperties();
+
+    /** The command which is being written, only accessed by the reactor */
+    private ByteBuffer writeBuffer;
+
+    /** The key of the channel in the selector of the reactor */
+    private volatile SelectionKey selectionKey;
+
+    /** Username of the player this view belongs to */
+    private String username;
+
+    /* Commodities */
+    private static final Logger logger = Logger.getLogger(SelectorRemoteView.class.getName());
+
+    /**
+     * Creates a stub of the view communicating via a non-blocking socket channel
+     *
+     * @param channel         the channel to communicate with the client, in non-blocking mode
+     * @param server          the server who accepted the connection
+     * @param reactor         the reactor which will serve this view
+     * @param commandExecutor the executor for incoming commands, which must run them in order
+     */
+    SelectorRemoteView(SocketChannel channel, SocketServer server, SelectorReactor reactor,
+                       Executor commandExecutor) {
+        this.channel = channel;
+        this.server = server;
+        this.reactor = reactor;
+        this.commandExecutor = commandExecutor;
+    }
+
+    /* ========== I/O (called by the reactor) ========== */
+
+    /**
+     * Reads the available bytes from the channel and dispatches the complete commands.
+     * Called by the reactor when the channel is readable
+     *
+     * @throws IOException if the connection has been closed or there are network problems
+     */
+    void handleRead() throws IOException {
+        int read = channel.read(readBuffer);
+        if (read < 0) throw new EOFException("Connection closed by the client");
+
+        readBuffer.flip();
+        byte[] frame;
+        while ((frame = frameDecoder.next(readBuffer)) != null) {
+            /* A command is complete */
+            dispatch(frame);
+        }
+        readBuffer.clear();
+    }
+
+    /**
+     * Writes as many enqueued commands as possible on the channel.
+     * Called by the reactor when the channel is writable
+     *
+     * @return {@code true} if all the enqueued commands have been written, {@code false} otherwise
+     * @throws IOException if there are network problems
+     */
+    boolean handleWrite() throws IOException {
+        while (true) {
+            if (writeBuffer == null) {
+                byte[] frame = outbound.poll();
+                if (frame == null) return true;
+                /* The frame may be shared with other views */
+                writeBuffer = ByteBuffer.wrap(frame).asReadOnlyBuffer();
+            }
+            channel.write(writeBuffer);
+            if (writeBuffer.hasRemaining()) {
+                return false; /* The socket buffer is full, wait for the channel to be writable again */
+            }
+            writeBuffer = null;
+            outbound.written();
+        }
+    }
+
+    /**
+     * Tells whether there are commands waiting to be written
+     *
+     * @return {@code true} if there are commands waiting to be written
+     */
+    boolean hasPendingOutput() {
+        return writeBuffer != null || !outbound.isEmpty();
+    }
+
+    /**
+     * Deserializes the received command and applies it on this view, using the command executor.
+     * Deserialization happens on the reactor, because a login command changes the codec
+     * of the frames which follow it
+     *
+     * @param frame the payload of the received frame
+     */
+    private void dispatch(byte[] frame) {
+        SocketServerCommand command;
+        try {
+            command = readCodec.decode(frame, SocketServerCommand.class);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not unmarshall incoming command", e);
+            return;
+        }
+        if (command == null) {
+            logger.log(Level.WARNING, "Cannot execute null command");
+            return;
+        }
+        logger.log(Level.FINER, "Received command: {0}", command.getClass().getSimpleName());
+
+        /* After the login, the client uses the negotiated codec */
+        if (command instanceof LoginCommand) {
+            WireCodec negotiated = ((LoginCommand) command).negotiateCodec();
+            if (negotiated != readCodec) {
+                readCodec = negotiated;
+                frameDecoder = negotiated.newFrameDecoder();
+            }
+        }
+        commandExecutor.execute(() -> command.applyOn(this));
+    }
+
+    /**
+     * Returns the channel used to communicate with the client
+     *
+     * @return the channel used to communicate with the client
+     */
+    SocketChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * Returns the key of the channel in the selector of the reactor
+     *
+     * @return the selection key, {@code null} if the view has not been registered yet
+     */
+    SelectionKey getSelectionKey() {
+        return selectionKey;
+    }
+
+    /**
+     * Sets the key of the channel in the selector of the reactor
+     *
+     * @param selectionKey the selection key
+     */
+    void setSelectionKey(SelectionKey selectionKey) {
+        this.selectionKey = selectionKey;
+    }
+
+    /**
+     * Closes the socket connection and discards the commands which have not been written
+     */
+    synchronized void closeConnection() {
+        if (channel.isOpen()) {
+            try {
+                logger.log(Level.FINE, "Closing connection for player \"{0}\"", username);
+                channel.close(); /* This also cancels the selection key */
+            } catch (IOException e) {
+                logger.log(Level.FINE, "Could not close connection", e);
+            }
+        }
+        outbound.close();
+    }
+
+    /* ========== REMOTE VIEW ========== */
+
+    /**
+     * Returns the username of the player associated with this view.
+     * It returns {@code null} if the username has not already been set
+     * (prior to login)
+     *
+     * @return username of the player, if it has been set, {@code null} otherwise
+     */
+    @Override
+    public synchronized String getUsername() {
+        return username;
+    }
+
+    /**
+     * Set the username of the remote view
+     *
+     * @param username name of the user
+     */
+    @Override
+    public synchronized void setUsername(String username) {
+        this.username = username;
+    }
+
+    /**
+     * Performs the provided request on the view
+     *
+     * @param request The object representing the request, not null
+     * @throws IOException if the connection is closed
+     */
+    @Override
+    public <T extends Serializable> void performRequest(ChoiceRequest<T> request) throws IOException {
+        sendCommand(new PerformRequestCommand(request));
+    }
+
+    /**
+     * Shows given message on the client
+     *
+     * @param text The text of the message, not null
+     * @param type The type of the message, not null
+     * @throws IOException if the connection is closed
+     */
+    @Override
+    public void showMessage(String text, MessageType type) throws IOException {
+        sendCommand(new ShowMessageCommand(text, type));
+    }
+
+    @Override
+    public void selectScene(ViewScene scene) throws IOException {
+        sendCommand(new SelectSceneCommand(scene));
+    }
+
+    /**
+     * Sends given update to the client.
+     * If the update is broadcast to more views, its frame is only encoded once (see {@link UpdateFrameCache}).
+     * Snapshots of the model may be conflated if the client is slow (see {@link OutboundQueue})
+     *
+     * @param update update to be sent
+     * @throws IOException if the connection is closed or the client is too slow
+     */
+    @Override
+    public void update(ModelUpdate update) throws IOException {
+        if (!channel.isOpen()) throw new IOException("Connection is closed");
+        try {
+            synchronized (writeLock) {
+                byte[] frame = UpdateFrameCache.encode(update, writeCodec);
+                logger.log(Level.FINER, "Sending update: {0}", update.getClass().getSimpleName());
+                enqueue(frame, update);
+            }
+        } catch (JsonProcessingException e) {
+            logger.log(Level.WARNING, "Jackson could not serialize update", e);
+        }
+    }
+
+    /**
+     * Notifies subscribed observers with given event
+     *
+     * @param event the event to notify to observers
+     */
+    @Override
+    public void notifyEvent(ViewEvent event) {
+        notifyObservers(event);
+    }
+
+    /**
+     * Checks connectivity to the client.
+     * The ping command is enqueued like any other command, then this call waits for the reactor
+     * to write it on the channel, for at most {@code adrenaline.timeout.ping} milliseconds:
+     * so the ping fails if the connection is closed, if writing fails or if the client does not read
+     * the commands which precede it in time
+     *
+     * @throws IOException If there is no connectivity
+     */
+    @Override
+    public void ping() throws IOException {
+        if (!channel.isOpen()) throw new IOException("Connection is closed");
+        long sequence;
+        synchronized (writeLock) {
+            sequence = enqueue(writeCodec.encode(new PingCommand()), null);
+        }
+        outbound.awaitWritten(sequence);
+    }
+
+    /**
+     * Enqueues a command to be sent to the client attached to this target.
+     * This method does not wait for the command to be written, it is written by the reactor
+     *
+     * @param command the command that has to be sent
+     * @throws IOException if the connection is closed or the client is too slow
+     */
+    @Override
+    public void sendCommand(SocketClientCommand command) throws IOException {
+        if (!channel.isOpen()) throw new IOException("Connection is closed");
+        try {
+            synchronized (writeLock) {
+                byte[] frame = writeCodec.encode(command);
+                logger.log(Level.FINER, "Sending command: {0}", command.getClass().getSimpleName());
+                enqueue(frame, null);
+            }
+        } catch (JsonProcessingException e) {
+            logger.log(Level.WARNING, "Jackson could not serialize command", e);
+        }
+    }
+
+    /**
+     * Enqueues an encoded command and asks the reactor to write it.
+     * If the client is too slow, this call will also close the connection
+     *
+     * @param frame  the encoded command
+     * @param update the update in the frame, {@code null} if the frame carries a command
+     * @return the sequence number of the frame in the queue
+     * @throws IOException if the connection is closed or the client is too slow
+     */
+    private long enqueue(byte[] frame, ModelUpdate update) throws IOException {
+        long sequence;
+        try {
+            sequence = outbound.offer(frame, update, writeCodec);
+        } catch (IOException e) {
+            closeConnection();
+            throw e;
+        }
+        reactor.requestWrite(this);
+        return sequence;
+    }
+
+    /**
+     * Returns the number of commands waiting to be written to the client
+     *
+     * @return the depth of the outbound queue
+     */
+    public int getQueueDepth() {
+        return outbound.getDepth();
+    }
+
+    /**
+     * Sends the response to the login with the codec in use, then switches to the negotiated codec.
+     * Both happen atomically with respect to the other commands and updates, so every frame which is queued
+     * after the response is encoded with the new codec, the one the client reads after the response
+     *
+     * @param response the response to the login
+     * @param codec    the codec used for the next commands, not null
+     * @throws IOException if the connection is closed or the client is too slow
+     */
+    @Override
+    public void sendLoginResponse(LoginResponse response, WireCodec codec) throws IOException {
+        if (codec == null) throw new NullPointerException("Codec cannot be null");
+        synchronized (writeLock) {
+            try {
+                byte[] frame = writeCodec.encode(response);
+                logger.log(Level.FINER, "Sending login response, switching to codec {0}", codec.getName());
+                enqueue(frame, null);
+            } catch (JsonProcessingException e) {
+                /* The client has not been told to switch codec */
+                logger.log(Level.WARNING, "Jackson could not serialize login response", e);
+                return;
+            }
+            this.writeCodec = codec;
+        }
+    }
+
+    /**
+     * Returns an object which can be used as a stub for the view
+     *
+     * @return an object which can be used as a stub for the view
+     */
+    @Override
+    public RemoteView getRemoteView() {
+        return this;
+    }
+
+    /**
+     * Returns the server
+     *
+     * @return the server instance
+     */
+    @Override
+    public SocketServer getServer() {
+        return server;
+    }
+}
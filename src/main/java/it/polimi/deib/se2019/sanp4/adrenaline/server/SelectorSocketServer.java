@@ -0,0 +1,206 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.server;
+
+import it.polimi.deib.se2019.sanp4.adrenaline.common.SerialExecutor;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket.SocketServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Accepts socket connections and serves them with a fixed number of I/O threads.
+ * <p>
+ * This is an alternative to the thread-per-connection model of {@link SocketRemoteView}:
+ * each accepted connection is assigned to one of the {@link SelectorReactor}s (in round-robin fashion),
+ * which multiplex many non-blocking channels on a single thread.
+ * The commands received from the clients are applied on a shared executor with a fixed maximum number
+ * of threads (see {@code adrenaline.socket.command.threads}), so the number of threads of the server does
+ * not depend on the number of clients. The commands of each client are applied in order, one at a time,
+ * so the executor never holds more than one pending command for each connection.
+ * </p>
+ * <p>
+ * If accepting a connection fails repeatedly (e.g. because the process ran out of file descriptors),
+ * the server waits a bit longer after each failure before trying again, instead of spinning.
+ * </p>
+ * <p>
+ * The clients use exactly the same protocol, so the selection of this mode is transparent to them.
+ * </p>
+ *
+ * @author Alessandro Fulgini
+ */
+public class SelectorSocketServer implements Runnable {
+
+    /** The server which handles logins and logouts */
+    private final SocketServer server;
+
+    /** The port to listen on */
+    private final int port;
+
+    /** The I/O threads */
+    private final SelectorReactor[] reactors;
+
+    /** Executor which runs the reactors */
+    private final ExecutorService reactorExecutor;
+
+    /** Executor shared by all the views to apply incoming commands, with a bounded number of threads */
+    private final ThreadPoolExecutor commandExecutor;
+
+    /** Wait after the first failure to accept a connection, in milliseconds */
+    private static final long MIN_ACCEPT_BACKOFF = 10;
+
+    /** Maximum wait after repeated failures to accept a connection, in milliseconds */
+    private static final long MAX_ACCEPT_BACKOFF = 1000;
+
+    /** Number of consecutive failures to accept a connection */
+    private int acceptFailures = 0;
+
+    /** Used to accept socket connections */
+    private ServerSocketChannel serverChannel;
+
+    /** Index of the reactor which will serve the next connection */
+    private int nextReactor = 0;
+
+    private static final Logger logger = Logger.getLogger(SelectorSocketServer.class.getName());
+
+    /**
+     * Creates a new selector-based socket server, which applies the commands with twice as many threads
+     * as the I/O threads
+     *
+     * @param server    the server which handles logins and logouts, not null
+     * @param port      the port to listen on
+     * @param ioThreads the number of I/O threads, must be positive
+     * @throws IOException if the selectors cannot be opened
+     */
+    public SelectorSocketServer(SocketServer server, int port, int ioThreads) throws IOException {
+        this(server, port, ioThreads, 2 * ioThreads);
+    }
+
+    /**
+     * Creates a new selector-based socket server
+     *
+     * @param server         the server which handles logins and logouts, not null
+     * @param port           the port to listen on
+     * @param ioThreads      the number of I/O threads, must be positive
+     * @param commandThreads the maximum number of threads which apply the commands, must be positive
+     * @throws IOException if the selectors cannot be opened
+     */
+    public SelectorSocketServer(SocketServer server, int port, int ioThreads, int commandThreads)
+            throws IOException {
+        if (server == null) throw new NullPointerException("Server cannot be null");
+        if (ioThreads <= 0) throw new IllegalArgumentException("There must be at least one I/O thread");
+        if (commandThreads <= 0) throw new IllegalArgumentException("There must be at least one command thread");
+        this.server = server;
+        this.port = port;
+        this.reactors = new SelectorReactor[ioThreads];
+        for (int i = 0; i < ioThreads; i++) {
+            reactors[i] = new SelectorReactor();
+        }
+        this.reactorExecutor = Executors.newFixedThreadPool(ioThreads);
+
+        AtomicInteger count = new AtomicInteger();
+        /* Idle threads are released, but there are never more than commandThreads */
+        this.commandExecutor = new ThreadPoolExecutor(commandThreads, commandThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "adrenaline-socket-command-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.commandExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Starts the I/O threads, then accepts incoming connections until the server channel is closed
+     */
+    @Override
+    public void run() {
+        for (SelectorReactor reactor : reactors) {
+            reactorExecutor.submit(reactor);
+        }
+        try {
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(port));
+            logger.log(Level.INFO, "Listening for socket connections on port {0} with {1} I/O threads",
+                    new Object[]{port, reactors.length});
+            while (serverChannel.isOpen()) acceptConnection();
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Cannot create socket on port {0}", port);
+        }
+        shutdown();
+    }
+
+    /**
+     * Accepts an incoming connection and hands it to the next reactor
+     */
+    private void acceptConnection() {
+        try {
+            SocketChannel client = serverChannel.accept();
+            logger.log(Level.FINE, "Accepting connection from {0}", client.getRemoteAddress());
+            client.configureBlocking(false);
+            client.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+
+            SelectorReactor reactor = reactors[nextReactor];
+            nextReactor = (nextReactor + 1) % reactors.length;
+
+            SelectorRemoteView view = new SelectorRemoteView(client, server, reactor,
+                    new SerialExecutor(commandExecutor));
+            reactor.register(view);
+            acceptFailures = 0;
+        } catch (IOException e) {
+            if (serverChannel.isOpen()) backOff(e);
+        }
+    }
+
+    /**
+     * Waits before accepting the next connection, longer after each consecutive failure.
+     * Only the first failure of a series is logged as a warning
+     *
+     * @param e the cause of the failure
+     */
+    private void backOff(IOException e) {
+        acceptFailures++;
+        if (acceptFailures == 1) {
+            logger.log(Level.WARNING, "Failed to connect client", e);
+        } else {
+            logger.log(Level.FINE, "Failed to connect client ({0} consecutive failures)", acceptFailures);
+        }
+        long wait = Math.min(MAX_ACCEPT_BACKOFF, MIN_ACCEPT_BACKOFF << Math.min(acceptFailures - 1, 10));
+        try {
+            Thread.sleep(wait);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            shutdown();
+        }
+    }
+
+    /**
+     * Stops accepting connections, then closes all the existing ones and stops the I/O threads
+     */
+    public void shutdown() {
+        try {
+            if (serverChannel != null) serverChannel.close();
+        } catch (IOException e) {
+            logger.log(Level.FINE, "Could not close server channel", e);
+        }
+        reactorExecutor.shutdownNow();
+        commandExecutor.shutdown();
+    }
+
+    /**
+     * Returns the number of I/O threads
+     *
+     * @return the number of I/O threads
+     */
+    public int getIoThreads() {
+        return reactors.length;
+    }
+}
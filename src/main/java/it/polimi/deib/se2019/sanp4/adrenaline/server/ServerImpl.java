@@ -2,11 +2,13 @@ package it.polimi.deib.se2019.sanp4.adrenaline.server;
 
 import it.polimi.deib.se2019.sanp4.adrenaline.common.AdrenalineProperties;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.exceptions.LoginException;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.MatchPreferences;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.network.RemoteServer;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.network.RemoteView;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket.SocketServer;
 import it.polimi.deib.se2019.sanp4.adrenaline.controller.Controller;
 import it.polimi.deib.se2019.sanp4.adrenaline.controller.ControllerImpl;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.match.MatchSkeleton;
 
 import java.io.IOException;
 import java.net.InetAddress;
@@ -17,11 +19,9 @@ import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
 import java.rmi.server.UnicastRemoteObject;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.logging.Level;
@@ -51,28 +51,29 @@ public class ServerImpl implements SocketServer, RemoteServer, Runnable {
     /** Used to manage Socket connections in separate threads */
     private ExecutorService socketExecutor = Executors.newCachedThreadPool();
 
-    /** Executor for the lobby */
-    private ExecutorService lobbyExecutor = Executors.newSingleThreadExecutor();
+    /** Runs the controllers of the matches, at most {@code adrenaline.matches.max} at the same time */
+    private MatchScheduler matchScheduler = new MatchScheduler(DEFAULT_MATCH_CAPACITY);
 
-    /** Executor for the controllers of the matches */
-    private ExecutorService matchExecutor = Executors.newFixedThreadPool(10);
+    /** Runs the lobbies used to handle waiting players, partitioned by their preferences */
+    private Matchmaker matchmaker = new Matchmaker();
 
-    /** The lobby used to handle waiting players */
-    private Lobby lobby = new Lobby();
+    /** Prepares the matches while their players are waiting in the lobbies */
+    private MatchSkeletonPool skeletonPool = new MatchSkeletonPool(DEFAULT_PREWARMED_MATCHES);
 
     /**
-     * Map with all connected usernames:
-     * <ul>
-     *     <li>If the player belongs to a started match, the value is the controller of that match</li>
-     *     <li>If the player belongs to the lobby the value is {@code null}</li>
-     * </ul>
+     * The sessions of the players, with the usernames in use (which cannot be taken)
+     * and the controller of the match of each player (if it has started)
      */
-    private ConcurrentMap<String, Controller> playerMatches = new ConcurrentHashMap<>();
+    private SessionRegistry sessions = new SessionRegistry();
 
-    /**
-     * The set of usernames in use by players. These cannot be taken
-     */
-    private Set<String> reservedUsernames = new HashSet<>();
+    /** Default maximum number of matches running at the same time */
+    private static final int DEFAULT_MATCH_CAPACITY = 10;
+
+    /** Default maximum number of matches prepared in advance */
+    private static final int DEFAULT_PREWARMED_MATCHES = 2;
+
+    /** Value of {@code adrenaline.socket.mode} which selects the non-blocking socket server */
+    private static final String SELECTOR_SOCKET_MODE = "selector";
 
     private static final Logger logger = Logger.getLogger(ServerImpl.class.getName());
 
@@ -84,13 +85,27 @@ public class ServerImpl implements SocketServer, RemoteServer, Runnable {
      */
     @Override
     public void run() {
-        /* First start the Lobby */
-        lobbyExecutor.submit(lobby);
+        /* Configure the match scheduler, the Lobby tells the players of queued matches their position */
+        int matchCapacity = Integer.parseInt((String) AdrenalineProperties.getProperties()
+                .getOrDefault("adrenaline.matches.max", Integer.toString(DEFAULT_MATCH_CAPACITY)));
+        matchScheduler.setCapacity(matchCapacity);
+        matchScheduler.setQueueListener(matchmaker::notifyQueuedMatches);
+        skeletonPool.setCapacity(Integer.parseInt((String) AdrenalineProperties.getProperties()
+                .getOrDefault("adrenaline.matches.prewarm", Integer.toString(DEFAULT_PREWARMED_MATCHES))));
+
+        /* First start the lobbies */
+        matchmaker.start();
         /* Then start listening for connections */
         int rmiPort = Integer.parseInt((String) AdrenalineProperties.getProperties().getOrDefault("adrenaline.rmi.port", "1099"));
         int socketPort = Integer.parseInt((String) AdrenalineProperties.getProperties().getOrDefault("adrenaline.socket.port", "3000"));
+        String socketMode = (String) AdrenalineProperties.getProperties()
+                .getOrDefault("adrenaline.socket.mode", "blocking");
         startRMI(rmiPort);
-        startSocket(socketPort);
+        if (SELECTOR_SOCKET_MODE.equals(socketMode)) {
+            startSelectorSocket(socketPort);
+        } else {
+            startSocket(socketPort);
+        }
     }
 
     /* ============= CONNECTIONS ============ */
@@ -138,6 +153,25 @@ public class ServerImpl implements SocketServer, RemoteServer, Runnable {
         }
     }
 
+    /**
+     * Accepts incoming socket connections and serves them with a fixed number of I/O threads,
+     * instead of using a thread for each connection.
+     * See {@link SelectorSocketServer}
+     * @param port the port on which to listen for incoming connections
+     */
+    private void startSelectorSocket(int port) {
+        int ioThreads = Integer.parseInt((String) AdrenalineProperties.getProperties()
+                .getOrDefault("adrenaline.socket.io.threads",
+                        Integer.toString(Runtime.getRuntime().availableProcessors())));
+        int commandThreads = Integer.parseInt((String) AdrenalineProperties.getProperties()
+                .getOrDefault("adrenaline.socket.command.threads", Integer.toString(2 * ioThreads)));
+        try {
+            new SelectorSocketServer(this, port, ioThreads, commandThreads).run();
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Cannot start selector-based socket server", e);
+        }
+    }
+
     /**
      * Accepts incoming connection on socket and runs it in a separate thread using the executor.
      */
@@ -156,34 +190,44 @@ public class ServerImpl implements SocketServer, RemoteServer, Runnable {
     /* ========== LOGIN AND LOGOUT =========== */
 
     @Override
-    public void playerLogin(String username, RemoteView view) throws LoginException {
+    public String playerLogin(String username, String token, MatchPreferences preferences, RemoteView view)
+            throws LoginException {
         if (username == null || username.isEmpty() || view == null) {
             throw new LoginException("Please provide an username");
         }
 
-        boolean success = false;
-
-        if (!isUsernameReserved(username)) {
-            /* The player is not actually in a match */
-            reserveUsername(username);
-
-            /* Send the player to the Lobby */
-            lobby.insertPlayer(username, view);
-            success = true;
-        } else {
-            /* Check if the player is in a match */
-            Controller controller = playerMatches.get(username);
-            if(controller != null) {
-                logger.log(Level.INFO, "Player \"{0}\" is trying to rejoin", username);
-                /* Try to reconnect the player */
-                success = controller.reconnectRemoteView(username, view);
-                logger.log(Level.FINE, "Rejoin result: {0}", success);
+        /* A client which presents the token of its session is the owner of the username */
+        SessionRegistry.Session session = sessions.resolve(token);
+        if (session != null && session.getUsername().equals(username)) {
+            Controller controller = session.getController();
+            if (controller != null) {
+                logger.log(Level.INFO, "Player \"{0}\" is resuming its session", username);
+                /* The old remote view is stale, so there is no need to check it */
+                if (controller.resumeRemoteView(username, view)) return session.getToken();
             }
+            throw new LoginException("Cannot resume the session, please try again");
+        }
+
+        /* The username is free, so the player is not actually in a match */
+        session = sessions.reserve(username);
+        if (session != null) {
+            /* Send the player to the Lobby which best fits his preferences */
+            matchmaker.insertPlayer(username, view, preferences);
+            return session.getToken();
         }
 
-        if (!success) {
-            throw new LoginException("This name is already taken");
+        /* Check if the player is in a match */
+        session = sessions.getSession(username);
+        Controller controller = session == null ? null : session.getController();
+        if (controller != null) {
+            logger.log(Level.INFO, "Player \"{0}\" is trying to rejoin", username);
+            /* Try to reconnect the player */
+            boolean success = controller.reconnectRemoteView(username, view);
+            logger.log(Level.FINE, "Rejoin result: {0}", success);
+            if (success) return session.getToken();
         }
+
+        throw new LoginException("This name is already taken");
     }
 
 
@@ -197,29 +241,21 @@ public class ServerImpl implements SocketServer, RemoteServer, Runnable {
     @Override
     public void playerLogout(String username) {
         /* Check if the player is in a match */
-        Controller controller = playerMatches.get(username);
+        SessionRegistry.Session session = sessions.getSession(username);
+        Controller controller = session == null ? null : session.getController();
         if(controller != null) {
             /* Try to disconnect the player */
             controller.disconnectRemoteView(username);
         }
     }
 
-    /**
-     * Puts an username in the set of reserved usernames
-     * @param username the username which has to be reserved
-     */
-    synchronized void reserveUsername(String username) {
-        reservedUsernames.add(username);
-    }
-
     /**
      * Unreserves a reserved username.
-     * If that username had an associated controller, also deletes that
+     * Its session is closed, so its token is no longer valid
      * @param username the username to be unreserved
      */
-    public synchronized void unreserveUsername(String username) {
-        playerMatches.remove(username);
-        reservedUsernames.remove(username);
+    public void unreserveUsername(String username) {
+        sessions.release(username);
     }
 
     /**
@@ -233,7 +269,7 @@ public class ServerImpl implements SocketServer, RemoteServer, Runnable {
      * @return whether this player is logged in (playing in a running match or in the lobby)
      */
     public boolean isUsernameReserved(String username) {
-        return reservedUsernames.contains(username);
+        return sessions.isReserved(username);
     }
 
     @Override
@@ -245,24 +281,41 @@ public class ServerImpl implements SocketServer, RemoteServer, Runnable {
     /* ========== MATCH HANDLING =======*/
 
     /**
-     * Starts a new match with given players
+     * Starts a new match with given players.
+     * If the maximum number of running matches has been reached, the match is queued and it will be
+     * created as soon as another match is over
+     * @param players a map with username as the key and the RemoteView of the player as the value
+     * @return 0 if the match has been started, otherwise its position in the queue (starting from 1)
+     */
+    public int startNewMatch(Map<String, RemoteView> players) {
+        return startNewMatch(players, MatchPreferences.ANY);
+    }
+
+    /**
+     * Starts a new match with given players, who share given preferences.
+     * The values of the configuration of the match given by the preferences are not asked to the players,
+     * and the match is built from a skeleton of the {@link MatchSkeletonPool}, if one is ready
      * @param players a map with username as the key and the RemoteView of the player as the value
+     * @param preferences the preferences shared by the players, not null
+     * @return 0 if the match has been started, otherwise its position in the queue (starting from 1)
      */
-    public void startNewMatch(Map<String, RemoteView> players) {
+    public int startNewMatch(Map<String, RemoteView> players, MatchPreferences preferences) {
         Set<String> usernames = players.keySet();
         logger.log(Level.INFO, () -> String.format("Starting new match from players: %s", usernames));
 
-        /* Create the controller for the match */
-        Controller controller = new ControllerImpl(players);
+        /* Run the controller in steps, when the scheduler admits the match */
+        return matchScheduler.submitAsync(players, executor -> {
+            /* Create the controller for the match, with the skeleton prepared in advance (if any) */
+            CompletableFuture<MatchSkeleton> skeleton = skeletonPool.take(preferences.getBoardId());
+            Controller controller = new ControllerImpl(players, preferences, skeleton);
 
-        /* Set the controller for each player in the map */
-        usernames.forEach(u -> playerMatches.put(u, controller));
+            /* Set the controller for each player in the map */
+            usernames.forEach(u -> sessions.setController(u, controller));
 
-        /* Run the controller in another thread */
-        matchExecutor.submit(() -> {
-            controller.run(); /* Run */
-            logger.log(Level.INFO, "Match is over, unreserving usernames {0}", usernames);
-            usernames.forEach(this::unreserveUsername); /* Unreserve usernames when finished */
+            return controller.runAsync(executor).whenComplete((result, e) -> { /* Run */
+                logger.log(Level.INFO, "Match is over, unreserving usernames {0}", usernames);
+                usernames.forEach(this::unreserveUsername); /* Unreserve usernames when finished */
+            });
         });
     }
 
@@ -277,18 +330,34 @@ public class ServerImpl implements SocketServer, RemoteServer, Runnable {
     }
 
     /**
-     * Returns the Lobby used to triage incoming players until a match can start
-     * @return The lobby
+     * Returns the matchmaker, which runs the lobbies used to triage incoming players until a match can start
+     * @return The matchmaker
+     */
+    public Matchmaker getMatchmaker() {
+        return matchmaker;
+    }
+
+    /**
+     * Returns the pool which prepares the matches in advance
+     * @return The pool of match skeletons
+     */
+    public MatchSkeletonPool getSkeletonPool() {
+        return skeletonPool;
+    }
+
+    /**
+     * Returns the scheduler which runs the matches
+     * @return The match scheduler
      */
-    public Lobby getLobby() {
-        return lobby;
+    public MatchScheduler getMatchScheduler() {
+        return matchScheduler;
     }
 
     /**
-     * Returns a map containing, for each player, the controller he's currently playing in
-     * @return A map with the controller of the match he's playing in
+     * Returns the sessions of the players, which also hold the controller of the match each one is playing in
+     * @return The registry of the sessions
      */
-    public ConcurrentMap<String, Controller> getPlayerMatches() {
-        return playerMatches;
+    public SessionRegistry getSessions() {
+        return sessions;
     }
 }
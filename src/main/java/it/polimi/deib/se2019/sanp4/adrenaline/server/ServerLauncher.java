@@ -2,6 +2,7 @@ package it.polimi.deib.se2019.sanp4.adrenaline.server;
 
 import it.polimi.deib.se2019.sanp4.adrenaline.common.AdrenalineProperties;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.ResourcesLoader;
+import it.polimi.deib.se2019.sanp4.adrenaline.controller.weapons.WeaponBlueprint;
 
 /**
  * Main class for the server
@@ -14,6 +15,7 @@ public class ServerLauncher {
      * Main method to launch the server.
      * <ul>
      *     <li>Loads the JSON resources and schemas</li>
+     *     <li>Compiles the weapon blueprints</li>
      *     <li>Loads the configuration and logging parameters for the server</li>
      *     <li>Starts the server, which will be listening for incoming connection</li>
      * </ul>
@@ -22,6 +24,7 @@ public class ServerLauncher {
     public static void main(String[] args) {
 
         ResourcesLoader.loadCreatorResources();
+        WeaponBlueprint.compileLoadedWeapons();
 
         ServerImpl server = ServerImpl.getInstance();
 
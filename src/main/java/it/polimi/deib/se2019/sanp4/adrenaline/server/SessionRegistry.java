@@ -0,0 +1,143 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.server;
+
+import it.polimi.deib.se2019.sanp4.adrenaline.controller.Controller;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the sessions of the logged in players, so that each username is used by at most one player.
+ * <p>
+ * A session is created when a username is reserved and is identified by an opaque token, which the
+ * client presents when it logs in again after losing the connection: the token resolves to the session,
+ * and to the controller of the match of the player, in constant time.
+ * Usernames are reserved and released atomically, so concurrent logins with the same username never
+ * both succeed, without holding a lock for the whole login.
+ * </p>
+ *
+ * @author Alessandro Fulgini
+ */
+public class SessionRegistry {
+
+    /**
+     * The session of a logged in player
+     */
+    public static class Session {
+
+        private final String username;
+
+        private final String token;
+
+        /* Set when the match of the player starts */
+        private volatile Controller controller;
+
+        private Session(String username) {
+            this.username = username;
+            this.token = UUID.randomUUID().toString();
+        }
+
+        /**
+         * Returns the username of the player
+         *
+         * @return the username of the player
+         */
+        public String getUsername() {
+            return username;
+        }
+
+        /**
+         * Returns the token which identifies this session
+         *
+         * @return the token of the session
+         */
+        public String getToken() {
+            return token;
+        }
+
+        /**
+         * Returns the controller of the match of the player
+         *
+         * @return the controller of the match, {@code null} if the player is in the lobby
+         */
+        public Controller getController() {
+            return controller;
+        }
+    }
+
+    /** Sessions by username */
+    private final ConcurrentMap<String, Session> sessions = new ConcurrentHashMap<>();
+
+    /** Sessions by token */
+    private final ConcurrentMap<String, Session> tokens = new ConcurrentHashMap<>();
+
+    /**
+     * Reserves given username, if it is not in use
+     *
+     * @param username the username, not null
+     * @return the new session, {@code null} if the username is already reserved
+     */
+    public Session reserve(String username) {
+        Session session = new Session(username);
+        if (sessions.putIfAbsent(username, session) != null) return null;
+        tokens.put(session.getToken(), session);
+        return session;
+    }
+
+    /**
+     * Releases given username, so that it can be reserved again, and invalidates its token.
+     * If the username is not reserved, nothing happens
+     *
+     * @param username the username
+     */
+    public void release(String username) {
+        Session session = sessions.remove(username);
+        if (session != null) {
+            tokens.remove(session.getToken(), session);
+        }
+    }
+
+    /**
+     * Returns the session identified by given token
+     *
+     * @param token the token, may be null
+     * @return the session, {@code null} if there is no session with that token
+     */
+    public Session resolve(String token) {
+        return token == null ? null : tokens.get(token);
+    }
+
+    /**
+     * Returns the session of the player with given username
+     *
+     * @param username the username
+     * @return the session, {@code null} if the username is not reserved
+     */
+    public Session getSession(String username) {
+        return sessions.get(username);
+    }
+
+    /**
+     * Tells whether given username is reserved
+     *
+     * @param username the username
+     * @return {@code true} if the username is reserved
+     */
+    public boolean isReserved(String username) {
+        return sessions.containsKey(username);
+    }
+
+    /**
+     * Sets the controller of the match of the player with given username.
+     * If the username is not reserved, nothing happens
+     *
+     * @param username   the username
+     * @param controller the controller of the match of the player
+     */
+    public void setController(String username, Controller controller) {
+        Session session = sessions.get(username);
+        if (session != null) {
+            session.controller = controller;
+        }
+    }
+}
@@ -1,30 +1,32 @@
 package it.polimi.deib.se2019.sanp4.adrenaline.server;
 
-import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonMappingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.events.ViewEvent;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.network.RemoteView;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket.*;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket.codec.UpdateFrameCache;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket.codec.WireCodec;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket.codec.WireCodecs;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.observer.RemoteObservable;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.requests.ChoiceRequest;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.ModelUpdate;
-import it.polimi.deib.se2019.sanp4.adrenaline.common.JSONUtils;
 import it.polimi.deib.se2019.sanp4.adrenaline.view.MessageType;
 import it.polimi.deib.se2019.sanp4.adrenaline.view.ViewScene;
 
 import java.io.*;
 import java.net.Socket;
-import java.util.NoSuchElementException;
-import java.util.Scanner;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * A class representing a remote view connected via a socket connection
+ * A class representing a remote view connected via a socket connection.
+ * <p>
+ * Outgoing commands are not written by the caller: they are put in a bounded {@link OutboundQueue},
+ * which is drained by a writer thread of this view, so a client which does not read cannot block
+ * the controller of the match.
+ * </p>
  * @author Alessandro Fulgini
  */
 public class SocketRemoteView extends RemoteObservable<ViewEvent>
@@ -38,8 +40,24 @@ public class SocketRemoteView extends RemoteObservable<ViewEvent>
     /** Socket output stream */
     private OutputStream out;
 
-    /** Scanner for reading from input stream */
-    private Scanner scanner;
+    /** Socket input stream */
+    private InputStream in;
+
+    /** Codec used to read incoming commands, only accessed by the thread running this view */
+    private WireCodec readCodec = WireCodecs.TEXT;
+
+    /**
+     * Codec used to send commands.
+     * It is read and the frame is enqueued while holding {@link #writeLock}, so that the frames are
+     * always queued in the same order in which their codec was chosen
+     */
+    private WireCodec writeCodec = WireCodecs.TEXT;
+
+    /** Held while encoding a frame and enqueuing it, and while switching the codec */
+    private final Object writeLock = new Object();
+
+    /** Encoded commands waiting to be written by the writer thread */
+    private final OutboundQueue outbound = OutboundQueue.fromProperties();
 
     /** Username of the player this view belongs to */
     private String username;
@@ -47,8 +65,10 @@ public class SocketRemoteView extends RemoteObservable<ViewEvent>
     /** Executor for incoming commands */
     private ExecutorService commandExecutor = Executors.newSingleThreadExecutor();
 
+    /** Executor for the writer thread, which drains the outbound queue */
+    private ExecutorService writeExecutor = Executors.newSingleThreadExecutor();
+
     /* Commodities */
-    private static final ObjectMapper objectMapper = JSONUtils.getNetworkObjectMapper();
     private static final Logger logger = Logger.getLogger(SocketRemoteView.class.getName());
 
     /**
@@ -62,25 +82,24 @@ public class SocketRemoteView extends RemoteObservable<ViewEvent>
         this.server = server;
         /* Bind the streams */
         out = new BufferedOutputStream(socket.getOutputStream());
-        InputStream in = new BufferedInputStream(socket.getInputStream());
-        /* Create scanner from the stream */
-        scanner = new Scanner(in);
+        in = new BufferedInputStream(socket.getInputStream());
     }
 
     /**
      * Running the connection consists in the following loop:
      * <ol>
-     * <li>wait for a command from the client</li>
+     * <li>wait for a frame from the client</li>
      * <li>deserialize the command</li>
      * <li>execute the command</li>
      * <li>wait for the next command</li>
      * </ol>
      * The loop interrupts when the connection closes
-     * Then there is a loop which runs on another thread to keep alive the connection
+     * Then there is a loop which runs on another thread to write the outgoing commands
      */
     @Override
     public void run() {
         /* NOTE: The server has just accepted the connection */
+        writeExecutor.submit(this::writeLoop);
         try {
             /* Set TCP keepalive option, this way we don't have to send the ping command manually */
             socket.setKeepAlive(true);
@@ -98,28 +117,54 @@ public class SocketRemoteView extends RemoteObservable<ViewEvent>
     /** See {@link #run()} */
     private void listenLoop() throws IOException {
         try {
-            /* Wait for incoming command as string */
-            String s = scanner.nextLine();
-            logger.log(Level.FINER, () -> String.format("Received command: %s", s));
             /* Wait for the incoming command and deserialize it */
-            SocketServerCommand command = objectMapper.readValue(s, SocketServerCommand.class);
+            byte[] frame = readCodec.readFrame(in);
+            SocketServerCommand command = readCodec.decode(frame, SocketServerCommand.class);
+            logger.log(Level.FINER, "Received command: {0}", command.getClass().getSimpleName());
+
+            /* After the login, the client uses the negotiated codec */
+            if (command instanceof LoginCommand) {
+                readCodec = ((LoginCommand) command).negotiateCodec();
+            }
 
             /* Execute the command in a separate thread */
             executeAsync(command);
 
             /* Go on with another iteration of the cycle */
-        } catch (JsonParseException e) {
-            logger.log(Level.WARNING, "Could not parse incoming JSON", e);
-        } catch (JsonMappingException e) {
+        } catch (JsonProcessingException e) {
             logger.log(Level.WARNING, "Could not unmarshall incoming command", e);
         } catch (NullPointerException e) {
             logger.log(Level.WARNING, "Cannot execute null command", e);
-        } catch (NoSuchElementException | IllegalStateException e) {
+        } catch (EOFException e) {
             /* This is a problem when reading from the input stream */
             closeConnection();
         }
     }
 
+    /**
+     * Writes the enqueued commands in the output stream, until the connection closes.
+     * The stream is flushed only when there are no more commands waiting, so the commands
+     * sent in a burst are written together, or when a ping is waiting for its command to be written
+     */
+    private void writeLoop() {
+        try {
+            byte[] frame;
+            while ((frame = outbound.take()) != null) {
+                out.write(frame);
+                if (outbound.isFlushNeeded()) {
+                    out.flush();
+                    outbound.written();
+                }
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, String.format("Could not write to client \"%s\"", username), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        /* This is a problem with the connection, or it has already been closed */
+        closeConnection();
+    }
+
     /**
      * Executes the given command in a new thread
      * @param command the command to be executed
@@ -179,13 +224,25 @@ public class SocketRemoteView extends RemoteObservable<ViewEvent>
     }
 
     /**
-     * Sends given update to the client
+     * Sends given update to the client.
+     * If the update is broadcast to more views, its frame is only encoded once (see {@link UpdateFrameCache})
+     *
+     * Snapshots of the model may be conflated if the client is slow (see {@link OutboundQueue})
      *
      * @param update update to be sent
+     * @throws IOException if the connection is closed or the client is too slow
      */
     @Override
     public void update(ModelUpdate update) throws IOException {
-        sendCommand(new UpdateCommand(update));
+        try {
+            synchronized (writeLock) {
+                byte[] frame = UpdateFrameCache.encode(update, writeCodec);
+                logger.log(Level.FINER, "Sending update: {0}", update.getClass().getSimpleName());
+                sendFrame(frame, update);
+            }
+        } catch (JsonProcessingException e) {
+            logger.log(Level.WARNING, "Jackson could not serialize update", e);
+        }
     }
 
     /**
@@ -199,39 +256,99 @@ public class SocketRemoteView extends RemoteObservable<ViewEvent>
     }
 
     /**
-     * Checks connectivity to the client
+     * Checks connectivity to the client.
+     * The ping command is enqueued like any other command, then this call waits for the writer thread
+     * to flush it on the socket, for at most {@code adrenaline.timeout.ping} milliseconds:
+     * so the ping fails if the connection is closed, if writing fails or if the client does not read
+     * the commands which precede it in time
      *
      * @throws IOException If there is no connectivity
      */
     @Override
     public void ping() throws IOException {
-        sendCommand(new PingCommand());
+        long sequence;
+        synchronized (writeLock) {
+            sequence = sendFrame(writeCodec.encode(new PingCommand()), null);
+        }
+        outbound.awaitWritten(sequence);
     }
 
     /**
      * Sends a command to the client attached to this target,
-     * usually as a response to the execution of this command
-     * If network problems are detected, this call will also close the underlying socket connection
+     * usually as a response to the execution of this command.
+     * This method does not wait for the command to be written
      *
      * @param command the command that has to be sent
+     * @throws IOException if the connection is closed or the client is too slow
      */
     @Override
-    public synchronized void sendCommand(SocketClientCommand command) throws IOException {
+    public void sendCommand(SocketClientCommand command) throws IOException {
         try {
-            /* Write the command as a line in the output stream */
-            String line = objectMapper.writeValueAsString(command) + "\n";
-            logger.log(Level.FINER, "Sending command: {0}", line);
-            out.write(line.getBytes());
-            out.flush();
+            synchronized (writeLock) {
+                /* Enqueue the command as a frame for the writer thread */
+                byte[] frame = writeCodec.encode(command);
+                logger.log(Level.FINER, "Sending command: {0}", command.getClass().getSimpleName());
+                sendFrame(frame, null);
+            }
         } catch (JsonProcessingException e) {
             logger.log(Level.WARNING, "Jackson could not serialize command", e);
+        }
+    }
+
+    /**
+     * Enqueues an encoded command for the writer thread.
+     * If the client is too slow, this call will also close the underlying socket connection
+     *
+     * @param frame  the encoded command
+     * @param update the update in the frame, {@code null} if the frame carries a command
+     * @return the sequence number of the frame in the queue
+     * @throws IOException if the connection is closed or the client is too slow
+     */
+    private long sendFrame(byte[] frame, ModelUpdate update) throws IOException {
+        try {
+            return outbound.offer(frame, update, writeCodec);
         } catch (IOException e) {
-            /* This is a problem with the connection */
+            /* The connection is dead or the client does not read */
             closeConnection();
             throw e; /* Rethrow exceptions so the caller of the command knows of the dead connection */
         }
     }
 
+    /**
+     * Returns the number of commands waiting to be written to the client
+     *
+     * @return the depth of the outbound queue
+     */
+    public int getQueueDepth() {
+        return outbound.getDepth();
+    }
+
+    /**
+     * Sends the response to the login with the codec in use, then switches to the negotiated codec.
+     * Both happen atomically with respect to the other commands and updates, so every frame which is queued
+     * after the response is encoded with the new codec, the one the client reads after the response
+     *
+     * @param response the response to the login
+     * @param codec    the codec used for the next commands, not null
+     * @throws IOException if the connection is closed or the client is too slow
+     */
+    @Override
+    public void sendLoginResponse(LoginResponse response, WireCodec codec) throws IOException {
+        if (codec == null) throw new NullPointerException("Codec cannot be null");
+        synchronized (writeLock) {
+            try {
+                byte[] frame = writeCodec.encode(response);
+                logger.log(Level.FINER, "Sending login response, switching to codec {0}", codec.getName());
+                sendFrame(frame, null);
+            } catch (JsonProcessingException e) {
+                /* The client has not been told to switch codec */
+                logger.log(Level.WARNING, "Jackson could not serialize login response", e);
+                return;
+            }
+            this.writeCodec = codec;
+        }
+    }
+
     /**
      * Returns an object which can be used as a stub for the view
      *
@@ -253,7 +370,7 @@ public class SocketRemoteView extends RemoteObservable<ViewEvent>
     }
 
     /**
-     * Closes the socket connection
+     * Closes the socket connection and discards the commands which have not been written
      */
     private synchronized void closeConnection() {
         if (!socket.isClosed()) {
@@ -264,5 +381,7 @@ public class SocketRemoteView extends RemoteObservable<ViewEvent>
                 logger.log(Level.FINE, "Could not close connection", e);
             }
         }
+        outbound.close(); /* This also stops the writer thread */
+        writeExecutor.shutdown();
     }
 }
@@ -0,0 +1,157 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.JSONUtils;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.modelviews.ActionCardView;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.modelviews.PlayerBoardView;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.modelviews.PlayerView;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.DeltaUpdate;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.InitialUpdate;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.ModelUpdate;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.ModelTransaction;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.action.ActionCard;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.action.ActionCardEnum;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.action.ActionEnum;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.items.ammo.AmmoCube;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.player.Player;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.player.PlayerColor;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ModelManagerTest {
+
+    private static ObjectMapper objectMapper = JSONUtils.getObjectMapper();
+
+    private Player shooter;
+    private Player target;
+    private List<ModelUpdate> updates;
+    private int resyncCount;
+
+    @Before
+    public void setUp() {
+        ActionCard actionCard = new ActionCard(2, ActionCardEnum.REGULAR,
+                Collections.singletonList(ActionEnum.RUN), ActionEnum.RELOAD);
+        shooter = new Player("bzoto", actionCard, PlayerColor.GREEN);
+        target = new Player("zoniz", actionCard, PlayerColor.YELLOW);
+        updates = new ArrayList<>();
+        shooter.addObserver(updates::add);
+        target.addObserver(updates::add);
+        resyncCount = 0;
+    }
+
+    /* Creates a model manager which holds the current state of the players */
+    private ModelManager createModelManager() throws IOException {
+        Map<String, PlayerView> players = new HashMap<>();
+        Map<String, PlayerBoardView> playerBoards = new HashMap<>();
+        Map<String, ActionCardView> actionCards = new HashMap<>();
+        for (Player player : Arrays.asList(shooter, target)) {
+            players.put(player.getName(), player.generateView());
+            playerBoards.put(player.getName(), player.getPlayerBoard().generateView());
+            actionCards.put(player.getName(), player.getActionCard().generateView());
+        }
+        ModelManager manager = new ModelManager();
+        manager.setResyncCallback(() -> resyncCount++);
+        deliver(new InitialUpdate(players, playerBoards, actionCards, null, null, null), manager);
+        return manager;
+    }
+
+    /* Sends the update to the manager as it would be sent over the network */
+    private static void deliver(ModelUpdate update, ModelManager manager) throws IOException {
+        ModelUpdate received = objectMapper.readValue(objectMapper.writeValueAsString(update), ModelUpdate.class);
+        received.accept(manager);
+    }
+
+    /* Performs a shot which gives damage and marks to the target, who then takes some ammo */
+    private void shoot() {
+        target.getPlayerBoard().addDamage(shooter, 2);
+        target.getPlayerBoard().addMark(shooter, 1);
+        target.getPlayerBoard().addMark(shooter, 1);
+        target.addAmmo(AmmoCube.RED);
+        target.addAmmo(AmmoCube.YELLOW);
+        shooter.addAmmo(AmmoCube.BLUE);
+    }
+
+    private static void assertSameState(ModelManager expected, ModelManager actual) {
+        assertEquals(objectMapper.valueToTree(expected.getPlayers()), objectMapper.valueToTree(actual.getPlayers()));
+        assertEquals(objectMapper.valueToTree(expected.getPlayerBoards()),
+                objectMapper.valueToTree(actual.getPlayerBoards()));
+    }
+
+    @Test
+    public void handle_deltaUpdates_shouldReachStateOfServer() throws IOException {
+        ModelManager manager = createModelManager();
+
+        shoot();
+        for (ModelUpdate update : updates) {
+            deliver(update, manager);
+        }
+
+        /* Each change is sent separately */
+        assertEquals(6, updates.size());
+        assertEquals(2, manager.getPlayerBoards().get("zoniz").getDamages().size());
+        assertEquals(0, resyncCount);
+        assertSameState(createModelManager(), manager);
+    }
+
+    @Test
+    public void handle_transaction_shouldReachSameStateWithFewerUpdates() throws IOException {
+        ModelManager manager = createModelManager();
+
+        try (ModelTransaction transaction = ModelTransaction.begin()) {
+            shoot();
+        }
+        for (ModelUpdate update : updates) {
+            deliver(update, manager);
+        }
+
+        /* One update for the board of the target, one for the target and one for the shooter */
+        assertEquals(3, updates.size());
+        assertEquals(0, resyncCount);
+        assertSameState(createModelManager(), manager);
+    }
+
+    @Test
+    public void handle_missedUpdate_shouldRequestResyncOnce() throws IOException {
+        ModelManager manager = createModelManager();
+
+        shoot();
+        /* The first update is lost */
+        for (ModelUpdate update : updates.subList(1, updates.size())) {
+            deliver(update, manager);
+        }
+
+        assertEquals(1, resyncCount);
+        /* The resync request is sent again only after receiving the whole model */
+        manager = createModelManager();
+        assertEquals(1, resyncCount);
+    }
+
+    @Test
+    public void handle_oldUpdate_shouldBeIgnored() throws IOException {
+        shoot();
+        ModelManager manager = createModelManager();
+
+        for (ModelUpdate update : updates) {
+            deliver(update, manager);
+        }
+
+        assertEquals(0, resyncCount);
+        assertSameState(createModelManager(), manager);
+    }
+
+    @Test
+    public void handle_unknownEntity_shouldBeIgnored() {
+        ModelManager manager = new ModelManager();
+        manager.setResyncCallback(() -> resyncCount++);
+
+        new DeltaUpdate(DeltaUpdate.Entity.PLAYER, "bzoto", null, 3, objectMapper.createObjectNode()).accept(manager);
+
+        assertTrue(manager.getPlayers().isEmpty());
+        assertEquals(0, resyncCount);
+    }
+}
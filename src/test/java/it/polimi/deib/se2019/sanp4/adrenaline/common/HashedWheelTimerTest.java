@@ -0,0 +1,105 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.common;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class HashedWheelTimerTest {
+
+    private HashedWheelTimer timer;
+
+    @Before
+    public void setUp() {
+        /* A small wheel, so the timeouts have to wait for more rounds */
+        timer = new HashedWheelTimer(5, TimeUnit.MILLISECONDS, 4, Runnable::run);
+    }
+
+    @After
+    public void tearDown() {
+        timer.stop();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void create_zeroTick_shouldThrowIllegalArgumentException() {
+        new HashedWheelTimer(0, TimeUnit.MILLISECONDS, 4, Runnable::run);
+    }
+
+    @Test
+    public void newTimeout_shouldRunAfterDelay() throws Exception {
+        long start = System.nanoTime();
+        Future<?> timeout = timer.newTimeout(() -> {}, 50, TimeUnit.MILLISECONDS);
+
+        timeout.get(5, TimeUnit.SECONDS);
+
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertTrue(timeout.isDone());
+    }
+
+    @Test
+    public void newTimeout_zeroDelay_shouldRunAtNextTick() throws Exception {
+        Future<?> timeout = timer.newTimeout(() -> {}, 0, TimeUnit.MILLISECONDS);
+
+        timeout.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void newTimeout_moreTimeouts_shouldRunInOrderOfDeadline() throws Exception {
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(3);
+
+        timer.newTimeout(() -> { order.add(3); done.countDown(); }, 90, TimeUnit.MILLISECONDS);
+        timer.newTimeout(() -> { order.add(1); done.countDown(); }, 10, TimeUnit.MILLISECONDS);
+        timer.newTimeout(() -> { order.add(2); done.countDown(); }, 45, TimeUnit.MILLISECONDS);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(1, 2, 3), order);
+    }
+
+    @Test
+    public void newTimeout_givenExecutor_shouldRunOnIt() throws Exception {
+        List<Runnable> tasks = new ArrayList<>();
+        CountDownLatch handed = new CountDownLatch(1);
+        Future<?> timeout = timer.newTimeout(() -> {}, 0, TimeUnit.MILLISECONDS, task -> {
+            tasks.add(task);
+            handed.countDown();
+        });
+
+        assertTrue(handed.await(5, TimeUnit.SECONDS));
+        assertFalse(timeout.isDone());
+
+        tasks.get(0).run();
+        assertTrue(timeout.isDone());
+    }
+
+    @Test
+    public void cancel_beforeExpiration_shouldNotRun() throws Exception {
+        List<Integer> runs = Collections.synchronizedList(new ArrayList<>());
+        Future<?> cancelled = timer.newTimeout(() -> runs.add(1), 20, TimeUnit.MILLISECONDS);
+        Future<?> other = timer.newTimeout(() -> runs.add(2), 40, TimeUnit.MILLISECONDS);
+
+        assertTrue(cancelled.cancel(false));
+        other.get(5, TimeUnit.SECONDS);
+
+        assertTrue(cancelled.isCancelled());
+        assertEquals(Collections.singletonList(2), runs);
+    }
+
+    @Test(expected = CancellationException.class)
+    public void get_cancelled_shouldThrowCancellationException() throws Exception {
+        Future<?> timeout = timer.newTimeout(() -> {}, 1, TimeUnit.SECONDS);
+        timeout.cancel(true);
+
+        timeout.get();
+    }
+}
@@ -0,0 +1,64 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.common;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class SerialExecutorTest {
+
+    @Test(expected = NullPointerException.class)
+    public void create_nullExecutor_shouldThrowNullPointerException() {
+        new SerialExecutor(null);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void execute_nullCommand_shouldThrowNullPointerException() {
+        new SerialExecutor(Runnable::run).execute(null);
+    }
+
+    @Test
+    public void execute_onSharedPool_shouldRunTasksInSubmissionOrder() throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        SerialExecutor executor = new SerialExecutor(pool);
+        List<Integer> results = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(100);
+
+        for (int i = 0; i < 100; i++) {
+            int n = i;
+            executor.execute(() -> {
+                results.add(n);
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, (int) results.get(i));
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    public void execute_taskThrowsException_shouldRunNextTasks() throws InterruptedException {
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        SerialExecutor executor = new SerialExecutor(pool);
+        CountDownLatch done = new CountDownLatch(1);
+
+        executor.execute(() -> {
+            throw new IllegalStateException();
+        });
+        executor.execute(done::countDown);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(0, executor.getPendingCount());
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,73 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket.codec;
+
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket.SocketClientCommand;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket.UpdateCommand;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.LobbyUpdate;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.MatchOperationalStateUpdate;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.MatchOperationalState;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class UpdateFrameCacheTest {
+
+    @Test(expected = NullPointerException.class)
+    public void share_nullUpdate_shouldThrowNullPointerException() {
+        UpdateFrameCache.share(null);
+    }
+
+    @Test
+    public void encode_sharedUpdate_shouldEncodeOncePerCodec() throws IOException {
+        LobbyUpdate update = new LobbyUpdate(Arrays.asList("bzoto", "loreti"), false);
+        UpdateFrameCache.share(update);
+        assertTrue(UpdateFrameCache.isShared(update));
+        WireCodec smile = WireCodecs.forName(SmileFrameCodec.NAME);
+        long encodes = UpdateFrameCache.getEncodeCount(LobbyUpdate.class);
+        long sends = UpdateFrameCache.getSendCount(LobbyUpdate.class);
+
+        byte[] first = UpdateFrameCache.encode(update, WireCodecs.TEXT);
+        byte[] second = UpdateFrameCache.encode(update, WireCodecs.TEXT);
+        byte[] third = UpdateFrameCache.encode(update, smile);
+        byte[] fourth = UpdateFrameCache.encode(update, smile);
+
+        assertSame(first, second);
+        assertSame(third, fourth);
+        assertNotSame(first, third);
+        assertEquals(encodes + 2, UpdateFrameCache.getEncodeCount(LobbyUpdate.class));
+        assertEquals(sends + 4, UpdateFrameCache.getSendCount(LobbyUpdate.class));
+    }
+
+    @Test
+    public void encode_privateUpdate_shouldEncodeEachTime() throws IOException {
+        MatchOperationalStateUpdate update = new MatchOperationalStateUpdate(MatchOperationalState.ACTIVE);
+        assertFalse(UpdateFrameCache.isShared(update));
+        long encodes = UpdateFrameCache.getEncodeCount(MatchOperationalStateUpdate.class);
+
+        byte[] first = UpdateFrameCache.encode(update, WireCodecs.TEXT);
+        byte[] second = UpdateFrameCache.encode(update, WireCodecs.TEXT);
+
+        assertNotSame(first, second);
+        assertArrayEquals(first, second);
+        assertEquals(encodes + 2, UpdateFrameCache.getEncodeCount(MatchOperationalStateUpdate.class));
+    }
+
+    @Test
+    public void encode_sharedUpdate_shouldProduceValidCommand() throws IOException {
+        LobbyUpdate update = new LobbyUpdate(Arrays.asList("bzoto", "loreti"), true);
+        UpdateFrameCache.share(update);
+        WireCodec codec = WireCodecs.TEXT;
+
+        byte[] frame = UpdateFrameCache.encode(update, codec);
+        SocketClientCommand command = codec.decode(codec.readFrame(new ByteArrayInputStream(frame)),
+                SocketClientCommand.class);
+
+        assertTrue(command instanceof UpdateCommand);
+        LobbyUpdate received = (LobbyUpdate) ((UpdateCommand) command).getUpdate();
+        assertEquals(update.getWaitingPlayers(), received.getWaitingPlayers());
+        assertTrue(received.isStarting());
+    }
+}
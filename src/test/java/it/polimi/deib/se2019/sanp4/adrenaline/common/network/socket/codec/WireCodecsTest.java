@@ -0,0 +1,145 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket.codec;
+
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.MatchPreferences;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket.*;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class WireCodecsTest {
+
+    @Test
+    public void negotiate_oldClient_shouldUseText() {
+        assertSame(WireCodecs.TEXT, WireCodecs.negotiate(0, null));
+        assertSame(WireCodecs.TEXT, WireCodecs.negotiate(1, Collections.singletonList(SmileFrameCodec.NAME)));
+    }
+
+    @Test
+    public void negotiate_offeredCodecs_shouldPickFirstSupported() {
+        WireCodec codec = WireCodecs.negotiate(WireCodecs.PROTOCOL_VERSION,
+                Arrays.asList("unknown", SmileFrameCodec.NAME, JsonLineCodec.NAME));
+        assertEquals(SmileFrameCodec.NAME, codec.getName());
+    }
+
+    @Test
+    public void negotiate_noSupportedCodec_shouldUseText() {
+        assertSame(WireCodecs.TEXT, WireCodecs.negotiate(WireCodecs.PROTOCOL_VERSION,
+                Collections.singletonList("unknown")));
+    }
+
+    @Test
+    public void forName_unknownOrNull_shouldReturnText() {
+        assertSame(WireCodecs.TEXT, WireCodecs.forName(null));
+        assertSame(WireCodecs.TEXT, WireCodecs.forName("unknown"));
+        assertEquals(SmileFrameCodec.NAME, WireCodecs.forName(SmileFrameCodec.NAME).getName());
+    }
+
+    @Test
+    public void loginCommand_withoutNegotiation_shouldNotSerializeNewFields() throws IOException {
+        String json = new String(WireCodecs.TEXT.encode(new LoginCommand("bzoto")), "UTF-8");
+        assertFalse(json.contains("protocolVersion"));
+        assertFalse(json.contains("codecs"));
+        assertTrue(json.endsWith("\n"));
+    }
+
+    @Test
+    public void loginResponse_textCodec_shouldNotSerializeCodec() throws IOException {
+        String json = new String(WireCodecs.TEXT.encode(new LoginResponse(true, JsonLineCodec.NAME)), "UTF-8");
+        assertFalse(json.contains("codec"));
+    }
+
+    @Test
+    public void loginResponse_withToken_shouldRoundTripToken() throws IOException {
+        for (String name : WireCodecs.getNames()) {
+            WireCodec codec = WireCodecs.forName(name);
+            byte[] frame = codec.encode(new LoginResponse(true, name, "token"));
+
+            SocketClientCommand decoded = codec.decode(codec.readFrame(new ByteArrayInputStream(frame)),
+                    SocketClientCommand.class);
+
+            assertEquals("token", ((LoginResponse) decoded).getToken());
+        }
+    }
+
+    @Test
+    public void loginCommand_withPreferences_shouldRoundTripPreferences() throws IOException {
+        MatchPreferences preferences = new MatchPreferences(2, null, "eu");
+        for (String name : WireCodecs.getNames()) {
+            WireCodec codec = WireCodecs.forName(name);
+            byte[] frame = codec.encode(new LoginCommand("bzoto", null, preferences, WireCodecs.PROTOCOL_VERSION,
+                    Collections.singletonList(name)));
+
+            SocketServerCommand decoded = codec.decode(codec.readFrame(new ByteArrayInputStream(frame)),
+                    SocketServerCommand.class);
+
+            assertEquals(preferences, ((LoginCommand) decoded).getPreferences());
+        }
+    }
+
+    @Test
+    public void readFrame_allCodecs_shouldRoundTripCommands() throws IOException {
+        for (String name : WireCodecs.getNames()) {
+            WireCodec codec = WireCodecs.forName(name);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            out.write(codec.encode(new LoginCommand("bzoto", WireCodecs.PROTOCOL_VERSION,
+                    Collections.singletonList(name))));
+            out.write(codec.encode(new LogoutCommand()));
+            ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+
+            SocketServerCommand first = codec.decode(codec.readFrame(in), SocketServerCommand.class);
+            SocketServerCommand second = codec.decode(codec.readFrame(in), SocketServerCommand.class);
+
+            assertTrue(first instanceof LoginCommand);
+            assertEquals("bzoto", ((LoginCommand) first).getUsername());
+            assertSame(codec, ((LoginCommand) first).negotiateCodec());
+            assertTrue(second instanceof LogoutCommand);
+        }
+    }
+
+    @Test(expected = EOFException.class)
+    public void readFrame_truncatedFrame_shouldThrowEOFException() throws IOException {
+        WireCodec codec = WireCodecs.forName(SmileFrameCodec.NAME);
+        byte[] frame = codec.encode(new PingCommand());
+        codec.readFrame(new ByteArrayInputStream(Arrays.copyOf(frame, frame.length - 1)));
+    }
+
+    @Test
+    public void frameDecoder_splitInput_shouldReassembleFrames() throws IOException {
+        for (String name : WireCodecs.getNames()) {
+            WireCodec codec = WireCodecs.forName(name);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            out.write(codec.encode(new LoginResponse(true, name)));
+            out.write(codec.encode(new PingCommand()));
+            byte[] bytes = out.toByteArray();
+
+            /* Feed the decoder one byte at a time, like a very slow connection */
+            FrameDecoder decoder = codec.newFrameDecoder();
+            List<SocketClientCommand> received = new ArrayList<>();
+            for (byte b : bytes) {
+                byte[] frame = decoder.next(ByteBuffer.wrap(new byte[]{b}));
+                if (frame != null) received.add(codec.decode(frame, SocketClientCommand.class));
+            }
+
+            assertEquals(2, received.size());
+            assertTrue(received.get(0) instanceof LoginResponse);
+            assertTrue(((LoginResponse) received.get(0)).isSuccesful());
+            assertTrue(received.get(1) instanceof PingCommand);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void frameDecoder_invalidLength_shouldThrowIOException() throws IOException {
+        FrameDecoder decoder = WireCodecs.forName(SmileFrameCodec.NAME).newFrameDecoder();
+        decoder.next(ByteBuffer.allocate(4).putInt(0, -1));
+    }
+}
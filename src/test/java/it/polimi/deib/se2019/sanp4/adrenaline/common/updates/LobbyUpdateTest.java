@@ -33,4 +33,12 @@ public class LobbyUpdateTest {
         assertTrue(unser.getWaitingPlayers().containsAll(u.getWaitingPlayers()));
         assertFalse(unser.isStarting());
     }
+
+    @Test
+    public void serialization_queuedMatch_shouldKeepPosition() throws IOException {
+        LobbyUpdate u = new LobbyUpdate(Arrays.asList("1", "2", "3"), true, 2);
+        LobbyUpdate unser = mapper.readValue(mapper.writeValueAsString(u), LobbyUpdate.class);
+        assertTrue(unser.isStarting());
+        assertEquals(2, unser.getQueuePosition());
+    }
 }
\ No newline at end of file
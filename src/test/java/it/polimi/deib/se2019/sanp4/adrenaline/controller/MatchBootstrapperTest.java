@@ -1,5 +1,6 @@
 package it.polimi.deib.se2019.sanp4.adrenaline.controller;
 
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.MatchPreferences;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.requests.BoardRequest;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.requests.ChoiceRequest;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.requests.SkullCountRequest;
@@ -13,6 +14,12 @@ import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
 
@@ -104,4 +111,42 @@ public class MatchBootstrapperTest {
         assertEquals(0, config.getBoardId());
         assertEquals(8, config.getSkulls());
     }
+
+    @Test
+    public void askForMatchConfigurationAsync_answersAfterRequests_shouldResumeWithGivenValues() throws Exception {
+        List<CompletableChoice<Integer>> pending = Collections.synchronizedList(new ArrayList<>());
+
+        /* Set up answerer, which leaves the choices pending */
+        doAnswer(invocationOnMock -> {
+            ChoiceRequest<Integer> req = (ChoiceRequest<Integer>) invocationOnMock.getArguments()[0];
+            CompletableChoice<Integer> res = new CompletableChoice<>(req);
+            pending.add(res);
+            return res;
+        }).when(persistentView).sendChoiceRequest(reqCaptor.capture());
+
+        /* Do the test */
+        CompletableFuture<MatchConfiguration> config =
+                matchBootstrapper.askForMatchConfigurationAsync(persistentView, Runnable::run).toCompletableFuture();
+        assertFalse(config.isDone());
+
+        /* Answer to board request, the skulls request is sent by the continuation */
+        pending.get(0).complete(boardId);
+        verify(persistentView, timeout(1000).times(2)).sendChoiceRequest(any());
+        pending.get(1).cancel();
+
+        assertEquals(boardId, config.get(1, TimeUnit.SECONDS).getBoardId());
+        assertEquals(8, config.get().getSkulls());
+    }
+
+    @Test
+    public void askForMatchConfigurationAsync_givenPreferences_shouldNotAskThem() throws Exception {
+        CompletableFuture<MatchConfiguration> config = matchBootstrapper
+                .askForMatchConfigurationAsync(persistentView, new MatchPreferences(boardId, skulls, null), Runnable::run)
+                .toCompletableFuture();
+
+        assertTrue(config.isDone());
+        assertEquals(boardId, config.get().getBoardId());
+        assertEquals(skulls, config.get().getSkulls());
+        verify(persistentView, never()).sendChoiceRequest(any());
+    }
 }
\ No newline at end of file
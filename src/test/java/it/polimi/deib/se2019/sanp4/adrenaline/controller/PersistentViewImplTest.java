@@ -1,12 +1,15 @@
 package it.polimi.deib.se2019.sanp4.adrenaline.controller;
 
 import it.polimi.deib.se2019.sanp4.adrenaline.common.events.ChoiceResponse;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.events.ResumeRequest;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.events.ViewEvent;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.network.RemoteView;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.observer.Observer;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.requests.ChoiceRequest;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.MatchOperationalStateUpdate;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.ModelUpdate;
 import it.polimi.deib.se2019.sanp4.adrenaline.controller.requests.CompletableChoice;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.MatchOperationalState;
 import it.polimi.deib.se2019.sanp4.adrenaline.view.MessageType;
 import it.polimi.deib.se2019.sanp4.adrenaline.view.ViewScene;
 import org.junit.BeforeClass;
@@ -236,6 +239,61 @@ public class PersistentViewImplTest {
         assertEquals(remoteView, view.getRemote());
     }
 
+    @Test
+    public void takeOverRemoteView_remoteStillConnected_shouldReplaceWithoutPing() throws Exception {
+        PersistentViewImpl view = new PersistentViewImpl(username, remoteView);
+        RemoteView newRemote = mock(RemoteView.class);
+        view.setNetworkFaultCallback(callback);
+
+        boolean reconnected = view.takeOverRemoteView(newRemote);
+
+        assertTrue(reconnected);
+        assertEquals(newRemote, view.getRemote());
+        verify(remoteView, never()).ping();
+        /* The previous connection is treated as a network fault */
+        verify(callback, timeout(1000)).call();
+    }
+
+    private static ModelUpdate sequencedUpdate(long sequence) {
+        ModelUpdate update = new MatchOperationalStateUpdate(MatchOperationalState.ACTIVE);
+        update.setSequence(sequence);
+        return update;
+    }
+
+    @Test
+    public void reconnectRemoteView_resumeRequest_shouldReplayMissedUpdates() throws IOException {
+        PersistentViewImpl view = new PersistentViewImpl(username, remoteView);
+        RemoteView newRemote = mock(RemoteView.class);
+        ModelUpdate received = sequencedUpdate(1);
+        ModelUpdate missed = sequencedUpdate(2);
+
+        view.update(received);
+        view.disconnectRemoteView();
+        view.update(missed);
+
+        assertTrue(view.reconnectRemoteView(newRemote));
+        view.visit(new ResumeRequest(username, 1));
+
+        /* Only the missed update is sent again */
+        verify(newRemote, timeout(1000)).update(missed);
+        verify(newRemote, never()).update(received);
+        assertTrue(view.resumeUpdates());
+    }
+
+    @Test
+    public void reconnectRemoteView_noResumeRequest_shouldHoldUpdatesUntilRejoin() throws IOException {
+        PersistentViewImpl view = new PersistentViewImpl(username, remoteView);
+        RemoteView newRemote = mock(RemoteView.class);
+
+        view.disconnectRemoteView();
+        assertTrue(view.reconnectRemoteView(newRemote));
+        view.update(sequencedUpdate(1));
+
+        /* The whole state has to be sent, the held update is not needed anymore */
+        assertFalse(view.resumeUpdates());
+        verify(newRemote, never()).update(any(ModelUpdate.class));
+    }
+
     @Test
     public void reconnectRemoteView_newRemoteThrowsDuringReconnection_shouldNotReconnect() throws IOException {
         setupFaulty();
@@ -0,0 +1,89 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.controller;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PhiAccrualFailureDetectorTest {
+
+    private PhiAccrualFailureDetector detector;
+
+    @Before
+    public void setUp() {
+        detector = new PhiAccrualFailureDetector(8, 100, 100, 0, 1000);
+    }
+
+    /* Sends heartbeats at given intervals, starting from time 0, returns the time of the last one */
+    private static long sendHeartbeats(PhiAccrualFailureDetector detector, long... intervals) {
+        long time = 0;
+        detector.heartbeat(time);
+        for (long interval : intervals) {
+            time += interval;
+            detector.heartbeat(time);
+        }
+        return time;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void create_invalidThreshold_shouldThrowIllegalArgumentException() {
+        new PhiAccrualFailureDetector(0, 100, 100, 0, 1000);
+    }
+
+    @Test
+    public void phi_noHeartbeats_shouldBeAvailable() {
+        assertFalse(detector.isMonitoring());
+        assertEquals(0, detector.phi(100000), 0);
+        assertTrue(detector.isAvailable(100000));
+    }
+
+    @Test
+    public void phi_regularHeartbeats_shouldSuspectOnlyAfterSilence() {
+        long last = sendHeartbeats(detector, 1000, 1000, 1000, 1000, 1000);
+
+        assertTrue(detector.isMonitoring());
+        assertTrue(detector.isAvailable(last + 1000));
+        assertFalse(detector.isAvailable(last + 5000));
+    }
+
+    @Test
+    public void phi_shouldGrowWithElapsedTime() {
+        long last = sendHeartbeats(detector, 1000, 1000, 1000);
+
+        double previous = detector.phi(last);
+        for (long elapsed = 200; elapsed <= 2000; elapsed += 200) {
+            double phi = detector.phi(last + elapsed);
+            assertTrue(phi >= previous);
+            previous = phi;
+        }
+    }
+
+    @Test
+    public void phi_jitteryHeartbeats_shouldBeMoreTolerant() {
+        PhiAccrualFailureDetector jittery = new PhiAccrualFailureDetector(8, 100, 100, 0, 1000);
+        long steadyLast = sendHeartbeats(detector, 1000, 1000, 1000, 1000, 1000, 1000);
+        long jitteryLast = sendHeartbeats(jittery, 400, 1600, 500, 1500, 300, 1700);
+
+        assertTrue(detector.phi(steadyLast + 2000) > jittery.phi(jitteryLast + 2000));
+    }
+
+    @Test
+    public void phi_acceptablePause_shouldDelaySuspicion() {
+        PhiAccrualFailureDetector tolerant = new PhiAccrualFailureDetector(8, 100, 100, 3000, 1000);
+        long last = sendHeartbeats(detector, 1000, 1000, 1000);
+        sendHeartbeats(tolerant, 1000, 1000, 1000);
+
+        assertFalse(detector.isAvailable(last + 3000));
+        assertTrue(tolerant.isAvailable(last + 3000));
+    }
+
+    @Test
+    public void reset_shouldStopMonitoring() {
+        long last = sendHeartbeats(detector, 1000, 1000);
+
+        detector.reset();
+
+        assertFalse(detector.isMonitoring());
+        assertTrue(detector.isAvailable(last + 100000));
+    }
+}
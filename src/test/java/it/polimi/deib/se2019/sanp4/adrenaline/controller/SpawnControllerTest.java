@@ -23,6 +23,7 @@ import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
@@ -30,8 +31,7 @@ import java.util.Set;
 import java.util.concurrent.CancellationException;
 
 import static org.junit.Assert.*;
-import static org.mockito.Mockito.doAnswer;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 @RunWith(MockitoJUnitRunner.class)
 public class SpawnControllerTest {
@@ -220,4 +220,77 @@ public class SpawnControllerTest {
         /* Now it should be on a spawn point */
         assertTrue(board.getSpawnPoints().values().contains(player.getCurrentSquare()));
     }
+
+    @Test
+    public void respawnAll_shouldLeaveSameStateAsSequentialRespawns()
+            throws InterruptedException, FullCapacityException {
+        /* Same players, cards and answers: once one after another, once all together */
+        List<String> sequential = respawnScenario(false);
+        List<String> together = respawnScenario(true);
+
+        assertEquals(sequential, together);
+    }
+
+    /**
+     * Creates a match where three players are dead, respawns them and describes the final state.
+     * Player "a" chooses the card in his hand, "b" chooses the drawn card, "c" does not answer
+     */
+    @SuppressWarnings("unchecked")
+    private static List<String> respawnScenario(boolean together)
+            throws InterruptedException, FullCapacityException {
+        Match scenario = spy(MatchCreator.createMatch(new HashSet<>(Arrays.asList("a", "b", "c")),
+                new MatchConfiguration(0, 5)));
+
+        /* The stack always gives the same cards and records the discarded ones */
+        CardStack<PowerupCard> stack = mock(CardStack.class);
+        when(stack.draw()).thenReturn(
+                new PowerupCard(PowerupEnum.NEWTON, AmmoCube.RED),
+                new PowerupCard(PowerupEnum.TAGBACK, AmmoCube.BLUE),
+                new PowerupCard(PowerupEnum.TELEPORTER, AmmoCube.YELLOW));
+        List<PowerupCard> discarded = new ArrayList<>();
+        doAnswer(invocation -> discarded.add(invocation.getArgument(0))).when(stack).discard(any());
+        doReturn(stack).when(scenario).getPowerupStack();
+
+        scenario.getPlayerByName("a").addPowerup(new PowerupCard(PowerupEnum.TAGBACK, AmmoCube.YELLOW));
+
+        List<PersistentView> views = new ArrayList<>();
+        for (String name : Arrays.asList("a", "b", "c")) {
+            PersistentView view = mock(PersistentView.class);
+            when(view.getUsername()).thenReturn(name);
+            doAnswer(invocation -> {
+                PowerupCardRequest req = (PowerupCardRequest) invocation.getArguments()[0];
+                List<PowerupCard> choices = req.getChoices();
+                switch (name) {
+                    case "a":
+                        return new CompletableChoice<>(req).complete(choices.get(choices.size() - 1));
+                    case "b":
+                        return new CompletableChoice<>(req).complete(choices.get(0));
+                    default:
+                        return new CompletableChoice<>(req).cancel();
+                }
+            }).when(view).sendChoiceRequest(any());
+            views.add(view);
+        }
+
+        SpawnController controller = new SpawnController(scenario);
+        if (together) {
+            controller.respawnAll(views);
+        } else {
+            for (PersistentView view : views) {
+                controller.respawn(view);
+            }
+        }
+
+        /* Describe positions, hands and discarded cards */
+        List<String> state = new ArrayList<>();
+        for (String name : Arrays.asList("a", "b", "c")) {
+            Player player = scenario.getPlayerByName(name);
+            StringBuilder description = new StringBuilder(name)
+                    .append(player.getCurrentSquare().getLocation());
+            player.getPowerups().forEach(card -> description.append(card.getType()).append(card.getCubeColor()));
+            state.add(description.toString());
+        }
+        discarded.forEach(card -> state.add(card.getType().toString() + card.getCubeColor()));
+        return state;
+    }
 }
\ No newline at end of file
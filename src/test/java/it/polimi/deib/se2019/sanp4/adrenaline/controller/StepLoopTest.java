@@ -0,0 +1,49 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.controller;
+
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.Assert.*;
+
+public class StepLoopTest {
+
+    @Test
+    public void run_stepsCompletedByOtherThread_shouldRunThemInCallingThread() throws InterruptedException {
+        Thread caller = Thread.currentThread();
+        CompletableFuture<Integer> answer = new CompletableFuture<>();
+
+        int result = StepLoop.run(executor -> {
+            /* The answer comes from another thread, the step must still run in the caller */
+            new Thread(() -> answer.complete(2)).start();
+            return answer.thenApplyAsync(value -> {
+                assertSame(caller, Thread.currentThread());
+                return value * 2;
+            }, executor);
+        });
+
+        assertEquals(4, result);
+    }
+
+    @Test(expected = CancellationException.class)
+    public void run_stepCancelled_shouldThrowCancellation() throws InterruptedException {
+        StepLoop.run(executor -> CompletableFuture.runAsync(() -> {
+            throw new CancellationException();
+        }, executor));
+    }
+
+    @Test
+    public void run_stepInterrupted_shouldThrowInterruptedException() {
+        try {
+            StepLoop.run(executor -> CompletableFuture.runAsync(() -> {
+                throw new CompletionException(new InterruptedException());
+            }, executor));
+            fail();
+        } catch (InterruptedException e) {
+            /* The interruption is reported once, by the exception */
+            assertFalse(Thread.currentThread().isInterrupted());
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.controller;
+
+import it.polimi.deib.se2019.sanp4.adrenaline.common.HashedWheelTimer;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.RemoteView;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.ModelUpdate;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.LogManager;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class UpdateDispatcherTest {
+
+    private RemoteView remote;
+
+    /* Calls given to the executor, which are run manually */
+    private List<Runnable> calls;
+
+    private AtomicInteger faults;
+
+    private HashedWheelTimer timer;
+
+    @BeforeClass
+    public static void classSetup() {
+        /* Disable logging */
+        LogManager.getLogManager().reset();
+    }
+
+    @Before
+    public void setUp() {
+        remote = mock(RemoteView.class);
+        calls = new ArrayList<>();
+        faults = new AtomicInteger();
+        timer = new HashedWheelTimer(5, TimeUnit.MILLISECONDS, 8, Runnable::run);
+    }
+
+    @After
+    public void tearDown() {
+        timer.stop();
+    }
+
+    private UpdateDispatcher createDispatcher(int backlog, long timeoutMillis) {
+        return new UpdateDispatcher(backlog, 10, timeoutMillis, calls::add, timer, faults::incrementAndGet);
+    }
+
+    @Test
+    public void dispatch_idle_shouldSendImmediately() throws IOException {
+        UpdateDispatcher dispatcher = createDispatcher(5, 10000);
+        ModelUpdate update = mock(ModelUpdate.class);
+
+        dispatcher.dispatch(remote, update);
+        calls.remove(0).run();
+
+        verify(remote).update(update);
+        assertEquals(0, dispatcher.getBacklog());
+        assertEquals(0, faults.get());
+    }
+
+    @Test
+    public void dispatch_callInProgress_shouldSendWaitingUpdatesTogether() throws IOException {
+        UpdateDispatcher dispatcher = createDispatcher(5, 10000);
+        ModelUpdate first = mock(ModelUpdate.class);
+        ModelUpdate second = mock(ModelUpdate.class);
+        ModelUpdate third = mock(ModelUpdate.class);
+
+        dispatcher.dispatch(remote, first);
+        dispatcher.dispatch(remote, second);
+        dispatcher.dispatch(remote, third);
+
+        /* Only one call at a time */
+        assertEquals(1, calls.size());
+        assertEquals(2, dispatcher.getBacklog());
+
+        calls.remove(0).run();
+        calls.remove(0).run();
+
+        verify(remote).update(first);
+        verify(remote).updateAll(Arrays.asList(second, third));
+        assertTrue(calls.isEmpty());
+    }
+
+    @Test
+    public void dispatch_backlogFull_shouldFailOnce() {
+        UpdateDispatcher dispatcher = createDispatcher(1, 10000);
+
+        dispatcher.dispatch(remote, mock(ModelUpdate.class)); /* Sending */
+        dispatcher.dispatch(remote, mock(ModelUpdate.class)); /* Waiting */
+        dispatcher.dispatch(remote, mock(ModelUpdate.class)); /* Too many */
+        dispatcher.dispatch(remote, mock(ModelUpdate.class));
+
+        assertEquals(1, faults.get());
+        assertTrue(dispatcher.isFaulty());
+        assertEquals(0, dispatcher.getBacklog());
+    }
+
+    @Test
+    public void dispatch_callFails_shouldFailAndDiscardUpdates() throws IOException {
+        UpdateDispatcher dispatcher = createDispatcher(5, 10000);
+        doThrow(new IOException()).when(remote).update(any(ModelUpdate.class));
+
+        dispatcher.dispatch(remote, mock(ModelUpdate.class));
+        dispatcher.dispatch(remote, mock(ModelUpdate.class));
+        calls.remove(0).run();
+
+        assertEquals(1, faults.get());
+        assertTrue(calls.isEmpty());
+        verify(remote, never()).updateAll(anyList());
+    }
+
+    @Test
+    public void dispatch_deadlineExpired_shouldFail() throws InterruptedException {
+        CountDownLatch fault = new CountDownLatch(1);
+        UpdateDispatcher dispatcher =
+                new UpdateDispatcher(5, 10, 10, calls::add, timer, fault::countDown);
+
+        /* The call is never run, like a client which does not answer */
+        dispatcher.dispatch(remote, mock(ModelUpdate.class));
+
+        assertTrue(fault.await(5, TimeUnit.SECONDS));
+        assertTrue(dispatcher.isFaulty());
+    }
+
+    @Test
+    public void reset_afterFault_shouldSendAgain() throws IOException {
+        UpdateDispatcher dispatcher = createDispatcher(1, 10000);
+        dispatcher.dispatch(remote, mock(ModelUpdate.class));
+        dispatcher.dispatch(remote, mock(ModelUpdate.class));
+        dispatcher.dispatch(remote, mock(ModelUpdate.class));
+        calls.clear();
+
+        dispatcher.reset();
+        ModelUpdate update = mock(ModelUpdate.class);
+        dispatcher.dispatch(remote, update);
+        calls.remove(0).run();
+
+        assertFalse(dispatcher.isFaulty());
+        verify(remote).update(update);
+    }
+}
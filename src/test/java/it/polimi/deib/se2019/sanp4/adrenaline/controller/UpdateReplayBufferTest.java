@@ -0,0 +1,79 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.controller;
+
+import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.MatchOperationalStateUpdate;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.ModelUpdate;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.MatchOperationalState;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class UpdateReplayBufferTest {
+
+    private UpdateReplayBuffer buffer;
+
+    @Before
+    public void setUp() {
+        buffer = new UpdateReplayBuffer(3);
+    }
+
+    private static ModelUpdate sequencedUpdate(long sequence) {
+        ModelUpdate update = new MatchOperationalStateUpdate(MatchOperationalState.ACTIVE);
+        update.setSequence(sequence);
+        return update;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void create_zeroCapacity_shouldThrowIllegalArgumentException() {
+        new UpdateReplayBuffer(0);
+    }
+
+    @Test
+    public void record_notSequenced_shouldBeIgnored() {
+        buffer.record(sequencedUpdate(0));
+
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    public void since_nothingReceived_shouldReturnNull() {
+        buffer.record(sequencedUpdate(1));
+
+        assertNull(buffer.since(0));
+    }
+
+    @Test
+    public void since_shouldReturnFollowingUpdatesInOrder() {
+        ModelUpdate first = sequencedUpdate(2);
+        ModelUpdate second = sequencedUpdate(5);
+        ModelUpdate third = sequencedUpdate(7);
+        buffer.record(first);
+        buffer.record(second);
+        buffer.record(third);
+
+        assertEquals(Arrays.asList(second, third), buffer.since(2));
+        assertEquals(Collections.singletonList(third), buffer.since(6));
+        assertEquals(Collections.emptyList(), buffer.since(7));
+    }
+
+    @Test
+    public void since_missedUpdatesEvicted_shouldReturnNull() {
+        for (long sequence = 1; sequence <= 5; sequence++) {
+            buffer.record(sequencedUpdate(sequence));
+        }
+
+        assertEquals(3, buffer.size());
+        assertNull(buffer.since(1)); /* Update 2 has been evicted */
+        assertEquals(3, buffer.since(2).size());
+    }
+
+    @Test
+    public void since_unknownSequence_shouldReturnNull() {
+        buffer.record(sequencedUpdate(1));
+
+        assertNull(buffer.since(10));
+    }
+}
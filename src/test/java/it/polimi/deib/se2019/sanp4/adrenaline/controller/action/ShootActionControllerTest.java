@@ -29,6 +29,7 @@ import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.InOrder;
 import org.mockito.junit.MockitoJUnitRunner;
 
 import java.util.*;
@@ -378,4 +379,43 @@ public class ShootActionControllerTest {
         assertEquals(2, match.getCurrentTurn().getDamagedPlayers().size());
         assertTrue(match.getCurrentTurn().getDamagedPlayers().containsAll(victims));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void execute_damagedPlayers_shouldBeAskedTogetherAndRevengeInMatchOrder() throws Exception {
+        Player p1 = match.getPlayerByName("loSqualo");
+        Player p2 = match.getPlayerByName("zoniMyLord");
+        PersistentView v1 = views.get(p1.getName());
+        PersistentView v2 = views.get(p2.getName());
+
+        /* Set up a shooter with only one loaded weapon */
+        WeaponCard w1 = WeaponCreator.createWeaponCard("flamethrower");
+        w1.setState(new LoadedState());
+        shooter.addWeapon(w1);
+        when(view.sendChoiceRequest(any(WeaponCardRequest.class))).thenAnswer(new FirstChoiceAnswer());
+
+        /* Both victims use their tagback */
+        when(v1.sendChoiceRequest(any(PowerupCardRequest.class))).thenAnswer(new FirstChoiceAnswer());
+        when(v2.sendChoiceRequest(any(PowerupCardRequest.class))).thenAnswer(new FirstChoiceAnswer());
+        when(weaponController.getDamagedPlayers()).thenReturn(new HashSet<>(Arrays.asList(p2, p1)));
+        p1.addPowerup(new PowerupCard(PowerupEnum.TAGBACK, AmmoCube.RED));
+        p2.addPowerup(new PowerupCard(PowerupEnum.TAGBACK, AmmoCube.BLUE));
+
+        new ShootActionController(match, views, factory).execute(view);
+
+        /* Order of the victims in the match */
+        List<PersistentView> ordered = new ArrayList<>();
+        match.getPlayers().stream()
+                .filter(p -> p == p1 || p == p2)
+                .forEach(p -> ordered.add(views.get(p.getName())));
+
+        /* Every victim is asked before any powerup is used, then the powerups are used in match order */
+        InOrder inOrder = inOrder(ordered.get(0), ordered.get(1), powerupController);
+        inOrder.verify(ordered.get(0)).sendChoiceRequest(any(PowerupCardRequest.class));
+        inOrder.verify(ordered.get(1)).sendChoiceRequest(any(PowerupCardRequest.class));
+        inOrder.verify(powerupController).use(ordered.get(0));
+        inOrder.verify(powerupController).use(ordered.get(1));
+
+        assertTrue(p1.getPowerups().isEmpty());
+        assertTrue(p2.getPowerups().isEmpty());
+    }
+}
@@ -23,6 +23,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import static it.polimi.deib.se2019.sanp4.adrenaline.model.action.ActionCardEnum.*;
 import static it.polimi.deib.se2019.sanp4.adrenaline.model.player.PlayerState.SUSPENDED;
@@ -377,9 +378,9 @@ public class MatchControllerTest {
                     match.suspendPlayer("zoniMyLord");
                 }
                 turnCount++;
-                return null;
+                return CompletableFuture.completedFuture(null);
             }
-        }).when(turnController).runTurn();
+        }).when(turnController).runTurnAsync(any());
 
         Runnable callback = mock(Runnable.class);
         matchController.setAfterTurnCallback(callback);
@@ -404,9 +405,9 @@ public class MatchControllerTest {
                     currentPlayer.addPerformedKillshot();
                 }
                 previousPlayer = currentPlayer;
-                return null;
+                return CompletableFuture.completedFuture(null);
             }
-        }).when(turnController).runTurn();
+        }).when(turnController).runTurnAsync(any());
 
         Runnable callback = mock(Runnable.class);
         matchController.setAfterTurnCallback(callback);
@@ -431,9 +432,9 @@ public class MatchControllerTest {
                     currentPlayer.addPerformedKillshot();
                 }
                 previousPlayer = currentPlayer;
-                return null;
+                return CompletableFuture.completedFuture(null);
             }
-        }).when(turnController).runTurn();
+        }).when(turnController).runTurnAsync(any());
 
         Runnable callback = mock(Runnable.class);
 
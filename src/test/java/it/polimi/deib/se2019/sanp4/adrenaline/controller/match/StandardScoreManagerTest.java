@@ -138,6 +138,38 @@ public class StandardScoreManagerTest {
         assertEquals(0, match.getPlayerByName("papaya").getScore());
     }
 
+    @Test
+    public void scoreTurn_scoreFinal_killersWithSameSlot_shouldKeepThemDistinct() {
+        Player papaya = match.getPlayerByName("papaya");
+        Player mango = match.getPlayerByName("mango");
+        Player avocado = match.getPlayerByName("avocado");
+        /* A player with the same color as mango, which can only be created outside of the match */
+        Player impostor = new Player("impostor", mango.getActionCard(), mango.getColor());
+
+        shoot(impostor, papaya, 11);
+        shoot(mango, avocado, 12);
+        scoreManager.scoreTurn(match);
+
+        /* Each one performed a single killshot, so none gets the extra point */
+        assertEquals(9, impostor.getScore());
+        assertEquals(9, mango.getScore());
+
+        /* Reset boards */
+        for (Player player : new Player[]{papaya, avocado}) {
+            try {
+                player.getPlayerBoard().updateDeathsAndReset();
+            } catch (PlayerException e) {
+                /* OK, just flip */
+            }
+        }
+
+        /* Both are on the killshot track, mango has one more token for the overkill */
+        scoreManager.scoreFinal(match);
+
+        assertEquals(17, mango.getScore());
+        assertEquals(15, impostor.getScore());
+    }
+
     @Test
     public void scoreFinal_someFrenzy_shouldScoreBoardsWithDamage() throws Exception {
         Player papaya = match.getPlayerByName("papaya");
@@ -34,6 +34,7 @@ import org.mockito.junit.MockitoJUnitRunner;
 
 import java.util.*;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 
 import static it.polimi.deib.se2019.sanp4.adrenaline.model.action.ActionEnum.*;
 import static it.polimi.deib.se2019.sanp4.adrenaline.model.match.PlayerOperationEnum.*;
@@ -97,6 +98,7 @@ public class TurnControllerTest {
 
         /* Create a stub of the controller factory (only stub relevant methods) */
         when(factory.createSpawnController()).thenReturn(spawnController);
+        when(spawnController.initialSpawnAsync(any(), any())).thenReturn(CompletableFuture.completedFuture(null));
         when(factory.createMoveActionController()).thenReturn(moveActionController);
         when(factory.createGrabActionController(any())).thenReturn(grabActionController);
         when(factory.createShootActionController()).thenReturn(shootActionController);
@@ -135,7 +137,7 @@ public class TurnControllerTest {
         controller.runTurn();
 
         /* Check that the spawn controller has been asked to spawn the player */
-        verify(spawnController).initialSpawn(view);
+        verify(spawnController).initialSpawnAsync(eq(view), any());
 
         /* Check that the turn is over */
         assertThat(turn.getTurnState(), is(OVER));
@@ -165,7 +167,7 @@ public class TurnControllerTest {
         controller.runTurn();
 
         /* Check that the spawn controller has been asked to spawn the player */
-        verify(spawnController, never()).initialSpawn(any());
+        verify(spawnController, never()).initialSpawnAsync(any(), any());
 
         /* Check that the turn is over */
         assertThat(turn.getTurnState(), is(OVER));
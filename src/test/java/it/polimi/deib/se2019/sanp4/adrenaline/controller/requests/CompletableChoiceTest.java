@@ -164,4 +164,32 @@ public class CompletableChoiceTest {
         /* Assert that the exception has been thrown */
         assertTrue((Boolean) successful.get());
     }
+
+    @Test
+    public void toCompletionStage_completion_shouldResumeOnExecutor() throws Exception {
+        CompletableChoice<String> completableChoice = new CompletableChoice<>(request);
+        Thread[] resumingThread = new Thread[1];
+
+        CompletableFuture<String> stage = completableChoice.toCompletionStage(executor)
+                .thenApply(choice -> {
+                    resumingThread[0] = Thread.currentThread();
+                    return choice;
+                }).toCompletableFuture();
+        assertFalse(stage.isDone());
+
+        completableChoice.complete("c");
+
+        assertEquals("c", stage.get(1, TimeUnit.SECONDS));
+        assertNotSame(Thread.currentThread(), resumingThread[0]);
+    }
+
+    @Test
+    public void toCompletionStage_cancellation_shouldCompleteExceptionally() throws Exception {
+        CompletableChoice<String> completableChoice = new CompletableChoice<>(request).cancel();
+
+        CompletableFuture<Boolean> cancelled = completableChoice.toCompletionStage(executor)
+                .handle((choice, e) -> e instanceof CancellationException).toCompletableFuture();
+
+        assertTrue(cancelled.get(1, TimeUnit.SECONDS));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,75 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.controller.weapons;
+
+import it.polimi.deib.se2019.sanp4.adrenaline.controller.weapons.WeaponBlueprint.EffectBlueprint;
+import it.polimi.deib.se2019.sanp4.adrenaline.controller.weapons.WeaponBlueprint.TargetBlueprint;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.board.VisibilityEnum;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.items.ammo.AmmoCubeCost;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class WeaponBlueprintTest {
+
+    private static final String WEAPON = "{\"id\": \"test\", \"type\": \"OPTIONAL_EFFECTS\", \"direction\": \"CARDINAL\"," +
+            "\"effects\": [" +
+            "{\"id\": \"basic\", \"type\": \"BASIC\", \"targets\": [" +
+            "{\"id\": \"t1\", \"targetMode\": \"PLAYER\", \"damage\": 2, \"visibility\": \"VISIBLE\", \"maxDist\": 1}]}," +
+            "{\"id\": \"move\", \"type\": \"MOVEMENT\", \"playerMoves\": 2, \"cost\": [\"RED\"]," +
+            "\"dependsOnEffects\": [\"basic\"]}" +
+            "]}";
+
+    @Test
+    public void create_validWeapon_shouldCompileAllFields() {
+        WeaponBlueprint blueprint = new WeaponBlueprint(new JSONObject(WEAPON));
+
+        assertEquals("OPTIONAL_EFFECTS", blueprint.getType());
+        assertEquals(ShootingDirectionEnum.CARDINAL, blueprint.getShootingDirection());
+        assertEquals(2, blueprint.getEffects().size());
+
+        EffectBlueprint basic = blueprint.getEffects().get(0);
+        assertEquals("basic", basic.getId());
+        assertNull(basic.getCost());
+        assertEquals(1, basic.getTargets().size());
+
+        TargetBlueprint target = basic.getTargets().get(0);
+        assertEquals("PLAYER", target.getTargetMode());
+        assertEquals(2, target.getDamage());
+        assertEquals(0, target.getMarks());
+        assertEquals(VisibilityEnum.VISIBLE, target.getVisibility());
+        assertNull(target.getMinDist());
+        assertEquals(Integer.valueOf(1), target.getMaxDist());
+        assertNull(target.getExcludePlayers());
+
+        EffectBlueprint move = blueprint.getEffects().get(1);
+        assertEquals(2, move.getPlayerMoves());
+        assertEquals(Collections.singletonList(AmmoCubeCost.RED), move.getCost());
+        assertEquals(Collections.singleton("basic"), move.getDependsOnEffects());
+        assertTrue(move.getTargets().isEmpty());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void getEffects_shouldBeUnmodifiable() {
+        WeaponBlueprint blueprint = new WeaponBlueprint(new JSONObject(WEAPON));
+
+        blueprint.getEffects().clear();
+    }
+
+    @Test(expected = JSONException.class)
+    public void create_invalidWeaponType_shouldThrow() {
+        new WeaponBlueprint(new JSONObject("{\"type\": \"INVALID\", \"effects\": []}"));
+    }
+
+    @Test(expected = JSONException.class)
+    public void create_invalidEffectType_shouldThrow() {
+        new EffectBlueprint(new JSONObject("{\"id\": \"effect\", \"type\": \"INVALID\"}"));
+    }
+
+    @Test(expected = JSONException.class)
+    public void create_invalidTargetMode_shouldThrow() {
+        new TargetBlueprint(new JSONObject("{\"id\": \"target\", \"targetMode\": \"INVALID\"}"));
+    }
+}
@@ -0,0 +1,211 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.model;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.JSONUtils;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.modelviews.AmmoSquareView;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.modelviews.MatchView;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.modelviews.PlayerView;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.DeltaUpdate;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.ModelUpdate;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.board.CoordPair;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.board.RoomColor;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.items.ammo.AmmoCube;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.player.PlayerColor;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class DeltaEncoderTest {
+
+    private static ObjectMapper objectMapper = JSONUtils.getObjectMapper();
+
+    private DeltaEncoder encoder;
+
+    @Before
+    public void setUp() {
+        encoder = new DeltaEncoder(DeltaUpdate.Entity.MATCH, null, null);
+    }
+
+    private static MatchView createMatchView(boolean frenzy, String... killshots) {
+        MatchView view = new MatchView();
+        view.setTotalSkulls(8);
+        view.setFrenzy(frenzy);
+        view.setKillshotsTrack(Arrays.asList(killshots));
+        return view;
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void create_nullEntity_shouldThrowNullPointerException() {
+        new DeltaEncoder(null, null, null);
+    }
+
+    private static PlayerView createPlayerView(int red, int blue) {
+        PlayerView view = new PlayerView("bzoto", PlayerColor.GREEN);
+        Map<AmmoCube, Integer> ammo = new EnumMap<>(AmmoCube.class);
+        ammo.put(AmmoCube.RED, red);
+        if (blue > 0) ammo.put(AmmoCube.BLUE, blue);
+        view.setAmmo(ammo);
+        return view;
+    }
+
+    @Test
+    public void label_shouldLabelWithCurrentVersion() {
+        encoder.encode(createMatchView(false));
+        MatchView view = encoder.label(createMatchView(false));
+
+        assertEquals(1, view.getVersion());
+        assertEquals(1, encoder.getVersion());
+    }
+
+    @Test
+    public void encode_afterPreviousVersion_shouldOnlyContainChangedFields() {
+        encoder.encode(createMatchView(false));
+
+        DeltaUpdate update = encoder.encode(createMatchView(false, "bzoto"));
+
+        assertEquals(DeltaUpdate.Entity.MATCH, update.getEntity());
+        assertEquals(2, update.getVersion());
+        assertEquals(2, encoder.getVersion());
+        assertEquals(new HashSet<>(Arrays.asList("killshotsTrack", "version")), fieldNames(update.getPatch()));
+    }
+
+    @Test
+    public void encode_firstVersion_shouldContainAllFields() {
+        DeltaUpdate update = encoder.encode(createMatchView(false));
+
+        assertEquals(fieldNames(objectMapper.valueToTree(createMatchView(false))), fieldNames(update.getPatch()));
+    }
+
+    @Test
+    public void encode_labelledView_shouldNotAffectNextPatch() {
+        encoder.encode(createMatchView(false));
+        encoder.label(createMatchView(true));
+
+        DeltaUpdate update = encoder.encode(createMatchView(true, "bzoto"));
+
+        assertEquals(new HashSet<>(Arrays.asList("killshotsTrack", "frenzy", "version")),
+                fieldNames(update.getPatch()));
+    }
+
+    @Test
+    public void encode_changedNestedObject_shouldOnlyContainChangedEntries() {
+        DeltaEncoder playerEncoder = new DeltaEncoder(DeltaUpdate.Entity.PLAYER, "bzoto", null);
+        playerEncoder.encode(createPlayerView(1, 2));
+
+        DeltaUpdate update = playerEncoder.encode(createPlayerView(3, 2));
+
+        assertEquals(new HashSet<>(Arrays.asList("ammo", "version")), fieldNames(update.getPatch()));
+        assertEquals(Collections.singleton("RED"), fieldNames(update.getPatch().get("ammo")));
+    }
+
+    @Test
+    public void encode_patchApplied_shouldProduceSameView() throws Exception {
+        AmmoSquareView clientView = new AmmoSquareView(new CoordPair(0, 1), RoomColor.RED);
+        encoder.encode(clientView);
+
+        AmmoSquareView serverView = new AmmoSquareView(new CoordPair(0, 1), RoomColor.RED);
+        serverView.setPlayers(Collections.singleton("bzoto"));
+        DeltaUpdate update = encoder.encode(serverView);
+        update.applyTo(clientView);
+
+        assertEquals(2, clientView.getVersion());
+        assertEquals(Collections.singleton("bzoto"), clientView.getPlayers());
+        assertEquals(objectMapper.valueToTree(serverView), objectMapper.valueToTree(clientView));
+    }
+
+    @Test
+    public void encode_nestedPatchApplied_shouldProduceSameView() throws Exception {
+        DeltaEncoder playerEncoder = new DeltaEncoder(DeltaUpdate.Entity.PLAYER, "bzoto", null);
+        PlayerView clientView = createPlayerView(1, 2);
+        playerEncoder.encode(clientView);
+
+        /* One entry changes and the other one is removed */
+        PlayerView serverView = createPlayerView(3, 0);
+        playerEncoder.encode(serverView).applyTo(clientView);
+
+        assertEquals(objectMapper.valueToTree(serverView), objectMapper.valueToTree(clientView));
+    }
+
+    @Test
+    public void followedBy_consecutiveUpdates_shouldProduceSameView() throws Exception {
+        DeltaEncoder playerEncoder = new DeltaEncoder(DeltaUpdate.Entity.PLAYER, "bzoto", null);
+        PlayerView clientView = createPlayerView(1, 2);
+        playerEncoder.encode(clientView);
+
+        DeltaUpdate first = playerEncoder.encode(createPlayerView(3, 2));
+        PlayerView serverView = createPlayerView(3, 0);
+        DeltaUpdate merged = first.followedBy(playerEncoder.encode(serverView));
+        merged.applyTo(clientView);
+
+        assertEquals(1, merged.getBaseVersion());
+        assertEquals(3, merged.getVersion());
+        assertEquals(objectMapper.valueToTree(serverView), objectMapper.valueToTree(clientView));
+    }
+
+    @Test
+    public void followedBy_notConsecutiveUpdates_shouldReturnNull() {
+        DeltaUpdate first = encoder.encode(createMatchView(false));
+        encoder.encode(createMatchView(true));
+        DeltaUpdate third = encoder.encode(createMatchView(true, "bzoto"));
+
+        assertNull(first.followedBy(third));
+    }
+
+    @Test
+    public void followedBy_removedEntryAddedBack_shouldReturnNull() {
+        ObjectNode removed = objectMapper.createObjectNode().putNull("ammo");
+        ObjectNode added = objectMapper.createObjectNode();
+        added.putObject("ammo").put("RED", 3);
+        DeltaUpdate first = new DeltaUpdate(DeltaUpdate.Entity.PLAYER, "bzoto", null, 2, removed);
+        DeltaUpdate second = new DeltaUpdate(DeltaUpdate.Entity.PLAYER, "bzoto", null, 3, added);
+
+        /* The second patch sets the whole ammo, which would be merged into the old ammo of the client */
+
+        assertNull(first.followedBy(second));
+    }
+
+    @Test
+    public void encode_serializedUpdate_shouldKeepAllFields() throws Exception {
+        DeltaEncoder squareEncoder = new DeltaEncoder(DeltaUpdate.Entity.SQUARE, null, new CoordPair(2, 1));
+        DeltaUpdate update = squareEncoder.encode(createMatchView(true));
+
+        DeltaUpdate read = (DeltaUpdate) objectMapper.readValue(objectMapper.writeValueAsString(update),
+                ModelUpdate.class);
+
+        assertEquals(update.getEntity(), read.getEntity());
+        assertEquals(update.getLocation(), read.getLocation());
+        assertNull(read.getPlayer());
+        assertEquals(update.getVersion(), read.getVersion());
+        assertEquals(update.getBaseVersion(), read.getBaseVersion());
+        assertEquals(update.getPatch().toString(), read.getPatch().toString());
+    }
+
+    @Test
+    public void encode_javaSerializedUpdate_shouldKeepPatch() throws Exception {
+        DeltaUpdate update = encoder.encode(createMatchView(true, "bzoto"));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(update);
+        }
+        DeltaUpdate read;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            read = (DeltaUpdate) in.readObject();
+        }
+
+        assertEquals(update.getVersion(), read.getVersion());
+        assertEquals(update.getPatch().toString(), read.getPatch().toString());
+    }
+
+    private static HashSet<String> fieldNames(JsonNode node) {
+        HashSet<String> names = new HashSet<>();
+        node.fieldNames().forEachRemaining(names::add);
+        return names;
+    }
+}
@@ -2,6 +2,7 @@ package it.polimi.deib.se2019.sanp4.adrenaline.model;
 
 import it.polimi.deib.se2019.sanp4.adrenaline.common.observer.Observer;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.InitialUpdate;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.MatchOperationalStateUpdate;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.ModelUpdate;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.match.Match;
 import org.junit.Test;
@@ -162,6 +163,22 @@ public class ModelImplTest {
         verify(observer2).update(update);
     }
 
+    @Test
+    public void update_shouldNumberUpdatesInOrder() {
+        ModelImpl model = new ModelImpl();
+        model.addObserver("1", observer1);
+
+        ModelUpdate first = new MatchOperationalStateUpdate(MatchOperationalState.ACTIVE);
+        ModelUpdate second = new MatchOperationalStateUpdate(MatchOperationalState.FINISHED);
+        second.setRecipients(Collections.singleton("1"));
+
+        model.update(first);
+        model.update(second);
+
+        assertTrue(first.getSequence() > 0);
+        assertTrue(second.getSequence() > first.getSequence());
+    }
+
     @Test
     public void sendInitialUpdate_noMatch_shouldDoNothing() {
         ModelImpl model = new ModelImpl();
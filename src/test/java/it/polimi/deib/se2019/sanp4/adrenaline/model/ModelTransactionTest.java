@@ -0,0 +1,167 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.model;
+
+import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.DeltaUpdate;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.ModelUpdate;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.action.ActionCard;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.action.ActionCardEnum;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.action.ActionEnum;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.items.ammo.AmmoCube;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.player.Player;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.player.PlayerBoard;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.player.PlayerColor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class ModelTransactionTest {
+
+    private Player shooter;
+    private Player target;
+    private List<ModelUpdate> updates;
+
+    @Before
+    public void setUp() {
+        ActionCard actionCard = new ActionCard(2, ActionCardEnum.REGULAR,
+                Collections.singletonList(ActionEnum.RUN), ActionEnum.RELOAD);
+        shooter = new Player("bzoto", actionCard, PlayerColor.GREEN);
+        target = new Player("zoniz", actionCard, PlayerColor.YELLOW);
+        updates = new ArrayList<>();
+        target.addObserver(updates::add);
+    }
+
+    @After
+    public void tearDown() {
+        /* Make sure that no transaction is left open on the thread */
+        assertFalse(ModelTransaction.isOpen());
+    }
+
+    @Test
+    public void notifyChange_noTransaction_shouldSendImmediately() {
+        target.getPlayerBoard().addDamage(shooter, 2);
+        target.getPlayerBoard().addMark(shooter, 1);
+
+        assertEquals(2, updates.size());
+    }
+
+    @Test
+    public void commit_changesOfSameEntity_shouldSendOneUpdate() {
+        PlayerBoard board = target.getPlayerBoard();
+        try (ModelTransaction transaction = ModelTransaction.begin()) {
+            board.addDamage(shooter, 2);
+            board.addMark(shooter, 1);
+            board.addMark(shooter, 1);
+            assertTrue(updates.isEmpty());
+        }
+
+        assertEquals(1, updates.size());
+        DeltaUpdate update = (DeltaUpdate) updates.get(0);
+        assertEquals(DeltaUpdate.Entity.PLAYER_BOARD, update.getEntity());
+        assertEquals(1, update.getVersion());
+    }
+
+    @Test
+    public void commit_changesOfMoreEntities_shouldSendOneUpdateEachInOrder() {
+        try (ModelTransaction transaction = ModelTransaction.begin()) {
+            target.getPlayerBoard().addDamage(shooter, 1);
+            target.addAmmo(AmmoCube.RED);
+            target.getPlayerBoard().addMark(shooter, 1);
+            target.addAmmo(AmmoCube.BLUE);
+        }
+
+        assertEquals(2, updates.size());
+        assertEquals(DeltaUpdate.Entity.PLAYER_BOARD, ((DeltaUpdate) updates.get(0)).getEntity());
+        assertEquals(DeltaUpdate.Entity.PLAYER, ((DeltaUpdate) updates.get(1)).getEntity());
+    }
+
+    @Test
+    public void close_nestedTransaction_shouldSendOnlyWhenOutermostIsClosed() {
+        try (ModelTransaction outer = ModelTransaction.begin()) {
+            try (ModelTransaction inner = ModelTransaction.begin()) {
+                target.getPlayerBoard().addDamage(shooter, 1);
+            }
+            assertTrue(updates.isEmpty());
+            target.getPlayerBoard().addMark(shooter, 1);
+        }
+
+        assertEquals(1, updates.size());
+    }
+
+    @Test
+    public void flush_openTransaction_shouldSendPendingUpdates() {
+        try (ModelTransaction transaction = ModelTransaction.begin()) {
+            target.getPlayerBoard().addDamage(shooter, 1);
+            ModelTransaction.flush();
+            assertEquals(1, updates.size());
+
+            target.getPlayerBoard().addMark(shooter, 1);
+            assertTrue(ModelTransaction.isOpen());
+        }
+
+        assertEquals(2, updates.size());
+        assertEquals(2, ((DeltaUpdate) updates.get(1)).getVersion());
+    }
+
+    @Test
+    public void flush_noTransaction_shouldDoNothing() {
+        ModelTransaction.flush();
+
+        assertTrue(updates.isEmpty());
+        assertFalse(ModelTransaction.isOpen());
+    }
+
+    @Test
+    public void close_exceptionInTransaction_shouldSendUpdates() {
+        try (ModelTransaction transaction = ModelTransaction.begin()) {
+            target.getPlayerBoard().addDamage(shooter, 1);
+            target.getPlayerBoard().addDamage(target, 1); /* Throws */
+        } catch (IllegalArgumentException e) {
+            /* The change made before the exception is still sent */
+        }
+
+        assertEquals(1, updates.size());
+    }
+
+    @Test
+    public void carrier_transactionOpenAcrossThreads_shouldBeResumedByNextStep() throws Exception {
+        ExecutorService first = Executors.newSingleThreadExecutor();
+        ExecutorService second = Executors.newSingleThreadExecutor();
+        try {
+            ModelTransaction.Carrier carrier = new ModelTransaction.Carrier();
+            AtomicReference<ModelTransaction> opened = new AtomicReference<>();
+
+            /* The first step opens the transaction and leaves it open */
+            CompletableFuture.runAsync(() -> {
+                opened.set(ModelTransaction.begin());
+                target.getPlayerBoard().addDamage(shooter, 1);
+            }, carrier.on(first)).get();
+            assertTrue(updates.isEmpty());
+
+            /* The thread of the first step does not keep it */
+            assertFalse(CompletableFuture.supplyAsync(ModelTransaction::isOpen, first).get());
+
+            /* The second step runs on another thread and closes it */
+            CompletableFuture.runAsync(() -> {
+                assertTrue(ModelTransaction.isOpen());
+                target.getPlayerBoard().addMark(shooter, 1);
+                opened.get().close();
+                assertFalse(ModelTransaction.isOpen());
+            }, carrier.on(second)).get();
+
+            assertEquals(1, updates.size());
+            assertFalse(CompletableFuture.supplyAsync(ModelTransaction::isOpen, second).get());
+        } finally {
+            first.shutdown();
+            second.shutdown();
+        }
+    }
+}
@@ -142,6 +142,23 @@ public class BoardCreatorTest {
         checkTestBoard(board);
     }
 
+    @Test
+    public void createBoard_twice_shouldShareTopologyButNotSquares() throws BoardNotFoundException {
+        BoardCreator.loadBoard("/assets/test_boards/board_valid.json");
+        Board first = BoardCreator.createBoard(0);
+        Board second = BoardCreator.createBoard(0);
+
+        checkTestBoard(second);
+        assertSame(first.getTopology(), second.getTopology());
+        for (Square square : first.getSquares()) {
+            Square other = second.getSquare(square.getLocation());
+            assertNotSame(square, other);
+            assertEquals(square.getClass(), other.getClass());
+            assertEquals(square.getAdjacentSquares(), other.getAdjacentSquares());
+            assertEquals(square.getRoom().getColor(), other.getRoom().getColor());
+        }
+    }
+
     @Test
     public void createBoard_redundantSquareInRoom_shouldSucceed() throws BoardNotFoundException {
         // This board is equal to board_valid, but square (0,1) in the BLUE room has not been previously declared
@@ -0,0 +1,147 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.model.board;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static it.polimi.deib.se2019.sanp4.adrenaline.model.board.CardinalDirection.*;
+import static it.polimi.deib.se2019.sanp4.adrenaline.model.board.SquareConnectionType.*;
+import static it.polimi.deib.se2019.sanp4.adrenaline.model.board.VisibilityEnum.*;
+import static org.junit.Assert.*;
+
+public class BoardTopologyTest {
+
+    /*
+     * The test board (there is no square in (2,1)):
+     *
+     *   RED (0,0) - RED (1,0) | BLUE (2,0)
+     *      door        wall
+     *  YELLOW (0,1) - YELLOW (1,1)
+     */
+    private Board board;
+
+    private static void connect(Square a, CardinalDirection direction, Square b, SquareConnectionType type) {
+        a.getAdjacentSquares().setConnection(direction, b.getLocation(), type);
+        b.getAdjacentSquares().setConnection(direction.getOppositeDirection(), a.getLocation(), type);
+    }
+
+    private Square square(int x, int y, RoomColor color) {
+        Square square = new AmmoSquare(new CoordPair(x, y));
+        board.addSquare(square);
+        board.getRooms().get(color).addSquare(square);
+        return square;
+    }
+
+    @Before
+    public void setUp() {
+        board = new Board(0, 3, 2);
+        Square redLeft = square(0, 0, RoomColor.RED);
+        Square redRight = square(1, 0, RoomColor.RED);
+        Square blue = square(2, 0, RoomColor.BLUE);
+        Square yellowLeft = square(0, 1, RoomColor.YELLOW);
+        Square yellowRight = square(1, 1, RoomColor.YELLOW);
+
+        connect(redLeft, E, redRight, FLOOR);
+        connect(redRight, E, blue, WALL);
+        connect(redLeft, S, yellowLeft, DOOR);
+        connect(redRight, S, yellowRight, WALL);
+        connect(yellowLeft, E, yellowRight, FLOOR);
+    }
+
+    private int index(int x, int y) {
+        return board.getTopology().indexOf(new CoordPair(x, y));
+    }
+
+    @Test
+    public void indexOf_existingSquares_shouldBeDense() {
+        BoardTopology topology = board.getTopology();
+
+        assertEquals(5, topology.size());
+        Set<Integer> indexes = new HashSet<>();
+        for (Square square : board.getSquares()) {
+            int index = topology.indexOf(square.getLocation());
+            assertEquals(square.getLocation(), topology.getLocation(index));
+            indexes.add(index);
+        }
+        assertEquals(new HashSet<>(Arrays.asList(0, 1, 2, 3, 4)), indexes);
+    }
+
+    @Test
+    public void indexOf_missingSquare_shouldReturnMinusOne() {
+        BoardTopology topology = board.getTopology();
+
+        assertEquals(-1, topology.indexOf(new CoordPair(2, 1)));
+        assertEquals(-1, topology.indexOf(new CoordPair(5, 7)));
+        assertEquals(-1, topology.indexOf(null));
+    }
+
+    @Test
+    public void getDistance_anyDirection_shouldBeShortestPath() {
+        BoardTopology topology = board.getTopology();
+
+        assertEquals(0, topology.getDistance(ANY, null, index(0, 0), index(0, 0)));
+        assertEquals(1, topology.getDistance(ANY, null, index(0, 0), index(1, 0)));
+        /* The wall forces to go around through the door */
+        assertEquals(3, topology.getDistance(ANY, null, index(1, 0), index(1, 1)));
+        assertEquals(1, topology.getDistance(IGNORE_WALLS, null, index(1, 0), index(1, 1)));
+    }
+
+    @Test
+    public void getDistance_behindWalls_shouldBeUnreachable() {
+        BoardTopology topology = board.getTopology();
+
+        assertEquals(BoardTopology.UNREACHABLE, topology.getDistance(ANY, null, index(0, 0), index(2, 0)));
+        assertEquals(2, topology.getDistance(IGNORE_WALLS, null, index(0, 0), index(2, 0)));
+    }
+
+    @Test
+    public void getDistance_withDirection_shouldOnlyMoveInThatDirection() {
+        BoardTopology topology = board.getTopology();
+
+        assertEquals(1, topology.getDistance(ANY, E, index(0, 1), index(1, 1)));
+        assertEquals(BoardTopology.UNREACHABLE, topology.getDistance(ANY, W, index(0, 1), index(1, 1)));
+        assertEquals(BoardTopology.UNREACHABLE, topology.getDistance(ANY, E, index(0, 0), index(1, 1)));
+    }
+
+    @Test
+    public void isVisible_shouldSeeOwnRoomAndRoomsBehindDoors() {
+        BoardTopology topology = board.getTopology();
+
+        assertTrue(topology.isVisible(index(0, 0), index(1, 0)));
+        assertTrue(topology.isVisible(index(0, 0), index(1, 1)));
+        assertFalse(topology.isVisible(index(0, 0), index(2, 0)));
+        /* Only the yellow square with the door sees the red room */
+        assertFalse(topology.isVisible(index(1, 1), index(0, 0)));
+        assertTrue(topology.isVisible(index(1, 1), index(0, 1)));
+    }
+
+    @Test
+    public void addSquare_shouldRecomputeTopology() {
+        BoardTopology before = board.getTopology();
+
+        square(2, 1, RoomColor.BLUE);
+
+        assertNotSame(before, board.getTopology());
+        assertEquals(6, board.getTopology().size());
+    }
+
+    @Test
+    public void querySquares_withDistance_shouldUseTopology() {
+        Square start = board.getSquare(1, 0);
+
+        Set<Square> expected = new HashSet<>(Arrays.asList(board.getSquare(0, 1), board.getSquare(1, 1)));
+        assertEquals(expected, board.querySquares(start, ANY, null, 2, 3));
+        assertEquals(Collections.singleton(board.getSquare(0, 0)), board.querySquares(start, VISIBLE, W, 1, 1));
+        assertTrue(board.querySquares(start, ANY, null, 1, 0).isEmpty());
+    }
+
+    @Test
+    public void querySquares_notVisible_shouldBeComplementOfVisible() {
+        Square start = board.getSquare(1, 0);
+
+        Set<Square> expected = new HashSet<>(Arrays.asList(
+                board.getSquare(2, 0), board.getSquare(0, 1), board.getSquare(1, 1)));
+        assertEquals(expected, board.querySquares(start, NOT_VISIBLE, null, null, null));
+    }
+}
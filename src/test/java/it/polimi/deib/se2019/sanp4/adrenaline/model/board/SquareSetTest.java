@@ -0,0 +1,130 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.model.board;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class SquareSetTest {
+
+    private Board board;
+
+    private Square a;
+    private Square b;
+    private Square c;
+
+    @Before
+    public void setUp() {
+        board = new Board(0, 2, 2);
+        a = new AmmoSquare(new CoordPair(0, 0));
+        b = new AmmoSquare(new CoordPair(1, 0));
+        c = new AmmoSquare(new CoordPair(1, 1));
+        board.addSquare(a);
+        board.addSquare(b);
+        board.addSquare(c);
+    }
+
+    @Test
+    public void noneOf_shouldBeEmpty() {
+        SquareSet set = SquareSet.noneOf(board);
+
+        assertTrue(set.isEmpty());
+        assertEquals(0, set.size());
+        assertFalse(set.iterator().hasNext());
+    }
+
+    @Test
+    public void allOf_shouldContainAllSquares() {
+        SquareSet set = SquareSet.allOf(board);
+
+        assertEquals(new HashSet<>(board.getSquares()), set);
+        assertEquals(set, new HashSet<>(board.getSquares()));
+    }
+
+    @Test
+    public void add_remove_shouldChangeMembership() {
+        SquareSet set = SquareSet.noneOf(board);
+
+        assertTrue(set.add(a));
+        assertFalse(set.add(a));
+        assertTrue(set.contains(a));
+        assertFalse(set.contains(b));
+
+        assertTrue(set.remove(a));
+        assertFalse(set.remove(a));
+        assertFalse(set.remove("not a square"));
+        assertTrue(set.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void add_squareOfOtherBoard_shouldThrowIllegalArgumentException() {
+        SquareSet.noneOf(board).add(new AmmoSquare(new CoordPair(0, 0)));
+    }
+
+    @Test
+    public void contains_squareOfOtherBoard_shouldReturnFalse() {
+        assertFalse(SquareSet.allOf(board).contains(new AmmoSquare(new CoordPair(0, 0))));
+    }
+
+    @Test
+    public void setAlgebra_shouldNotModifyOperands() {
+        SquareSet ab = SquareSet.copyOf(board, Arrays.asList(a, b));
+        SquareSet bc = SquareSet.copyOf(board, Arrays.asList(b, c));
+
+        assertEquals(new HashSet<>(Arrays.asList(a, b, c)), ab.union(bc));
+        assertEquals(Collections.singleton(b), ab.intersection(bc));
+        assertEquals(Collections.singleton(a), ab.difference(bc));
+        assertTrue(ab.intersects(bc));
+        assertFalse(ab.difference(bc).intersects(bc));
+        assertEquals(2, ab.size());
+        assertEquals(2, bc.size());
+    }
+
+    @Test
+    public void bulkOperations_withOtherCollections_shouldBehaveLikeSet() {
+        SquareSet set = SquareSet.allOf(board);
+
+        assertTrue(set.retainAll(new HashSet<>(Arrays.asList(a, c))));
+        assertEquals(new HashSet<>(Arrays.asList(a, c)), set);
+        assertTrue(set.removeAll(Collections.singletonList(c)));
+        assertEquals(Collections.singleton(a), set);
+        assertTrue(set.containsAll(Collections.singleton(a)));
+        assertFalse(set.containsAll(Arrays.asList(a, b)));
+    }
+
+    @Test
+    public void iterator_remove_shouldRemoveSquare() {
+        SquareSet set = SquareSet.allOf(board);
+
+        set.removeIf(square -> square == b);
+
+        assertEquals(new HashSet<>(Arrays.asList(a, c)), set);
+    }
+
+    @Test
+    public void toCoordPairs_shouldReturnLocationsInIndexOrder() {
+        SquareSet set = SquareSet.copyOf(board, Arrays.asList(c, a));
+
+        assertEquals(Arrays.asList(new CoordPair(0, 0), new CoordPair(1, 1)), set.toCoordPairs());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void toImmutable_add_shouldThrowUnsupportedOperationException() {
+        SquareSet set = SquareSet.noneOf(board).toImmutable();
+
+        set.add(a);
+    }
+
+    @Test
+    public void toImmutable_shouldNotBeAffectedByOriginal() {
+        SquareSet set = SquareSet.copyOf(board, Collections.singleton(a));
+        SquareSet immutable = set.toImmutable();
+
+        set.add(b);
+
+        assertEquals(Collections.singleton(a), immutable);
+        assertSame(immutable, immutable.toImmutable());
+    }
+}
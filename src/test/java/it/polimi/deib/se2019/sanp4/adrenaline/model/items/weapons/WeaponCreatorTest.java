@@ -124,4 +124,18 @@ public class WeaponCreatorTest {
         /* Check the number of cards */
         assertEquals(21, cards.size());
     }
+
+    @Test
+    public void createWeaponCard_calledTwice_shouldCreateDistinctCardsWithSameDefinition() throws IOException {
+        WeaponCreator.loadWeapon("/assets/test_weapons/validweapon.json");
+
+        WeaponCard first = WeaponCreator.createWeaponCard("cyberblade");
+        WeaponCard second = WeaponCreator.createWeaponCard("cyberblade");
+        first.unload();
+
+        assertNotSame(first, second);
+        assertEquals(first.getEffects(), second.getEffects());
+        assertEquals(UnloadedState.class, first.getState().getClass());
+        assertEquals(PickupState.class, second.getState().getClass());
+    }
 }
\ No newline at end of file
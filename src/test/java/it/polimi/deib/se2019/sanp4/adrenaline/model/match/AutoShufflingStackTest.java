@@ -5,7 +5,10 @@ import static org.junit.Assert.*;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
 
 public class AutoShufflingStackTest {
 
@@ -93,4 +96,40 @@ public class AutoShufflingStackTest {
         autoShufflingStack.discard(drawnCard);
         assertSame(card, autoShufflingStack.draw());
     }
+
+    @Test(expected = NoSuchElementException.class)
+    public void draw_allCardsDrawn_ShouldThrowNoSuchElementException(){
+        List<Object> list = new ArrayList<>();
+        list.add(new Object());
+        AutoShufflingStack<Object> autoShufflingStack = new AutoShufflingStack<>(list);
+        autoShufflingStack.draw();
+        autoShufflingStack.draw();
+    }
+
+    @Test
+    public void draw_sameSeed_ShouldDrawSameOrder(){
+        List<Integer> list = new ArrayList<>();
+        for (int i = 0; i < 20; i++) list.add(i);
+        AutoShufflingStack<Integer> first = new AutoShufflingStack<>(list, new Random(42));
+        AutoShufflingStack<Integer> second = new AutoShufflingStack<>(list, new Random(42));
+        for (int i = 0; i < 20; i++) {
+            assertEquals(first.draw(), second.draw());
+        }
+    }
+
+    @Test
+    public void draw_afterReshuffle_ShouldDrawAllCardsOnce(){
+        List<Integer> list = new ArrayList<>();
+        for (int i = 0; i < 10; i++) list.add(i);
+        AutoShufflingStack<Integer> autoShufflingStack = new AutoShufflingStack<>(list, new Random(7));
+        for (int i = 0; i < 10; i++) autoShufflingStack.discard(autoShufflingStack.draw());
+        /* More cards than the initial ones */
+        autoShufflingStack.discard(10);
+
+        List<Integer> drawn = new ArrayList<>();
+        for (int i = 0; i < 11; i++) drawn.add(autoShufflingStack.draw());
+
+        assertEquals(11, new HashSet<>(drawn).size());
+        assertTrue(drawn.contains(10));
+    }
 }
@@ -137,4 +137,47 @@ public class MatchCreatorTest {
         assertNotNull(match.getPowerupStack());
         assertNotNull(match.getWeaponStack());
     }
+
+    @Test
+    public void createMatch_withSkeleton_shouldReuseItsBoardAndStacks() {
+        MatchSkeleton skeleton = MatchCreator.createSkeleton(validConfig.getBoardId());
+
+        Match match = MatchCreator.createMatch(validNames, validConfig, skeleton);
+
+        assertEquals(validNames.size(), match.getPlayers().size());
+        assertSame(skeleton.getBoard(), match.getBoard());
+        assertSame(skeleton.getAmmoStack(), match.getAmmoStack());
+        assertSame(skeleton.getPowerupStack(), match.getPowerupStack());
+        assertSame(skeleton.getWeaponStack(), match.getWeaponStack());
+    }
+
+    @Test
+    public void createMatch_skeletonWithOtherBoard_shouldCreateBoard() {
+        MatchSkeleton skeleton = MatchCreator.createSkeleton(null);
+
+        Match match = MatchCreator.createMatch(validNames, validConfig, skeleton);
+
+        assertNotNull(match.getBoard());
+        assertSame(skeleton.getWeaponStack(), match.getWeaponStack());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void createMatch_usedSkeleton_shouldThrow() {
+        MatchSkeleton skeleton = MatchCreator.createSkeleton(null);
+        MatchCreator.createMatch(validNames, validConfig, skeleton);
+
+        MatchCreator.createMatch(validNames, validConfig, skeleton);
+    }
+
+    @Test
+    public void createSkeleton_sameSeed_shouldDealSameCards() {
+        MatchSkeleton first = MatchCreator.createSkeleton(null, 42);
+        MatchSkeleton second = MatchCreator.createSkeleton(null, 42);
+
+        assertEquals(42, first.getSeed());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(first.getWeaponStack().draw().getId(), second.getWeaponStack().draw().getId());
+            assertEquals(first.getPowerupStack().draw(), second.getPowerupStack().draw());
+        }
+    }
 }
\ No newline at end of file
@@ -2,8 +2,8 @@ package it.polimi.deib.se2019.sanp4.adrenaline.model.match;
 
 import it.polimi.deib.se2019.sanp4.adrenaline.common.exceptions.FullCapacityException;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.observer.Observer;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.DeltaUpdate;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.ModelUpdate;
-import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.PlayerUpdate;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.ModelTestUtil;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.board.SpawnSquare;
 import it.polimi.deib.se2019.sanp4.adrenaline.model.items.weapons.WeaponCard;
@@ -76,6 +76,6 @@ public class MatchUpdateTest {
         mockMatch.getPlayerByName("bzoto").addObserver(mockMatch);
         mockMatch.getPlayerByName("bzoto").addWeapon(weaponCard);
 
-        verify(observer).update(any(PlayerUpdate.class));
+        verify(observer).update(any(DeltaUpdate.class));
     }
 }
\ No newline at end of file
@@ -0,0 +1,76 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.model.player;
+
+import it.polimi.deib.se2019.sanp4.adrenaline.model.action.ActionCard;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.action.ActionCardEnum;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.action.ActionEnum;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micro benchmark of the scoring of the player boards, which runs at each death.
+ * It is not a test, run it with the {@link #main(String[])} method after compiling the tests.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlayerBoardScoringBenchmark {
+
+    /** A board killed by four shooters, without ties */
+    private PlayerBoard killedBoard;
+
+    /** A board in frenzy state, where all the shooters are tied */
+    private PlayerBoard tiedBoard;
+
+    @Setup
+    public void setup() throws PlayerException {
+        ActionCard actionCard = new ActionCard(2, ActionCardEnum.REGULAR,
+                Collections.singletonList(ActionEnum.RUN), ActionEnum.RELOAD);
+        PlayerColor[] colors = PlayerColor.values();
+        Player[] players = new Player[colors.length];
+        for (int i = 0; i < colors.length; i++) {
+            players[i] = new Player("player" + i, actionCard, colors[i]);
+        }
+
+        killedBoard = players[0].getPlayerBoard();
+        killedBoard.addDamage(players[1], 1);
+        killedBoard.addDamage(players[2], 4);
+        killedBoard.addMark(players[3], 1);
+        killedBoard.addDamage(players[4], 3);
+        killedBoard.addDamage(players[3], 1);
+        killedBoard.addDamage(players[2], 1);
+
+        tiedBoard = players[1].getPlayerBoard();
+        tiedBoard.turnFrenzy();
+        for (int i = 0; i < 3; i++) {
+            tiedBoard.addDamage(players[0], 1);
+            tiedBoard.addDamage(players[2], 1);
+            tiedBoard.addDamage(players[3], 1);
+            tiedBoard.addDamage(players[4], 1);
+        }
+    }
+
+    @Benchmark
+    public Map<Player, Integer> scoreKilledBoard() {
+        return killedBoard.getPlayerScores();
+    }
+
+    @Benchmark
+    public Map<Player, Integer> scoreTiedBoard() {
+        return tiedBoard.getPlayerScores();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(PlayerBoardScoringBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
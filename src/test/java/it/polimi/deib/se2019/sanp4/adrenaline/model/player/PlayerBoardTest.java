@@ -354,4 +354,25 @@ public class PlayerBoardTest {
         assertEquals(playerBoard.getDeaths(), view.getDeaths());
         assertEquals(playerBoard.getState().toString(), view.getState());
     }
+
+    @Test
+    public void addDamage_shootersWithSameSlot_shouldKeepThemDistinct() {
+        PlayerBoard playerBoard = new PlayerBoard(player);
+        List<Player> shooters = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Player shooter = new Player("shooter" + i, validActionCard, PlayerColor.GREEN);
+            shooters.add(shooter);
+            playerBoard.addMark(shooter, 1);
+            playerBoard.addDamage(shooter, 1);
+        }
+
+        /* Each shooter turned the mark into damage */
+        List<Player> damages = playerBoard.getDamages();
+        for (int i = 0; i < 6; i++) {
+            assertSame(shooters.get(i), damages.get(2 * i));
+            assertSame(shooters.get(i), damages.get(2 * i + 1));
+            assertEquals(0, playerBoard.getMarksByPlayer(shooters.get(i)));
+        }
+        assertEquals(0, playerBoard.getMarksByPlayer(enemyPlayer));
+    }
 }
@@ -0,0 +1,37 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.model.player;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ScoreRankingTest {
+
+    @Test
+    public void rank_noTies_shouldSortByDecreasingCount() {
+        int[] slots = {3, 0, 4};
+        int[] counts = {5, 0, 0, 1, 2};
+
+        int ranked = ScoreRanking.rank(slots, slots.length, counts);
+
+        assertEquals(3, ranked);
+        assertArrayEquals(new int[]{0, 4, 3}, slots);
+    }
+
+    @Test
+    public void rank_ties_shouldKeepOnlyFirstSlotOfEachTie() {
+        int[] slots = {2, 1, 0, 3};
+        int[] counts = {3, 3, 1, 3};
+
+        int ranked = ScoreRanking.rank(slots, slots.length, counts);
+
+        /* Slot 1 got its first token before slots 0 and 3 */
+        assertEquals(2, ranked);
+        assertEquals(1, slots[0]);
+        assertEquals(2, slots[1]);
+    }
+
+    @Test
+    public void rank_emptySlots_shouldRankNothing() {
+        assertEquals(0, ScoreRanking.rank(new int[5], 0, new int[5]));
+    }
+}
@@ -1,5 +1,6 @@
 package it.polimi.deib.se2019.sanp4.adrenaline.server;
 
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.MatchPreferences;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.network.RemoteView;
 import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.LobbyUpdate;
 import it.polimi.deib.se2019.sanp4.adrenaline.view.ViewScene;
@@ -11,6 +12,10 @@ import org.mockito.junit.MockitoJUnitRunner;
 import java.io.IOException;
 import java.util.AbstractMap;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.LogManager;
 
 import static org.junit.Assert.*;
@@ -38,7 +43,7 @@ public class LobbyTest {
 
     @Test
     public void receiveIncomingPlayer_firstPlayer_shouldNotStartTimer() throws IOException {
-        Lobby lobby = new Lobby();
+        Lobby lobby = new Lobby(Runnable::run);
 
         RemoteView remote = mock(RemoteView.class);
         Map.Entry<String, RemoteView> entry = new AbstractMap.SimpleEntry<>("name", remote);
@@ -63,7 +68,7 @@ public class LobbyTest {
 
     @Test
     public void receiveIncomingPlayers_atLeastMinPlayers_shouldStartTimer() {
-        Lobby lobby = new Lobby();
+        Lobby lobby = new Lobby(Runnable::run);
 
         /* Insert enough players */
         for (int i = 0; i < lobby.getMinPlayers(); i++) {
@@ -75,7 +80,7 @@ public class LobbyTest {
 
     @Test
     public void receiveIncomingPlayers_maxPlayers_shouldEmptyWaitingList() {
-        Lobby lobby = new Lobby();
+        Lobby lobby = new Lobby(Runnable::run);
 
         /* Insert enough players */
         for (int i = 0; i < lobby.getMaxPlayers(); i++) {
@@ -88,7 +93,7 @@ public class LobbyTest {
 
     @Test
     public void timerCallback_enoughPlayersToStart_shouldEmptyWaitingList() {
-        Lobby lobby = new Lobby();
+        Lobby lobby = new Lobby(Runnable::run);
 
         /* Insert enough players */
         Map<String, RemoteView> waitingList = lobby.getWaitingPlayers();
@@ -104,7 +109,7 @@ public class LobbyTest {
 
     @Test
     public void timerCallback_notEnoughPlayers_shouldPreserveWaitingList() {
-        Lobby lobby = new Lobby();
+        Lobby lobby = new Lobby(Runnable::run);
 
         /* Insert one player */
         Map<String, RemoteView> waitingList = lobby.getWaitingPlayers();
@@ -116,9 +121,38 @@ public class LobbyTest {
         assertFalse(lobby.isTimerRunning());
     }
 
+    @Test
+    public void run_lastPlayerLeft_shouldCloseAndStop() throws IOException, InterruptedException {
+        CountDownLatch closed = new CountDownLatch(1);
+        Lobby lobby = new Lobby(new MatchPreferences(1, null, null), Runnable::run, l -> closed.countDown());
+        RemoteView leaving = mock(RemoteView.class);
+        doThrow(new IOException()).when(leaving).ping();
+        Thread thread = new Thread(lobby);
+        thread.start();
+
+        assertTrue(lobby.insertPlayer("leaving", leaving));
+
+        assertTrue(closed.await(5, TimeUnit.SECONDS));
+        thread.join(5000);
+        assertFalse(thread.isAlive());
+        assertFalse(lobby.insertPlayer("late", mock(RemoteView.class)));
+    }
+
+    @Test
+    public void timerCallback_defaultLobbyEmptied_shouldNotClose() {
+        Lobby lobby = new Lobby(Runnable::run);
+        lobby.getWaitingPlayers().put("name", mock(RemoteView.class));
+
+        lobby.disconnectPlayer("name");
+        lobby.timerCallback();
+
+        assertFalse(lobby.isClosed());
+        assertTrue(lobby.insertPlayer("other", mock(RemoteView.class)));
+    }
+
     @Test
     public void disconnectPlayer_shouldRemoveFromWaitingList() {
-        Lobby lobby = new Lobby();
+        Lobby lobby = new Lobby(Runnable::run);
         RemoteView faulty = mock(RemoteView.class);
         RemoteView other = mock(RemoteView.class);
 
@@ -136,7 +170,7 @@ public class LobbyTest {
 
     @Test
     public void disconnectInactive_shouldOnlyDisconnectInactive() throws IOException {
-        Lobby lobby = new Lobby();
+        Lobby lobby = new Lobby(Runnable::run);
         RemoteView faulty = mock(RemoteView.class);
         RemoteView other = mock(RemoteView.class);
 
@@ -155,9 +189,64 @@ public class LobbyTest {
         assertTrue(waitingList.containsKey("other"));
     }
 
+    @Test
+    public void disconnectInactive_pingMissingDeadline_shouldDisconnectOnlyThatPlayer() throws Exception {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        Lobby lobby = new Lobby(executor);
+        RemoteView slow = mock(RemoteView.class);
+        RemoteView other = mock(RemoteView.class);
+        CountDownLatch answer = new CountDownLatch(1);
+
+        Map<String, RemoteView> waitingList = lobby.getWaitingPlayers();
+        waitingList.put("slow", slow);
+        waitingList.put("other", other);
+
+        /* Slow does not answer the ping until the end of the test */
+        doAnswer(invocation -> {
+            answer.await();
+            return null;
+        }).when(slow).ping();
+
+        try {
+            lobby.disconnectInactive().get(5, TimeUnit.SECONDS);
+
+            assertFalse(waitingList.containsKey("slow"));
+            assertTrue(waitingList.containsKey("other"));
+        } finally {
+            answer.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void receiveIncomingPlayer_slowWaitingPlayer_shouldNotBlockOthers() throws Exception {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        Lobby lobby = new Lobby(executor);
+        RemoteView slow = mock(RemoteView.class);
+        RemoteView remote = mock(RemoteView.class);
+        CountDownLatch answer = new CountDownLatch(1);
+
+        doAnswer(invocation -> {
+            answer.await();
+            return null;
+        }).when(slow).ping();
+        lobby.getWaitingPlayers().put("slow", slow);
+
+        try {
+            lobby.receiveIncomingPlayer(new AbstractMap.SimpleEntry<>("name", remote));
+
+            /* The new player is served while the slow one is still being pinged */
+            verify(remote, timeout(1000)).selectScene(ViewScene.LOBBY);
+            assertTrue(lobby.getWaitingPlayers().containsKey("slow"));
+        } finally {
+            answer.countDown();
+            executor.shutdown();
+        }
+    }
+
     @Test
     public void selectLobbyScene_shouldIgnoreDisconnected() throws IOException {
-        Lobby lobby = new Lobby();
+        Lobby lobby = new Lobby(Runnable::run);
         RemoteView faulty = mock(RemoteView.class);
         doThrow(new IOException()).when(faulty).selectScene(any());
 
@@ -173,7 +262,7 @@ public class LobbyTest {
 
     @Test
     public void notifyWaitingList_shouldIgnoreDisconnected() throws IOException {
-        Lobby lobby = new Lobby();
+        Lobby lobby = new Lobby(Runnable::run);
         RemoteView faulty = mock(RemoteView.class);
         doThrow(new IOException()).when(faulty).update(any());
 
@@ -189,7 +278,7 @@ public class LobbyTest {
 
     @Test
     public void shutdown_shouldEmptyWaitingListAndNotify() throws IOException {
-        Lobby lobby = new Lobby();
+        Lobby lobby = new Lobby(Runnable::run);
 
         /* Artificially create a waiting list */
         RemoteView remote = mock(RemoteView.class);
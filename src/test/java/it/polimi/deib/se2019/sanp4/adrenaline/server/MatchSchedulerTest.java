@@ -0,0 +1,138 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.server;
+
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.RemoteView;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.LogManager;
+
+import static org.junit.Assert.*;
+
+public class MatchSchedulerTest {
+
+    /* Tasks given to the executor, which are run manually */
+    private List<Runnable> tasks;
+
+    /* Last queue received by the listener */
+    private List<Map<String, RemoteView>> lastQueue;
+
+    private MatchScheduler scheduler;
+
+    @BeforeClass
+    public static void classSetup() {
+        /* Disable logging */
+        LogManager.getLogManager().reset();
+    }
+
+    @Before
+    public void setUp() {
+        tasks = new ArrayList<>();
+        lastQueue = null;
+        scheduler = new MatchScheduler(1, tasks::add);
+        scheduler.setQueueListener(queue -> lastQueue = queue);
+    }
+
+    private static Map<String, RemoteView> players(String... names) {
+        Map<String, RemoteView> players = new HashMap<>();
+        for (String name : names) players.put(name, null);
+        return players;
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void create_zeroCapacity_shouldThrowIllegalArgumentException() {
+        new MatchScheduler(0, tasks::add);
+    }
+
+    @Test
+    public void submit_freeSlot_shouldStartMatch() {
+        assertTrue(scheduler.hasFreeSlot());
+
+        assertEquals(0, scheduler.submit(players("a"), () -> {}));
+
+        assertEquals(1, tasks.size());
+        assertEquals(1, scheduler.getRunningMatches());
+        assertEquals(0, scheduler.getQueueDepth());
+        assertFalse(scheduler.hasFreeSlot());
+        assertNull(lastQueue);
+    }
+
+    @Test
+    public void submit_capacityExhausted_shouldQueueAndNotifyPosition() {
+        scheduler.submit(players("a"), () -> {});
+
+        assertEquals(1, scheduler.submit(players("b"), () -> {}));
+        assertEquals(2, scheduler.submit(players("c"), () -> {}));
+
+        assertEquals(1, tasks.size());
+        assertEquals(2, scheduler.getQueueDepth());
+        assertEquals(Arrays.asList(players("b"), players("c")), lastQueue);
+    }
+
+    @Test
+    public void matchFinished_shouldStartFirstQueuedMatch() {
+        List<String> started = new ArrayList<>();
+        scheduler.submit(players("a"), () -> started.add("a"));
+        scheduler.submit(players("b"), () -> started.add("b"));
+        scheduler.submit(players("c"), () -> started.add("c"));
+
+        /* The first match ends, so the second one is admitted */
+        tasks.get(0).run();
+
+        assertEquals(2, tasks.size());
+        assertEquals(1, scheduler.getRunningMatches());
+        assertEquals(Collections.singletonList(players("c")), lastQueue);
+
+        tasks.get(1).run();
+        tasks.get(2).run();
+
+        assertEquals(Arrays.asList("a", "b", "c"), started);
+        assertEquals(0, scheduler.getRunningMatches());
+        assertTrue(lastQueue.isEmpty());
+    }
+
+    @Test
+    public void matchFinished_withException_shouldFreeSlot() {
+        scheduler.submit(players("a"), () -> {
+            throw new IllegalStateException();
+        });
+
+        tasks.get(0).run();
+
+        assertEquals(0, scheduler.getRunningMatches());
+        assertTrue(scheduler.hasFreeSlot());
+    }
+
+    @Test
+    public void submitAsync_shouldKeepSlotUntilStageCompletes() {
+        CompletableFuture<Void> match = new CompletableFuture<>();
+        scheduler.submitAsync(players("a"), executor -> match);
+        scheduler.submit(players("b"), () -> {});
+
+        /* The match is waiting for its players, no thread is used */
+        assertTrue(tasks.isEmpty());
+        assertEquals(1, scheduler.getRunningMatches());
+        assertEquals(1, scheduler.getQueueDepth());
+
+        match.complete(null);
+
+        assertEquals(1, tasks.size());
+        assertEquals(0, scheduler.getQueueDepth());
+    }
+
+    @Test
+    public void setCapacity_increased_shouldStartQueuedMatches() {
+        scheduler.submit(players("a"), () -> {});
+        scheduler.submit(players("b"), () -> {});
+        scheduler.submit(players("c"), () -> {});
+
+        scheduler.setCapacity(3);
+
+        assertEquals(3, tasks.size());
+        assertEquals(3, scheduler.getRunningMatches());
+        assertEquals(0, scheduler.getQueueDepth());
+        assertEquals(3, scheduler.getCapacity());
+    }
+}
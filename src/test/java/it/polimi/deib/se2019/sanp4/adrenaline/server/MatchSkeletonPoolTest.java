@@ -0,0 +1,68 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.server;
+
+import it.polimi.deib.se2019.sanp4.adrenaline.model.ModelTestUtil;
+import it.polimi.deib.se2019.sanp4.adrenaline.model.match.MatchSkeleton;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.*;
+
+public class MatchSkeletonPoolTest {
+
+    @BeforeClass
+    public static void classSetup() {
+        ModelTestUtil.disableLogging();
+        ModelTestUtil.loadCreatorResources();
+    }
+
+    @Test
+    public void prepare_poolFull_shouldNotPrepare() {
+        MatchSkeletonPool pool = new MatchSkeletonPool(1, Runnable::run);
+
+        assertTrue(pool.prepare(0));
+        assertFalse(pool.prepare(1));
+        assertEquals(1, pool.getSize());
+    }
+
+    @Test
+    public void take_prepared_shouldReturnPreparedSkeleton() throws Exception {
+        MatchSkeletonPool pool = new MatchSkeletonPool(2, Runnable::run);
+        pool.prepare(null);
+        pool.prepare(2);
+
+        MatchSkeleton skeleton = pool.take(2).get();
+
+        assertEquals(Integer.valueOf(2), skeleton.getBoardId());
+        assertEquals(1, pool.getSize());
+    }
+
+    @Test
+    public void take_otherBoardPrepared_shouldReturnIt() throws Exception {
+        MatchSkeletonPool pool = new MatchSkeletonPool(2, Runnable::run);
+        pool.prepare(1);
+
+        MatchSkeleton skeleton = pool.take(3).get();
+
+        assertEquals(Integer.valueOf(1), skeleton.getBoardId());
+        assertEquals(0, pool.getSize());
+    }
+
+    @Test
+    public void take_emptyPool_shouldCreateSkeleton() throws Exception {
+        MatchSkeletonPool pool = new MatchSkeletonPool(0, Runnable::run);
+
+        CompletableFuture<MatchSkeleton> skeleton = pool.take(null);
+
+        assertNull(skeleton.get().getBoardId());
+        assertEquals(0, pool.getSize());
+    }
+
+    @Test
+    public void take_invalidBoard_shouldCompleteExceptionally() {
+        MatchSkeletonPool pool = new MatchSkeletonPool(0, Runnable::run);
+
+        assertTrue(pool.take(-10).isCompletedExceptionally());
+    }
+}
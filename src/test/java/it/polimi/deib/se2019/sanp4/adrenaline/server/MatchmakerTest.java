@@ -0,0 +1,135 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.server;
+
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.MatchPreferences;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.RemoteView;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.logging.LogManager;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MatchmakerTest {
+
+    @BeforeClass
+    public static void classSetup() {
+        /* Disable logging */
+        LogManager.getLogManager().reset();
+    }
+
+    @Test
+    public void route_noPreferences_shouldSelectDefaultLobby() {
+        Matchmaker matchmaker = new Matchmaker(4);
+
+        assertSame(matchmaker.getDefaultLobby(), matchmaker.route(null));
+        assertSame(matchmaker.getDefaultLobby(), matchmaker.route(MatchPreferences.ANY));
+        assertEquals(1, matchmaker.getLobbies().size());
+    }
+
+    @Test
+    public void route_samePreferences_shouldSelectSameLobby() {
+        Matchmaker matchmaker = new Matchmaker(4);
+
+        Lobby lobby = matchmaker.route(new MatchPreferences(2, 5, "eu"));
+
+        assertEquals(new MatchPreferences(2, 5, "eu"), lobby.getPreferences());
+        assertSame(lobby, matchmaker.route(new MatchPreferences(2, 5, "eu")));
+        assertNotSame(lobby, matchmaker.route(new MatchPreferences(2, 5, "us")));
+        assertEquals(3, matchmaker.getLobbies().size());
+    }
+
+    @Test
+    public void route_anyPreferences_shouldSelectFullestLobby() {
+        Matchmaker matchmaker = new Matchmaker(4);
+        matchmaker.insertPlayer("first", mock(RemoteView.class), new MatchPreferences(1, null, null));
+        matchmaker.insertPlayer("second", mock(RemoteView.class), new MatchPreferences(1, null, null));
+        matchmaker.insertPlayer("third", mock(RemoteView.class), new MatchPreferences(3, 8, null));
+
+        Lobby lobby = matchmaker.route(MatchPreferences.ANY);
+
+        assertEquals(new MatchPreferences(1, null, null), lobby.getPreferences());
+    }
+
+    @Test
+    public void route_partialPreferences_shouldSelectOnlyCompatibleLobbies() {
+        Matchmaker matchmaker = new Matchmaker(4);
+        matchmaker.insertPlayer("first", mock(RemoteView.class), new MatchPreferences(1, 5, null));
+        matchmaker.insertPlayer("second", mock(RemoteView.class), new MatchPreferences(2, 5, null));
+        matchmaker.insertPlayer("third", mock(RemoteView.class), new MatchPreferences(2, 5, null));
+
+        /* The fullest lobby has another board */
+        Lobby lobby = matchmaker.route(new MatchPreferences(1, null, null));
+
+        assertEquals(new MatchPreferences(1, 5, null), lobby.getPreferences());
+    }
+
+    @Test
+    public void route_invalidPreferences_shouldBeIgnored() {
+        Matchmaker matchmaker = new Matchmaker(4);
+
+        Lobby lobby = matchmaker.route(new MatchPreferences(42, 0, null));
+
+        assertSame(matchmaker.getDefaultLobby(), lobby);
+    }
+
+    @Test
+    public void route_maxLobbiesReached_shouldSelectDefaultLobby() {
+        Matchmaker matchmaker = new Matchmaker(2);
+        matchmaker.route(new MatchPreferences(0, 5, null));
+
+        Lobby lobby = matchmaker.route(new MatchPreferences(1, 5, null));
+
+        assertSame(matchmaker.getDefaultLobby(), lobby);
+        assertEquals(2, matchmaker.getLobbies().size());
+    }
+
+    @Test
+    public void route_maxLobbiesReachedBefore_lobbyEmptied_shouldCreateNewLobby() throws IOException {
+        Matchmaker matchmaker = new Matchmaker(2, Runnable::run);
+        Lobby old = matchmaker.route(new MatchPreferences(0, 5, null));
+        assertSame(matchmaker.getDefaultLobby(), matchmaker.route(new MatchPreferences(1, 5, null)));
+
+        /* The only player of the old lobby leaves */
+        RemoteView leaving = mock(RemoteView.class);
+        doThrow(new IOException()).when(leaving).ping();
+        old.receiveIncomingPlayer(new AbstractMap.SimpleEntry<>("leaving", leaving));
+
+        Lobby lobby = matchmaker.route(new MatchPreferences(1, 5, null));
+
+        assertTrue(old.isClosed());
+        assertFalse(matchmaker.getLobbies().contains(old));
+        assertEquals(new MatchPreferences(1, 5, null), lobby.getPreferences());
+        assertEquals(2, matchmaker.getLobbies().size());
+    }
+
+    @Test
+    public void insertPlayer_lobbyClosed_shouldNotInsert() throws IOException {
+        Matchmaker matchmaker = new Matchmaker(4, Runnable::run);
+        Lobby old = matchmaker.route(new MatchPreferences(0, 5, null));
+        RemoteView leaving = mock(RemoteView.class);
+        doThrow(new IOException()).when(leaving).ping();
+        old.receiveIncomingPlayer(new AbstractMap.SimpleEntry<>("leaving", leaving));
+
+        matchmaker.insertPlayer("other", mock(RemoteView.class), new MatchPreferences(0, 5, null));
+
+        assertEquals(0, old.getPlayerCount());
+        assertEquals(1, matchmaker.route(new MatchPreferences(0, 5, null)).getPlayerCount());
+    }
+
+    @Test
+    public void acceptsMatch_shouldIgnoreMissingPreferences() {
+        MatchPreferences partial = new MatchPreferences(1, null, "eu");
+
+        assertTrue(partial.acceptsMatch(new MatchPreferences(1, 5, "eu")));
+        assertFalse(partial.acceptsMatch(new MatchPreferences(2, 5, "eu")));
+        assertFalse(partial.acceptsMatch(MatchPreferences.ANY));
+        assertTrue(MatchPreferences.ANY.acceptsMatch(partial));
+    }
+}
@@ -0,0 +1,296 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.server;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket.SocketClientCommand;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket.UpdateCommand;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket.codec.WireCodec;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.network.socket.codec.WireCodecs;
+import it.polimi.deib.se2019.sanp4.adrenaline.common.updates.DeltaUpdate;
+import it.polimi.deib.se2019.sanp4.adrenaline.server.OutboundQueue.OverflowPolicy;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.logging.LogManager;
+
+import static org.junit.Assert.*;
+
+public class OutboundQueueTest {
+
+    @BeforeClass
+    public static void classSetup() {
+        /* Disable logging */
+        LogManager.getLogManager().reset();
+    }
+
+    private static byte[] frame(int id) {
+        return new byte[]{(byte) id};
+    }
+
+    /* Offers the delta which brings the score of given player to given version */
+    private static void offerDelta(OutboundQueue queue, String player, long version) throws IOException {
+        ObjectNode patch = JsonNodeFactory.instance.objectNode();
+        patch.put("score", version * 2);
+        patch.put("version", version);
+        DeltaUpdate delta = new DeltaUpdate(DeltaUpdate.Entity.PLAYER, player, null, version, patch);
+        queue.offer(WireCodecs.TEXT.encode(new UpdateCommand(delta)), delta, WireCodecs.TEXT);
+    }
+
+    private static DeltaUpdate pollDelta(OutboundQueue queue) throws IOException {
+        WireCodec codec = WireCodecs.TEXT;
+        SocketClientCommand command = codec.decode(codec.readFrame(new ByteArrayInputStream(queue.poll())),
+                SocketClientCommand.class);
+        return (DeltaUpdate) ((UpdateCommand) command).getUpdate();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void create_zeroHighWatermark_shouldThrowIllegalArgumentException() {
+        new OutboundQueue(0, OverflowPolicy.DISCONNECT, 0);
+    }
+
+    @Test
+    public void poll_shouldReturnFramesInOrder() throws IOException {
+        OutboundQueue queue = new OutboundQueue(3, OverflowPolicy.DISCONNECT, 0);
+        queue.offer(frame(1));
+        queue.offer(frame(2));
+
+        assertEquals(2, queue.getDepth());
+        assertArrayEquals(frame(1), queue.poll());
+        assertArrayEquals(frame(2), queue.poll());
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+        assertEquals(2, queue.getPeakDepth());
+    }
+
+    @Test
+    public void offer_full_disconnectPolicy_shouldThrowAndClose() throws IOException {
+        OutboundQueue queue = new OutboundQueue(1, OverflowPolicy.DISCONNECT, 0);
+        queue.offer(frame(1), "a");
+
+        try {
+            queue.offer(frame(2), "a");
+            fail();
+        } catch (IOException e) {
+            /* The client is too slow */
+        }
+        assertTrue(queue.isEmpty());
+
+        try {
+            queue.offer(frame(3));
+            fail();
+        } catch (IOException e) {
+            /* The queue has been closed */
+        }
+    }
+
+    @Test
+    public void offer_full_conflatePolicy_shouldDropSupersededSnapshot() throws IOException {
+        OutboundQueue queue = new OutboundQueue(3, OverflowPolicy.CONFLATE, 0);
+        queue.offer(frame(1), "a");
+        queue.offer(frame(2));
+        queue.offer(frame(3), "b");
+
+        queue.offer(frame(4), "a");
+
+        assertEquals(3, queue.getDepth());
+        assertArrayEquals(frame(2), queue.poll());
+        assertArrayEquals(frame(3), queue.poll());
+        assertArrayEquals(frame(4), queue.poll());
+    }
+
+    @Test
+    public void offer_full_conflatePolicy_shouldDropSnapshotSupersededInQueue() throws IOException {
+        OutboundQueue queue = new OutboundQueue(3, OverflowPolicy.CONFLATE, 0);
+        queue.offer(frame(1), "a");
+        queue.offer(frame(2), "a");
+        queue.offer(frame(3), "b");
+
+        queue.offer(frame(4));
+
+        assertArrayEquals(frame(2), queue.poll());
+        assertArrayEquals(frame(3), queue.poll());
+        assertArrayEquals(frame(4), queue.poll());
+    }
+
+    @Test
+    public void offer_full_conflatePolicy_shouldDropDeltasOfSupersededSnapshot() throws IOException {
+        OutboundQueue queue = new OutboundQueue(5, OverflowPolicy.CONFLATE, 0);
+        queue.offer(frame(1), "a");
+        queue.offer(frame(2), null, "a");
+        queue.offer(frame(3), null, "b");
+        queue.offer(frame(4), "a");
+        queue.offer(frame(5), null, "a");
+
+        queue.offer(frame(6));
+
+        /* The deltas after the newer snapshot are based on it, so they are kept */
+        assertEquals(4, queue.getDepth());
+        assertArrayEquals(frame(3), queue.poll());
+        assertArrayEquals(frame(4), queue.poll());
+        assertArrayEquals(frame(5), queue.poll());
+        assertArrayEquals(frame(6), queue.poll());
+    }
+
+    @Test
+    public void offer_full_conflatePolicy_newSnapshot_shouldDropQueuedDeltas() throws IOException {
+        OutboundQueue queue = new OutboundQueue(3, OverflowPolicy.CONFLATE, 0);
+        queue.offer(frame(1), "a");
+        queue.offer(frame(2), null, "a");
+        queue.offer(frame(3), null, "a");
+
+        queue.offer(frame(4), "a");
+
+        assertEquals(1, queue.getDepth());
+        assertArrayEquals(frame(4), queue.poll());
+    }
+
+    @Test
+    public void offer_full_conflatePolicy_onlyDeltas_shouldMergeDeltasOfSameEntity() throws IOException {
+        OutboundQueue queue = new OutboundQueue(3, OverflowPolicy.CONFLATE, 0);
+        offerDelta(queue, "bzoto", 4);
+        offerDelta(queue, "zoniz", 7);
+        offerDelta(queue, "bzoto", 5);
+
+        offerDelta(queue, "zoniz", 8);
+
+        /* The queued delta of zoniz is merged into the new one, which is applied on the same version */
+        assertEquals(3, queue.getDepth());
+        assertEquals(4, pollDelta(queue).getVersion());
+        assertEquals(5, pollDelta(queue).getVersion());
+        DeltaUpdate merged = pollDelta(queue);
+        assertEquals("zoniz", merged.getPlayer());
+        assertEquals(6, merged.getBaseVersion());
+        assertEquals(8, merged.getVersion());
+        assertEquals(16, merged.getPatch().get("score").asInt());
+    }
+
+    @Test
+    public void offer_full_conflatePolicy_onlyQueuedDeltas_shouldMergeNewestPair() throws IOException {
+        OutboundQueue queue = new OutboundQueue(3, OverflowPolicy.CONFLATE, 0);
+        offerDelta(queue, "bzoto", 4);
+        offerDelta(queue, "bzoto", 5);
+        offerDelta(queue, "zoniz", 7);
+
+        offerDelta(queue, "mengi", 1);
+
+        assertEquals(3, queue.getDepth());
+        DeltaUpdate merged = pollDelta(queue);
+        assertEquals("bzoto", merged.getPlayer());
+        assertEquals(3, merged.getBaseVersion());
+        assertEquals(5, merged.getVersion());
+        assertEquals("zoniz", pollDelta(queue).getPlayer());
+        assertEquals("mengi", pollDelta(queue).getPlayer());
+    }
+
+    @Test(expected = IOException.class)
+    public void offer_full_conflatePolicy_deltasOfDifferentEntities_shouldThrow() throws IOException {
+        OutboundQueue queue = new OutboundQueue(2, OverflowPolicy.CONFLATE, 0);
+        offerDelta(queue, "bzoto", 4);
+        offerDelta(queue, "zoniz", 7);
+
+        offerDelta(queue, "mengi", 1);
+    }
+
+    @Test(expected = IOException.class)
+    public void offer_full_conflatePolicy_nothingToConflate_shouldThrow() throws IOException {
+        OutboundQueue queue = new OutboundQueue(2, OverflowPolicy.CONFLATE, 0);
+        queue.offer(frame(1), "a");
+        queue.offer(frame(2));
+
+        queue.offer(frame(3), "b");
+    }
+
+    @Test
+    public void offer_full_blockPolicy_shouldWaitForDrain() throws IOException, InterruptedException {
+        OutboundQueue queue = new OutboundQueue(1, OverflowPolicy.BLOCK, 10000);
+        queue.offer(frame(1));
+
+        Thread drain = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+                queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        drain.start();
+
+        queue.offer(frame(2));
+        drain.join();
+
+        assertArrayEquals(frame(2), queue.poll());
+    }
+
+    @Test(expected = IOException.class)
+    public void offer_full_blockPolicy_timeout_shouldThrow() throws IOException {
+        OutboundQueue queue = new OutboundQueue(1, OverflowPolicy.BLOCK, 10);
+        queue.offer(frame(1));
+
+        queue.offer(frame(2));
+    }
+
+    @Test
+    public void awaitWritten_frameWritten_shouldReturn() throws IOException, InterruptedException {
+        OutboundQueue queue = new OutboundQueue(3, OverflowPolicy.DISCONNECT, 0, 10000);
+        queue.offer(frame(1));
+        long sequence = queue.offer(frame(2));
+
+        Thread writer = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+                queue.take();
+                queue.take();
+                queue.written();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        writer.start();
+
+        queue.awaitWritten(sequence);
+        writer.join();
+    }
+
+    @Test
+    public void awaitWritten_olderFramesWritten_shouldFlushAfterPolling() throws IOException {
+        OutboundQueue queue = new OutboundQueue(3, OverflowPolicy.DISCONNECT, 0, 10);
+        queue.offer(frame(1));
+        long sequence = queue.offer(frame(2));
+        queue.offer(frame(3));
+
+        queue.poll();
+        queue.written();
+        try {
+            queue.awaitWritten(sequence);
+            fail();
+        } catch (IOException e) {
+            /* The frame has not been written yet */
+        }
+
+        /* The awaited frame has been taken, so the writer should not wait for the queue to empty */
+        assertFalse(queue.isFlushNeeded());
+        queue.poll();
+        assertTrue(queue.isFlushNeeded());
+        queue.written();
+        queue.awaitWritten(sequence);
+    }
+
+    @Test(expected = IOException.class)
+    public void awaitWritten_closed_shouldThrow() throws IOException {
+        OutboundQueue queue = new OutboundQueue(3, OverflowPolicy.DISCONNECT, 0, 10000);
+        long sequence = queue.offer(frame(1));
+        queue.close();
+
+        queue.awaitWritten(sequence);
+    }
+
+    @Test
+    public void take_closed_shouldReturnNull() throws InterruptedException {
+        OutboundQueue queue = new OutboundQueue(1, OverflowPolicy.DISCONNECT, 0);
+        queue.close();
+
+        assertNull(queue.take());
+    }
+}
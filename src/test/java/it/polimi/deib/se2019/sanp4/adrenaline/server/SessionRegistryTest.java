@@ -0,0 +1,100 @@
+package it.polimi.deib.se2019.sanp4.adrenaline.server;
+
+import it.polimi.deib.se2019.sanp4.adrenaline.controller.Controller;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+
+public class SessionRegistryTest {
+
+    private SessionRegistry registry;
+
+    @Before
+    public void setUp() {
+        registry = new SessionRegistry();
+    }
+
+    @Test
+    public void reserve_freeUsername_shouldCreateSession() {
+        SessionRegistry.Session session = registry.reserve("bzoto");
+
+        assertNotNull(session);
+        assertEquals("bzoto", session.getUsername());
+        assertNotNull(session.getToken());
+        assertNull(session.getController());
+        assertTrue(registry.isReserved("bzoto"));
+        assertSame(session, registry.getSession("bzoto"));
+    }
+
+    @Test
+    public void reserve_reservedUsername_shouldReturnNull() {
+        registry.reserve("bzoto");
+
+        assertNull(registry.reserve("bzoto"));
+    }
+
+    @Test
+    public void resolve_shouldFindSessionByToken() {
+        SessionRegistry.Session session = registry.reserve("bzoto");
+        registry.reserve("zoni");
+
+        assertSame(session, registry.resolve(session.getToken()));
+        assertNull(registry.resolve("unknown"));
+        assertNull(registry.resolve(null));
+    }
+
+    @Test
+    public void release_shouldInvalidateTokenAndFreeUsername() {
+        SessionRegistry.Session session = registry.reserve("bzoto");
+
+        registry.release("bzoto");
+
+        assertFalse(registry.isReserved("bzoto"));
+        assertNull(registry.resolve(session.getToken()));
+
+        SessionRegistry.Session newSession = registry.reserve("bzoto");
+        assertNotNull(newSession);
+        assertNotEquals(session.getToken(), newSession.getToken());
+    }
+
+    @Test
+    public void setController_shouldBeSetOnSession() {
+        Controller controller = mock(Controller.class);
+        SessionRegistry.Session session = registry.reserve("bzoto");
+
+        registry.setController("bzoto", controller);
+        registry.setController("unknown", controller);
+
+        assertSame(controller, session.getController());
+        assertNull(registry.getSession("unknown"));
+    }
+
+    @Test
+    public void reserve_concurrentLogins_shouldReserveOnce() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<SessionRegistry.Session>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return registry.reserve("bzoto");
+            }));
+        }
+
+        start.countDown();
+        int reserved = 0;
+        for (Future<SessionRegistry.Session> result : results) {
+            if (result.get(5, TimeUnit.SECONDS) != null) reserved++;
+        }
+        executor.shutdown();
+
+        assertEquals(1, reserved);
+    }
+}